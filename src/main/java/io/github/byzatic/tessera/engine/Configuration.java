@@ -14,6 +14,9 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Configuration {
     private final static Logger logger = LoggerFactory.getLogger(Configuration.class);
@@ -74,6 +77,33 @@ public class Configuration {
     public static final Boolean JVM_METRICS_ENABLED;
     public static final Boolean PUBLISH_NODE_PIPELINE_EXECUTION_TIME;
     public static final Boolean PUBLISH_STORAGE_ANALYTICS;
+    // Interval (ms) of the background storage analytics publisher; writes only update counters.
+    public static final Long STORAGE_ANALYTICS_PUBLISH_INTERVAL;
+    // Graph traversal engine: "classic" (GraphTraversal, polling), "event" (DependencyCounterGraphTraversal)
+    // "parallel" (DependencyCounterGraphTraversal running sibling subtrees on a ForkJoinPool)
+    // or "async" (as "parallel", but pipelines are chained via CompletableFuture instead of blocking pool threads).
+    public static final String GRAPH_TRAVERSAL_ENGINE;
+    // Size of the ForkJoinPool used by the "parallel" and "async" graph traversal engines.
+    public static final Integer GRAPH_TRAVERSAL_PARALLELISM;
+    // Graph node repository: "map" (GraphManagerNodeRepository) or "csr" (CsrGraphManagerNodeRepository, lock-free reads).
+    public static final String GRAPH_NODE_REPOSITORY;
+    // Node storage cleanup after a graph run: "clear" (clear every storage) or "generation" (swap in a fresh generation).
+    public static final String NODE_STORAGE_CLEANUP_MODE;
+    // Inline execution of pipeline workers on the traversal thread: "none", "single" (single-worker stages)
+    // or "last" (last worker of every stage).
+    public static final String PIPELINE_INLINE_EXECUTION;
+    // Max number of root paths exposed per node (execution context, path queries); the rest is truncated with a warning.
+    public static final Integer GRAPH_ROOT_PATHS_LIMIT;
+    // Grace period (ms) given to a pipeline worker that missed its timeout_ms before the scheduler abandons it.
+    public static final Long PIPELINE_STOP_GRACE;
+    // Max concurrently running workers per workflow routine name across the graph: "Name=limit,..."; empty - unlimited.
+    public static final Map<String, Integer> WORKER_CONCURRENCY_LIMITS;
+    // Max concurrently running workers per stage id across the graph: "stageId=limit,..."; empty - unlimited.
+    public static final Map<String, Integer> STAGE_CONCURRENCY_LIMITS;
+    // Threads launching workers of async pipelines (routine creation and addTask).
+    public static final Integer PIPELINE_LAUNCHER_THREADS;
+    // Max pending worker launches; beyond it the launch runs on the submitting thread.
+    public static final Integer PIPELINE_LAUNCHER_QUEUE_CAPACITY;
 
     private static Path initConfigFilePath() throws ConfigurationException {
         Path result;
@@ -312,6 +342,280 @@ public class Configuration {
         return result;
     }
 
+    private static Long initStorageAnalyticsPublishInterval(XMLConfiguration config) throws ConfigurationException {
+        Long result;
+        Long propertyStorageAnalyticsPublishInterval = (System.getProperty("storageAnalyticsPublishInterval", null) != null) ? Long.valueOf(System.getProperty("storageAnalyticsPublishInterval")) : null;
+        Long configStorageAnalyticsPublishInterval = (config.getString("storageAnalyticsPublishInterval") != null) ? Long.valueOf(config.getString("storageAnalyticsPublishInterval")) : null;
+        Long defaultStorageAnalyticsPublishInterval = 5000L;
+
+        if (propertyStorageAnalyticsPublishInterval != null) {
+            result = propertyStorageAnalyticsPublishInterval;
+            logger.debug("(property) STORAGE_ANALYTICS_PUBLISH_INTERVAL = {}", propertyStorageAnalyticsPublishInterval);
+        } else if (configStorageAnalyticsPublishInterval != null) {
+            result = configStorageAnalyticsPublishInterval;
+            logger.debug("(config) STORAGE_ANALYTICS_PUBLISH_INTERVAL = {}", configStorageAnalyticsPublishInterval);
+        } else {
+            result = defaultStorageAnalyticsPublishInterval;
+            logger.debug("(default) STORAGE_ANALYTICS_PUBLISH_INTERVAL = {}", defaultStorageAnalyticsPublishInterval);
+        }
+        if (result < 1)
+            throw new ConfigurationException("storageAnalyticsPublishInterval should be positive; storageAnalyticsPublishInterval= " + result);
+        return result;
+    }
+
+    private static String initGraphTraversalEngine(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyGraphTraversalEngine = System.getProperty("graphTraversalEngine", null);
+        String configGraphTraversalEngine = config.getString("graphTraversalEngine");
+        String defaultGraphTraversalEngine = "classic";
+
+        if (propertyGraphTraversalEngine != null) {
+            result = propertyGraphTraversalEngine;
+            logger.debug("(property) GRAPH_TRAVERSAL_ENGINE = {}", propertyGraphTraversalEngine);
+        } else if (configGraphTraversalEngine != null) {
+            result = configGraphTraversalEngine;
+            logger.debug("(config) GRAPH_TRAVERSAL_ENGINE = {}", configGraphTraversalEngine);
+        } else {
+            result = defaultGraphTraversalEngine;
+            logger.debug("(default) GRAPH_TRAVERSAL_ENGINE = {}", defaultGraphTraversalEngine);
+        }
+        result = result.trim().toLowerCase();
+        if (!result.equals("classic") && !result.equals("event") && !result.equals("parallel") && !result.equals("async"))
+            throw new ConfigurationException("Unknown graphTraversalEngine " + result + "; expected classic, event, parallel or async");
+        return result;
+    }
+
+    private static Integer initGraphTraversalParallelism(XMLConfiguration config) throws ConfigurationException {
+        Integer result;
+        Integer propertyGraphTraversalParallelism = (System.getProperty("graphTraversalParallelism", null) != null) ? Integer.valueOf(System.getProperty("graphTraversalParallelism")) : null;
+        Integer configGraphTraversalParallelism = (config.getString("graphTraversalParallelism") != null) ? Integer.valueOf(config.getString("graphTraversalParallelism")) : null;
+        Integer defaultGraphTraversalParallelism = Runtime.getRuntime().availableProcessors();
+
+        if (propertyGraphTraversalParallelism != null) {
+            result = propertyGraphTraversalParallelism;
+            logger.debug("(property) GRAPH_TRAVERSAL_PARALLELISM = {}", propertyGraphTraversalParallelism);
+        } else if (configGraphTraversalParallelism != null) {
+            result = configGraphTraversalParallelism;
+            logger.debug("(config) GRAPH_TRAVERSAL_PARALLELISM = {}", configGraphTraversalParallelism);
+        } else {
+            result = defaultGraphTraversalParallelism;
+            logger.debug("(default) GRAPH_TRAVERSAL_PARALLELISM = {}", defaultGraphTraversalParallelism);
+        }
+        if (result < 1)
+            throw new ConfigurationException("graphTraversalParallelism should be positive; graphTraversalParallelism= " + result);
+        return result;
+    }
+
+    private static String initGraphNodeRepository(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyGraphNodeRepository = System.getProperty("graphNodeRepository", null);
+        String configGraphNodeRepository = config.getString("graphNodeRepository");
+        String defaultGraphNodeRepository = "map";
+
+        if (propertyGraphNodeRepository != null) {
+            result = propertyGraphNodeRepository;
+            logger.debug("(property) GRAPH_NODE_REPOSITORY = {}", propertyGraphNodeRepository);
+        } else if (configGraphNodeRepository != null) {
+            result = configGraphNodeRepository;
+            logger.debug("(config) GRAPH_NODE_REPOSITORY = {}", configGraphNodeRepository);
+        } else {
+            result = defaultGraphNodeRepository;
+            logger.debug("(default) GRAPH_NODE_REPOSITORY = {}", defaultGraphNodeRepository);
+        }
+        result = result.trim().toLowerCase();
+        if (!result.equals("map") && !result.equals("csr"))
+            throw new ConfigurationException("Unknown graphNodeRepository " + result + "; expected map or csr");
+        return result;
+    }
+
+    private static String initNodeStorageCleanupMode(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyNodeStorageCleanupMode = System.getProperty("nodeStorageCleanupMode", null);
+        String configNodeStorageCleanupMode = config.getString("nodeStorageCleanupMode");
+        String defaultNodeStorageCleanupMode = "clear";
+
+        if (propertyNodeStorageCleanupMode != null) {
+            result = propertyNodeStorageCleanupMode;
+            logger.debug("(property) NODE_STORAGE_CLEANUP_MODE = {}", propertyNodeStorageCleanupMode);
+        } else if (configNodeStorageCleanupMode != null) {
+            result = configNodeStorageCleanupMode;
+            logger.debug("(config) NODE_STORAGE_CLEANUP_MODE = {}", configNodeStorageCleanupMode);
+        } else {
+            result = defaultNodeStorageCleanupMode;
+            logger.debug("(default) NODE_STORAGE_CLEANUP_MODE = {}", defaultNodeStorageCleanupMode);
+        }
+        result = result.trim().toLowerCase();
+        if (!result.equals("clear") && !result.equals("generation"))
+            throw new ConfigurationException("Unknown nodeStorageCleanupMode " + result + "; expected clear or generation");
+        return result;
+    }
+
+    private static String initPipelineInlineExecution(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyPipelineInlineExecution = System.getProperty("pipelineInlineExecution", null);
+        String configPipelineInlineExecution = config.getString("pipelineInlineExecution");
+        String defaultPipelineInlineExecution = "none";
+
+        if (propertyPipelineInlineExecution != null) {
+            result = propertyPipelineInlineExecution;
+            logger.debug("(property) PIPELINE_INLINE_EXECUTION = {}", propertyPipelineInlineExecution);
+        } else if (configPipelineInlineExecution != null) {
+            result = configPipelineInlineExecution;
+            logger.debug("(config) PIPELINE_INLINE_EXECUTION = {}", configPipelineInlineExecution);
+        } else {
+            result = defaultPipelineInlineExecution;
+            logger.debug("(default) PIPELINE_INLINE_EXECUTION = {}", defaultPipelineInlineExecution);
+        }
+        result = result.trim().toLowerCase();
+        if (!result.equals("none") && !result.equals("single") && !result.equals("last"))
+            throw new ConfigurationException("Unknown pipelineInlineExecution " + result + "; expected none, single or last");
+        return result;
+    }
+
+    private static Integer initGraphRootPathsLimit(XMLConfiguration config) throws ConfigurationException {
+        Integer result;
+        Integer propertyGraphRootPathsLimit = (System.getProperty("graphRootPathsLimit", null) != null) ? Integer.valueOf(System.getProperty("graphRootPathsLimit")) : null;
+        Integer configGraphRootPathsLimit = (config.getString("graphRootPathsLimit") != null) ? Integer.valueOf(config.getString("graphRootPathsLimit")) : null;
+        Integer defaultGraphRootPathsLimit = 1000;
+
+        if (propertyGraphRootPathsLimit != null) {
+            result = propertyGraphRootPathsLimit;
+            logger.debug("(property) GRAPH_ROOT_PATHS_LIMIT = {}", propertyGraphRootPathsLimit);
+        } else if (configGraphRootPathsLimit != null) {
+            result = configGraphRootPathsLimit;
+            logger.debug("(config) GRAPH_ROOT_PATHS_LIMIT = {}", configGraphRootPathsLimit);
+        } else {
+            result = defaultGraphRootPathsLimit;
+            logger.debug("(default) GRAPH_ROOT_PATHS_LIMIT = {}", defaultGraphRootPathsLimit);
+        }
+        if (result < 1)
+            throw new ConfigurationException("graphRootPathsLimit should be positive; graphRootPathsLimit= " + result);
+        return result;
+    }
+
+    private static Long initPipelineStopGrace(XMLConfiguration config) throws ConfigurationException {
+        Long result;
+        Long propertyPipelineStopGrace = (System.getProperty("pipelineStopGrace", null) != null) ? Long.valueOf(System.getProperty("pipelineStopGrace")) : null;
+        Long configPipelineStopGrace = (config.getString("pipelineStopGrace") != null) ? Long.valueOf(config.getString("pipelineStopGrace")) : null;
+        Long defaultPipelineStopGrace = 5000L;
+
+        if (propertyPipelineStopGrace != null) {
+            result = propertyPipelineStopGrace;
+            logger.debug("(property) PIPELINE_STOP_GRACE = {}", propertyPipelineStopGrace);
+        } else if (configPipelineStopGrace != null) {
+            result = configPipelineStopGrace;
+            logger.debug("(config) PIPELINE_STOP_GRACE = {}", configPipelineStopGrace);
+        } else {
+            result = defaultPipelineStopGrace;
+            logger.debug("(default) PIPELINE_STOP_GRACE = {}", defaultPipelineStopGrace);
+        }
+        if (result < 0)
+            throw new ConfigurationException("pipelineStopGrace should not be negative; pipelineStopGrace= " + result);
+        return result;
+    }
+
+    private static Integer initPipelineLauncherThreads(XMLConfiguration config) throws ConfigurationException {
+        Integer result;
+        Integer propertyPipelineLauncherThreads = (System.getProperty("pipelineLauncherThreads", null) != null) ? Integer.valueOf(System.getProperty("pipelineLauncherThreads")) : null;
+        Integer configPipelineLauncherThreads = (config.getString("pipelineLauncherThreads") != null) ? Integer.valueOf(config.getString("pipelineLauncherThreads")) : null;
+        Integer defaultPipelineLauncherThreads = Runtime.getRuntime().availableProcessors();
+
+        if (propertyPipelineLauncherThreads != null) {
+            result = propertyPipelineLauncherThreads;
+            logger.debug("(property) PIPELINE_LAUNCHER_THREADS = {}", propertyPipelineLauncherThreads);
+        } else if (configPipelineLauncherThreads != null) {
+            result = configPipelineLauncherThreads;
+            logger.debug("(config) PIPELINE_LAUNCHER_THREADS = {}", configPipelineLauncherThreads);
+        } else {
+            result = defaultPipelineLauncherThreads;
+            logger.debug("(default) PIPELINE_LAUNCHER_THREADS = {}", defaultPipelineLauncherThreads);
+        }
+        if (result < 1)
+            throw new ConfigurationException("pipelineLauncherThreads should be positive; pipelineLauncherThreads= " + result);
+        return result;
+    }
+
+    private static Integer initPipelineLauncherQueueCapacity(XMLConfiguration config) throws ConfigurationException {
+        Integer result;
+        Integer propertyPipelineLauncherQueueCapacity = (System.getProperty("pipelineLauncherQueueCapacity", null) != null) ? Integer.valueOf(System.getProperty("pipelineLauncherQueueCapacity")) : null;
+        Integer configPipelineLauncherQueueCapacity = (config.getString("pipelineLauncherQueueCapacity") != null) ? Integer.valueOf(config.getString("pipelineLauncherQueueCapacity")) : null;
+        Integer defaultPipelineLauncherQueueCapacity = 1024;
+
+        if (propertyPipelineLauncherQueueCapacity != null) {
+            result = propertyPipelineLauncherQueueCapacity;
+            logger.debug("(property) PIPELINE_LAUNCHER_QUEUE_CAPACITY = {}", propertyPipelineLauncherQueueCapacity);
+        } else if (configPipelineLauncherQueueCapacity != null) {
+            result = configPipelineLauncherQueueCapacity;
+            logger.debug("(config) PIPELINE_LAUNCHER_QUEUE_CAPACITY = {}", configPipelineLauncherQueueCapacity);
+        } else {
+            result = defaultPipelineLauncherQueueCapacity;
+            logger.debug("(default) PIPELINE_LAUNCHER_QUEUE_CAPACITY = {}", defaultPipelineLauncherQueueCapacity);
+        }
+        if (result < 1)
+            throw new ConfigurationException("pipelineLauncherQueueCapacity should be positive; pipelineLauncherQueueCapacity= " + result);
+        return result;
+    }
+
+    private static Map<String, Integer> initWorkerConcurrencyLimits(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyWorkerConcurrencyLimits = System.getProperty("workerConcurrencyLimits", null);
+        String configWorkerConcurrencyLimits = config.getString("workerConcurrencyLimits");
+        String defaultWorkerConcurrencyLimits = "";
+
+        if (propertyWorkerConcurrencyLimits != null) {
+            result = propertyWorkerConcurrencyLimits;
+            logger.debug("(property) WORKER_CONCURRENCY_LIMITS = {}", propertyWorkerConcurrencyLimits);
+        } else if (configWorkerConcurrencyLimits != null) {
+            result = configWorkerConcurrencyLimits;
+            logger.debug("(config) WORKER_CONCURRENCY_LIMITS = {}", configWorkerConcurrencyLimits);
+        } else {
+            result = defaultWorkerConcurrencyLimits;
+            logger.debug("(default) WORKER_CONCURRENCY_LIMITS = {}", defaultWorkerConcurrencyLimits);
+        }
+        return parseConcurrencyLimits("workerConcurrencyLimits", result);
+    }
+
+    private static Map<String, Integer> initStageConcurrencyLimits(XMLConfiguration config) throws ConfigurationException {
+        String result;
+        String propertyStageConcurrencyLimits = System.getProperty("stageConcurrencyLimits", null);
+        String configStageConcurrencyLimits = config.getString("stageConcurrencyLimits");
+        String defaultStageConcurrencyLimits = "";
+
+        if (propertyStageConcurrencyLimits != null) {
+            result = propertyStageConcurrencyLimits;
+            logger.debug("(property) STAGE_CONCURRENCY_LIMITS = {}", propertyStageConcurrencyLimits);
+        } else if (configStageConcurrencyLimits != null) {
+            result = configStageConcurrencyLimits;
+            logger.debug("(config) STAGE_CONCURRENCY_LIMITS = {}", configStageConcurrencyLimits);
+        } else {
+            result = defaultStageConcurrencyLimits;
+            logger.debug("(default) STAGE_CONCURRENCY_LIMITS = {}", defaultStageConcurrencyLimits);
+        }
+        return parseConcurrencyLimits("stageConcurrencyLimits", result);
+    }
+
+    /**
+     * "name=limit,name=limit" -> неизменяемая map; пустая строка — без ограничений.
+     */
+    private static Map<String, Integer> parseConcurrencyLimits(String option, String value) throws ConfigurationException {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) continue;
+            int separator = entry.lastIndexOf('=');
+            String key = (separator > 0) ? entry.substring(0, separator).trim() : "";
+            int limit;
+            try {
+                limit = (separator > 0) ? Integer.parseInt(entry.substring(separator + 1).trim()) : 0;
+            } catch (NumberFormatException e) {
+                limit = 0;
+            }
+            if (key.isEmpty() || limit < 1)
+                throw new ConfigurationException(option + " expects name=positiveLimit entries; invalid entry= " + entry.trim());
+            limits.put(key, limit);
+        }
+        return Collections.unmodifiableMap(limits);
+    }
+
     public static String readSpecificationVersion() {
         String version = "UNDEFINED";
         String packageVersion = Configuration.class.getPackage().getSpecificationVersion();;
@@ -384,6 +688,21 @@ public class Configuration {
             PUBLISH_NODE_PIPELINE_EXECUTION_TIME = initPublishNodePipelineExecutionTime(config);
 
             PUBLISH_STORAGE_ANALYTICS = initPublishStorageAnalytics(config);
+            STORAGE_ANALYTICS_PUBLISH_INTERVAL = initStorageAnalyticsPublishInterval(config);
+
+            GRAPH_TRAVERSAL_ENGINE = initGraphTraversalEngine(config);
+
+            GRAPH_TRAVERSAL_PARALLELISM = initGraphTraversalParallelism(config);
+
+            GRAPH_NODE_REPOSITORY = initGraphNodeRepository(config);
+            NODE_STORAGE_CLEANUP_MODE = initNodeStorageCleanupMode(config);
+            PIPELINE_INLINE_EXECUTION = initPipelineInlineExecution(config);
+            GRAPH_ROOT_PATHS_LIMIT = initGraphRootPathsLimit(config);
+            PIPELINE_STOP_GRACE = initPipelineStopGrace(config);
+            WORKER_CONCURRENCY_LIMITS = initWorkerConcurrencyLimits(config);
+            STAGE_CONCURRENCY_LIMITS = initStageConcurrencyLimits(config);
+            PIPELINE_LAUNCHER_THREADS = initPipelineLauncherThreads(config);
+            PIPELINE_LAUNCHER_QUEUE_CAPACITY = initPipelineLauncherQueueCapacity(config);
 
             logger.debug("Configuration complete.");
         } catch (ConfigurationException ce) {
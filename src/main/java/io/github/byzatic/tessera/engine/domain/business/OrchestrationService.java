@@ -293,6 +293,15 @@ public final class OrchestrationService implements OrchestrationServiceInterface
         } catch (Throwable ignored) {
         }
 
+        // Закрываем graphManager (пул обхода графа)
+        try {
+            GraphManagerInterface manager = this.graphManager;
+            if (manager != null) {
+                manager.close();
+            }
+        } catch (Throwable ignored) {
+        }
+
         // Останавливаем сервисы
         try {
             if (serviceManager != null) {
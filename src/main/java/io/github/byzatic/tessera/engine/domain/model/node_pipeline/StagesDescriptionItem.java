@@ -13,12 +13,16 @@ public class StagesDescriptionItem {
     @SerializedName("stage_id")
     private String stageId;
 
+    @SerializedName("timeout_ms")
+    private Long timeoutMs;
+
     public StagesDescriptionItem() {
     }
 
     private StagesDescriptionItem(Builder builder) {
         workersDescription = builder.workersDescription;
         stageId = builder.stageId;
+        timeoutMs = builder.timeoutMs;
     }
 
     public static Builder newBuilder() {
@@ -29,6 +33,7 @@ public class StagesDescriptionItem {
         Builder builder = new Builder();
         builder.workersDescription = copy.getWorkersDescription();
         builder.stageId = copy.getStageId();
+        builder.timeoutMs = copy.getTimeoutMs();
         return builder;
     }
 
@@ -41,17 +46,25 @@ public class StagesDescriptionItem {
         return stageId;
     }
 
+    /**
+     * Предельное время выполнения стадии (мс) с момента запуска её первого worker'а.
+     * null — без ограничения.
+     */
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StagesDescriptionItem that = (StagesDescriptionItem) o;
-        return Objects.equals(workersDescription, that.workersDescription) && Objects.equals(stageId, that.stageId);
+        return Objects.equals(workersDescription, that.workersDescription) && Objects.equals(stageId, that.stageId) && Objects.equals(timeoutMs, that.timeoutMs);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(workersDescription, stageId);
+        return Objects.hash(workersDescription, stageId, timeoutMs);
     }
 
     @Override
@@ -59,6 +72,7 @@ public class StagesDescriptionItem {
         return "StagesDescriptionItem{" +
                 "workersDescription=" + workersDescription +
                 ", stageId='" + stageId + '\'' +
+                ", timeoutMs=" + timeoutMs +
                 '}';
     }
 
@@ -68,6 +82,7 @@ public class StagesDescriptionItem {
     public static final class Builder {
         private List<WorkersDescriptionItem> workersDescription;
         private String stageId;
+        private Long timeoutMs;
 
         private Builder() {
         }
@@ -94,6 +109,17 @@ public class StagesDescriptionItem {
             return this;
         }
 
+        /**
+         * Sets the {@code timeoutMs} and returns a reference to this Builder so that the methods can be chained together.
+         *
+         * @param val the {@code timeoutMs} to set
+         * @return a reference to this Builder
+         */
+        public Builder timeoutMs(Long val) {
+            timeoutMs = val;
+            return this;
+        }
+
         /**
          * Returns a {@code StagesDescriptionItem} built from the parameters previously set.
          *
@@ -16,6 +16,12 @@ public class WorkersDescriptionItem {
     @SerializedName("configuration_files")
     private List<ConfigurationFilesItem> configurationFiles;
 
+    @SerializedName("depends_on")
+    private List<String> dependsOn;
+
+    @SerializedName("timeout_ms")
+    private Long timeoutMs;
+
     public WorkersDescriptionItem() {
     }
 
@@ -23,6 +29,8 @@ public class WorkersDescriptionItem {
         name = builder.name;
         description = builder.description;
         configurationFiles = builder.configurationFiles;
+        dependsOn = builder.dependsOn;
+        timeoutMs = builder.timeoutMs;
     }
 
     public static Builder newBuilder() {
@@ -34,6 +42,8 @@ public class WorkersDescriptionItem {
         builder.name = copy.getName();
         builder.description = copy.getDescription();
         builder.configurationFiles = copy.getConfigurationFiles();
+        builder.dependsOn = copy.getDependsOn();
+        builder.timeoutMs = copy.getTimeoutMs();
         return builder;
     }
 
@@ -49,17 +59,33 @@ public class WorkersDescriptionItem {
         return configurationFiles;
     }
 
+    /**
+     * Имена worker'ов этого pipeline, после которых можно запускать данный worker.
+     * null или пустой список — worker ждёт всю предыдущую стадию (обычный барьер).
+     */
+    public List<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    /**
+     * Предельное время выполнения worker'а (мс) с момента постановки в scheduler.
+     * null — без ограничения.
+     */
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         WorkersDescriptionItem that = (WorkersDescriptionItem) o;
-        return Objects.equals(name, that.name) && Objects.equals(description, that.description) && Objects.equals(configurationFiles, that.configurationFiles);
+        return Objects.equals(name, that.name) && Objects.equals(description, that.description) && Objects.equals(configurationFiles, that.configurationFiles) && Objects.equals(dependsOn, that.dependsOn) && Objects.equals(timeoutMs, that.timeoutMs);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, description, configurationFiles);
+        return Objects.hash(name, description, configurationFiles, dependsOn, timeoutMs);
     }
 
     @Override
@@ -68,6 +94,8 @@ public class WorkersDescriptionItem {
                 "name='" + name + '\'' +
                 ", description='" + description + '\'' +
                 ", configurationFiles=" + configurationFiles +
+                ", dependsOn=" + dependsOn +
+                ", timeoutMs=" + timeoutMs +
                 '}';
     }
 
@@ -78,6 +106,8 @@ public class WorkersDescriptionItem {
         private String name;
         private String description;
         private List<ConfigurationFilesItem> configurationFiles;
+        private List<String> dependsOn;
+        private Long timeoutMs;
 
         private Builder() {
         }
@@ -115,6 +145,28 @@ public class WorkersDescriptionItem {
             return this;
         }
 
+        /**
+         * Sets the {@code dependsOn} and returns a reference to this Builder so that the methods can be chained together.
+         *
+         * @param val the {@code dependsOn} to set
+         * @return a reference to this Builder
+         */
+        public Builder dependsOn(List<String> val) {
+            dependsOn = val;
+            return this;
+        }
+
+        /**
+         * Sets the {@code timeoutMs} and returns a reference to this Builder so that the methods can be chained together.
+         *
+         * @param val the {@code timeoutMs} to set
+         * @return a reference to this Builder
+         */
+        public Builder timeoutMs(Long val) {
+            timeoutMs = val;
+            return this;
+        }
+
         /**
          * Returns a {@code WorkersDescriptionItem} built from the parameters previously set.
          *
@@ -6,8 +6,11 @@ import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
 import org.apache.commons.math3.util.Pair;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public interface NodeStorageManagerInterface {
     @NotNull DataValueInterface getItemFromStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl dataIdInterface) throws OperationIncompleteException;
@@ -17,4 +20,22 @@ public interface NodeStorageManagerInterface {
     @NotNull Boolean isDataExists(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl storageItemId) throws OperationIncompleteException;
 
     @NotNull List<Pair<String, DataValueInterface>> listItemFromStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId) throws OperationIncompleteException;
+
+    void upsertItemToStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl storageItemId, @NotNull DataValueInterface storageItem) throws OperationIncompleteException;
+
+    @Nullable DataValueInterface getItemFromStorageIfPresent(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl storageItemId) throws OperationIncompleteException;
+
+    @NotNull DataValueInterface computeItemIfAbsent(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl storageItemId, @NotNull Function<String, ? extends DataValueInterface> mappingFunction) throws OperationIncompleteException;
+
+    @Nullable DataValueInterface mergeItemToStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull DataLookupIdentifierImpl storageItemId, @NotNull DataValueInterface storageItem, @NotNull BiFunction<? super DataValueInterface, ? super DataValueInterface, ? extends DataValueInterface> remappingFunction) throws OperationIncompleteException;
+
+    /**
+     * Пакетная запись: хранилище разрешается один раз, все элементы записываются за один проход (upsert).
+     */
+    void putItemsToStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull List<Pair<DataLookupIdentifierImpl, DataValueInterface>> storageItems) throws OperationIncompleteException;
+
+    /**
+     * Пакетное чтение: результат в порядке запроса, null для отсутствующих элементов.
+     */
+    @NotNull List<DataValueInterface> getItemsFromStorage(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageId, @NotNull List<DataLookupIdentifierImpl> storageItemIds) throws OperationIncompleteException;
 }
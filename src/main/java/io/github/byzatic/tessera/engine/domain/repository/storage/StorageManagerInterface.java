@@ -2,6 +2,12 @@ package io.github.byzatic.tessera.engine.domain.repository.storage;
 
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 
-public interface StorageManagerInterface extends GlobalStorageManagerInterface, NodeStorageManagerInterface {
+public interface StorageManagerInterface extends GlobalStorageManagerInterface, NodeStorageManagerInterface, AutoCloseable {
     void cleanupNodeStorages() throws OperationIncompleteException;
+
+    /**
+     * Остановка приложения: закрывает хранилища (журналы, отображённые файлы). Повторный вызов безопасен.
+     */
+    @Override
+    void close();
 }
@@ -2,7 +2,13 @@ package io.github.byzatic.tessera.engine.domain.service;
 
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 
-public interface GraphManagerInterface {
+public interface GraphManagerInterface extends AutoCloseable {
 
     void runGraph() throws OperationIncompleteException;
+
+    /**
+     * Освобождает ресурсы менеджера (пул обхода графа). После close() runGraph() не вызывается.
+     */
+    @Override
+    void close();
 }
@@ -22,8 +22,10 @@ import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gra
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management.GraphPathManagerInterface;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_path_manager.PathManager;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_path_manager.PathManagerInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.CsrGraphManagerNodeRepository;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.GraphManagerNodeRepository;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.GraphManagerNodeRepositoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineExecutionSettings;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerFactory;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerFactoryInterface;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.execution_context.ExecutionContextFactory;
@@ -97,9 +99,15 @@ public class ApplicationMainContext {
     public static StorageManagerInterface getStorageManager() {
         try {
             if (storageManager == null) {
+                // хранилища восстанавливаются в конструкторе: загрузчики плагинов должны быть уже зарегистрированы
+                getServiceLoader();
+                getModuleLoader();
                 storageManager = new StorageManager(
                         getProjectRepository()
                 );
+                // журналы и отображённые файлы должны быть сброшены при любой штатной остановке JVM
+                StorageManagerInterface created = storageManager;
+                Runtime.getRuntime().addShutdownHook(new Thread(created::close, "storage-manager-shutdown"));
             }
             return storageManager;
         } catch (Exception e) {
@@ -121,9 +129,15 @@ public class ApplicationMainContext {
     public static GraphManagerNodeRepositoryInterface getGraphManagerNodeRepository() {
         try {
             if (graphManagerNodeRepository == null) {
-                graphManagerNodeRepository = new GraphManagerNodeRepository(
-                        getProjectRepository()
-                );
+                if ("csr".equals(Configuration.GRAPH_NODE_REPOSITORY)) {
+                    graphManagerNodeRepository = new CsrGraphManagerNodeRepository(
+                            getProjectRepository()
+                    );
+                } else {
+                    graphManagerNodeRepository = new GraphManagerNodeRepository(
+                            getProjectRepository()
+                    );
+                }
             }
             return graphManagerNodeRepository;
         } catch (Exception e) {
@@ -140,6 +154,8 @@ public class ApplicationMainContext {
                     getPathManager(),
                     getExecutionContextFactory()
             );
+            // пул запуска worker'ов асинхронных pipeline общий для runtime и живёт до остановки JVM
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> PipelineExecutionSettings.fromConfiguration().close(), "pipeline-launcher-shutdown"));
         }
         return pipelineManagerFactory;
     }
@@ -3,6 +3,7 @@ package io.github.byzatic.tessera.engine.infrastructure.observability;
 import io.github.byzatic.tessera.engine.Configuration;
 import io.prometheus.metrics.core.metrics.Counter;
 import io.prometheus.metrics.core.metrics.Gauge;
+import io.prometheus.metrics.core.metrics.Histogram;
 import io.prometheus.metrics.exporter.httpserver.HTTPServer;
 import io.prometheus.metrics.instrumentation.jvm.JvmMetrics;
 import io.prometheus.metrics.model.registry.PrometheusRegistry;
@@ -46,6 +47,10 @@ public final class PrometheusMetricsAgent {
     private Gauge storagesCount;             // {scope}
     private Gauge storageItemsCount;         // {scope}
     private Gauge storageItems;              // {scope,storage_id}
+    private Counter storageEvictionsTotal;   // {storage_id,reason}
+
+    // Worker bulkhead metrics
+    private Histogram workerPermitWaitSeconds; // {worker_name,stage_id}
 
     private PrometheusMetricsAgent() {
         // singleton
@@ -100,6 +105,20 @@ public final class PrometheusMetricsAgent {
                 .labelNames("scope", "storage_id") // global|node, storage_id
                 .register(registry);
 
+        // Bounded global storages only (maxItems / maxBytes / ttlMs options)
+        this.storageEvictionsTotal = Counter.builder()
+                .name("tessera_storage_evictions_total")
+                .help("Items evicted from bounded global storages")
+                .labelNames("storage_id", "reason") // reason: items|bytes|ttl
+                .register(registry);
+
+        // Bounded by configured worker/stage concurrency limits (only limited workers are observed)
+        this.workerPermitWaitSeconds = Histogram.builder()
+                .name("tessera_worker_permit_wait_seconds")
+                .help("Time a worker waited for its concurrency permit (workerConcurrencyLimits / stageConcurrencyLimits)")
+                .labelNames("worker_name", "stage_id")
+                .register(registry);
+
         this.server = HTTPServer.builder()
                 .registry(registry)
                 .port(prometheusEndpoint.getPort())
@@ -194,6 +213,35 @@ public final class PrometheusMetricsAgent {
         }
     }
 
+    /**
+     * Publish time a worker spent waiting for its concurrency permit.
+     * Called once per worker that falls under a configured concurrency limit.
+     */
+    public void publishWorkerPermitWaitTime(long waitMillis, String workerName, String stageId) {
+        ensureStarted();
+
+        String safeWorkerName = (workerName != null) ? workerName : "";
+        String safeStageId = (stageId != null) ? stageId : "";
+
+        workerPermitWaitSeconds
+                .labelValues(safeWorkerName, safeStageId)
+                .observe(waitMillis / 1000.0);
+    }
+
+    /**
+     * Count items evicted from a bounded global storage.
+     */
+    public void publishStorageEvictions(String storageId, String reason, long count) {
+        ensureStarted();
+
+        String safeStorageId = (storageId != null) ? storageId : "";
+        String safeReason = (reason != null) ? reason : "";
+
+        storageEvictionsTotal
+                .labelValues(safeStorageId, safeReason)
+                .inc(count);
+    }
+
     public void enableJvmMetrics() {
         ensureStarted();
 
@@ -20,9 +20,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ProjectRepositoryImpl implements ProjectRepository {
     private final static Logger logger = LoggerFactory.getLogger(ProjectRepositoryImpl.class);
@@ -33,6 +36,10 @@ public class ProjectRepositoryImpl implements ProjectRepository {
     private NodeContainer nodeContainer = null;
     private GlobalContainer globalContainer = null;
 
+    // индексы объявленных хранилищ; строятся в load(), заменяются целиком при reload()
+    private volatile Map<GraphNodeRef, Set<String>> nodeStorageDeclarations = Collections.emptyMap();
+    private volatile Set<String> globalStorageDeclarations = Collections.emptySet();
+
     public ProjectRepositoryImpl(String projectName) {
         this(projectName, false);
     }
@@ -70,14 +77,11 @@ public class ProjectRepositoryImpl implements ProjectRepository {
 
     @Override
     public @NotNull Boolean isNodeStorageDeclaration(@NotNull GraphNodeRef graphNodeRef, @NotNull String storageName) {
-        boolean isExists = false;
-        for (StoragesItem storageItem : nodeContainer.getNodeGlobal(graphNodeRef).getStorages()) {
-            if (storageItem.getIdName().equals(storageName)) {
-                isExists = true;
-                break;
-            }
+        Set<String> storageNames = nodeStorageDeclarations.get(graphNodeRef);
+        if (storageNames == null) {
+            throw new IllegalArgumentException("No such Node " + graphNodeRef);
         }
-        return isExists;
+        return storageNames.contains(storageName);
     }
 
     @Override
@@ -92,14 +96,7 @@ public class ProjectRepositoryImpl implements ProjectRepository {
 
     @Override
     public @NotNull Boolean isGlobalStorageDeclaration(@NotNull String storageName) {
-        boolean isExists = false;
-        for (io.github.byzatic.tessera.engine.domain.model.project.StoragesItem storageItem : globalContainer.getProjectGlobal().getStorages()) {
-            if (storageItem.getIdName().equals(storageName)) {
-                isExists = true;
-                break;
-            }
-        }
-        return isExists;
+        return globalStorageDeclarations.contains(storageName);
     }
 
     @Override
@@ -140,6 +137,8 @@ public class ProjectRepositoryImpl implements ProjectRepository {
             nodeContainer = projectLoader.getNodeContainer(projectName);
             globalContainer = projectLoader.getGlobalContainer(projectName);
 
+            buildStorageDeclarationIndex();
+
         } catch (IOException e) {
             throw new RuntimeException(e);
         } catch (OperationIncompleteException e) {
@@ -147,6 +146,29 @@ public class ProjectRepositoryImpl implements ProjectRepository {
         }
     }
 
+    /**
+     * Индексы storageId по узлам и глобальный — вместо линейного поиска по StoragesItem на каждый доступ к хранилищу.
+     */
+    private void buildStorageDeclarationIndex() {
+        Map<GraphNodeRef, Set<String>> nodeIndex = new HashMap<>();
+        for (Map.Entry<GraphNodeRef, NodeGlobal> entry : nodeContainer.getNodeGlobalMap().entrySet()) {
+            Set<String> storageNames = new HashSet<>();
+            for (StoragesItem storageItem : entry.getValue().getStorages()) {
+                if (storageItem.getIdName() != null) storageNames.add(storageItem.getIdName());
+            }
+            nodeIndex.put(entry.getKey(), Collections.unmodifiableSet(storageNames));
+        }
+
+        Set<String> globalIndex = new HashSet<>();
+        for (io.github.byzatic.tessera.engine.domain.model.project.StoragesItem storageItem : globalContainer.getProjectGlobal().getStorages()) {
+            if (storageItem.getIdName() != null) globalIndex.add(storageItem.getIdName());
+        }
+
+        nodeStorageDeclarations = Collections.unmodifiableMap(nodeIndex);
+        globalStorageDeclarations = Collections.unmodifiableSet(globalIndex);
+        logger.debug("Storage declaration index built; nodes={}, global storages={}", nodeIndex.size(), globalIndex.size());
+    }
+
     @Override
     public void reload() throws OperationIncompleteException {
         load();
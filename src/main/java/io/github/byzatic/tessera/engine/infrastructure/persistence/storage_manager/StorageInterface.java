@@ -5,8 +5,11 @@ import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
 import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
 import org.apache.commons.math3.util.Pair;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public interface StorageInterface<T extends DataValueInterface> {
     String getStorageId();
@@ -25,5 +28,33 @@ public interface StorageInterface<T extends DataValueInterface> {
 
     @NotNull Integer size();
 
+    /**
+     * Вставка или замена значения одной операцией над картой.
+     */
+    void upsert(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException;
+
+    /**
+     * Значение по id или null, если его нет; не бросает исключение при отсутствии.
+     */
+    @Nullable T getIfPresent(DataLookupIdentifierImpl id) throws OperationIncompleteException;
+
+    /**
+     * Атомарно возвращает значение или создаёт его функцией (id -> значение); функция вызывается не более одного раза.
+     */
+    T computeIfAbsent(DataLookupIdentifierImpl id, Function<String, ? extends T> mappingFunction) throws OperationIncompleteException;
+
+    /**
+     * Атомарное слияние: при отсутствии значения сохраняется item, иначе remappingFunction(old, item).
+     * Если функция вернула null — элемент удаляется. Возвращает новое значение или null.
+     */
+    @Nullable T merge(DataLookupIdentifierImpl id, T item, BiFunction<? super T, ? super T, ? extends T> remappingFunction) throws OperationIncompleteException;
+
     void cleanup();
+
+    /**
+     * Освобождает ресурсы хранилища при остановке приложения: журнал сбрасывается на диск, отображённые
+     * в память файлы синхронизируются. После close() хранилище не используется. Повторный вызов безопасен.
+     */
+    default void close() {
+    }
 }
@@ -1,33 +1,57 @@
 package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager;
 
-import io.github.byzatic.tessera.engine.Configuration;
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node_global.OptionsItem;
 import io.github.byzatic.tessera.engine.domain.model.project.StoragesItem;
+import io.github.byzatic.tessera.engine.domain.model.project.StoragesOptionsItem;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
 import io.github.byzatic.tessera.engine.domain.repository.storage.StorageManagerInterface;
 import io.github.byzatic.tessera.engine.infrastructure.observability.PrometheusMetricsAgent;
-import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackends;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.DataValueClassLoaders;
 import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
 import org.apache.commons.math3.util.Pair;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class StorageManager implements StorageManagerInterface {
     private final static Logger logger = LoggerFactory.getLogger(StorageManager.class);
 
     /**
-     * Node-scoped storages: GraphNodeRef -> (storageId -> storage)
+     * Node-scoped storages of the current generation: GraphNodeRef -> (storageId -> storage)
      */
-    private final Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMap =
-            new ConcurrentHashMap<>();
+    private final AtomicReference<NodeStorageGeneration> nodeStorageGeneration =
+            new AtomicReference<>(new NodeStorageGeneration(0L));
+
+    /**
+     * nodeStorageCleanupMode = generation: cleanupNodeStorages() swaps generations instead of clearing storages
+     */
+    private final boolean generationCleanup;
+
+    /**
+     * Закрытие хранилищ отброшенных поколений (только в режиме generation), вне потока обхода графа.
+     */
+    private final ExecutorService retiredGenerationCloser;
 
     /**
      * Global storages: storageId -> storage
@@ -37,18 +61,55 @@ public class StorageManager implements StorageManagerInterface {
 
     private final FullProjectRepository fullProjectRepository;
 
+    /**
+     * Реализации хранилищ, выбираемые опцией backend (см. {@link StorageBackends}).
+     */
+    private final StorageBackends storageBackends;
+
+    /**
+     * Фоновая публикация метрик хранилищ (publishStorageAnalytics = true).
+     * Запись в хранилище только обновляет счётчики Storage, полный обход делается здесь.
+     */
+    private final ScheduledExecutorService storageMetricsPublisher;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
     public StorageManager(@NotNull FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
-        this.fullProjectRepository = fullProjectRepository;
+        this(fullProjectRepository, new StorageBackends());
+    }
 
-        if (!Configuration.INITIALIZE_STORAGE_BY_REQUEST) {
+    public StorageManager(@NotNull FullProjectRepository fullProjectRepository,
+                          @NotNull StorageBackends storageBackends) throws OperationIncompleteException {
+        this(fullProjectRepository, storageBackends, StorageManagerSettings.fromConfiguration());
+    }
+
+    public StorageManager(@NotNull FullProjectRepository fullProjectRepository,
+                          @NotNull StorageBackends storageBackends,
+                          @NotNull StorageManagerSettings settings) throws OperationIncompleteException {
+        this.fullProjectRepository = fullProjectRepository;
+        this.storageBackends = storageBackends;
+        this.generationCleanup = settings.isGenerationCleanup();
+        this.retiredGenerationCloser = generationCleanup
+                ? Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "node-storage-generation-closer");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        // классы значений из shared resources должны читаться при восстановлении хранилищ
+        DataValueClassLoaders.getInstance().register(DataValueClassLoaders.SHARED_RESOURCES, fullProjectRepository.getSharedResourcesClassLoader());
+
+        if (!settings.isInitializeStorageByRequest()) {
             for (StoragesItem storageGlobal : fullProjectRepository.getGlobal().getStorages()) {
                 if (storageGlobal.getIdName() == null || Objects.equals(storageGlobal.getIdName(), "")) {
                     throw new OperationIncompleteException("Global storage should have name -> " + storageGlobal);
                 }
                 String storageId = storageGlobal.getIdName();
-                initializeGlobalStorage(storageId);
+                initializeGlobalStorage(storageId, toOptionsMap(storageGlobal));
             }
 
+            Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMap =
+                    nodeStorageGeneration.get().getStorages();
             for (GraphNodeRef graphNodeRef : fullProjectRepository.listGraphNodeRef()) {
                 for (io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem storageNode
                         : fullProjectRepository.getNodeGlobal(graphNodeRef).getStorages()) {
@@ -56,13 +117,32 @@ public class StorageManager implements StorageManagerInterface {
                     if (storageName == null || Objects.equals(storageName, "")) {
                         throw new OperationIncompleteException("Node storage should have name -> " + storageNode);
                     }
-                    initializeNodeStorage(graphNodeRef, storageName);
+                    initializeNodeStorage(nodeStorageMap, graphNodeRef, storageName, toOptionsMap(storageNode));
+                }
+            }
+        } else {
+            // персистентные и журналируемые хранилища поднимаются при старте, чтобы первый цикл видел сохранённое состояние
+            for (StoragesItem storageGlobal : fullProjectRepository.getGlobal().getStorages()) {
+                Map<String, String> options = toOptionsMap(storageGlobal);
+                if (storageBackends.isRestoredOnStart(options) && storageGlobal.getIdName() != null && !storageGlobal.getIdName().isEmpty()) {
+                    initializeGlobalStorage(storageGlobal.getIdName(), options);
                 }
             }
         }
 
         // publish initial snapshot (best-effort, must not fail ctor)
-        if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
+        if (settings.isPublishStorageAnalytics()) {
+            publishStorageMetricsSafe();
+            long interval = settings.getStorageAnalyticsPublishInterval();
+            this.storageMetricsPublisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-metrics-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.storageMetricsPublisher.scheduleWithFixedDelay(this::publishStorageMetricsSafe, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.storageMetricsPublisher = null;
+        }
     }
 
     @NotNull
@@ -75,8 +155,8 @@ public class StorageManager implements StorageManagerInterface {
 
         try {
             StorageInterface<DataValueInterface> storage = searchNodeStorage(graphNodeRef, storageId);
-            if (storage.contains(storageItemId)) {
-                DataValueInterface storageItem = storage.read(storageItemId);
+            DataValueInterface storageItem = storage.getIfPresent(storageItemId);
+            if (storageItem != null) {
                 logger.debug("getItemFromStorage (NODE STORAGE) graphNodeRef -> {} storageId -> {} storageItemId -> {} is storageItem -> {}",
                         graphNodeRef, storageId, storageItemId, storageItem);
                 return storageItem;
@@ -103,10 +183,7 @@ public class StorageManager implements StorageManagerInterface {
                     graphNodeRef, storageId, dataLookupIdentifierInterface, storageItem);
 
             StorageInterface<DataValueInterface> storage = searchNodeStorage(graphNodeRef, storageId);
-            if (storage.contains(dataLookupIdentifierInterface)) {
-                storage.delete(dataLookupIdentifierInterface);
-            }
-            storage.create(dataLookupIdentifierInterface, storageItem);
+            storage.upsert(dataLookupIdentifierInterface, storageItem);
 
             logger.debug("putItemToStorage (NODE STORAGE) graphNodeRef -> {} storageId -> {} dataLookupIdentifierInterface -> {} storageItem -> {} is complete",
                     graphNodeRef, storageId, dataLookupIdentifierInterface, storageItem);
@@ -115,45 +192,86 @@ public class StorageManager implements StorageManagerInterface {
             throw e;
         } catch (Exception e) {
             throw new OperationIncompleteException(e.getMessage(), e);
-        } finally {
-            if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
         }
     }
 
     private StorageInterface<DataValueInterface> searchNodeStorage(GraphNodeRef graphNodeRef, String storageId)
             throws OperationIncompleteException {
 
+        // поколение читается один раз: вся операция видит одно и то же поколение
+        Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMap =
+                nodeStorageGeneration.get().getStorages();
+
+        // HOT PATH: хранилище создаётся только после проверки объявления, поэтому существующее отдаётся сразу
+        Map<String, StorageInterface<DataValueInterface>> nodeStorages = nodeStorageMap.get(graphNodeRef);
+        StorageInterface<DataValueInterface> storage = (nodeStorages != null) ? nodeStorages.get(storageId) : null;
+        if (storage != null) {
+            return storage;
+        }
+
         if (!fullProjectRepository.isNodeStorageDeclaration(graphNodeRef, storageId)) {
             String errMessage = "No such Node " + graphNodeRef.getNodeUUID() + " storage " + storageId + " defined in ConfigProject";
             logger.error(errMessage);
             throw new OperationIncompleteException(errMessage);
         }
 
-        if (!isNodeStorageExists(graphNodeRef, storageId)) {
-            initializeNodeStorage(graphNodeRef, storageId);
-            if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
+        return initializeNodeStorage(nodeStorageMap, graphNodeRef, storageId, nodeStorageOptions(graphNodeRef, storageId));
+    }
+
+    private StorageInterface<DataValueInterface> initializeNodeStorage(Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMap,
+                                                                       GraphNodeRef graphNodeRef,
+                                                                       String storageId,
+                                                                       Map<String, String> options) throws OperationIncompleteException {
+        Map<String, StorageInterface<DataValueInterface>> nodeStorages =
+                nodeStorageMap.computeIfAbsent(graphNodeRef, ref -> new ConcurrentHashMap<>());
+        StorageInterface<DataValueInterface> existing = nodeStorages.get(storageId);
+        if (existing != null) return existing;
+        if (generationCleanup && storageBackends.isOffHeap(options)) {
+            // память вне heap отброшенного поколения вернул бы только GC
+            throw new OperationIncompleteException("Node " + graphNodeRef.getNodeUUID() + " storage " + storageId
+                    + " keeps data off heap and can not be used with nodeStorageCleanupMode=generation; use nodeStorageCleanupMode=clear");
         }
+        StorageInterface<DataValueInterface> storage = storageBackends.createNodeStorage(storageId, options);
+        // putIfAbsent: параллельные узлы не должны затирать уже созданное хранилище
+        existing = nodeStorages.putIfAbsent(storageId, storage);
+        if (existing != null) return existing;
+        logger.debug("Node {} storage {} created", graphNodeRef.getNodeUUID(), storageId);
+        return storage;
+    }
 
-        return nodeStorageMap.get(graphNodeRef).get(storageId);
+    private Map<String, String> nodeStorageOptions(GraphNodeRef graphNodeRef, String storageId) throws OperationIncompleteException {
+        for (io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem storageNode
+                : fullProjectRepository.getNodeGlobal(graphNodeRef).getStorages()) {
+            if (Objects.equals(storageNode.getIdName(), storageId)) return toOptionsMap(storageNode);
+        }
+        return Map.of();
     }
 
-    private void initializeNodeStorage(GraphNodeRef graphNodeRef, String storageId) throws OperationIncompleteException {
-        StorageInterface<DataValueInterface> storage = new Storage<>(storageId);
-        if (nodeStorageMap.containsKey(graphNodeRef)) {
-            nodeStorageMap.get(graphNodeRef).put(storageId, storage);
-        } else {
-            Map<String, StorageInterface<DataValueInterface>> newNodeMap = new ConcurrentHashMap<>();
-            newNodeMap.put(storageId, storage);
-            nodeStorageMap.put(graphNodeRef, newNodeMap);
+    private Map<String, String> globalStorageOptions(String storageId) {
+        for (StoragesItem storageGlobal : fullProjectRepository.getGlobal().getStorages()) {
+            if (Objects.equals(storageGlobal.getIdName(), storageId)) return toOptionsMap(storageGlobal);
         }
-        logger.debug("Node {} storage {} created", graphNodeRef.getNodeUUID(), storageId);
+        return Map.of();
     }
 
-    private Boolean isNodeStorageExists(GraphNodeRef graphNodeRef, String storageId) {
-        boolean result = nodeStorageMap.containsKey(graphNodeRef)
-                && nodeStorageMap.get(graphNodeRef).containsKey(storageId);
-        logger.debug("Is node {} storage {} exists: {}", graphNodeRef, storageId, result);
-        return result;
+    private static Map<String, String> toOptionsMap(StoragesItem storageGlobal) {
+        Map<String, String> options = new HashMap<>();
+        if (storageGlobal.getOptions() != null) {
+            for (StoragesOptionsItem option : storageGlobal.getOptions()) {
+                if (option.getKey() != null) options.put(option.getKey(), option.getValue());
+            }
+        }
+        return options;
+    }
+
+    private static Map<String, String> toOptionsMap(io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem storageNode) {
+        Map<String, String> options = new HashMap<>();
+        if (storageNode.getOptions() != null) {
+            for (OptionsItem option : storageNode.getOptions()) {
+                if (option.getKey() != null) options.put(option.getKey(), option.getValue());
+            }
+        }
+        return options;
     }
 
     @NotNull
@@ -186,6 +304,98 @@ public class StorageManager implements StorageManagerInterface {
         return result;
     }
 
+    @Override
+    public void upsertItemToStorage(@NotNull GraphNodeRef graphNodeRef,
+                                    @NotNull String storageId,
+                                    @NotNull DataLookupIdentifierImpl storageItemId,
+                                    @NotNull DataValueInterface storageItem) throws OperationIncompleteException {
+        putItemToStorage(graphNodeRef, storageId, storageItemId, storageItem);
+    }
+
+    @Nullable
+    @Override
+    public DataValueInterface getItemFromStorageIfPresent(@NotNull GraphNodeRef graphNodeRef,
+                                                          @NotNull String storageId,
+                                                          @NotNull DataLookupIdentifierImpl storageItemId) throws OperationIncompleteException {
+        logger.debug("getItemFromStorageIfPresent (NODE STORAGE) graphNodeRef -> {} storageId -> {} storageItemId -> {}",
+                graphNodeRef, storageId, storageItemId);
+        return searchNodeStorage(graphNodeRef, storageId).getIfPresent(storageItemId);
+    }
+
+    @NotNull
+    @Override
+    public DataValueInterface computeItemIfAbsent(@NotNull GraphNodeRef graphNodeRef,
+                                                  @NotNull String storageId,
+                                                  @NotNull DataLookupIdentifierImpl storageItemId,
+                                                  @NotNull Function<String, ? extends DataValueInterface> mappingFunction) throws OperationIncompleteException {
+        logger.debug("computeItemIfAbsent (NODE STORAGE) graphNodeRef -> {} storageId -> {} storageItemId -> {}",
+                graphNodeRef, storageId, storageItemId);
+        try {
+            return searchNodeStorage(graphNodeRef, storageId).computeIfAbsent(storageItemId, mappingFunction);
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public DataValueInterface mergeItemToStorage(@NotNull GraphNodeRef graphNodeRef,
+                                                 @NotNull String storageId,
+                                                 @NotNull DataLookupIdentifierImpl storageItemId,
+                                                 @NotNull DataValueInterface storageItem,
+                                                 @NotNull BiFunction<? super DataValueInterface, ? super DataValueInterface, ? extends DataValueInterface> remappingFunction) throws OperationIncompleteException {
+        logger.debug("mergeItemToStorage (NODE STORAGE) graphNodeRef -> {} storageId -> {} storageItemId -> {} storageItem -> {}",
+                graphNodeRef, storageId, storageItemId, storageItem);
+        try {
+            return searchNodeStorage(graphNodeRef, storageId).merge(storageItemId, storageItem, remappingFunction);
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void putItemsToStorage(@NotNull GraphNodeRef graphNodeRef,
+                                  @NotNull String storageId,
+                                  @NotNull List<Pair<DataLookupIdentifierImpl, DataValueInterface>> storageItems) throws OperationIncompleteException {
+        logger.debug("putItemsToStorage (NODE STORAGE) graphNodeRef -> {} storageId -> {} items -> {}",
+                graphNodeRef, storageId, storageItems.size());
+        try {
+            StorageInterface<DataValueInterface> storage = searchNodeStorage(graphNodeRef, storageId);
+            for (Pair<DataLookupIdentifierImpl, DataValueInterface> storageItem : storageItems) {
+                storage.upsert(storageItem.getFirst(), storageItem.getSecond());
+            }
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<DataValueInterface> getItemsFromStorage(@NotNull GraphNodeRef graphNodeRef,
+                                                        @NotNull String storageId,
+                                                        @NotNull List<DataLookupIdentifierImpl> storageItemIds) throws OperationIncompleteException {
+        logger.debug("getItemsFromStorage (NODE STORAGE) graphNodeRef -> {} storageId -> {} items -> {}",
+                graphNodeRef, storageId, storageItemIds.size());
+        try {
+            StorageInterface<DataValueInterface> storage = searchNodeStorage(graphNodeRef, storageId);
+            List<DataValueInterface> result = new ArrayList<>(storageItemIds.size());
+            for (DataLookupIdentifierImpl storageItemId : storageItemIds) {
+                result.add(storage.getIfPresent(storageItemId));
+            }
+            return result;
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
     @NotNull
     @Override
     public DataValueInterface getItemFromStorage(@NotNull String storageId,
@@ -194,8 +404,8 @@ public class StorageManager implements StorageManagerInterface {
                 storageId, storageItemId);
 
         StorageInterface<DataValueInterface> storage = searchGlobalStorage(storageId);
-        if (storage.contains(storageItemId)) {
-            DataValueInterface storageItem = storage.read(storageItemId);
+        DataValueInterface storageItem = storage.getIfPresent(storageItemId);
+        if (storageItem != null) {
             logger.debug("getItemFromStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} is storageItem -> {}",
                     storageId, storageItemId, storageItem);
             return storageItem;
@@ -210,52 +420,45 @@ public class StorageManager implements StorageManagerInterface {
     public void putItemToStorage(@NotNull String storageId,
                                  @NotNull DataLookupIdentifierImpl storageItemId,
                                  @NotNull DataValueInterface storageItem) throws OperationIncompleteException {
-        try {
-            logger.debug("putItemToStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} storageItem -> {}",
-                    storageId, storageItemId, storageItem);
+        logger.debug("putItemToStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} storageItem -> {}",
+                storageId, storageItemId, storageItem);
 
-            StorageInterface<DataValueInterface> storage = searchGlobalStorage(storageId);
-            if (storage.contains(storageItemId)) {
-                storage.delete(storageItemId);
-            }
-            storage.create(storageItemId, storageItem);
-
-            logger.debug("putItemToStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} storageItem -> {} is complete",
-                    storageId, storageItemId, storageItem);
+        StorageInterface<DataValueInterface> storage = searchGlobalStorage(storageId);
+        storage.upsert(storageItemId, storageItem);
 
-        } finally {
-            if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
-        }
+        logger.debug("putItemToStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} storageItem -> {} is complete",
+                storageId, storageItemId, storageItem);
     }
 
     private StorageInterface<DataValueInterface> searchGlobalStorage(@NotNull String storageId)
             throws OperationIncompleteException {
 
-        if (!globalStorageMap.containsKey(storageId)) {
+        StorageInterface<DataValueInterface> storage = globalStorageMap.get(storageId);
+        if (storage != null) {
+            return storage;
+        }
+
+        // initializeStorageByRequest = true: хранилище создаётся по первому обращению, если оно объявлено
+        if (!fullProjectRepository.isGlobalStorageDeclaration(storageId)) {
             String errMessage = "No such Global storage " + storageId + " defined in ConfigProject";
             logger.error(errMessage);
-            logger.error("{}", globalStorageMap);
+            logger.error("{}", globalStorageMap.keySet());
             throw new OperationIncompleteException(errMessage);
         }
 
-        if (!isGlobalStorageExists(storageId)) {
-            initializeGlobalStorage(storageId);
-            if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
-        }
-
-        return globalStorageMap.get(storageId);
-    }
-
-    private void initializeGlobalStorage(String storageId) throws OperationIncompleteException {
-        StorageInterface<DataValueInterface> storage = new Storage<>(storageId);
-        globalStorageMap.put(storageId, storage);
-        logger.debug("Global storage {} created", storageId);
+        return initializeGlobalStorage(storageId, globalStorageOptions(storageId));
     }
 
-    private Boolean isGlobalStorageExists(String storageId) {
-        boolean result = globalStorageMap.containsKey(storageId);
-        logger.debug("Is global storage {} exists: {}", storageId, result);
-        return result;
+    private StorageInterface<DataValueInterface> initializeGlobalStorage(String storageId, Map<String, String> options) throws OperationIncompleteException {
+        // создание под монитором карты: backend может держать ресурсы (память вне heap, файлы), дубликат недопустим
+        synchronized (globalStorageMap) {
+            StorageInterface<DataValueInterface> existing = globalStorageMap.get(storageId);
+            if (existing != null) return existing;
+            StorageInterface<DataValueInterface> storage = storageBackends.create(storageId, options);
+            globalStorageMap.put(storageId, storage);
+            logger.debug("Global storage {} created", storageId);
+            return storage;
+        }
     }
 
     @NotNull
@@ -288,15 +491,165 @@ public class StorageManager implements StorageManagerInterface {
     }
 
     @Override
-    public void cleanupNodeStorages() throws OperationIncompleteException {
+    public void upsertItemToStorage(@NotNull String storageId,
+                                    @NotNull DataLookupIdentifierImpl storageItemId,
+                                    @NotNull DataValueInterface storageItem) throws OperationIncompleteException {
+        putItemToStorage(storageId, storageItemId, storageItem);
+    }
+
+    @Nullable
+    @Override
+    public DataValueInterface getItemFromStorageIfPresent(@NotNull String storageId,
+                                                          @NotNull DataLookupIdentifierImpl storageItemId) throws OperationIncompleteException {
+        logger.debug("getItemFromStorageIfPresent (GLOBAL STORAGE) storageId -> {} storageItemId -> {}",
+                storageId, storageItemId);
+        return searchGlobalStorage(storageId).getIfPresent(storageItemId);
+    }
+
+    @NotNull
+    @Override
+    public DataValueInterface computeItemIfAbsent(@NotNull String storageId,
+                                                  @NotNull DataLookupIdentifierImpl storageItemId,
+                                                  @NotNull Function<String, ? extends DataValueInterface> mappingFunction) throws OperationIncompleteException {
+        logger.debug("computeItemIfAbsent (GLOBAL STORAGE) storageId -> {} storageItemId -> {}",
+                storageId, storageItemId);
         try {
-            for (Map.Entry<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMapEntry : nodeStorageMap.entrySet()) {
-                for (Map.Entry<String, StorageInterface<DataValueInterface>> storageMapEntry : nodeStorageMapEntry.getValue().entrySet()) {
-                    storageMapEntry.getValue().cleanup();
+            return searchGlobalStorage(storageId).computeIfAbsent(storageItemId, mappingFunction);
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public DataValueInterface mergeItemToStorage(@NotNull String storageId,
+                                                 @NotNull DataLookupIdentifierImpl storageItemId,
+                                                 @NotNull DataValueInterface storageItem,
+                                                 @NotNull BiFunction<? super DataValueInterface, ? super DataValueInterface, ? extends DataValueInterface> remappingFunction) throws OperationIncompleteException {
+        logger.debug("mergeItemToStorage (GLOBAL STORAGE) storageId -> {} storageItemId -> {} storageItem -> {}",
+                storageId, storageItemId, storageItem);
+        try {
+            return searchGlobalStorage(storageId).merge(storageItemId, storageItem, remappingFunction);
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void putItemsToStorage(@NotNull String storageId,
+                                  @NotNull List<Pair<DataLookupIdentifierImpl, DataValueInterface>> storageItems) throws OperationIncompleteException {
+        logger.debug("putItemsToStorage (GLOBAL STORAGE) storageId -> {} items -> {}",
+                storageId, storageItems.size());
+        try {
+            StorageInterface<DataValueInterface> storage = searchGlobalStorage(storageId);
+            for (Pair<DataLookupIdentifierImpl, DataValueInterface> storageItem : storageItems) {
+                storage.upsert(storageItem.getFirst(), storageItem.getSecond());
+            }
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<DataValueInterface> getItemsFromStorage(@NotNull String storageId,
+                                                        @NotNull List<DataLookupIdentifierImpl> storageItemIds) throws OperationIncompleteException {
+        logger.debug("getItemsFromStorage (GLOBAL STORAGE) storageId -> {} items -> {}",
+                storageId, storageItemIds.size());
+        try {
+            StorageInterface<DataValueInterface> storage = searchGlobalStorage(storageId);
+            List<DataValueInterface> result = new ArrayList<>(storageItemIds.size());
+            for (DataLookupIdentifierImpl storageItemId : storageItemIds) {
+                result.add(storage.getIfPresent(storageItemId));
+            }
+            return result;
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Очистка node-хранилищ после прогона графа.
+     * <p>
+     * nodeStorageCleanupMode = clear: каждое хранилище очищается целиком через {@link StorageInterface#cleanup()}
+     * (bulk clear, без обхода элементов); стоимость — O(число хранилищ) плюс стоимость clear() backend'а.
+     * Экземпляры хранилищ сохраняются.
+     * <p>
+     * nodeStorageCleanupMode = generation: текущее поколение заменяется новым пустым за O(1);
+     * старое поколение не очищается поэлементно: его хранилища закрываются в фоновом потоке,
+     * после чего поколение отдаётся GC. Backend'ы с данными вне heap в этом режиме не допускаются
+     * (см. {@link StorageBackends#isOffHeap(Map)}). Операции, начатые до замены, дорабатывают
+     * со своим (последним полным) поколением. Хранилища нового поколения создаются по первому обращению.
+     */
+    @Override
+    public void cleanupNodeStorages() throws OperationIncompleteException {
+        if (generationCleanup) {
+            NodeStorageGeneration previous = nodeStorageGeneration.getAndUpdate(NodeStorageGeneration::next);
+            try {
+                retiredGenerationCloser.execute(() -> closeGeneration(previous));
+            } catch (RejectedExecutionException e) {
+                // менеджер уже закрыт
+                closeGeneration(previous);
+            }
+            logger.debug("Node storages generation {} dropped", previous.getNumber());
+            return;
+        }
+        for (Map.Entry<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeStorageMapEntry : nodeStorageGeneration.get().getStorages().entrySet()) {
+            for (Map.Entry<String, StorageInterface<DataValueInterface>> storageMapEntry : nodeStorageMapEntry.getValue().entrySet()) {
+                storageMapEntry.getValue().cleanup();
+            }
+        }
+    }
+
+    /**
+     * Закрывает все хранилища: журналы дописывают поставленные записи, mmap-файлы синхронизируются.
+     * Вызывается при остановке приложения (shutdown hook); ошибка одного хранилища не мешает закрыть остальные.
+     * Публикация метрик останавливается до закрытия хранилищ.
+     */
+    @Override
+    public void close() {
+        if (closed.getAndSet(true)) return;
+        if (storageMetricsPublisher != null) storageMetricsPublisher.shutdownNow();
+        if (retiredGenerationCloser != null) {
+            // отброшенные поколения закрываются до выхода из close()
+            retiredGenerationCloser.shutdown();
+            try {
+                if (!retiredGenerationCloser.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Retired node storage generations are still closing");
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (StorageInterface<DataValueInterface> storage : globalStorageMap.values()) {
+            closeSafe(storage);
+        }
+        closeGeneration(nodeStorageGeneration.get());
+        logger.debug("Storage manager closed");
+    }
+
+    private static void closeGeneration(NodeStorageGeneration generation) {
+        for (Map<String, StorageInterface<DataValueInterface>> storages : generation.getStorages().values()) {
+            for (StorageInterface<DataValueInterface> storage : storages.values()) {
+                closeSafe(storage);
             }
-        } finally {
-            if (Configuration.PUBLISH_STORAGE_ANALYTICS) publishStorageMetricsSafe();
+        }
+        logger.debug("Node storages generation {} closed", generation.getNumber());
+    }
+
+    private static void closeSafe(StorageInterface<DataValueInterface> storage) {
+        try {
+            storage.close();
+        } catch (Throwable t) {
+            logger.error("Failed to close storage {}", storage.getStorageId(), t);
         }
     }
 
@@ -314,9 +667,10 @@ public class StorageManager implements StorageManagerInterface {
 
     /**
      * Compute and publish aggregated storage sizes.
+     * Runs on storageMetricsPublisher every storageAnalyticsPublishInterval ms; sizes come from Storage counters.
      *
      * - global scope: counts storages + total items in globalStorageMap
-     * - node scope: counts storages + total items across ALL nodes in nodeStorageMap
+     * - node scope: counts storages + total items across ALL nodes in the current node storage generation
      * - per storage_id: aggregated by storageId (no per-node labels)
      */
     private void publishStorageMetrics() {
@@ -348,7 +702,7 @@ public class StorageManager implements StorageManagerInterface {
         }
 
         // node storages (aggregate across nodes)
-        for (Map.Entry<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeEntry : nodeStorageMap.entrySet()) {
+        for (Map.Entry<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> nodeEntry : nodeStorageGeneration.get().getStorages().entrySet()) {
             Map<String, StorageInterface<DataValueInterface>> storages = nodeEntry.getValue();
             if (storages == null) continue;
 
@@ -374,4 +728,29 @@ public class StorageManager implements StorageManagerInterface {
                 nodeById
         );
     }
+
+    /**
+     * Поколение node-хранилищ: номер и карта GraphNodeRef -> (storageId -> storage).
+     */
+    private static final class NodeStorageGeneration {
+        private final long number;
+        private final Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> storages =
+                new ConcurrentHashMap<>();
+
+        private NodeStorageGeneration(long number) {
+            this.number = number;
+        }
+
+        private long getNumber() {
+            return number;
+        }
+
+        private Map<GraphNodeRef, Map<String, StorageInterface<DataValueInterface>>> getStorages() {
+            return storages;
+        }
+
+        private NodeStorageGeneration next() {
+            return new NodeStorageGeneration(number + 1);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager;
+
+import io.github.byzatic.tessera.engine.Configuration;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Параметры {@link StorageManager}: создание хранилищ по запросу, режим очистки node-хранилищ
+ * и фоновая публикация метрик.
+ * <p>
+ * В runtime используется {@link #fromConfiguration()}; собственный экземпляр (через builder) нужен,
+ * когда менеджер хранилищ создаётся с другими параметрами, например в тестах.
+ */
+public final class StorageManagerSettings {
+    public static final String CLEANUP_CLEAR = "clear";
+    public static final String CLEANUP_GENERATION = "generation";
+
+    private final boolean initializeStorageByRequest;
+    private final String nodeStorageCleanupMode;
+    private final boolean publishStorageAnalytics;
+    private final long storageAnalyticsPublishInterval;
+
+    private StorageManagerSettings(Builder builder) {
+        if (!CLEANUP_CLEAR.equals(builder.nodeStorageCleanupMode) && !CLEANUP_GENERATION.equals(builder.nodeStorageCleanupMode)) {
+            throw new IllegalArgumentException("Unknown node storage cleanup mode " + builder.nodeStorageCleanupMode + "; expected clear or generation");
+        }
+        if (builder.storageAnalyticsPublishInterval < 1) {
+            throw new IllegalArgumentException("Storage analytics publish interval should be positive; storageAnalyticsPublishInterval= " + builder.storageAnalyticsPublishInterval);
+        }
+        this.initializeStorageByRequest = builder.initializeStorageByRequest;
+        this.nodeStorageCleanupMode = builder.nodeStorageCleanupMode;
+        this.publishStorageAnalytics = builder.publishStorageAnalytics;
+        this.storageAnalyticsPublishInterval = builder.storageAnalyticsPublishInterval;
+    }
+
+    /**
+     * Параметры из {@link Configuration}.
+     */
+    @NotNull
+    public static StorageManagerSettings fromConfiguration() {
+        return newBuilder()
+                .initializeStorageByRequest(Configuration.INITIALIZE_STORAGE_BY_REQUEST)
+                .nodeStorageCleanupMode(Configuration.NODE_STORAGE_CLEANUP_MODE)
+                .publishStorageAnalytics(Configuration.PUBLISH_STORAGE_ANALYTICS)
+                .storageAnalyticsPublishInterval(Configuration.STORAGE_ANALYTICS_PUBLISH_INTERVAL)
+                .build();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public boolean isInitializeStorageByRequest() {
+        return initializeStorageByRequest;
+    }
+
+    /**
+     * Режим очистки node-хранилищ после прогона графа: clear или generation.
+     */
+    public String getNodeStorageCleanupMode() {
+        return nodeStorageCleanupMode;
+    }
+
+    public boolean isGenerationCleanup() {
+        return CLEANUP_GENERATION.equals(nodeStorageCleanupMode);
+    }
+
+    public boolean isPublishStorageAnalytics() {
+        return publishStorageAnalytics;
+    }
+
+    public long getStorageAnalyticsPublishInterval() {
+        return storageAnalyticsPublishInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "StorageManagerSettings{" +
+                "initializeStorageByRequest=" + initializeStorageByRequest +
+                ", nodeStorageCleanupMode='" + nodeStorageCleanupMode + '\'' +
+                ", publishStorageAnalytics=" + publishStorageAnalytics +
+                ", storageAnalyticsPublishInterval=" + storageAnalyticsPublishInterval +
+                '}';
+    }
+
+    public static final class Builder {
+        private boolean initializeStorageByRequest = false;
+        private String nodeStorageCleanupMode = CLEANUP_CLEAR;
+        private boolean publishStorageAnalytics = false;
+        private long storageAnalyticsPublishInterval = 5000L;
+
+        private Builder() {
+        }
+
+        public Builder initializeStorageByRequest(boolean val) {
+            initializeStorageByRequest = val;
+            return this;
+        }
+
+        public Builder nodeStorageCleanupMode(String val) {
+            nodeStorageCleanupMode = val;
+            return this;
+        }
+
+        public Builder publishStorageAnalytics(boolean val) {
+            publishStorageAnalytics = val;
+            return this;
+        }
+
+        public Builder storageAnalyticsPublishInterval(long val) {
+            storageAnalyticsPublishInterval = val;
+            return this;
+        }
+
+        public StorageManagerSettings build() {
+            return new StorageManagerSettings(this);
+        }
+    }
+}
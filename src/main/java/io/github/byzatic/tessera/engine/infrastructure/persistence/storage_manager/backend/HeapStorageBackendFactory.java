@@ -0,0 +1,28 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * backend=heap (по умолчанию): {@link Storage} поверх ConcurrentHashMap.
+ */
+public class HeapStorageBackendFactory implements StorageBackendFactory {
+    public static final String NAME = "heap";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        return new Storage<>(storageId);
+    }
+}
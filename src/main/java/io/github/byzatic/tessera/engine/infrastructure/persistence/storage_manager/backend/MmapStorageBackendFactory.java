@@ -0,0 +1,54 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.MmapStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.OffHeapStorage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * backend=mmap: {@link MmapStorage}, глобальное хранилище, переживающее перезапуск.
+ * <p>
+ * Файлы лежат в DATA_DIR/storages/&lt;PROJECT_NAME&gt;/&lt;id_name&gt;. Опции {@value OffHeapStorageBackendFactory#OPTION_SLAB_SIZE_MB}
+ * и {@value OffHeapStorageBackendFactory#OPTION_EXPECTED_ITEMS} — как у backend=offheap.
+ * Хранилища узлов не поддерживаются: их содержимое живёт один цикл.
+ */
+public class MmapStorageBackendFactory implements StorageBackendFactory {
+    public static final String NAME = "mmap";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public boolean isNodeStorageSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        int slabSizeMb = OffHeapStorageBackendFactory.intOption(storageId, options, OffHeapStorageBackendFactory.OPTION_SLAB_SIZE_MB, OffHeapStorage.DEFAULT_SLAB_SIZE / (1024 * 1024));
+        int expectedItems = OffHeapStorageBackendFactory.intOption(storageId, options, OffHeapStorageBackendFactory.OPTION_EXPECTED_ITEMS, OffHeapStorage.DEFAULT_INITIAL_CAPACITY);
+        if (slabSizeMb < 1 || slabSizeMb > 1024)
+            throw new OperationIncompleteException("Option " + OffHeapStorageBackendFactory.OPTION_SLAB_SIZE_MB + " of storage " + storageId + " should be in 1..1024; value= " + slabSizeMb);
+        Path directory = StorageBackends.storageDirectory("storages", storageId);
+        return new MmapStorage<>(storageId, directory, slabSizeMb * 1024 * 1024, expectedItems);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.OffHeapStorage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * backend=offheap: {@link OffHeapStorage}, значения хранятся сериализованными в direct памяти.
+ * <p>
+ * Опции: {@value #OPTION_SLAB_SIZE_MB} — размер слэба в МБ (по умолчанию 16),
+ * {@value #OPTION_EXPECTED_ITEMS} — ожидаемое число элементов для начального размера индекса.
+ * Общий объём ограничен -XX:MaxDirectMemorySize.
+ */
+public class OffHeapStorageBackendFactory implements StorageBackendFactory {
+    public static final String NAME = "offheap";
+    public static final String OPTION_SLAB_SIZE_MB = "slabSizeMb";
+    public static final String OPTION_EXPECTED_ITEMS = "expectedItems";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        int slabSizeMb = intOption(storageId, options, OPTION_SLAB_SIZE_MB, OffHeapStorage.DEFAULT_SLAB_SIZE / (1024 * 1024));
+        int expectedItems = intOption(storageId, options, OPTION_EXPECTED_ITEMS, OffHeapStorage.DEFAULT_INITIAL_CAPACITY);
+        if (slabSizeMb < 1 || slabSizeMb > 1024)
+            throw new OperationIncompleteException("Option " + OPTION_SLAB_SIZE_MB + " of storage " + storageId + " should be in 1..1024; value= " + slabSizeMb);
+        return new OffHeapStorage<>(storageId, slabSizeMb * 1024 * 1024, expectedItems);
+    }
+
+    static int intOption(String storageId, Map<String, String> options, String name, int defaultValue) throws OperationIncompleteException {
+        String value = options.get(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new OperationIncompleteException("Option " + name + " of storage " + storageId + " should be an integer; value= " + value, e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * backend=sorted: {@link Storage} поверх ConcurrentSkipListMap.
+ * list() отдаёт элементы в порядке id без сортировки на стороне рутины; точечные операции — O(log n).
+ * ConcurrentSkipListMap может повторно вызвать функцию compute при гонке, поэтому {@link Storage}
+ * сериализует изменения одного ключа сам — computeIfAbsent/merge вызывают функцию не более одного раза.
+ */
+public class SortedStorageBackendFactory implements StorageBackendFactory {
+    public static final String NAME = "sorted";
+
+    @NotNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        return new Storage<>(storageId, new ConcurrentSkipListMap<>());
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+
+/**
+ * SPI реализации хранилища.
+ * <p>
+ * Реализация выбирается опцией {@code backend} хранилища (options в Global.json / node Global.json).
+ * Встроенные реализации регистрирует {@link StorageBackends}, сторонние подключаются через
+ * {@link java.util.ServiceLoader} (META-INF/services/...StorageBackendFactory).
+ */
+public interface StorageBackendFactory {
+
+    /**
+     * Значение опции backend, по которому выбирается фабрика (например, heap).
+     */
+    @NotNull
+    String getName();
+
+    /**
+     * Новое пустое хранилище.
+     *
+     * @param storageId id хранилища (id_name)
+     * @param options   все опции хранилища (key -> value), включая backend
+     */
+    @NotNull
+    StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException;
+
+    /**
+     * Хранит ли backend данные между запусками; такие хранилища открываются при старте
+     * и при initializeStorageByRequest = true.
+     */
+    default boolean isPersistent() {
+        return false;
+    }
+
+    /**
+     * Можно ли использовать backend для хранилищ узлов (node Global.json).
+     */
+    default boolean isNodeStorageSupported() {
+        return true;
+    }
+
+    /**
+     * Держат ли хранилища backend'а данные вне heap (direct-буферы, отображённые файлы).
+     * Такую память возвращает только GC, поэтому отброшенные целиком поколения node-хранилищ
+     * (nodeStorageCleanupMode = generation) для этих backend'ов недопустимы.
+     */
+    default boolean isOffHeap() {
+        return false;
+    }
+}
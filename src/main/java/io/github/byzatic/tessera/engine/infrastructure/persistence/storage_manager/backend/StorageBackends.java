@@ -0,0 +1,190 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend;
+
+import io.github.byzatic.tessera.engine.Configuration;
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.observability.PrometheusMetricsAgent;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.journal.JournaledStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.BoundedStorage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр {@link StorageBackendFactory}: встроенные реализации + найденные через ServiceLoader.
+ * Хранилище создаётся фабрикой, имя которой указано в опции {@value #OPTION_BACKEND};
+ * без опции используется {@value #DEFAULT_BACKEND}.
+ */
+public class StorageBackends {
+    private final static Logger logger = LoggerFactory.getLogger(StorageBackends.class);
+
+    public static final String OPTION_BACKEND = "backend";
+    public static final String DEFAULT_BACKEND = HeapStorageBackendFactory.NAME;
+    // журнал изменений глобального хранилища (см. JournaledStorage)
+    public static final String OPTION_WAL = "wal";
+    public static final String OPTION_WAL_SYNC = "walSync";
+    public static final String OPTION_WAL_SNAPSHOT_INTERVAL = "walSnapshotIntervalMs";
+    public static final long DEFAULT_WAL_SNAPSHOT_INTERVAL = 60_000L;
+    // лимиты глобального хранилища (см. BoundedStorage)
+    public static final String OPTION_MAX_ITEMS = "maxItems";
+    public static final String OPTION_MAX_BYTES = "maxBytes";
+    public static final String OPTION_TTL = "ttlMs";
+
+    private final Map<String, StorageBackendFactory> factories = new ConcurrentHashMap<>();
+
+    public StorageBackends() {
+        register(new HeapStorageBackendFactory());
+        register(new SortedStorageBackendFactory());
+        register(new OffHeapStorageBackendFactory());
+        register(new MmapStorageBackendFactory());
+        try {
+            for (StorageBackendFactory factory : ServiceLoader.load(StorageBackendFactory.class)) {
+                register(factory);
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.error("Failed to load storage backends via ServiceLoader", e);
+        }
+    }
+
+    /**
+     * Регистрирует фабрику; фабрика с тем же именем заменяется.
+     */
+    public void register(@NotNull StorageBackendFactory factory) {
+        String name = factory.getName().trim().toLowerCase();
+        StorageBackendFactory previous = factories.put(name, factory);
+        if (previous != null && previous.getClass() != factory.getClass()) {
+            logger.warn("Storage backend {} of {} replaced by {}", name, previous.getClass().getName(), factory.getClass().getName());
+        } else {
+            logger.debug("Storage backend {} registered ({})", name, factory.getClass().getName());
+        }
+    }
+
+    /**
+     * Выбран ли опциями backend, сохраняющий данные между запусками.
+     */
+    public boolean isPersistent(@NotNull Map<String, String> options) {
+        StorageBackendFactory factory = factories.get(backendName(options));
+        return factory != null && factory.isPersistent();
+    }
+
+    /**
+     * Восстанавливается ли глобальное хранилище из файлов (персистентный backend или журнал);
+     * такие хранилища открываются при старте.
+     */
+    public boolean isRestoredOnStart(@NotNull Map<String, String> options) {
+        return isPersistent(options) || Boolean.parseBoolean(options.getOrDefault(OPTION_WAL, "false").trim());
+    }
+
+    /**
+     * Выбран ли опциями backend, держащий данные вне heap.
+     */
+    public boolean isOffHeap(@NotNull Map<String, String> options) {
+        StorageBackendFactory factory = factories.get(backendName(options));
+        return factory != null && factory.isOffHeap();
+    }
+
+    private static String backendName(Map<String, String> options) {
+        String backend = options.get(OPTION_BACKEND);
+        return (backend == null || backend.isBlank()) ? DEFAULT_BACKEND : backend.trim().toLowerCase();
+    }
+
+    /**
+     * Глобальное хранилище (Global.json проекта).
+     */
+    @NotNull
+    public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        StorageInterface<DataValueInterface> storage = create(storageId, options, false);
+        if (Boolean.parseBoolean(options.getOrDefault(OPTION_WAL, "false").trim())) {
+            storage = journaled(storageId, storage, options);
+        }
+        // лимиты — снаружи журнала, чтобы вытеснения тоже журналировались
+        long maxItems = longOption(storageId, options, OPTION_MAX_ITEMS);
+        long maxBytes = longOption(storageId, options, OPTION_MAX_BYTES);
+        long ttl = longOption(storageId, options, OPTION_TTL);
+        if (maxItems == 0 && maxBytes == 0 && ttl == 0) return storage;
+        logger.debug("Storage {} is bounded (maxItems={}, maxBytes={}, ttlMs={})", storageId, maxItems, maxBytes, ttl);
+        return new BoundedStorage<>(storage, maxItems, maxBytes, ttl, (id, reason, count) ->
+                PrometheusMetricsAgent.getInstance().publishStorageEvictions(id, reason, count));
+    }
+
+    private StorageInterface<DataValueInterface> journaled(String storageId, StorageInterface<DataValueInterface> storage, Map<String, String> options) throws OperationIncompleteException {
+        if (isPersistent(options)) {
+            throw new OperationIncompleteException("Option " + OPTION_WAL + " is not supported by persistent backend " + backendName(options) + " of storage " + storageId);
+        }
+        boolean sync = Boolean.parseBoolean(options.getOrDefault(OPTION_WAL_SYNC, "true").trim());
+        long snapshotInterval = options.containsKey(OPTION_WAL_SNAPSHOT_INTERVAL)
+                ? longOption(storageId, options, OPTION_WAL_SNAPSHOT_INTERVAL)
+                : DEFAULT_WAL_SNAPSHOT_INTERVAL;
+        JournaledStorage<DataValueInterface> journaled = JournaledStorage.open(storage, storageDirectory("wal", storageId), sync, snapshotInterval);
+        logger.debug("Storage {} is journaled (sync={}, snapshot interval={} ms)", storageId, sync, snapshotInterval);
+        return journaled;
+    }
+
+    /**
+     * Неотрицательная целочисленная опция; отсутствует — 0.
+     */
+    private static long longOption(String storageId, Map<String, String> options, String name) throws OperationIncompleteException {
+        String value = options.get(name);
+        if (value == null || value.isBlank()) return 0;
+        long result;
+        try {
+            result = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new OperationIncompleteException("Option " + name + " of storage " + storageId + " should be an integer; value= " + value, e);
+        }
+        if (result < 0)
+            throw new OperationIncompleteException("Option " + name + " of storage " + storageId + " should not be negative; value= " + value);
+        return result;
+    }
+
+    /**
+     * Каталог файлов хранилища: DATA_DIR/&lt;kind&gt;/&lt;PROJECT_NAME&gt;/&lt;storageId&gt;.
+     */
+    @NotNull
+    static Path storageDirectory(@NotNull String kind, @NotNull String storageId) throws OperationIncompleteException {
+        if (storageId.isBlank() || storageId.startsWith(".") || !storageId.equals(Path.of(storageId).getFileName().toString())) {
+            throw new OperationIncompleteException("Storage id " + storageId + " can not be used as a directory name");
+        }
+        return Configuration.DATA_DIR.resolve(kind).resolve(Configuration.PROJECT_NAME).resolve(storageId);
+    }
+
+    /**
+     * Хранилище узла (node Global.json).
+     */
+    @NotNull
+    public StorageInterface<DataValueInterface> createNodeStorage(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+        for (String globalOnly : new String[]{OPTION_WAL, OPTION_MAX_ITEMS, OPTION_MAX_BYTES, OPTION_TTL}) {
+            if (options.containsKey(globalOnly)) {
+                throw new OperationIncompleteException("Option " + globalOnly + " can not be used for node storage " + storageId);
+            }
+        }
+        return create(storageId, options, true);
+    }
+
+    private StorageInterface<DataValueInterface> create(String storageId, Map<String, String> options, boolean nodeStorage) throws OperationIncompleteException {
+        String name = backendName(options);
+        StorageBackendFactory factory = factories.get(name);
+        if (factory == null) {
+            throw new OperationIncompleteException("Unknown storage backend " + name + " of storage " + storageId + "; available: " + factories.keySet());
+        }
+        if (nodeStorage && !factory.isNodeStorageSupported()) {
+            throw new OperationIncompleteException("Storage backend " + name + " can not be used for node storage " + storageId);
+        }
+        try {
+            StorageInterface<DataValueInterface> storage = factory.create(storageId, options);
+            logger.debug("Storage {} created with backend {}", storageId, name);
+            return storage;
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException("Storage backend " + name + " failed to create storage " + storageId, e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.journal;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.DataValueCodec;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Хранилище с журналом изменений: каждое изменение применяется к вложенному хранилищу и пишется
+ * в {@link WriteAheadLog} как итоговое значение ключа (PUT / DELETE / CLEAR).
+ * <p>
+ * Применение и постановка в журнал для одного ключа выполняются под одной полосой блокировки, поэтому порядок
+ * записей журнала совпадает с порядком изменений. При sync = true вызов возвращается после fsync пачки,
+ * в которую попала запись (group commit); при sync = false — сразу, теряться могут изменения последней пачки.
+ * <p>
+ * При открытии вложенное хранилище восстанавливается из снимка и журнала. Снимки пишутся периодически:
+ * журнал переключается на новый сегмент, содержимое хранилища выгружается без остановки записи, старые сегменты
+ * удаляются — время восстановления ограничено объёмом изменений с последнего снимка.
+ */
+public class JournaledStorage<T extends DataValueInterface> implements StorageInterface<T> {
+    private final static Logger logger = LoggerFactory.getLogger(JournaledStorage.class);
+
+    private static final int STRIPES = 64;
+
+    private static final ScheduledExecutorService SNAPSHOTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StorageInterface<T> storage;
+    private final WriteAheadLog log;
+    private final boolean sync;
+    private final DataValueCodec codec = new DataValueCodec();
+    private final Object[] stripes = new Object[STRIPES];
+    // изменения — под read lock, cleanup — под write lock
+    private final ReentrantReadWriteLock cleanupLock = new ReentrantReadWriteLock();
+    private final ScheduledFuture<?> snapshotTask;
+    private volatile long lastSnapshotSequence;
+    private volatile long lastSequence;
+
+    private JournaledStorage(StorageInterface<T> storage, Path directory, boolean sync, long snapshotIntervalMillis) throws OperationIncompleteException {
+        this.storage = storage;
+        this.sync = sync;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        this.log = WriteAheadLog.open(storage.getStorageId(), directory, this::replay);
+        this.snapshotTask = (snapshotIntervalMillis > 0)
+                ? SNAPSHOTS.scheduleWithFixedDelay(this::snapshotSafe, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * Восстанавливает storage из журнала в directory и возвращает его обёртку.
+     *
+     * @param snapshotIntervalMillis период снимков; 0 — без снимков
+     */
+    @NotNull
+    public static <T extends DataValueInterface> JournaledStorage<T> open(@NotNull StorageInterface<T> storage,
+                                                                          @NotNull Path directory,
+                                                                          boolean sync,
+                                                                          long snapshotIntervalMillis) throws OperationIncompleteException {
+        return new JournaledStorage<>(storage, directory, sync, snapshotIntervalMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void replay(byte operation, String key, byte[] value) throws OperationIncompleteException {
+        DataLookupIdentifierImpl id = DataLookupIdentifierImpl.newBuilder().dataId(key).build();
+        switch (operation) {
+            case WriteAheadLog.OP_PUT -> storage.upsert(id, (T) codec.decode(value));
+            case WriteAheadLog.OP_DELETE -> storage.delete(id);
+            case WriteAheadLog.OP_CLEAR -> storage.cleanup();
+            default -> throw new OperationIncompleteException("Unknown WAL operation " + operation + " in storage " + storage.getStorageId());
+        }
+    }
+
+    private Object stripe(DataLookupIdentifierImpl id) {
+        String key = (id == null) ? null : id.getDataLookupIdentifier();
+        int hash = (key == null) ? 0 : key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private long logPut(DataLookupIdentifierImpl id, byte[] value) throws OperationIncompleteException {
+        return remember(log.append(WriteAheadLog.OP_PUT, id.getDataLookupIdentifier(), value));
+    }
+
+    private long logDelete(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        return remember(log.append(WriteAheadLog.OP_DELETE, id.getDataLookupIdentifier(), null));
+    }
+
+    private long remember(long sequence) {
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    private void awaitDurable(long sequence) throws OperationIncompleteException {
+        if (sync && sequence > 0) log.awaitDurable(sequence);
+    }
+
+    @Override
+    public String getStorageId() {
+        return storage.getStorageId();
+    }
+
+    @Override
+    public void create(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        byte[] value = codec.encode(item);
+        long sequence;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                storage.create(id, item);
+                sequence = logPut(id, value);
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public T read(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        return storage.read(id);
+    }
+
+    @Override
+    public Boolean update(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        byte[] value = codec.encode(item);
+        long sequence = 0;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                if (!storage.update(id, item)) return false;
+                sequence = logPut(id, value);
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    @Override
+    public @NotNull Boolean delete(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        long sequence;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                if (!storage.delete(id)) return false;
+                sequence = logDelete(id);
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    @Override
+    public @NotNull List<Pair<String, T>> list() throws OperationIncompleteException {
+        return storage.list();
+    }
+
+    @Override
+    public @NotNull Boolean contains(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        return storage.contains(id);
+    }
+
+    @Override
+    public @NotNull Integer size() {
+        return storage.size();
+    }
+
+    @Override
+    public void upsert(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        byte[] value = codec.encode(item);
+        long sequence;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                storage.upsert(id, item);
+                sequence = logPut(id, value);
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public @Nullable T getIfPresent(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        return storage.getIfPresent(id);
+    }
+
+    @Override
+    public T computeIfAbsent(DataLookupIdentifierImpl id, Function<String, ? extends T> mappingFunction) throws OperationIncompleteException {
+        T existing = storage.getIfPresent(id);
+        if (existing != null) return existing;
+        long sequence;
+        T result;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                existing = storage.getIfPresent(id);
+                if (existing != null) return existing;
+                result = storage.computeIfAbsent(id, mappingFunction);
+                sequence = logPut(id, codec.encode(result));
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+        return result;
+    }
+
+    @Override
+    public @Nullable T merge(DataLookupIdentifierImpl id, T item, BiFunction<? super T, ? super T, ? extends T> remappingFunction) throws OperationIncompleteException {
+        long sequence;
+        T result;
+        cleanupLock.readLock().lock();
+        try {
+            synchronized (stripe(id)) {
+                result = storage.merge(id, item, remappingFunction);
+                sequence = (result == null) ? logDelete(id) : logPut(id, codec.encode(result));
+            }
+        } finally {
+            cleanupLock.readLock().unlock();
+        }
+        awaitDurable(sequence);
+        return result;
+    }
+
+    @Override
+    public void cleanup() {
+        long sequence;
+        cleanupLock.writeLock().lock();
+        try {
+            storage.cleanup();
+            sequence = remember(log.append(WriteAheadLog.OP_CLEAR, "", null));
+        } catch (OperationIncompleteException e) {
+            logger.error("Failed to journal cleanup of storage {}", getStorageId(), e);
+            return;
+        } finally {
+            cleanupLock.writeLock().unlock();
+        }
+        try {
+            awaitDurable(sequence);
+        } catch (OperationIncompleteException e) {
+            logger.error("Cleanup of storage {} is not durable", getStorageId(), e);
+        }
+    }
+
+    /**
+     * Снимок состояния: новый сегмент журнала, затем выгрузка хранилища без остановки записи.
+     * Изменения, попавшие в снимок и в новый сегмент, при восстановлении применяются повторно с тем же итогом.
+     */
+    public void snapshot() throws OperationIncompleteException {
+        long sequence = lastSequence;
+        if (sequence == lastSnapshotSequence) return;
+        int coveredSegment = log.rotate();
+        log.snapshot(coveredSegment, writer -> {
+            for (Pair<String, T> item : storage.list()) {
+                if (item.getValue() != null) writer.put(item.getKey(), codec.encode(item.getValue()));
+            }
+        });
+        lastSnapshotSequence = sequence;
+    }
+
+    private void snapshotSafe() {
+        try {
+            snapshot();
+        } catch (Throwable t) {
+            logger.error("Failed to write snapshot of storage {}", getStorageId(), t);
+        }
+    }
+
+    /**
+     * Останавливает снимки и поток-писатель журнала; поставленные записи (в том числе при sync = false)
+     * сбрасываются на диск, затем закрывается вложенное хранилище.
+     */
+    @Override
+    public void close() {
+        if (snapshotTask != null) snapshotTask.cancel(false);
+        log.close();
+        storage.close();
+    }
+
+    @Override
+    public String toString() {
+        return "JournaledStorage{" +
+                "storage=" + storage +
+                ", sync=" + sync +
+                '}';
+    }
+}
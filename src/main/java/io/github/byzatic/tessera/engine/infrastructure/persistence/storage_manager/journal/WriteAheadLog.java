@@ -0,0 +1,414 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.journal;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений хранилища с групповой фиксацией (group commit).
+ * <p>
+ * Потоки только ставят запись в очередь ({@link #append}) и при необходимости ждут её фиксации
+ * ({@link #awaitDurable}); выделенный поток-писатель забирает всё накопленное, пишет одним вызовом
+ * и делает один fsync на пачку.
+ * <p>
+ * Журнал состоит из сегментов {@code <номер>.wal}; {@link #rotate()} начинает новый сегмент, после чего снимок
+ * состояния записывается в {@code <номер>.snapshot} и покрывает все сегменты с меньшими номерами.
+ * Запись: [int длина][int crc32][byte операция][int длина ключа][ключ UTF-8][значение].
+ * Хвост с неполной или повреждённой записью при чтении отбрасывается.
+ */
+public final class WriteAheadLog implements AutoCloseable {
+    private final static Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    public static final byte OP_PUT = 1;
+    public static final byte OP_DELETE = 2;
+    public static final byte OP_CLEAR = 3;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 256 * 1024 * 1024;
+
+    /**
+     * Получатель записей при чтении журнала и снимка.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(byte operation, @NotNull String key, @Nullable byte[] value) throws OperationIncompleteException;
+    }
+
+    /**
+     * Источник записей снимка.
+     */
+    @FunctionalInterface
+    public interface SnapshotSource {
+        void writeTo(@NotNull SnapshotWriter writer) throws OperationIncompleteException;
+    }
+
+    private final String name;
+    private final Path directory;
+    private final Thread writerThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingAvailable = lock.newCondition();
+    private final Condition durableAdvanced = lock.newCondition();
+    // поля ниже — под lock
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private int rotateRequests;
+    private int segmentNumber;
+    private IOException failure;
+    private boolean closed;
+
+    // только поток-писатель
+    private FileChannel segment;
+
+    private WriteAheadLog(String name, Path directory, int segmentNumber) throws IOException {
+        this.name = name;
+        this.directory = directory;
+        this.segmentNumber = segmentNumber;
+        this.segment = openSegment(segmentNumber);
+        this.writerThread = new Thread(this::writeLoop, "wal-writer-" + name);
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Читает снимок и сегменты журнала в каталоге (в порядке записи), затем открывает журнал на новом сегменте.
+     */
+    @NotNull
+    public static WriteAheadLog open(@NotNull String name, @NotNull Path directory, @NotNull RecordConsumer replay) throws OperationIncompleteException {
+        try {
+            Files.createDirectories(directory);
+            TreeMap<Integer, Path> snapshots = list(directory, SNAPSHOT_SUFFIX);
+            TreeMap<Integer, Path> segments = list(directory, SEGMENT_SUFFIX);
+            int covered = 0;
+            long records = 0;
+            if (!snapshots.isEmpty()) {
+                covered = snapshots.lastKey();
+                records += read(snapshots.lastEntry().getValue(), replay);
+            }
+            int last = covered;
+            for (var entry : segments.entrySet()) {
+                last = Math.max(last, entry.getKey());
+                if (entry.getKey() < covered) continue;
+                records += read(entry.getValue(), replay);
+            }
+            logger.debug("WAL {} replayed: {} records, snapshot {}", name, records, covered);
+            WriteAheadLog log = new WriteAheadLog(name, directory, last + 1);
+            log.removeCovered(covered);
+            log.writerThread.start();
+            return log;
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to open WAL " + name + " in " + directory, e);
+        }
+    }
+
+    /**
+     * Ставит запись в очередь; возвращает её номер для {@link #awaitDurable}.
+     */
+    public long append(byte operation, @NotNull String key, @Nullable byte[] value) throws OperationIncompleteException {
+        ByteBuffer record = encode(operation, key, value);
+        lock.lock();
+        try {
+            checkOpen();
+            pending.add(record);
+            long sequence = ++appendedSequence;
+            pendingAvailable.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока запись с номером sequence будет сброшена на диск.
+     */
+    public void awaitDurable(long sequence) throws OperationIncompleteException {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkOpen();
+                durableAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Начинает новый сегмент после записи всего, что уже поставлено в очередь.
+     * Возвращает номер нового сегмента: записи, поставленные до вызова, лежат в сегментах с меньшими номерами.
+     */
+    public int rotate() throws OperationIncompleteException {
+        lock.lock();
+        try {
+            checkOpen();
+            long target = appendedSequence;
+            int requested = segmentNumber;
+            rotateRequests++;
+            pendingAvailable.signal();
+            while (segmentNumber == requested || durableSequence < target) {
+                checkOpen();
+                durableAdvanced.awaitUninterruptibly();
+            }
+            return segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Записывает снимок, покрывающий сегменты с номерами меньше coveredSegment, и удаляет их.
+     * Записи, попавшие и в снимок, и в более поздние сегменты, при чтении применяются повторно — операции идемпотентны.
+     */
+    public void snapshot(int coveredSegment, @NotNull SnapshotSource source) throws OperationIncompleteException {
+        Path snapshot = directory.resolve(coveredSegment + SNAPSHOT_SUFFIX);
+        Path temp = directory.resolve(coveredSegment + SNAPSHOT_SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter writer = new SnapshotWriter(channel);
+            source.writeTo(writer);
+            writer.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to write snapshot of WAL " + name, e);
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            removeCovered(coveredSegment);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to publish snapshot of WAL " + name, e);
+        }
+        logger.debug("WAL {} snapshot {} written", name, coveredSegment);
+    }
+
+    /**
+     * Сбрасывает очередь и останавливает поток-писатель.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            pendingAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkOpen() throws OperationIncompleteException {
+        if (failure != null) throw new OperationIncompleteException("WAL " + name + " failed", failure);
+        if (closed) throw new OperationIncompleteException("WAL " + name + " is closed");
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchSequence;
+            boolean rotate;
+            boolean stop;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && rotateRequests == 0 && !closed) {
+                    pendingAvailable.awaitUninterruptibly();
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSequence = appendedSequence;
+                rotate = rotateRequests > 0;
+                rotateRequests = 0;
+                stop = closed;
+            } finally {
+                lock.unlock();
+            }
+            int nextSegment = -1;
+            try {
+                if (!batch.isEmpty()) {
+                    ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                    long remaining = 0;
+                    for (ByteBuffer buffer : buffers) remaining += buffer.remaining();
+                    while (remaining > 0) remaining -= segment.write(buffers);
+                    // один fsync на всю пачку
+                    segment.force(false);
+                }
+                if (rotate || stop) {
+                    segment.close();
+                }
+                if (rotate && !stop) {
+                    nextSegment = segmentNumber + 1;
+                    segment = openSegment(nextSegment);
+                }
+            } catch (IOException e) {
+                logger.error("WAL {} write failed; storage changes are no longer durable", name, e);
+                lock.lock();
+                try {
+                    failure = e;
+                    durableAdvanced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                durableSequence = batchSequence;
+                if (nextSegment > 0) segmentNumber = nextSegment;
+                durableAdvanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (stop) return;
+        }
+    }
+
+    private FileChannel openSegment(int number) throws IOException {
+        return FileChannel.open(directory.resolve(number + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void removeCovered(int coveredSegment) throws IOException {
+        for (var entry : list(directory, SEGMENT_SUFFIX).entrySet()) {
+            if (entry.getKey() < coveredSegment) Files.deleteIfExists(entry.getValue());
+        }
+        for (var entry : list(directory, SNAPSHOT_SUFFIX).entrySet()) {
+            if (entry.getKey() < coveredSegment) Files.deleteIfExists(entry.getValue());
+        }
+    }
+
+    private static TreeMap<Integer, Path> list(Path directory, String suffix) throws IOException {
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(suffix)) continue;
+                try {
+                    files.put(Integer.parseInt(fileName.substring(0, fileName.length() - suffix.length())), file);
+                } catch (NumberFormatException ignored) {
+                    // посторонний файл
+                }
+            }
+        }
+        return files;
+    }
+
+    private static ByteBuffer encode(byte operation, String key, byte[] value) throws OperationIncompleteException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = (value == null) ? 0 : value.length;
+        int bodyLength = 1 + 4 + keyBytes.length + valueLength;
+        if (bodyLength > MAX_RECORD)
+            throw new OperationIncompleteException("WAL record of key " + key + " is too large: " + bodyLength + " bytes");
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bodyLength);
+        record.putInt(bodyLength).putInt(0).put(operation).putInt(keyBytes.length).put(keyBytes);
+        if (value != null) record.put(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static long read(Path file, RecordConsumer consumer) throws IOException, OperationIncompleteException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+            CRC32 crc = new CRC32();
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header)) break;
+                header.flip();
+                int bodyLength = header.getInt();
+                int checksum = header.getInt();
+                if (bodyLength < 5 || bodyLength > MAX_RECORD) {
+                    logger.warn("WAL file {} has a corrupted record at {}; tail is ignored", file, channel.position() - RECORD_HEADER);
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(bodyLength);
+                if (!readFully(channel, body)) {
+                    logger.warn("WAL file {} ends with an incomplete record; it is ignored", file);
+                    break;
+                }
+                crc.reset();
+                crc.update(body.array(), 0, bodyLength);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("WAL file {} has a record with a wrong checksum; tail is ignored", file);
+                    break;
+                }
+                body.flip();
+                byte operation = body.get();
+                int keyLength = body.getInt();
+                if (keyLength < 0 || keyLength > body.remaining()) throw new EOFException("Invalid key length in " + file);
+                byte[] key = new byte[keyLength];
+                body.get(key);
+                byte[] value = null;
+                if (operation == OP_PUT) {
+                    value = new byte[body.remaining()];
+                    body.get(value);
+                }
+                consumer.accept(operation, new String(key, StandardCharsets.UTF_8), value);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Пишет PUT-записи снимка.
+     */
+    public static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final List<ByteBuffer> buffered = new ArrayList<>();
+        private long bufferedBytes;
+
+        private SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public void put(@NotNull String key, @NotNull byte[] value) throws OperationIncompleteException {
+            ByteBuffer record = encode(OP_PUT, key, value);
+            buffered.add(record);
+            bufferedBytes += record.remaining();
+            if (bufferedBytes >= 1024 * 1024) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new OperationIncompleteException("Failed to write snapshot record", e);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            ByteBuffer[] buffers = buffered.toArray(new ByteBuffer[0]);
+            long remaining = bufferedBytes;
+            while (remaining > 0) remaining -= channel.write(buffers);
+            buffered.clear();
+            bufferedBytes = 0;
+        }
+    }
+}
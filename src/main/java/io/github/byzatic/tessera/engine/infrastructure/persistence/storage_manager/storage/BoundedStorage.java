@@ -0,0 +1,501 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограниченное хранилище: лимит числа элементов, лимит оценочного объёма и TTL с момента последней записи.
+ * <p>
+ * Вытеснение амортизировано и не сканирует хранилище: метаданные элементов связаны в список в порядке записи,
+ * поэтому истёкшие элементы всегда в его начале — после каждой записи и в {@link #size()} вытесняются истёкшие
+ * элементы из начала списка. Пока лимит превышен, из случайной выборки вытесняется элемент с самым давним
+ * обращением (приближённый LRU). Истёкшие элементы также не отдаются при чтении, поэтому size() и list()
+ * согласованы: ни один из них не учитывает истёкшие элементы.
+ * <p>
+ * Метаданные (время записи и обращения, оценка размера) хранятся в heap по одному объекту на ключ;
+ * ключи хранятся в массиве для выборки за O(1). Объём оценивается по размеру сериализованного значения
+ * и считается, только если задан maxBytes.
+ * <p>
+ * Время записи во вложенном хранилище не сохраняется: содержимое, восстановленное при открытии (mmap, wal),
+ * считается записанным в момент открытия, т.е. после перезапуска TTL этих элементов отсчитывается заново.
+ * Изменения одного ключа и его вытеснение выполняются под одной полосой блокировки.
+ */
+public class BoundedStorage<T extends DataValueInterface> implements StorageInterface<T> {
+    private final static Logger logger = LoggerFactory.getLogger(BoundedStorage.class);
+
+    public static final String REASON_ITEMS = "items";
+    public static final String REASON_BYTES = "bytes";
+    public static final String REASON_TTL = "ttl";
+
+    private static final int STRIPES = 64;
+    private static final int SAMPLE_SIZE = 5;
+    // верхняя граница вытеснений за одну запись, чтобы запись не зависала при гонках
+    private static final int MAX_EVICTIONS_PER_WRITE = 64;
+
+    /**
+     * Наблюдатель вытеснений (метрики).
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+        void onEviction(String storageId, String reason, long count);
+    }
+
+    private static final class Entry {
+        final String key;
+        final long bytes;
+        final long writtenAt;
+        volatile long accessedAt;
+        // под ringLock
+        int slot;
+        Entry older;
+        Entry newer;
+
+        Entry(String key, long bytes, long writtenAt) {
+            this.key = key;
+            this.bytes = bytes;
+            this.writtenAt = writtenAt;
+            this.accessedAt = writtenAt;
+        }
+    }
+
+    private final StorageInterface<T> storage;
+    private final long maxItems;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final EvictionListener listener;
+    private final DataValueCodec codec = new DataValueCodec();
+    private final Object[] stripes = new Object[STRIPES];
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock ringLock = new ReentrantLock();
+    // поля ниже — под ringLock
+    private Entry[] ring = new Entry[16];
+    private int ringSize;
+    private long totalBytes;
+    // список в порядке записи: oldest — первый кандидат на истечение TTL
+    private Entry oldest;
+    private Entry newest;
+
+    /**
+     * @param maxItems  максимум элементов; 0 — без лимита
+     * @param maxBytes  максимум оценочного объёма в байтах; 0 — без лимита
+     * @param ttlMillis время жизни с последней записи; 0 — без TTL
+     */
+    public BoundedStorage(@NotNull StorageInterface<T> storage, long maxItems, long maxBytes, long ttlMillis,
+                          @Nullable EvictionListener listener) throws OperationIncompleteException {
+        this(storage, maxItems, maxBytes, ttlMillis, listener, System::currentTimeMillis);
+    }
+
+    public BoundedStorage(@NotNull StorageInterface<T> storage, long maxItems, long maxBytes, long ttlMillis,
+                          @Nullable EvictionListener listener, @NotNull LongSupplier clock) throws OperationIncompleteException {
+        if (maxItems < 0 || maxBytes < 0 || ttlMillis < 0)
+            throw new OperationIncompleteException("Limits of storage " + storage.getStorageId() + " should not be negative; maxItems= " + maxItems + ", maxBytes= " + maxBytes + ", ttlMillis= " + ttlMillis);
+        this.storage = storage;
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.listener = listener;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        // восстановленное содержимое (mmap, wal) учитывается один раз при создании; время записи — момент открытия
+        for (Pair<String, T> item : storage.list()) {
+            if (item.getValue() != null) track(item.getKey(), estimate(item.getKey(), item.getValue()));
+        }
+        enforceLimits();
+    }
+
+    private Object stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static String key(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        if (id == null || id.getDataLookupIdentifier() == null)
+            throw new OperationIncompleteException(DataLookupIdentifierImpl.class.getSimpleName() + ".id should be not null");
+        return id.getDataLookupIdentifier();
+    }
+
+    private long estimate(String key, T item) throws OperationIncompleteException {
+        if (maxBytes == 0) return 0;
+        return codec.encode(item).length + 2L * key.length();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.writtenAt >= ttlMillis;
+    }
+
+    @Override
+    public String getStorageId() {
+        return storage.getStorageId();
+    }
+
+    @Override
+    public void create(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        String key = key(id);
+        long bytes = estimate(key, item);
+        synchronized (stripe(key)) {
+            Entry entry = entries.get(key);
+            // истёкший элемент не мешает созданию нового
+            if (entry != null && isExpired(entry, clock.getAsLong())) evict(entry, REASON_TTL);
+            storage.create(id, item);
+            track(key, bytes);
+        }
+        enforceLimits();
+    }
+
+    @Override
+    public T read(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        return getIfPresent(id);
+    }
+
+    @Override
+    public Boolean update(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        String key = key(id);
+        long bytes = estimate(key, item);
+        synchronized (stripe(key)) {
+            if (expireIfNeeded(key)) return false;
+            if (!storage.update(id, item)) return false;
+            track(key, bytes);
+        }
+        enforceLimits();
+        return true;
+    }
+
+    @Override
+    public @NotNull Boolean delete(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        String key = key(id);
+        synchronized (stripe(key)) {
+            boolean deleted = storage.delete(id);
+            untrack(key);
+            return deleted;
+        }
+    }
+
+    @Override
+    public @NotNull List<Pair<String, T>> list() throws OperationIncompleteException {
+        long now = clock.getAsLong();
+        List<Pair<String, T>> result = new ArrayList<>();
+        for (Pair<String, T> item : storage.list()) {
+            Entry entry = entries.get(item.getKey());
+            if (entry == null || !isExpired(entry, now)) result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull Boolean contains(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        String key = key(id);
+        if (expireIfNeeded(key)) return false;
+        return storage.contains(id);
+    }
+
+    /**
+     * Число неистёкших элементов: истёкшие элементы предварительно вытесняются из начала списка записи
+     * (работа пропорциональна числу истёкших элементов).
+     */
+    @Override
+    public @NotNull Integer size() {
+        if (ttlMillis > 0) {
+            try {
+                expireOldest(Integer.MAX_VALUE);
+            } catch (OperationIncompleteException e) {
+                logger.warn("Storage {}: failed to evict expired items", getStorageId(), e);
+            }
+        }
+        return storage.size();
+    }
+
+    @Override
+    public void upsert(DataLookupIdentifierImpl id, T item) throws OperationIncompleteException {
+        String key = key(id);
+        long bytes = estimate(key, item);
+        synchronized (stripe(key)) {
+            storage.upsert(id, item);
+            track(key, bytes);
+        }
+        enforceLimits();
+    }
+
+    @Override
+    public @Nullable T getIfPresent(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        String key = key(id);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = clock.getAsLong();
+            if (isExpired(entry, now)) {
+                expireIfNeeded(key);
+                return null;
+            }
+            entry.accessedAt = now;
+        }
+        return storage.getIfPresent(id);
+    }
+
+    @Override
+    public T computeIfAbsent(DataLookupIdentifierImpl id, Function<String, ? extends T> mappingFunction) throws OperationIncompleteException {
+        T existing = getIfPresent(id);
+        if (existing != null) return existing;
+        String key = key(id);
+        T result;
+        synchronized (stripe(key)) {
+            expireIfNeeded(key);
+            result = storage.computeIfAbsent(id, mappingFunction);
+            if (!entries.containsKey(key)) track(key, estimate(key, result));
+        }
+        enforceLimits();
+        return result;
+    }
+
+    @Override
+    public @Nullable T merge(DataLookupIdentifierImpl id, T item, BiFunction<? super T, ? super T, ? extends T> remappingFunction) throws OperationIncompleteException {
+        String key = key(id);
+        T result;
+        synchronized (stripe(key)) {
+            expireIfNeeded(key);
+            result = storage.merge(id, item, remappingFunction);
+            if (result == null) {
+                untrack(key);
+            } else {
+                track(key, estimate(key, result));
+            }
+        }
+        enforceLimits();
+        return result;
+    }
+
+    /**
+     * Очистка под всеми полосами ключей (и затем ringLock): конкурентное изменение ключа не может
+     * оставить элемент во вложенном хранилище без метаданных или метаданные без элемента.
+     */
+    @Override
+    public void cleanup() {
+        cleanupUnderStripes(0);
+    }
+
+    // полосы берутся по возрастанию номера, как единственное место, где их держат несколько сразу
+    private void cleanupUnderStripes(int stripe) {
+        if (stripe == STRIPES) {
+            clearUnderRingLock();
+            return;
+        }
+        synchronized (stripes[stripe]) {
+            cleanupUnderStripes(stripe + 1);
+        }
+    }
+
+    private void clearUnderRingLock() {
+        ringLock.lock();
+        try {
+            storage.cleanup();
+            entries.clear();
+            ring = new Entry[16];
+            ringSize = 0;
+            totalBytes = 0;
+            oldest = null;
+            newest = null;
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    /**
+     * Вытесняет элемент key, если его TTL истёк; true — элемент вытеснен.
+     */
+    private boolean expireIfNeeded(String key) throws OperationIncompleteException {
+        Entry entry = entries.get(key);
+        if (entry == null || !isExpired(entry, clock.getAsLong())) return false;
+        synchronized (stripe(key)) {
+            return evict(entry, REASON_TTL);
+        }
+    }
+
+    /**
+     * Регистрирует запись key; вызывается под полосой ключа.
+     */
+    private void track(String key, long bytes) {
+        Entry entry = new Entry(key, bytes, clock.getAsLong());
+        ringLock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            append(entry);
+            if (previous != null) {
+                unlink(previous);
+                entry.slot = previous.slot;
+                ring[entry.slot] = entry;
+                totalBytes += bytes - previous.bytes;
+            } else {
+                if (ringSize == ring.length) ring = Arrays.copyOf(ring, ring.length << 1);
+                entry.slot = ringSize;
+                ring[ringSize++] = entry;
+                totalBytes += bytes;
+            }
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    /**
+     * Снимает учёт key; вызывается под полосой ключа.
+     */
+    private void untrack(String key) {
+        ringLock.lock();
+        try {
+            Entry entry = entries.remove(key);
+            if (entry == null) return;
+            unlink(entry);
+            // на место удалённого переносится последний элемент массива
+            Entry last = ring[--ringSize];
+            ring[entry.slot] = last;
+            last.slot = entry.slot;
+            ring[ringSize] = null;
+            totalBytes -= entry.bytes;
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    /**
+     * Добавляет элемент в конец списка записи; вызывается под ringLock.
+     */
+    private void append(Entry entry) {
+        entry.older = newest;
+        entry.newer = null;
+        if (newest != null) newest.newer = entry; else oldest = entry;
+        newest = entry;
+    }
+
+    /**
+     * Убирает элемент из списка записи; вызывается под ringLock.
+     */
+    private void unlink(Entry entry) {
+        if (entry.older != null) entry.older.newer = entry.newer; else if (oldest == entry) oldest = entry.newer;
+        if (entry.newer != null) entry.newer.older = entry.older; else if (newest == entry) newest = entry.older;
+        entry.older = null;
+        entry.newer = null;
+    }
+
+    /**
+     * Вытесняет до limit истёкших элементов из начала списка записи.
+     */
+    private void expireOldest(int limit) throws OperationIncompleteException {
+        long now = clock.getAsLong();
+        for (int i = 0; i < limit; i++) {
+            Entry candidate;
+            ringLock.lock();
+            try {
+                candidate = oldest;
+            } finally {
+                ringLock.unlock();
+            }
+            if (candidate == null || !isExpired(candidate, now)) return;
+            synchronized (stripe(candidate.key)) {
+                // элемент, перезаписанный между чтением списка и блокировкой, уже не в начале списка
+                evict(candidate, REASON_TTL);
+            }
+        }
+    }
+
+    /**
+     * Вытесняет элемент, если он не был перезаписан; вызывается под полосой ключа.
+     */
+    private boolean evict(Entry entry, String reason) throws OperationIncompleteException {
+        if (entries.get(entry.key) != entry) return false;
+        storage.delete(DataLookupIdentifierImpl.newBuilder().dataId(entry.key).build());
+        untrack(entry.key);
+        logger.debug("Storage {}: item {} evicted ({})", getStorageId(), entry.key, reason);
+        if (listener != null) {
+            try {
+                listener.onEviction(getStorageId(), reason, 1);
+            } catch (Throwable t) {
+                logger.debug("Failed to publish eviction of storage {}: {}", getStorageId(), t.toString());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Вытеснение истёкших элементов из начала списка записи и вытеснение по лимитам;
+     * работа пропорциональна числу вытесненных элементов.
+     */
+    private void enforceLimits() throws OperationIncompleteException {
+        if (ttlMillis > 0) expireOldest(SAMPLE_SIZE);
+        for (int evictions = 0; evictions < MAX_EVICTIONS_PER_WRITE; evictions++) {
+            String reason;
+            ringLock.lock();
+            try {
+                if (maxItems > 0 && ringSize > maxItems) {
+                    reason = REASON_ITEMS;
+                } else if (maxBytes > 0 && totalBytes > maxBytes) {
+                    reason = REASON_BYTES;
+                } else {
+                    return;
+                }
+            } finally {
+                ringLock.unlock();
+            }
+            Entry victim = null;
+            long now = clock.getAsLong();
+            for (Entry candidate : sample()) {
+                if (isExpired(candidate, now)) {
+                    victim = candidate;
+                    reason = REASON_TTL;
+                    break;
+                }
+                if (victim == null || candidate.accessedAt < victim.accessedAt) victim = candidate;
+            }
+            if (victim == null) return;
+            synchronized (stripe(victim.key)) {
+                evict(victim, reason);
+            }
+        }
+    }
+
+    private List<Entry> sample() {
+        ringLock.lock();
+        try {
+            if (ringSize == 0) return List.of();
+            List<Entry> sample = new ArrayList<>(SAMPLE_SIZE);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < Math.min(SAMPLE_SIZE, ringSize); i++) {
+                sample.add(ring[random.nextInt(ringSize)]);
+            }
+            return sample;
+        } finally {
+            ringLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedStorage{" +
+                "storage=" + storage +
+                ", maxItems=" + maxItems +
+                ", maxBytes=" + maxBytes +
+                ", ttlMillis=" + ttlMillis +
+                '}';
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр ClassLoader'ов, из которых могут приходить классы значений хранилищ
+ * (shared resources, модули WorkflowRoutine, сервисы).
+ * <p>
+ * Каждый загрузчик регистрируется под стабильным именем (например, "module:Name"). {@link DataValueCodec}
+ * пишет имя загрузчика класса вместе со значением и при чтении ищет класс в загрузчике с тем же именем —
+ * это работает и после перезапуска процесса (mmap, журнал), и когда одинаковые имена классов есть
+ * в разных плагинах. При перезагрузке плагинов новый загрузчик подменяет старый под тем же именем.
+ */
+public final class DataValueClassLoaders {
+    public static final String SHARED_RESOURCES = "shared-resources";
+    public static final String MODULE_PREFIX = "module:";
+    public static final String SERVICE_PREFIX = "service:";
+
+    private static final DataValueClassLoaders INSTANCE = new DataValueClassLoaders();
+
+    private final Map<String, ClassLoader> byName = new ConcurrentHashMap<>();
+    private final Map<ClassLoader, String> names = new ConcurrentHashMap<>();
+
+    public DataValueClassLoaders() {
+    }
+
+    public static DataValueClassLoaders getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void register(@NotNull String name, @Nullable ClassLoader classLoader) {
+        ClassLoader previous = (classLoader == null) ? byName.remove(name) : byName.put(name, classLoader);
+        if (previous != null && previous != classLoader) names.remove(previous, name);
+        if (classLoader != null) names.put(classLoader, name);
+    }
+
+    public synchronized void unregister(@NotNull String name) {
+        register(name, null);
+    }
+
+    /**
+     * Имя, под которым зарегистрирован загрузчик, или null.
+     */
+    @Nullable
+    public String nameOf(@Nullable ClassLoader classLoader) {
+        return (classLoader == null) ? null : names.get(classLoader);
+    }
+
+    @Nullable
+    public ClassLoader get(@Nullable String name) {
+        return (name == null) ? null : byName.get(name);
+    }
+
+    /**
+     * Порядок поиска класса без имени загрузчика: shared resources, затем остальные загрузчики.
+     */
+    @NotNull
+    public List<ClassLoader> candidates() {
+        List<ClassLoader> candidates = new ArrayList<>(byName.size());
+        ClassLoader shared = byName.get(SHARED_RESOURCES);
+        if (shared != null) candidates.add(shared);
+        for (Map.Entry<String, ClassLoader> entry : byName.entrySet()) {
+            if (!SHARED_RESOURCES.equals(entry.getKey())) candidates.add(entry.getValue());
+        }
+        return candidates;
+    }
+}
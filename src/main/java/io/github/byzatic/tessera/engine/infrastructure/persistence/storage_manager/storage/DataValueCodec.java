@@ -0,0 +1,92 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+
+/**
+ * Сериализация {@link DataValueInterface} в байты для хранилищ вне heap (Java serialization).
+ * <p>
+ * Классы значений приходят из модулей со своими ClassLoader'ами, поэтому для каждого класса в поток
+ * пишется имя его загрузчика из {@link DataValueClassLoaders}. При чтении класс ищется в загрузчике
+ * с этим именем, затем в shared resources и остальных зарегистрированных загрузчиках, затем в context
+ * ClassLoader потока. Имя не зависит от процесса, поэтому значения читаются и после перезапуска.
+ */
+public final class DataValueCodec {
+    private final DataValueClassLoaders classLoaders;
+
+    public DataValueCodec() {
+        this(DataValueClassLoaders.getInstance());
+    }
+
+    public DataValueCodec(@NotNull DataValueClassLoaders classLoaders) {
+        this.classLoaders = classLoaders;
+    }
+
+    @NotNull
+    public byte[] encode(@NotNull DataValueInterface value) throws OperationIncompleteException {
+        if (!(value instanceof Serializable)) {
+            throw new OperationIncompleteException("Value " + value.getClass().getName() + " is not Serializable and can not be stored off-heap");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ClassLoaderTrackingOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to serialize value " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @NotNull
+    public DataValueInterface decode(@NotNull byte[] bytes) throws OperationIncompleteException {
+        try (ObjectInputStream in = new ClassLoaderAwareInputStream(new ByteArrayInputStream(bytes))) {
+            return (DataValueInterface) in.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new OperationIncompleteException("Failed to deserialize value", e);
+        }
+    }
+
+    private final class ClassLoaderTrackingOutputStream extends ObjectOutputStream {
+        ClassLoaderTrackingOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void annotateClass(Class<?> cl) throws IOException {
+            String name = classLoaders.nameOf(cl.getClassLoader());
+            writeUTF((name == null) ? "" : name);
+        }
+    }
+
+    private final class ClassLoaderAwareInputStream extends ObjectInputStream {
+        ClassLoaderAwareInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = readUTF();
+            Class<?> resolved = tryLoad(desc.getName(), classLoaders.get(name.isEmpty() ? null : name));
+            if (resolved != null) return resolved;
+            for (ClassLoader loader : classLoaders.candidates()) {
+                resolved = tryLoad(desc.getName(), loader);
+                if (resolved != null) return resolved;
+            }
+            resolved = tryLoad(desc.getName(), Thread.currentThread().getContextClassLoader());
+            if (resolved != null) return resolved;
+            return super.resolveClass(desc);
+        }
+
+        private Class<?> tryLoad(String className, ClassLoader loader) {
+            if (loader == null) return null;
+            try {
+                return Class.forName(className, false, loader);
+            } catch (ClassNotFoundException ignored) {
+                // не найден в этом загрузчике: пробуем следующий
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Персистентное хранилище: слэбы {@link OffHeapStorage} — файлы, отображённые в память (append log).
+ * <p>
+ * Каталог хранилища содержит файлы слэбов {@code <поколение>-<номер>.slab} и файл {@value #CURRENT_FILE}
+ * с номером текущего поколения. Изменения дописываются в последний слэб, удаление — отметкой удаления.
+ * Компактификация пишет живые записи в слэбы нового поколения, сбрасывает их на диск, атомарно переключает
+ * {@value #CURRENT_FILE} и удаляет старые файлы.
+ * <p>
+ * При старте слэбы текущего поколения отображаются обратно, индекс строится по ключам записей без
+ * десериализации значений. Незавершённая запись (сбой процесса во время записи) отбрасывается.
+ * Данные попадают в page cache сразу; на диск слэб сбрасывается при заполнении, компактификации и {@link #flush()},
+ * поэтому при потере питания могут пропасть последние изменения.
+ * <p>
+ * force() и переключение {@value #CURRENT_FILE} не выполняются под write lock хранилища: под блокировкой
+ * запоминаются заполненные слэбы и зафиксированное поколение, а сброс на диск, запись {@value #CURRENT_FILE}
+ * и удаление файлов старого поколения выполняет поток изменения после снятия блокировки
+ * (в порядке подготовки). Пока {@value #CURRENT_FILE} не переключён, файлы прежнего поколения не удаляются:
+ * после сбоя хранилище откроется на нём. Если переключение не удалось, оно повторяется при следующем
+ * изменении или {@link #flush()}.
+ */
+public class MmapStorage<T extends DataValueInterface> extends OffHeapStorage<T> {
+    private final static Logger logger = LoggerFactory.getLogger(MmapStorage.class);
+
+    public static final String CURRENT_FILE = "CURRENT";
+    private static final String SLAB_SUFFIX = ".slab";
+
+    private final Path directory;
+    // отображённые слэбы по поколениям, для flush()
+    private final Map<Integer, List<MappedByteBuffer>> mapped = new HashMap<>();
+
+    // подготовлено под write lock, выполняется в writeLockReleased(); поля под монитором pendingLock
+    private final Object pendingLock = new Object();
+    private final List<MappedByteBuffer> pendingForce = new ArrayList<>();
+    private PendingCommit pendingCommit = null;
+    private final List<Integer> pendingDrops = new ArrayList<>();
+    private volatile boolean hasPending = false;
+    // сериализует сброс на диск, чтобы CURRENT переключался в порядке фиксации поколений
+    private final Object durabilityLock = new Object();
+
+    public MmapStorage(@NotNull String storageId, @NotNull Path directory, int slabSize, int expectedItems) throws OperationIncompleteException {
+        super(storageId, slabSize, expectedItems);
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to create directory " + directory + " of storage " + storageId, e);
+        }
+        int generation = readCurrentGeneration();
+        List<ByteBuffer> slabs = new ArrayList<>();
+        for (Path file : listSlabs(generation).values()) {
+            slabs.add(map(generation, file, -1));
+        }
+        removeOtherGenerations(generation);
+        restore(generation, slabs);
+        logger.debug("Storage {} mapped from {} ({} slabs, {} items)", storageId, directory, slabs.size(), size());
+    }
+
+    /**
+     * Сбрасывает изменённые страницы отображённых слэбов на диск.
+     */
+    public void flush() {
+        writeLockReleased();
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        synchronized (mapped) {
+            for (List<MappedByteBuffer> generation : mapped.values()) buffers.addAll(generation);
+        }
+        for (MappedByteBuffer buffer : buffers) buffer.force();
+    }
+
+    /**
+     * Остановка приложения: изменения, ещё не сброшенные ОС, записываются на диск.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    @Override
+    protected ByteBuffer allocateSlab(int generation, int number, int capacity) throws OperationIncompleteException {
+        Path file = directory.resolve(slabFileName(generation, number));
+        try {
+            // остаток неудачной компактификации того же поколения
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to replace slab file " + file, e);
+        }
+        return map(generation, file, capacity);
+    }
+
+    @Override
+    protected void slabFilled(@NotNull ByteBuffer slab) {
+        synchronized (pendingLock) {
+            pendingForce.add((MappedByteBuffer) slab);
+            hasPending = true;
+        }
+    }
+
+    @Override
+    protected void commitGeneration(int generation, @NotNull List<ByteBuffer> slabs) {
+        List<MappedByteBuffer> buffers = new ArrayList<>(slabs.size());
+        for (ByteBuffer slab : slabs) buffers.add((MappedByteBuffer) slab);
+        synchronized (pendingLock) {
+            // ещё не записанное поколение вытесняется более новым; его файлы удалит dropGeneration
+            pendingCommit = new PendingCommit(generation, buffers);
+            hasPending = true;
+        }
+    }
+
+    @Override
+    protected void dropGeneration(int generation) {
+        synchronized (mapped) {
+            // отображение освобождается GC вместе с последним буфером
+            mapped.remove(generation);
+        }
+        synchronized (pendingLock) {
+            pendingDrops.add(generation);
+            hasPending = true;
+        }
+    }
+
+    /**
+     * Сбрасывает на диск слэбы, подготовленные под write lock, переключает {@value #CURRENT_FILE}
+     * и только после этого удаляет файлы отброшенных поколений.
+     */
+    @Override
+    protected void writeLockReleased() {
+        if (!hasPending) return;
+        synchronized (durabilityLock) {
+            List<MappedByteBuffer> forces;
+            PendingCommit commit;
+            List<Integer> drops;
+            synchronized (pendingLock) {
+                forces = new ArrayList<>(pendingForce);
+                pendingForce.clear();
+                commit = pendingCommit;
+                pendingCommit = null;
+                drops = new ArrayList<>(pendingDrops);
+                pendingDrops.clear();
+                hasPending = false;
+            }
+            for (MappedByteBuffer buffer : forces) buffer.force();
+            if (commit != null) {
+                try {
+                    switchGeneration(commit);
+                } catch (OperationIncompleteException e) {
+                    logger.error("Failed to switch storage {} to generation {}; will retry", getStorageId(), commit.generation, e);
+                    synchronized (pendingLock) {
+                        if (pendingCommit == null) pendingCommit = commit;
+                        pendingDrops.addAll(0, drops);
+                        hasPending = true;
+                    }
+                    return;
+                }
+            }
+            for (int generation : drops) removeGeneration(generation);
+        }
+    }
+
+    private void switchGeneration(PendingCommit commit) throws OperationIncompleteException {
+        for (MappedByteBuffer slab : commit.slabs) slab.force();
+        Path current = directory.resolve(CURRENT_FILE);
+        Path temp = directory.resolve(CURRENT_FILE + ".tmp");
+        try {
+            Files.write(temp, Integer.toString(commit.generation).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to switch storage " + getStorageId() + " to generation " + commit.generation, e);
+        }
+    }
+
+    private void removeGeneration(int generation) {
+        try {
+            for (Path file : listSlabs(generation).values()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | OperationIncompleteException e) {
+            logger.warn("Failed to remove slabs of generation {} of storage {}", generation, getStorageId(), e);
+        }
+    }
+
+    @Override
+    protected boolean isRemovalLogged() {
+        return true;
+    }
+
+    private MappedByteBuffer map(int generation, Path file, int capacity) throws OperationIncompleteException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = (capacity < 0) ? channel.size() : capacity;
+            if (size > Integer.MAX_VALUE)
+                throw new OperationIncompleteException("Slab file " + file + " is larger than 2 GB");
+            // отображение за концом файла расширяет файл нулями
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            synchronized (mapped) {
+                mapped.computeIfAbsent(generation, g -> new ArrayList<>()).add(buffer);
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to map slab file " + file, e);
+        }
+    }
+
+    private int readCurrentGeneration() throws OperationIncompleteException {
+        Path current = directory.resolve(CURRENT_FILE);
+        if (!Files.exists(current)) return 0;
+        try {
+            return Integer.parseInt(Files.readString(current, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new OperationIncompleteException("Failed to read " + current + " of storage " + getStorageId(), e);
+        }
+    }
+
+    /**
+     * Файлы слэбов поколения по номеру слэба.
+     */
+    private TreeMap<Integer, Path> listSlabs(int generation) throws OperationIncompleteException {
+        TreeMap<Integer, Path> slabs = new TreeMap<>();
+        String prefix = generation + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(prefix) || !name.endsWith(SLAB_SUFFIX)) continue;
+                slabs.put(Integer.parseInt(name.substring(prefix.length(), name.length() - SLAB_SUFFIX.length())), file);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new OperationIncompleteException("Failed to list slabs of storage " + getStorageId() + " in " + directory, e);
+        }
+        return slabs;
+    }
+
+    private void removeOtherGenerations(int generation) throws OperationIncompleteException {
+        String prefix = generation + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SLAB_SUFFIX) && !name.startsWith(prefix)) {
+                    logger.debug("Storage {}: stale slab {} removed", getStorageId(), name);
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new OperationIncompleteException("Failed to clean up directory " + directory + " of storage " + getStorageId(), e);
+        }
+    }
+
+    private static String slabFileName(int generation, int number) {
+        return generation + "-" + number + SLAB_SUFFIX;
+    }
+
+    /**
+     * Поколение, зафиксированное под write lock и ещё не записанное в {@value #CURRENT_FILE}.
+     */
+    private static final class PendingCommit {
+        private final int generation;
+        private final List<MappedByteBuffer> slabs;
+
+        private PendingCommit(int generation, List<MappedByteBuffer> slabs) {
+            this.generation = generation;
+            this.slabs = slabs;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MmapStorage{" +
+                "storageId='" + getStorageId() + '\'' +
+                ", directory=" + directory +
+                ", size=" + size() +
+                '}';
+    }
+}
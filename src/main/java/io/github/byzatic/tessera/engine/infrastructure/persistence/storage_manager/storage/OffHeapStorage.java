@@ -0,0 +1,654 @@
+package io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Хранилище вне heap: ключи и сериализованные значения лежат в direct ByteBuffer слэбах,
+ * индекс — открытая адресация (linear probing) в отдельном direct ByteBuffer.
+ * <p>
+ * Размер heap не зависит от числа элементов: в heap остаются только список слэбов и заголовки буферов.
+ * Значения декодируются при каждом чтении, поэтому рутина получает копию — изменения прочитанного
+ * объекта без update/upsert в хранилище не попадают.
+ * <p>
+ * Запись: [int keyLength][int valueLength][key UTF-8][value]; valueLength пишется последним и подтверждает запись
+ * (0 — записи нет, -1 — отметка удаления, используется журналирующими наследниками). Адрес записи:
+ * (номер слэба + 1) << 32 | смещение; в индексе 0 — пустой слот, -1 — удалённый. Update и delete оставляют мусор
+ * в слэбах; когда живых данных меньше половины занятого места, записи переносятся в слэбы нового поколения,
+ * старые освобождает GC (Cleaner direct буфера).
+ * Чтения идут под read lock, изменения — под write lock; сериализация выполняется вне блокировки.
+ * <p>
+ * Наследники меняют источник слэбов (allocateSlab) и фиксацию поколений (commitGeneration / dropGeneration),
+ * например, для слэбов в отображённых в память файлах.
+ */
+public class OffHeapStorage<T extends DataValueInterface> implements StorageInterface<T> {
+    private final static Logger logger = LoggerFactory.getLogger(OffHeapStorage.class);
+
+    public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    // 12 байт на слот: индекс не превышает 2 ГБ одного ByteBuffer
+    private static final int MAX_CAPACITY = 1 << 27;
+    private static final int SLOT_SIZE = 12;
+    private static final int SLOT_ADDRESS = 4;
+    private static final int RECORD_HEADER = 8;
+    private static final int REMOVED_MARKER = -1;
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+    private static final double MAX_LOAD = 0.7;
+
+    private final String storageId;
+    private final int slabSize;
+    private final int initialCapacity;
+    private final DataValueCodec codec = new DataValueCodec();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // поля ниже меняются под write lock
+    private SlabWriter writer = new SlabWriter(0, new ArrayList<>(), 0);
+    private ByteBuffer index;
+    private int capacity;
+    private int tombstones;
+    private long liveBytes;
+    private volatile int count;
+
+    public OffHeapStorage(@NotNull String storageId) throws OperationIncompleteException {
+        this(storageId, DEFAULT_SLAB_SIZE, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public OffHeapStorage(@NotNull String storageId, int slabSize, int expectedItems) throws OperationIncompleteException {
+        if (slabSize < 1024)
+            throw new OperationIncompleteException("Off-heap slab size of storage " + storageId + " should be at least 1024 bytes; slabSize= " + slabSize);
+        if (expectedItems < 1)
+            throw new OperationIncompleteException("Expected items of storage " + storageId + " should be positive; expectedItems= " + expectedItems);
+        this.storageId = storageId;
+        this.slabSize = slabSize;
+        this.initialCapacity = capacityFor(expectedItems);
+        this.capacity = initialCapacity;
+        this.index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    }
+
+    private static int capacityFor(int items) throws OperationIncompleteException {
+        long required = (long) Math.ceil(items / MAX_LOAD);
+        int result = 16;
+        while (result < required) {
+            if (result >= MAX_CAPACITY)
+                throw new OperationIncompleteException("Off-heap storage can not hold " + items + " items");
+            result <<= 1;
+        }
+        return result;
+    }
+
+    @Contract("null -> fail")
+    private @NotNull String getId(DataLookupIdentifierImpl id) throws OperationIncompleteException {
+        if (id == null)
+            throw new OperationIncompleteException(DataLookupIdentifierImpl.class.getSimpleName() + " should be not null");
+        String temp = id.getDataLookupIdentifier();
+        if (temp == null)
+            throw new OperationIncompleteException(DataLookupIdentifierImpl.class.getSimpleName() + ".id should be not null");
+        return temp;
+    }
+
+    @Override
+    public @NotNull String getStorageId() {
+        return storageId;
+    }
+
+    @Override
+    public void create(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        byte[] value = codec.encode(item);
+        lock.writeLock().lock();
+        try {
+            int hash = hash(key);
+            if (find(key, hash) >= 0) {
+                throw new OperationIncompleteException("Item with ID already exists: " + id);
+            }
+            insert(key, hash, value);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public @NotNull T read(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
+        return getIfPresent(storageItemIdI);
+    }
+
+    @Override
+    public @NotNull Boolean update(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        byte[] value = codec.encode(item);
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash(key));
+            if (slot < 0) return false;
+            replace(slot, key, value);
+            return true;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public @NotNull Boolean delete(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash(key));
+            if (slot < 0) return false;
+            remove(slot);
+            return true;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public @NotNull List<Pair<String, T>> list() throws OperationIncompleteException {
+        List<Pair<String, byte[]>> records = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                long address = addressAt(slot);
+                if (address == EMPTY || address == TOMBSTONE) continue;
+                records.add(new Pair<>(readKey(address), readValue(address)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Pair<String, T>> storedPairs = new ArrayList<>(records.size());
+        for (Pair<String, byte[]> record : records) {
+            storedPairs.add(new Pair<>(record.getKey(), decode(record.getValue())));
+        }
+        return storedPairs;
+    }
+
+    @Override
+    public @NotNull Boolean contains(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            return find(key, hash(key)) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull Integer size() {
+        return count;
+    }
+
+    @Override
+    public void upsert(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        byte[] value = codec.encode(item);
+        lock.writeLock().lock();
+        try {
+            put(key, value);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public @Nullable T getIfPresent(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        byte[] value;
+        lock.readLock().lock();
+        try {
+            int slot = find(key, hash(key));
+            if (slot < 0) return null;
+            value = readValue(addressAt(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return decode(value);
+    }
+
+    @Override
+    public @NotNull T computeIfAbsent(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull Function<String, ? extends T> mappingFunction) throws OperationIncompleteException {
+        T existing = getIfPresent(storageItemIdI);
+        if (existing != null) return existing;
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        // функция вызывается под write lock: не более одного раза для id
+        lock.writeLock().lock();
+        try {
+            int hash = hash(key);
+            int slot = find(key, hash);
+            if (slot >= 0) return decode(readValue(addressAt(slot)));
+            T value = mappingFunction.apply(id);
+            if (value == null)
+                throw new OperationIncompleteException("Mapping function returned null for item with ID " + id);
+            insert(key, hash, codec.encode(value));
+            return value;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public @Nullable T merge(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item, @NotNull BiFunction<? super T, ? super T, ? extends T> remappingFunction) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int slot = find(key, hash(key));
+            T newValue = (slot < 0) ? item : remappingFunction.apply(decode(readValue(addressAt(slot))), item);
+            if (newValue == null) {
+                if (slot >= 0) remove(slot);
+            } else {
+                put(key, codec.encode(newValue));
+            }
+            return newValue;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        lock.writeLock().lock();
+        try {
+            int oldGeneration = writer.generation;
+            SlabWriter empty = new SlabWriter(oldGeneration + 1, new ArrayList<>(), 0);
+            try {
+                commitGeneration(empty.generation, empty.slabs);
+            } catch (OperationIncompleteException e) {
+                logger.error("Failed to clean up storage {}", storageId, e);
+                dropGeneration(empty.generation);
+                return;
+            }
+            writer = empty;
+            liveBytes = 0;
+            tombstones = 0;
+            count = 0;
+            capacity = initialCapacity;
+            index = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+            dropGeneration(oldGeneration);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Объём памяти вне heap: слэбы и индекс, в байтах.
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long total = (long) capacity * SLOT_SIZE;
+            for (ByteBuffer slab : writer.slabs) total += slab.capacity();
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // снимает write lock; отложенная работа наследника выполняется уже без блокировки
+    private void unlockWrite() {
+        lock.writeLock().unlock();
+        if (!lock.isWriteLockedByCurrentThread()) writeLockReleased();
+    }
+
+    /**
+     * Новый слэб поколения generation (number — порядковый номер слэба в поколении).
+     */
+    protected ByteBuffer allocateSlab(int generation, int number, int capacity) throws OperationIncompleteException {
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Слэб заполнен, дальше пишется следующий. Вызывается под write lock.
+     */
+    protected void slabFilled(@NotNull ByteBuffer slab) {
+    }
+
+    /**
+     * Поколение после компактификации или cleanup становится текущим; при ошибке оно будет отброшено.
+     * Вызывается под write lock.
+     */
+    protected void commitGeneration(int generation, @NotNull List<ByteBuffer> slabs) throws OperationIncompleteException {
+    }
+
+    /**
+     * Поколение больше не используется (заменено или не было зафиксировано).
+     */
+    protected void dropGeneration(int generation) {
+    }
+
+    /**
+     * Вызывается после снятия write lock операцией, которая его брала. Медленную работу, подготовленную
+     * в slabFilled / commitGeneration / dropGeneration (например, сброс на диск), наследник выполняет здесь,
+     * не задерживая чтения и записи хранилища.
+     */
+    protected void writeLockReleased() {
+    }
+
+    /**
+     * Писать ли отметки удаления (нужны, если содержимое слэбов восстанавливается через {@link #restore}).
+     */
+    protected boolean isRemovalLogged() {
+        return false;
+    }
+
+    /**
+     * Восстанавливает хранилище из слэбов поколения: индекс строится по ключам записей, значения не декодируются.
+     * Вызывается наследником до начала работы с хранилищем.
+     */
+    protected final void restore(int generation, @NotNull List<ByteBuffer> slabs) throws OperationIncompleteException {
+        lock.writeLock().lock();
+        try {
+            SlabWriter restored = new SlabWriter(generation, new ArrayList<>(slabs), 0);
+            writer = restored;
+            for (int number = 0; number < slabs.size(); number++) {
+                ByteBuffer slab = slabs.get(number);
+                int offset = 0;
+                while (offset + RECORD_HEADER <= slab.capacity()) {
+                    int keyLength = slab.getInt(offset);
+                    int valueLength = slab.getInt(offset + 4);
+                    int length = RECORD_HEADER + keyLength + Math.max(valueLength, 0);
+                    if (valueLength == 0 || keyLength < 0 || valueLength < REMOVED_MARKER || offset + length > slab.capacity()) {
+                        if (keyLength != 0 || valueLength != 0) {
+                            // запись не подтверждена (сбой во время записи): затираем хвост слэба
+                            logger.warn("Storage {} has a torn record at slab {} offset {}; tail is discarded", storageId, number, offset);
+                            for (int i = offset; i < slab.capacity(); i++) slab.put(i, (byte) 0);
+                        }
+                        break;
+                    }
+                    restoreRecord(((long) (number + 1) << 32) | offset, keyLength, valueLength);
+                    offset += length;
+                }
+                restored.position = offset;
+                restored.used += offset;
+            }
+            logger.debug("Storage {} restored: {} items, {} slabs", storageId, count, slabs.size());
+            compactIfSparse();
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    private void restoreRecord(long address, int keyLength, int valueLength) throws OperationIncompleteException {
+        ByteBuffer slab = slabOf(address);
+        byte[] key = new byte[keyLength];
+        slab.get((int) address + RECORD_HEADER, key);
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (valueLength == REMOVED_MARKER) {
+            if (slot >= 0) unlink(slot);
+        } else if (slot >= 0) {
+            liveBytes -= recordLength(addressAt(slot));
+            liveBytes += RECORD_HEADER + keyLength + valueLength;
+            index.putLong(slot * SLOT_SIZE + SLOT_ADDRESS, address);
+        } else {
+            link(key, hash, address);
+            liveBytes += RECORD_HEADER + keyLength + valueLength;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(byte[] value) throws OperationIncompleteException {
+        return (T) codec.decode(value);
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private long addressAt(int slot) {
+        return index.getLong(slot * SLOT_SIZE + SLOT_ADDRESS);
+    }
+
+    private void setSlot(ByteBuffer target, int slot, int hash, long address) {
+        target.putInt(slot * SLOT_SIZE, hash);
+        target.putLong(slot * SLOT_SIZE + SLOT_ADDRESS, address);
+    }
+
+    /**
+     * Слот ключа или -(слот для вставки + 1), если ключа нет.
+     */
+    private int find(byte[] key, int hash) {
+        int mask = capacity - 1;
+        int firstFree = -1;
+        int slot = hash & mask;
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            long address = addressAt(slot);
+            if (address == EMPTY) return -((firstFree >= 0 ? firstFree : slot) + 1);
+            if (address == TOMBSTONE) {
+                if (firstFree < 0) firstFree = slot;
+            } else if (index.getInt(slot * SLOT_SIZE) == hash && keyEquals(address, key)) {
+                return slot;
+            }
+        }
+        return -(firstFree + 1);
+    }
+
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        if (slab.getInt(offset) != key.length) return false;
+        return slab.slice(offset + RECORD_HEADER, key.length).equals(ByteBuffer.wrap(key));
+    }
+
+    private ByteBuffer slabOf(long address) {
+        return writer.slabs.get((int) (address >>> 32) - 1);
+    }
+
+    private String readKey(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        byte[] key = new byte[slab.getInt(offset)];
+        slab.get(offset + RECORD_HEADER, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readValue(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        byte[] value = new byte[slab.getInt(offset + 4)];
+        slab.get(offset + RECORD_HEADER + slab.getInt(offset), value);
+        return value;
+    }
+
+    private int recordLength(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        return RECORD_HEADER + slab.getInt(offset) + Math.max(slab.getInt(offset + 4), 0);
+    }
+
+    private void put(byte[] key, byte[] value) throws OperationIncompleteException {
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (slot >= 0) {
+            replace(slot, key, value);
+        } else {
+            insert(key, hash, value);
+        }
+    }
+
+    private void insert(byte[] key, int hash, byte[] value) throws OperationIncompleteException {
+        long address = writer.write(key, value);
+        liveBytes += RECORD_HEADER + key.length + value.length;
+        link(key, hash, address);
+    }
+
+    private void link(byte[] key, int hash, long address) throws OperationIncompleteException {
+        if (count + tombstones + 1 > capacity * MAX_LOAD) {
+            // много удалённых слотов — перестраиваем индекс без роста
+            rehash(count + 1 > capacity * MAX_LOAD / 2 ? capacity << 1 : capacity);
+        }
+        int slot = -(find(key, hash) + 1);
+        if (addressAt(slot) == TOMBSTONE) tombstones--;
+        setSlot(index, slot, hash, address);
+        count++;
+    }
+
+    private void replace(int slot, byte[] key, byte[] value) throws OperationIncompleteException {
+        long address = writer.write(key, value);
+        liveBytes -= recordLength(addressAt(slot));
+        liveBytes += RECORD_HEADER + key.length + value.length;
+        index.putLong(slot * SLOT_SIZE + SLOT_ADDRESS, address);
+        compactIfSparse();
+    }
+
+    private void remove(int slot) throws OperationIncompleteException {
+        if (isRemovalLogged()) {
+            ByteBuffer slab = slabOf(addressAt(slot));
+            byte[] key = new byte[slab.getInt((int) addressAt(slot))];
+            slab.get((int) addressAt(slot) + RECORD_HEADER, key);
+            writer.write(key, null);
+        }
+        unlink(slot);
+        compactIfSparse();
+    }
+
+    private void unlink(int slot) {
+        liveBytes -= recordLength(addressAt(slot));
+        index.putLong(slot * SLOT_SIZE + SLOT_ADDRESS, TOMBSTONE);
+        tombstones++;
+        count--;
+    }
+
+    private void rehash(int newCapacity) throws OperationIncompleteException {
+        if (newCapacity > MAX_CAPACITY)
+            throw new OperationIncompleteException("Off-heap storage " + storageId + " index is full; items= " + count);
+        ByteBuffer newIndex = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        int mask = newCapacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            long address = addressAt(slot);
+            if (address == EMPTY || address == TOMBSTONE) continue;
+            int hash = index.getInt(slot * SLOT_SIZE);
+            int target = hash & mask;
+            while (newIndex.getLong(target * SLOT_SIZE + SLOT_ADDRESS) != EMPTY) target = (target + 1) & mask;
+            setSlot(newIndex, target, hash, address);
+        }
+        logger.debug("Off-heap storage {} index rehashed: {} -> {} slots", storageId, capacity, newCapacity);
+        index = newIndex;
+        capacity = newCapacity;
+        tombstones = 0;
+    }
+
+    /**
+     * Переносит живые записи в слэбы нового поколения, если мусор занимает больше половины записанного.
+     * Индекс меняется только после фиксации поколения, при ошибке хранилище остаётся на старых слэбах.
+     */
+    private void compactIfSparse() {
+        if (writer.used <= slabSize || liveBytes * 2 >= writer.used) return;
+        SlabWriter current = writer;
+        SlabWriter compacted = new SlabWriter(current.generation + 1, new ArrayList<>(), 0);
+        long[] addresses = new long[capacity];
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                long address = addressAt(slot);
+                if (address == EMPTY || address == TOMBSTONE) continue;
+                ByteBuffer source = slabOf(address);
+                int offset = (int) address;
+                addresses[slot] = compacted.copy(source, offset, recordLength(address));
+            }
+            commitGeneration(compacted.generation, compacted.slabs);
+        } catch (OperationIncompleteException e) {
+            logger.error("Failed to compact storage {}; old slabs are kept", storageId, e);
+            dropGeneration(compacted.generation);
+            return;
+        }
+        for (int slot = 0; slot < capacity; slot++) {
+            if (addresses[slot] != 0) index.putLong(slot * SLOT_SIZE + SLOT_ADDRESS, addresses[slot]);
+        }
+        writer = compacted;
+        dropGeneration(current.generation);
+        logger.debug("Off-heap storage {} compacted: {} -> {} bytes", storageId, current.used, compacted.used);
+    }
+
+    /**
+     * Дописывает записи в слэбы одного поколения. Используется под write lock.
+     */
+    private final class SlabWriter {
+        final int generation;
+        final List<ByteBuffer> slabs;
+        int position;
+        // записанные байты, включая неиспользованные хвосты заполненных слэбов
+        long used;
+
+        SlabWriter(int generation, List<ByteBuffer> slabs, int position) {
+            this.generation = generation;
+            this.slabs = slabs;
+            this.position = position;
+        }
+
+        /**
+         * Запись key -> value; value == null — отметка удаления.
+         */
+        long write(byte[] key, @Nullable byte[] value) throws OperationIncompleteException {
+            int valueLength = (value == null) ? 0 : value.length;
+            ByteBuffer slab = reserve(RECORD_HEADER + key.length + valueLength);
+            int offset = position;
+            slab.putInt(offset, key.length);
+            slab.put(offset + RECORD_HEADER, key);
+            if (value != null) slab.put(offset + RECORD_HEADER + key.length, value);
+            // длина значения подтверждает запись
+            slab.putInt(offset + 4, (value == null) ? REMOVED_MARKER : value.length);
+            return advance(offset, RECORD_HEADER + key.length + valueLength);
+        }
+
+        long copy(ByteBuffer source, int sourceOffset, int length) throws OperationIncompleteException {
+            ByteBuffer slab = reserve(length);
+            int offset = position;
+            slab.put(offset, source, sourceOffset, length);
+            return advance(offset, length);
+        }
+
+        private long advance(int offset, int length) {
+            position += length;
+            used += length;
+            return ((long) slabs.size() << 32) | offset;
+        }
+
+        private ByteBuffer reserve(int length) throws OperationIncompleteException {
+            ByteBuffer current = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+            if (current != null && current.capacity() - position >= length) return current;
+            ByteBuffer slab = allocateSlab(generation, slabs.size(), Math.max(slabSize, length));
+            if (current != null) {
+                // хвост текущего слэба больше не используется
+                used += current.capacity() - position;
+                slabFilled(current);
+            }
+            slabs.add(slab);
+            position = 0;
+            return slab;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStorage{" +
+                "storageId='" + storageId + '\'' +
+                ", size=" + count +
+                '}';
+    }
+}
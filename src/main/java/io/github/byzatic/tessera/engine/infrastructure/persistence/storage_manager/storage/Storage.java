@@ -7,6 +7,7 @@ import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
 import org.apache.commons.math3.util.Pair;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,11 +16,30 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * Хранилище в heap поверх потокобезопасной Map.
+ * <p>
+ * С ConcurrentHashMap computeIfAbsent/merge атомарны на уровне карты и вызывают функцию не более одного раза.
+ * Другие карты (например, ConcurrentSkipListMap для backend=sorted) этого не гарантируют: функция может быть
+ * вызвана повторно при гонке. Для них все изменения ключа сериализуются полосой блокировок по ключу,
+ * а computeIfAbsent/merge выполняются как чтение и запись под этой полосой.
+ * <p>
+ * size() у ConcurrentHashMap берётся из её собственных счётчиков; для остальных карт (size() которых может
+ * обходить элементы) число элементов ведётся отдельно, изменениями под полосами ключей.
+ */
 public class Storage<T extends DataValueInterface> implements StorageInterface<T> {
     private final static Logger logger = LoggerFactory.getLogger(Storage.class);
+    private static final int KEY_LOCK_STRIPES = 64;
     private String storageId = null;
     private Map<String, T> storage = new ConcurrentHashMap<>();
+    // количество элементов, если карта не ConcurrentHashMap (иначе null); разделяется вместе с картой
+    private LongAdder itemCount = null;
+    // полосы блокировок по ключу; null — карта сама атомарна (ConcurrentHashMap); разделяются вместе с картой
+    private Object[] keyLocks = null;
 
     public Storage(@NotNull String storageId) throws OperationIncompleteException {
         this.storageId = storageId;
@@ -28,16 +48,43 @@ public class Storage<T extends DataValueInterface> implements StorageInterface<T
     public Storage(@NotNull String storageId, @NotNull Map<String, T> storageMap) throws OperationIncompleteException {
         this.storageId = storageId;
         this.storage = storageMap;
+        this.keyLocks = newKeyLocks(storageMap);
+        if (keyLocks != null) {
+            this.itemCount = new LongAdder();
+            this.itemCount.add(storageMap.size());
+        }
     }
 
     public Storage(@NotNull Storage<T> storage) throws OperationIncompleteException {
         this.storageId = storage.storageId;
         this.storage = storage.storage;
+        this.itemCount = storage.itemCount;
+        this.keyLocks = storage.keyLocks;
     }
 
     public Storage(@NotNull String storageId, @NotNull Storage<T> storage) throws OperationIncompleteException {
         this.storageId = storageId;
         this.storage = storage.storage;
+        this.itemCount = storage.itemCount;
+        this.keyLocks = storage.keyLocks;
+    }
+
+    private static Object[] newKeyLocks(Map<String, ?> storageMap) {
+        if (storageMap instanceof ConcurrentHashMap) return null;
+        Object[] locks = new Object[KEY_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+        return locks;
+    }
+
+    // полоса ключа или null, если карта атомарна сама
+    private @Nullable Object keyLock(String id) {
+        if (keyLocks == null) return null;
+        int hash = id.hashCode();
+        return keyLocks[(hash ^ (hash >>> 16)) & (KEY_LOCK_STRIPES - 1)];
+    }
+
+    private void count(long delta) {
+        if (itemCount != null) itemCount.add(delta);
     }
 
     @Contract("null -> fail")
@@ -58,10 +105,21 @@ public class Storage<T extends DataValueInterface> implements StorageInterface<T
     @Override
     public void create(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
         String id = getId(storageItemIdI);
-        if (storage.containsKey(id)) {
+        Object lock = keyLock(id);
+        if (lock == null) {
+            createUnlocked(id, item);
+            return;
+        }
+        synchronized (lock) {
+            createUnlocked(id, item);
+        }
+    }
+
+    private void createUnlocked(String id, T item) throws OperationIncompleteException {
+        if (storage.putIfAbsent(id, item) != null) {
             throw new OperationIncompleteException("Item with ID already exists: " + id);
         }
-        storage.put(id, item);
+        count(1);
     }
 
     @Override
@@ -73,17 +131,29 @@ public class Storage<T extends DataValueInterface> implements StorageInterface<T
     @Override
     public @NotNull Boolean update(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
         String id = getId(storageItemIdI);
-        if (storage.containsKey(id)) {
-            storage.put(id, item);
-            return true;
+        Object lock = keyLock(id);
+        if (lock == null) return storage.replace(id, item) != null;
+        synchronized (lock) {
+            return storage.replace(id, item) != null;
         }
-        return false;
     }
 
     @Override
     public @NotNull Boolean delete(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
         String id = getId(storageItemIdI);
-        return storage.remove(id) != null;
+        Object lock = keyLock(id);
+        if (lock == null) return deleteUnlocked(id);
+        synchronized (lock) {
+            return deleteUnlocked(id);
+        }
+    }
+
+    private boolean deleteUnlocked(String id) {
+        if (storage.remove(id) != null) {
+            count(-1);
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -103,12 +173,95 @@ public class Storage<T extends DataValueInterface> implements StorageInterface<T
 
     @Override
     public @NotNull Integer size() {
-        return storage.size();
+        return (itemCount == null) ? storage.size() : (int) itemCount.sum();
+    }
+
+    @Override
+    public void upsert(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        Object lock = keyLock(id);
+        if (lock == null) {
+            upsertUnlocked(id, item);
+            return;
+        }
+        synchronized (lock) {
+            upsertUnlocked(id, item);
+        }
+    }
+
+    private void upsertUnlocked(String id, T item) {
+        if (storage.put(id, item) == null) {
+            count(1);
+        }
+    }
+
+    @Override
+    public @Nullable T getIfPresent(@NotNull DataLookupIdentifierImpl storageItemIdI) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        return storage.get(id);
+    }
+
+    @Override
+    public @NotNull T computeIfAbsent(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull Function<String, ? extends T> mappingFunction) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        T existing = storage.get(id);
+        if (existing != null) return existing;
+        Object lock = keyLock(id);
+        T result;
+        if (lock == null) {
+            result = storage.computeIfAbsent(id, mappingFunction);
+        } else {
+            synchronized (lock) {
+                result = storage.get(id);
+                if (result == null) {
+                    result = mappingFunction.apply(id);
+                    if (result != null) upsertUnlocked(id, result);
+                }
+            }
+        }
+        if (result == null)
+            throw new OperationIncompleteException("Mapping function returned null for item with ID " + id);
+        return result;
+    }
+
+    @Override
+    public @Nullable T merge(@NotNull DataLookupIdentifierImpl storageItemIdI, @NotNull T item, @NotNull BiFunction<? super T, ? super T, ? extends T> remappingFunction) throws OperationIncompleteException {
+        String id = getId(storageItemIdI);
+        Object lock = keyLock(id);
+        if (lock != null) {
+            synchronized (lock) {
+                T oldValue = storage.get(id);
+                T newValue = (oldValue == null) ? item : remappingFunction.apply(oldValue, item);
+                if (newValue != null) {
+                    upsertUnlocked(id, newValue);
+                } else if (oldValue != null) {
+                    deleteUnlocked(id);
+                }
+                return newValue;
+            }
+        }
+        return storage.merge(id, item, remappingFunction);
     }
 
     @Override
     public void cleanup() {
-        storage.clear();
+        if (keyLocks == null) {
+            storage.clear();
+            return;
+        }
+        clearUnderKeyLocks(0);
+    }
+
+    // очистка и сброс счётчика под всеми полосами: параллельные изменения не теряют и не удваивают счёт
+    private void clearUnderKeyLocks(int stripe) {
+        if (stripe == keyLocks.length) {
+            storage.clear();
+            itemCount.reset();
+            return;
+        }
+        synchronized (keyLocks[stripe]) {
+            clearUnderKeyLocks(stripe + 1);
+        }
     }
 
     @Override
@@ -3,14 +3,41 @@ package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dt
 import io.github.byzatic.commons.ObjectsUtils;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.NodeLifecycleState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Узел графа исполнения.
+ * <p>
+ * Состояние узла меняется CAS-переходами NOTSTATED -> CLAIMED -> RUNNING -> READY:
+ * - {@link #tryClaim()} — только один обход (из всех корней) получает право выполнить пайплайн узла
+ * и токен захвата {@link Claim};
+ * - остальные подписываются на {@link #subscribe()} и продолжают, когда узел станет READY;
+ * - {@link #release(Claim, Throwable)} — пайплайн упал: узел возвращается в NOTSTATED, подписчики получают ошибку.
+ * Переходы владельца ({@link #markRunning(Claim)}, {@link #markReady(Claim)}, {@link #release(Claim, Throwable)})
+ * сверяются с токеном: владелец устаревшей попытки (узел сброшен или захвачен заново) ничего не меняет
+ * и не завершает future новой попытки.
+ * Все переходы — CAS над парой (состояние, future): захват {@link #tryClaim()} не берёт монитор,
+ * поэтому переход владельца, прочитавший снимок до нового захвата, его не перезапишет.
+ * Состояние и future завершения хранятся одной парой, поэтому подписчик никогда не видит future
+ * от предыдущей попытки вместе с состоянием текущей.
+ * <p>
+ * Каждое состояние помечено эпохой прогона ({@link RunEpoch}). Если эпоха состояния не совпадает
+ * с текущей эпохой графа, узел считается NOTSTATED — сброс всего графа между прогонами сводится
+ * к {@link RunEpoch#advance()} без обхода узлов.
+ */
 public class Node {
     private GraphNodeRef graphNodeRef = null;
 
-    private NodeLifecycleState nodeLifecycleState = NodeLifecycleState.NOTSTATED;
+    // источник эпохи прогона; по умолчанию собственный, репозиторий графа подменяет его общим
+    private volatile RunEpoch runEpoch = new RunEpoch();
+
+    private final AtomicReference<Lifecycle> lifecycle = new AtomicReference<>(new Lifecycle(NodeLifecycleState.NOTSTATED, 0L, new CompletableFuture<>(), null));
 
     private List<GraphNodeRef> downstream = null;
 
@@ -42,24 +69,159 @@ public class Node {
         return graphNodeRef;
     }
 
-    public synchronized NodeLifecycleState getNodeLifecycleState() {
-        return nodeLifecycleState;
+    public NodeLifecycleState getNodeLifecycleState() {
+        Lifecycle current = lifecycle.get();
+        return (current.epoch == runEpoch.get()) ? current.state : NodeLifecycleState.NOTSTATED;
+    }
+
+    /**
+     * Эпоха, в которой узел последний раз менял состояние. Позволяет отличить результат
+     * текущего прогона от оставшегося с предыдущего.
+     */
+    public long getLifecycleEpoch() {
+        return lifecycle.get().epoch;
+    }
+
+    public RunEpoch getRunEpoch() {
+        return runEpoch;
     }
 
+    /**
+     * Привязывает узел к общему источнику эпохи (вызывается репозиторием графа при построении).
+     * Текущее состояние узла сохраняется и перемечается эпохой нового источника.
+     */
+    public synchronized void setRunEpoch(RunEpoch runEpoch) {
+        ObjectsUtils.requireNonNull(runEpoch, new IllegalArgumentException(RunEpoch.class.getSimpleName() + " should be NotNull"));
+        NodeLifecycleState state = getNodeLifecycleState();
+        Lifecycle current = lifecycle.get();
+        this.runEpoch = runEpoch;
+        lifecycle.set(new Lifecycle(state, runEpoch.get(), current.completion, current.owner));
+    }
+
+    /**
+     * Безусловная установка состояния (сброс отдельного узла, тесты).
+     * NOTSTATED начинает новую попытку с новым future завершения.
+     */
     public synchronized void setNodeLifecycleState(NodeLifecycleState state) {
-        this.nodeLifecycleState = state;
+        long epoch = runEpoch.get();
+        Lifecycle previous;
+        if (state == NodeLifecycleState.NOTSTATED) {
+            previous = lifecycle.getAndSet(new Lifecycle(state, epoch, new CompletableFuture<>(), null));
+        } else {
+            Lifecycle current;
+            Lifecycle next;
+            do {
+                current = lifecycle.get();
+                next = new Lifecycle(state, epoch, attemptCompletion(current, epoch), null);
+            } while (!lifecycle.compareAndSet(current, next));
+            previous = next;
+        }
         if (state == NodeLifecycleState.READY) {
+            previous.completion.complete(null);
             this.notifyAll(); // Разбудить всех кто ждал на этой ноде
         }
     }
 
+    public boolean compareAndSetNodeLifecycleState(NodeLifecycleState expected, NodeLifecycleState state) {
+        long epoch = runEpoch.get();
+        Lifecycle current = lifecycle.get();
+        NodeLifecycleState effective = (current.epoch == epoch) ? current.state : NodeLifecycleState.NOTSTATED;
+        if (effective != expected) return false;
+        return lifecycle.compareAndSet(current, new Lifecycle(state, epoch, attemptCompletion(current, epoch), null));
+    }
+
+    /**
+     * NOTSTATED -> CLAIMED. Захват получает ровно один вызывающий в рамках эпохи.
+     *
+     * @return токен захвата для переходов владельца или null, если узел уже захвачен либо готов
+     */
+    @Nullable
+    public Claim tryClaim() {
+        long epoch = runEpoch.get();
+        Lifecycle current = lifecycle.get();
+        NodeLifecycleState effective = (current.epoch == epoch) ? current.state : NodeLifecycleState.NOTSTATED;
+        if (effective != NodeLifecycleState.NOTSTATED) return null;
+        Claim claim = new Claim(epoch);
+        return lifecycle.compareAndSet(current, new Lifecycle(NodeLifecycleState.CLAIMED, epoch, attemptCompletion(current, epoch), claim)) ? claim : null;
+    }
+
+    /**
+     * CLAIMED -> RUNNING, вызывается владельцем непосредственно перед запуском пайплайна.
+     *
+     * @return false, если захват устарел (узел сброшен, эпоха сменилась) — пайплайн запускать нельзя
+     */
+    public boolean markRunning(@NotNull Claim claim) {
+        Lifecycle current = lifecycle.get();
+        if (current.owner != claim || current.state != NodeLifecycleState.CLAIMED || current.epoch != runEpoch.get()) return false;
+        return lifecycle.compareAndSet(current, new Lifecycle(NodeLifecycleState.RUNNING, current.epoch, current.completion, claim));
+    }
+
+    /**
+     * Владелец успешно выполнил пайплайн: READY и завершение всех подписчиков попытки.
+     * Если за время выполнения эпоха сменилась, узел в новой эпохе остаётся NOTSTATED.
+     *
+     * @return false, если захват устарел; состояние и future новой попытки не меняются
+     */
+    public synchronized boolean markReady(@NotNull Claim claim) {
+        Lifecycle current;
+        do {
+            current = lifecycle.get();
+            if (!isOwnedBy(current, claim) || current.state == NodeLifecycleState.NOTSTATED) return false;
+        } while (!lifecycle.compareAndSet(current, new Lifecycle(NodeLifecycleState.READY, current.epoch, current.completion, claim)));
+        current.completion.complete(null);
+        this.notifyAll(); // Разбудить всех кто ждал на этой ноде
+        return true;
+    }
+
+    /**
+     * Владелец не смог выполнить пайплайн: узел снова NOTSTATED, подписчики текущей попытки получают cause.
+     *
+     * @return false, если захват устарел; состояние и future новой попытки не меняются
+     */
+    public synchronized boolean release(@NotNull Claim claim, Throwable cause) {
+        Lifecycle current;
+        do {
+            current = lifecycle.get();
+            if (!isOwnedBy(current, claim)) return false;
+        } while (!lifecycle.compareAndSet(current, new Lifecycle(NodeLifecycleState.NOTSTATED, runEpoch.get(), new CompletableFuture<>(), null)));
+        current.completion.completeExceptionally(cause);
+        this.notifyAll();
+        return true;
+    }
+
+    /**
+     * Подписка на завершение узла, захваченного другим обходом.
+     * Состояние и future читаются одним снимком.
+     *
+     * @return future текущей попытки (уже завершённый, если узел READY) или null, если узел свободен (NOTSTATED)
+     * и его нужно захватить через {@link #tryClaim()}
+     */
+    public CompletableFuture<Void> subscribe() {
+        Lifecycle current = lifecycle.get();
+        if (current.epoch != runEpoch.get() || current.state == NodeLifecycleState.NOTSTATED) return null;
+        if (current.state == NodeLifecycleState.READY) return CompletableFuture.completedFuture(null);
+        return current.completion;
+    }
+
+    // владелец — попытка, захваченная этим токеном в той же эпохе
+    private static boolean isOwnedBy(Lifecycle current, Claim claim) {
+        return current.owner == claim && current.epoch == claim.epoch;
+    }
+
+    // future попытки: для устаревшей эпохи или завершённой попытки начинается новая
+    private static CompletableFuture<Void> attemptCompletion(Lifecycle current, long epoch) {
+        if (current.epoch != epoch) return new CompletableFuture<>();
+        if (current.state == NodeLifecycleState.NOTSTATED && current.completion.isDone()) return new CompletableFuture<>();
+        return current.completion;
+    }
+
     public synchronized List<GraphNodeRef> getDownstream() {
         return downstream;
     }
 
 
     public synchronized void waitUntilReady() throws InterruptedException {
-        while (nodeLifecycleState != NodeLifecycleState.READY) {
+        while (getNodeLifecycleState() != NodeLifecycleState.READY) {
             this.wait(); // Ждать пока не станет READY
         }
     }
@@ -69,23 +231,56 @@ public class Node {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Node node = (Node) o;
-        return Objects.equals(graphNodeRef, node.graphNodeRef) && nodeLifecycleState == node.nodeLifecycleState && Objects.equals(downstream, node.downstream);
+        return Objects.equals(graphNodeRef, node.graphNodeRef) && getNodeLifecycleState() == node.getNodeLifecycleState() && Objects.equals(downstream, node.downstream);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(graphNodeRef, nodeLifecycleState, downstream);
+        return Objects.hash(graphNodeRef, getNodeLifecycleState(), downstream);
     }
 
     @Override
     public String toString() {
         return "Node{" +
                 "graphNodeRef=" + graphNodeRef +
-                ", nodeLifecycleState=" + nodeLifecycleState +
+                ", nodeLifecycleState=" + getNodeLifecycleState() +
                 ", downstream=" + downstream +
                 '}';
     }
 
+    private static final class Lifecycle {
+        final NodeLifecycleState state;
+        final long epoch;
+        final CompletableFuture<Void> completion;
+        // токен владельца попытки; null — узел не захвачен через tryClaim
+        final Claim owner;
+
+        Lifecycle(NodeLifecycleState state, long epoch, CompletableFuture<Void> completion, Claim owner) {
+            this.state = state;
+            this.epoch = epoch;
+            this.completion = completion;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Токен захвата узла, выданный {@link #tryClaim()}. Сравнивается по ссылке: каждый захват уникален.
+     */
+    public static final class Claim {
+        private final long epoch;
+
+        private Claim(long epoch) {
+            this.epoch = epoch;
+        }
+
+        /**
+         * Эпоха прогона, в которой узел был захвачен.
+         */
+        public long getEpoch() {
+            return epoch;
+        }
+    }
+
     /**
      * {@code Node} builder static inner class.
      */
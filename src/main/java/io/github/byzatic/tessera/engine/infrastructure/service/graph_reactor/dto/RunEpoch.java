@@ -0,0 +1,32 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчик прогонов графа.
+ * Общий для всех {@link Node} одного репозитория: состояние узла, помеченное другой эпохой,
+ * считается NOTSTATED, поэтому сброс графа между прогонами — одно увеличение счётчика.
+ */
+public class RunEpoch {
+    private final AtomicLong epoch = new AtomicLong(0L);
+
+    public long get() {
+        return epoch.get();
+    }
+
+    /**
+     * Начинает новую эпоху.
+     *
+     * @return номер новой эпохи
+     */
+    public long advance() {
+        return epoch.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "RunEpoch{" +
+                "epoch=" + epoch.get() +
+                '}';
+    }
+}
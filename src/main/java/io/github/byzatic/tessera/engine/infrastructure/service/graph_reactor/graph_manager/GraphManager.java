@@ -2,12 +2,14 @@ package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gr
 
 import io.github.byzatic.commons.ObjectsUtils;
 import io.github.byzatic.commons.schedulers.immediate.*;
+import io.github.byzatic.tessera.engine.Configuration;
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.domain.repository.storage.StorageManagerInterface;
 import io.github.byzatic.tessera.engine.domain.service.GraphManagerInterface;
 import io.github.byzatic.tessera.engine.infrastructure.observability.PrometheusMetricsAgent;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.DependencyCounterGraphTraversal;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.GraphTraversal;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.GraphTraversalInterface;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.GraphManagerNodeRepositoryInterface;
@@ -20,14 +22,19 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * GraphManager с использованием ImmediateScheduler.
  * <p>
- * Поведение не менялось:
  * - Берём корневые узлы графа из GraphManagerNodeRepositoryInterface.
- * - Для каждого корневого узла планируем задачу, которая делегирует обход в GraphTraversal.
+ * - Для каждого корневого узла планируем задачу, которая делегирует обход движку из
+ * Configuration.GRAPH_TRAVERSAL_ENGINE.
  * - Ждём завершения всех задач; если любая завершилась не COMPLETED — бросаем OperationIncompleteException.
+ * <p>
+ * Движки "parallel" и "async" выполняют узлы в ForkJoinPool, которым владеет этот менеджер:
+ * пул создаётся вместе с менеджером и останавливается в {@link #close()}.
  */
 public class GraphManager implements GraphManagerInterface {
 
@@ -42,6 +49,9 @@ public class GraphManager implements GraphManagerInterface {
     private final boolean ownsScheduler;
     private StorageManagerInterface storageManager;
 
+    // пул движков "parallel" и "async" (null для остальных); закрывается в close()
+    private ForkJoinPool traversalPool = null;
+
     /**
      * Конструктор с внешним шедуллером (рекомендуемый для совместного использования в оркестрации).
      */
@@ -65,7 +75,7 @@ public class GraphManager implements GraphManagerInterface {
         this.storageManager = storageManager;
 
         // как и раньше — один traversal на весь менеджер
-        this.graphTraversal = new GraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, scheduler);
+        this.graphTraversal = newGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, scheduler);
 
         // внешние слушатели (например, бизнес-логика)
         if (listeners != null) {
@@ -96,7 +106,7 @@ public class GraphManager implements GraphManagerInterface {
                 .build();
         this.ownsScheduler = true;
 
-        this.graphTraversal = new GraphTraversal(graphManagerNodeRepository, pipelineManagerFactory);
+        this.graphTraversal = newGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, null);
 
         if (listeners != null) {
             for (JobEventListener l : listeners) {
@@ -106,6 +116,42 @@ public class GraphManager implements GraphManagerInterface {
         this.scheduler.addListener(new SilentLoggingListener());
     }
 
+    private ForkJoinPool getTraversalPool() {
+        if (traversalPool == null) {
+            traversalPool = new ForkJoinPool(Configuration.GRAPH_TRAVERSAL_PARALLELISM);
+            logger.debug("Graph traversal pool created with parallelism {}", Configuration.GRAPH_TRAVERSAL_PARALLELISM);
+        }
+        return traversalPool;
+    }
+
+    /**
+     * Выбор движка обхода по Configuration.GRAPH_TRAVERSAL_ENGINE (classic | event | parallel | async).
+     */
+    private GraphTraversalInterface newGraphTraversal(GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                                             PipelineManagerFactoryInterface pipelineManagerFactory,
+                                                             ImmediateSchedulerInterface scheduler) {
+        GraphTraversalInterface traversal;
+        if ("parallel".equals(Configuration.GRAPH_TRAVERSAL_ENGINE)) {
+            traversal = (scheduler != null)
+                    ? new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, getTraversalPool(), scheduler)
+                    : new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, getTraversalPool());
+        } else if ("async".equals(Configuration.GRAPH_TRAVERSAL_ENGINE)) {
+            traversal = (scheduler != null)
+                    ? new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, getTraversalPool(), true, scheduler)
+                    : new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, getTraversalPool(), true);
+        } else if ("event".equals(Configuration.GRAPH_TRAVERSAL_ENGINE)) {
+            traversal = (scheduler != null)
+                    ? new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, scheduler)
+                    : new DependencyCounterGraphTraversal(graphManagerNodeRepository, pipelineManagerFactory);
+        } else {
+            traversal = (scheduler != null)
+                    ? new GraphTraversal(graphManagerNodeRepository, pipelineManagerFactory, scheduler)
+                    : new GraphTraversal(graphManagerNodeRepository, pipelineManagerFactory);
+        }
+        logger.debug("Graph traversal engine is {}", traversal.getClass().getSimpleName());
+        return traversal;
+    }
+
     @Override
     public void runGraph() throws OperationIncompleteException {
         try {
@@ -238,6 +284,27 @@ public class GraphManager implements GraphManagerInterface {
         }
     }
 
+    /**
+     * Останавливает пул обхода; задачам, уже попавшим в пул, даётся время завершиться.
+     */
+    @Override
+    public void close() {
+        ForkJoinPool pool = traversalPool;
+        if (pool == null) return;
+        graphTraversal.cancel();
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Graph traversal pool did not terminate in time; interrupting remaining tasks");
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.debug("Graph traversal pool closed");
+    }
+
     private void clear() throws OperationIncompleteException {
         try {
             this.storageManager.cleanupNodeStorages();
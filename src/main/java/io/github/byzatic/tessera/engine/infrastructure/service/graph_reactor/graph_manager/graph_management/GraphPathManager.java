@@ -1,36 +1,89 @@
 package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management;
 
+import io.github.byzatic.tessera.engine.Configuration;
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class GraphPathManager implements GraphPathManagerInterface {
+    private static final Logger logger = LoggerFactory.getLogger(GraphPathManager.class);
+
+    private final FullProjectRepository fullProjectRepository;
 
-    private final GraphPathFinderIterative graphPathFinderIterative;
+    // индекс строится один раз при первом обращении и пересоздаётся в reload()
+    private volatile RootPathIndex rootPathIndex = null;
 
     public GraphPathManager(FullProjectRepository fullProjectRepository) {
-        this.graphPathFinderIterative = new GraphPathFinderIterative(fullProjectRepository);
+        this.fullProjectRepository = fullProjectRepository;
     }
 
     @Override
     public List<List<NodeItem>> getRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
-        return graphPathFinderIterative.findAllPathsTo(graphNodeRef);
+        List<RootPathIndex.RootPath> paths = getLimitedRootPaths(graphNodeRef);
+        List<List<NodeItem>> result = new ArrayList<>(paths.size());
+        for (RootPathIndex.RootPath path : paths) {
+            result.add(path.toNodeItems());
+        }
+        return result;
     }
 
     @Override
     public List<String> getRootPathsAsString(GraphNodeRef graphNodeRef, String delimiter) throws OperationIncompleteException {
-        List<List<NodeItem>> paths = graphPathFinderIterative.findAllPathsTo(graphNodeRef);
+        List<RootPathIndex.RootPath> paths = getLimitedRootPaths(graphNodeRef);
+        List<String> result = new ArrayList<>(paths.size());
+        for (RootPathIndex.RootPath path : paths) {
+            result.add(path.join(NodeItem::getId, delimiter));
+        }
+        return result;
+    }
 
-        List<String> result = new ArrayList<>();
-        for (List<NodeItem> path : paths) {
-            result.add(path.stream().map(NodeItem::getId).collect(Collectors.joining(delimiter)));
+    @Override
+    public RootPathIndex.LimitedRootPaths getIndexedRootPaths(GraphNodeRef graphNodeRef, int limit) throws OperationIncompleteException {
+        RootPathIndex.LimitedRootPaths paths = getRootPathIndex().getRootPaths(graphNodeRef, limit);
+        if (paths.isTruncated()) {
+            logger.warn("Node {} has {} root paths; only the first {} are used", graphNodeRef.getNodeUUID(), paths.getTotalCount(), paths.getPaths().size());
         }
+        return paths;
+    }
 
-        return result;
+    @Override
+    public Iterator<RootPathIndex.RootPath> iterateRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return getRootPathIndex().iterateRootPaths(graphNodeRef);
+    }
+
+    @Override
+    public long countRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return getRootPathIndex().countRootPaths(graphNodeRef);
+    }
+
+    private List<RootPathIndex.RootPath> getLimitedRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return getIndexedRootPaths(graphNodeRef, Configuration.GRAPH_ROOT_PATHS_LIMIT).getPaths();
+    }
+
+    @Override
+    public void reload() {
+        rootPathIndex = null;
+    }
+
+    private RootPathIndex getRootPathIndex() throws OperationIncompleteException {
+        RootPathIndex index = rootPathIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = rootPathIndex;
+                if (index == null) {
+                    index = RootPathIndex.build(fullProjectRepository);
+                    rootPathIndex = index;
+                }
+            }
+        }
+        return index;
     }
 }
@@ -4,10 +4,34 @@ import io.github.byzatic.tessera.engine.application.commons.exceptions.Operation
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface GraphPathManagerInterface {
+    /**
+     * Пути до узла, не более Configuration.GRAPH_ROOT_PATHS_LIMIT (см. getIndexedRootPaths).
+     */
     List<List<NodeItem>> getRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException;
 
     List<String> getRootPathsAsString(GraphNodeRef graphNodeRef, String delimiter) throws OperationIncompleteException;
+
+    /**
+     * Не более limit первых путей из индекса, без построения строк; признак обрезки — в результате.
+     */
+    RootPathIndex.LimitedRootPaths getIndexedRootPaths(GraphNodeRef graphNodeRef, int limit) throws OperationIncompleteException;
+
+    /**
+     * Ленивый перебор всех путей до узла.
+     */
+    Iterator<RootPathIndex.RootPath> iterateRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException;
+
+    /**
+     * Количество путей до узла без их перечисления.
+     */
+    long countRootPaths(GraphNodeRef graphNodeRef) throws OperationIncompleteException;
+
+    /**
+     * Сбросить индекс путей (после перезагрузки проекта); будет построен заново при следующем обращении.
+     */
+    void reload();
 }
@@ -0,0 +1,309 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Неизменяемый индекс путей source -> node для каждого узла графа.
+ * <p>
+ * Пути не хранятся: на ромбовидных DAG их число растёт экспоненциально. Одним топологическим проходом
+ * строятся только обратные рёбра (родители узла) и количество путей до каждого узла (long, с насыщением
+ * на Long.MAX_VALUE). Сами пути перечисляются лениво итератором с возвратом по родителям,
+ * поэтому память — O(узлы + рёбра) независимо от числа путей.
+ * <p>
+ * Порядок путей совпадает с прежним GraphPathFinderIterative: по родителям в порядке listGraphNodeRef(),
+ * внутри родителя — в порядке его собственных путей. Узлы на циклах путей не имеют.
+ */
+public final class RootPathIndex {
+
+    private final NodeItem[] nodes;
+    private final Map<GraphNodeRef, Integer> idByRef;
+    // parents[id] — родители узла id, у которых есть хотя бы один путь
+    private final int[][] parents;
+    private final long[] pathCounts;
+
+    private RootPathIndex(NodeItem[] nodes, Map<GraphNodeRef, Integer> idByRef, int[][] parents, long[] pathCounts) {
+        this.nodes = nodes;
+        this.idByRef = idByRef;
+        this.parents = parents;
+        this.pathCounts = pathCounts;
+    }
+
+    @NotNull
+    public static RootPathIndex build(@NotNull FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
+        try {
+            List<GraphNodeRef> allRefs = fullProjectRepository.listGraphNodeRef();
+            int size = allRefs.size();
+
+            Map<GraphNodeRef, Integer> idByRef = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+            Map<String, Integer> idByUuid = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+            NodeItem[] nodes = new NodeItem[size];
+            for (int id = 0; id < size; id++) {
+                idByRef.put(allRefs.get(id), id);
+                idByUuid.put(allRefs.get(id).getNodeUUID(), id);
+                nodes[id] = fullProjectRepository.getNode(allRefs.get(id));
+            }
+
+            // обратные и прямые рёбра в порядке обхода, входящие степени
+            List<List<Integer>> parentLists = new ArrayList<>(size);
+            List<List<Integer>> childLists = new ArrayList<>(size);
+            for (int id = 0; id < size; id++) {
+                parentLists.add(new ArrayList<>(1));
+                childLists.add(new ArrayList<>(1));
+            }
+            int[] indegree = new int[size];
+            for (int from = 0; from < size; from++) {
+                if (nodes[from] == null) continue;
+                for (GraphNodeRef toRef : nodes[from].getDownstream()) {
+                    Integer to = idByUuid.get(toRef.getNodeUUID());
+                    if (to == null) continue;
+                    parentLists.get(to).add(from);
+                    childLists.get(from).add(to);
+                    indegree[to]++;
+                }
+            }
+
+            // топологический проход (Кан): количество путей = сумма по родителям, у source — 1
+            long[] pathCounts = new long[size];
+            int[] pending = indegree.clone();
+            Deque<Integer> ready = new ArrayDeque<>();
+            for (int id = 0; id < size; id++) {
+                if (pending[id] == 0) ready.add(id);
+            }
+            while (!ready.isEmpty()) {
+                int id = ready.poll();
+                if (nodes[id] != null) {
+                    if (indegree[id] == 0) {
+                        pathCounts[id] = 1;
+                    } else {
+                        long count = 0;
+                        for (int parent : parentLists.get(id)) count = saturatedAdd(count, pathCounts[parent]);
+                        pathCounts[id] = count;
+                    }
+                }
+                for (int child : childLists.get(id)) {
+                    if (--pending[child] == 0) ready.add(child);
+                }
+            }
+
+            // родители без путей (циклы, неизвестные узлы) отбрасываются, чтобы итератор не заходил в тупики
+            int[][] parents = new int[size][];
+            for (int id = 0; id < size; id++) {
+                parents[id] = parentLists.get(id).stream()
+                        .mapToInt(Integer::intValue)
+                        .filter(parent -> pathCounts[parent] > 0)
+                        .toArray();
+            }
+            return new RootPathIndex(nodes, idByRef, parents, pathCounts);
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long result = a + b;
+        return (result < 0) ? Long.MAX_VALUE : result;
+    }
+
+    /**
+     * Количество путей от source-узлов до узла без их перечисления (Long.MAX_VALUE при переполнении).
+     */
+    public long countRootPaths(@NotNull GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return pathCounts[requireId(graphNodeRef)];
+    }
+
+    /**
+     * Ленивый перебор путей: каждый следующий путь строится только при вызове next().
+     */
+    @NotNull
+    public Iterator<RootPath> iterateRootPaths(@NotNull GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        int target = requireId(graphNodeRef);
+        return (pathCounts[target] == 0) ? Collections.emptyIterator() : new RootPathIterator(target);
+    }
+
+    /**
+     * Не более limit первых путей; общее количество и признак обрезки — в результате.
+     */
+    @NotNull
+    public LimitedRootPaths getRootPaths(@NotNull GraphNodeRef graphNodeRef, int limit) throws OperationIncompleteException {
+        long total = countRootPaths(graphNodeRef);
+        int capacity = (int) Math.min(total, limit);
+        List<RootPath> paths = new ArrayList<>(capacity);
+        Iterator<RootPath> iterator = iterateRootPaths(graphNodeRef);
+        while (paths.size() < capacity && iterator.hasNext()) {
+            paths.add(iterator.next());
+        }
+        return new LimitedRootPaths(Collections.unmodifiableList(paths), total);
+    }
+
+    private int requireId(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        Integer id = idByRef.get(graphNodeRef);
+        if (id == null) {
+            throw new OperationIncompleteException("No such Node was found by " + graphNodeRef);
+        }
+        return id;
+    }
+
+    /**
+     * Перебор с возвратом от целевого узла к source: choice[d] — индекс выбранного родителя
+     * узла ids[d] (ids[0] — целевой узел). Младший разряд — выбор ближе к source,
+     * что и даёт порядок «по родителям целевого узла, затем по путям родителя».
+     */
+    private final class RootPathIterator implements Iterator<RootPath> {
+        private final IntStack ids = new IntStack();
+        private final IntStack choices = new IntStack();
+        private boolean hasNext;
+
+        RootPathIterator(int target) {
+            ids.push(target);
+            descend();
+            hasNext = true;
+        }
+
+        // от вершины стека выбираем первых родителей, пока не дойдём до source
+        private void descend() {
+            int id = ids.peek();
+            while (parents[id].length > 0) {
+                choices.push(0);
+                id = parents[id][0];
+                ids.push(id);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public RootPath next() {
+            if (!hasNext) throw new NoSuchElementException();
+            int length = ids.size();
+            int[] path = new int[length];
+            // ids хранит путь от целевого узла к source, RootPath — от source к целевому
+            for (int i = 0; i < length; i++) path[i] = ids.get(length - 1 - i);
+            advance();
+            return new RootPath(nodes, path);
+        }
+
+        private void advance() {
+            while (!choices.isEmpty()) {
+                ids.pop();
+                int choice = choices.pop() + 1;
+                int child = ids.peek();
+                if (choice < parents[child].length) {
+                    choices.push(choice);
+                    ids.push(parents[child][choice]);
+                    descend();
+                    return;
+                }
+            }
+            hasNext = false;
+        }
+    }
+
+    private static final class IntStack {
+        private int[] values = new int[8];
+        private int size = 0;
+
+        void push(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        int peek() {
+            return values[size - 1];
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * Путь от source-узла до узла: плотные id узлов, NodeItem разрешаются по запросу.
+     */
+    public static final class RootPath {
+        private final NodeItem[] nodes;
+        private final int[] path;
+
+        private RootPath(NodeItem[] nodes, int[] path) {
+            this.nodes = nodes;
+            this.path = path;
+        }
+
+        /**
+         * Последний (целевой) узел пути.
+         */
+        public NodeItem getNode() {
+            return nodes[path[path.length - 1]];
+        }
+
+        public int length() {
+            return path.length;
+        }
+
+        /**
+         * Узлы пути от source до текущего узла.
+         */
+        public List<NodeItem> toNodeItems() {
+            NodeItem[] items = new NodeItem[path.length];
+            for (int i = 0; i < path.length; i++) items[i] = nodes[path[i]];
+            return Arrays.asList(items);
+        }
+
+        public String join(Function<NodeItem, String> mapper, String delimiter) {
+            StringJoiner joiner = new StringJoiner(delimiter);
+            for (int id : path) {
+                joiner.add(mapper.apply(nodes[id]));
+            }
+            return joiner.toString();
+        }
+    }
+
+    /**
+     * Первые пути узла с учётом лимита.
+     */
+    public static final class LimitedRootPaths {
+        private final List<RootPath> paths;
+        private final long totalCount;
+
+        private LimitedRootPaths(List<RootPath> paths, long totalCount) {
+            this.paths = paths;
+            this.totalCount = totalCount;
+        }
+
+        public List<RootPath> getPaths() {
+            return paths;
+        }
+
+        /**
+         * Полное количество путей (Long.MAX_VALUE при переполнении).
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public boolean isTruncated() {
+            return totalCount > paths.size();
+        }
+    }
+}
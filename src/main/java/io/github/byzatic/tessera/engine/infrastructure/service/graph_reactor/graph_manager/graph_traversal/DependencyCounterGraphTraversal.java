@@ -0,0 +1,650 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal;
+
+import io.github.byzatic.commons.ObjectsUtils;
+import io.github.byzatic.commons.schedulers.immediate.ImmediateSchedulerInterface;
+import io.github.byzatic.commons.schedulers.immediate.JobEventListener;
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.GraphManagerNodeRepositoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerFactoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerInterface;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Событийный обход графа на счётчиках зависимостей.
+ * <p>
+ * В отличие от {@link GraphTraversal}, который периодически опрашивает состояние потомков
+ * (parkNanos + повторный getNodeDownstream), здесь:
+ * - за один проход от корня строится подграф и для каждого узла заводится атомарный счётчик
+ * незавершённых потомков;
+ * - узел попадает в очередь готовых в момент, когда его последний потомок стал READY;
+ * - поток обхода никогда не спит по таймеру: он либо выполняет пайплайн готового узла,
+ * либо (только если узел захвачен обходом другого корня) ждёт future его завершения.
+ * <p>
+ * Узел выполняется ровно один раз на цикл: право на запуск пайплайна даёт CAS {@link Node#tryClaim()}
+ * (NOTSTATED -> CLAIMED -> RUNNING -> READY), остальные корни подписываются на {@link Node#subscribe()}.
+ * Если пайплайн узла упал, узел возвращается в NOTSTATED, а подписчики получают ошибку.
+ * <p>
+ * Если передан traversalExecutor (например, ForkJoinPool), готовые узлы одного корня выполняются
+ * параллельно: независимые поддеревья идут на разных потоках пула, а родитель отправляется в пул
+ * тем потоком, который завершил его последнего потомка. Без executor обход идёт в вызывающем потоке.
+ * Синхронный пайплайн в потоке ForkJoinPool выполняется через ManagedBlocker, чтобы пул мог
+ * компенсировать заблокированные потоки.
+ * <p>
+ * С asyncPipelines (только вместе с traversalExecutor) поток пула не ждёт пайплайн узла: он запускает
+ * {@link PipelineManagerInterface#runPipelineAsync()}, а завершение узла и отправка родителя
+ * выполняются по завершении future пайплайна.
+ */
+public class DependencyCounterGraphTraversal implements GraphTraversalInterface {
+    private static final Logger logger = LoggerFactory.getLogger(DependencyCounterGraphTraversal.class);
+
+    private ExecutorService traversalExecutor = null;
+    private boolean asyncPipelines = false;
+    private ImmediateSchedulerInterface immediateScheduler = null;
+    private JobEventListener[] listeners = null;
+    private PipelineManagerFactoryInterface pipelineManagerFactory = null;
+    private GraphManagerNodeRepositoryInterface graphManagerNodeRepository = null;
+
+    // ---- Cancellation support ----
+    private final AtomicBoolean cancelRequested = new AtomicBoolean(false);
+
+    // завершается в cancel(), чтобы разбудить потоки, ждущие чужие узлы
+    private final CompletableFuture<Void> cancelSignal = new CompletableFuture<>();
+
+    /**
+     * Request traversal cancellation. Thread-safe.
+     */
+    @Override
+    public void cancel() {
+        cancelRequested.set(true);
+        cancelSignal.complete(null);
+    }
+
+    private boolean shouldCancel() {
+        return cancelRequested.get() || Thread.currentThread().isInterrupted();
+    }
+
+    private void throwIfCancelled() throws OperationIncompleteException {
+        if (shouldCancel()) {
+            logger.warn("Graph traversal cancelled.");
+            throw new OperationIncompleteException(new CancellationException("Traversal cancelled"));
+        }
+    }
+    // --------------------------------
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory) {
+        ObjectsUtils.requireNonNull(graphManagerNodeRepository, new IllegalArgumentException(GraphManagerNodeRepositoryInterface.class.getSimpleName() + " should be NotNull"));
+        ObjectsUtils.requireNonNull(pipelineManagerFactory, new IllegalArgumentException(PipelineManagerFactoryInterface.class.getSimpleName() + " should be NotNull"));
+        this.graphManagerNodeRepository = graphManagerNodeRepository;
+        this.pipelineManagerFactory = pipelineManagerFactory;
+    }
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory,
+                                           ImmediateSchedulerInterface immediateScheduler,
+                                           JobEventListener... listeners) {
+        ObjectsUtils.requireNonNull(graphManagerNodeRepository, new IllegalArgumentException(GraphManagerNodeRepositoryInterface.class.getSimpleName() + " should be NotNull"));
+        ObjectsUtils.requireNonNull(pipelineManagerFactory, new IllegalArgumentException(PipelineManagerFactoryInterface.class.getSimpleName() + " should be NotNull"));
+        this.graphManagerNodeRepository = graphManagerNodeRepository;
+        this.pipelineManagerFactory = pipelineManagerFactory;
+        this.immediateScheduler = immediateScheduler;
+        this.listeners = listeners;
+    }
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory,
+                                           @NotNull ExecutorService traversalExecutor) {
+        this(graphManagerNodeRepository, pipelineManagerFactory, traversalExecutor, false);
+    }
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory,
+                                           @NotNull ExecutorService traversalExecutor,
+                                           boolean asyncPipelines) {
+        this(graphManagerNodeRepository, pipelineManagerFactory);
+        ObjectsUtils.requireNonNull(traversalExecutor, new IllegalArgumentException(ExecutorService.class.getSimpleName() + " should be NotNull"));
+        this.traversalExecutor = traversalExecutor;
+        this.asyncPipelines = asyncPipelines;
+    }
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory,
+                                           @NotNull ExecutorService traversalExecutor,
+                                           ImmediateSchedulerInterface immediateScheduler,
+                                           JobEventListener... listeners) {
+        this(graphManagerNodeRepository, pipelineManagerFactory, traversalExecutor, false, immediateScheduler, listeners);
+    }
+
+    public DependencyCounterGraphTraversal(@NotNull GraphManagerNodeRepositoryInterface graphManagerNodeRepository,
+                                           PipelineManagerFactoryInterface pipelineManagerFactory,
+                                           @NotNull ExecutorService traversalExecutor,
+                                           boolean asyncPipelines,
+                                           ImmediateSchedulerInterface immediateScheduler,
+                                           JobEventListener... listeners) {
+        this(graphManagerNodeRepository, pipelineManagerFactory, immediateScheduler, listeners);
+        ObjectsUtils.requireNonNull(traversalExecutor, new IllegalArgumentException(ExecutorService.class.getSimpleName() + " should be NotNull"));
+        this.traversalExecutor = traversalExecutor;
+        this.asyncPipelines = asyncPipelines;
+    }
+
+    @Override
+    public void traverse(@NotNull Node root) throws OperationIncompleteException {
+        if (traversalExecutor != null) {
+            traverseParallel(root);
+            return;
+        }
+        try {
+            ObjectsUtils.requireNonNull(root, new IllegalArgumentException(Node.class.getSimpleName() + " should be NotNull"));
+
+            Deque<NodeTracker> readyQueue = new ArrayDeque<>();
+            int pendingTotal = buildSubgraph(root, readyQueue);
+            logger.debug("Subgraph of root {} built; {} node(s) to process", root.getGraphNodeRef().getNodeUUID(), pendingTotal);
+
+            // узлы, захваченные обходом другого корня; ждём их только когда больше нечего делать
+            List<NodeTracker> foreign = new ArrayList<>();
+
+            while (pendingTotal > 0) {
+                throwIfCancelled();
+
+                NodeTracker tracker = readyQueue.poll();
+                if (tracker != null) {
+                    CompletableFuture<Void> subscription = claimOrSubscribe(tracker);
+                    if (subscription != null && !subscription.isDone()) {
+                        tracker.subscription = subscription;
+                        foreign.add(tracker);
+                        continue;
+                    }
+                    if (subscription != null) checkForeignCompletion(tracker, subscription);
+                } else {
+                    if (foreign.isEmpty()) {
+                        throw new OperationIncompleteException("Graph traversal stalled: " + pendingTotal + " node(s) have unresolved dependencies");
+                    }
+                    tracker = awaitAnyForeign(foreign);
+                }
+
+                pendingTotal--;
+                for (NodeTracker parent : tracker.parents) {
+                    if (parent.pendingChildren.decrementAndGet() == 0) {
+                        readyQueue.add(parent);
+                    }
+                }
+            }
+        } catch (OperationIncompleteException e) {
+            // уже корректно обернуто/помечено как отмена или иная причина
+            throw e;
+        } catch (Exception e) {
+            // Любая иная ошибка — оборачиваем как незавершенную операцию
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Параллельный режим: каждый готовый узел — отдельная задача в traversalExecutor.
+     * Вызывающий поток только ждёт завершения всего подграфа корня.
+     * После первой ошибки или отмены новые узлы не отправляются, но traverse возвращается (в том числе
+     * с CancellationException) только когда все уже запущенные задачи завершились
+     * (иначе GraphManager.clear() сбросил бы состояния под ними).
+     */
+    private void traverseParallel(@NotNull Node root) throws OperationIncompleteException {
+        try {
+            ObjectsUtils.requireNonNull(root, new IllegalArgumentException(Node.class.getSimpleName() + " should be NotNull"));
+
+            Deque<NodeTracker> readyQueue = new ArrayDeque<>();
+            int pendingTotal = buildSubgraph(root, readyQueue);
+            logger.debug("Subgraph of root {} built; {} node(s) to process in parallel", root.getGraphNodeRef().getNodeUUID(), pendingTotal);
+            if (pendingTotal == 0) return;
+
+            ParallelRun run = new ParallelRun(pendingTotal);
+            // удерживаем inFlight, пока отправляются листья: иначе первый завершившийся лист обнулил бы счётчик
+            run.inFlight.incrementAndGet();
+            for (NodeTracker tracker : readyQueue) {
+                run.submit(tracker);
+            }
+            run.finishTask();
+
+            try {
+                CompletableFuture.anyOf(run.done, cancelSignal).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            } catch (ExecutionException ignored) {
+                // ошибка узла разбирается ниже через run.done
+            }
+            run.awaitIdle();
+            throwIfCancelled();
+            if (!run.done.isDone()) {
+                throw new OperationIncompleteException("Graph traversal stalled: " + run.remaining.get() + " node(s) were not processed");
+            }
+            try {
+                run.done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationIncompleteException(new CancellationException("Traversal cancelled"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof OperationIncompleteException) throw (OperationIncompleteException) cause;
+                throw new OperationIncompleteException(cause);
+            }
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Состояние одного параллельного обхода корня.
+     */
+    private final class ParallelRun {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // завершается, когда inFlight дошёл до нуля: ни одна задача обхода больше не выполняется
+        final CompletableFuture<Void> idle = new CompletableFuture<>();
+        final AtomicInteger remaining;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        ParallelRun(int total) {
+            this.remaining = new AtomicInteger(total);
+        }
+
+        void submit(NodeTracker tracker) {
+            inFlight.incrementAndGet();
+            try {
+                traversalExecutor.execute(() -> execute(tracker));
+            } catch (RejectedExecutionException e) {
+                fail(e);
+                finishTask();
+            }
+        }
+
+        private void execute(NodeTracker tracker) {
+            try {
+                if (failure.get() == null) {
+                    throwIfCancelled();
+                    if (asyncPipelines) {
+                        CompletableFuture<Void> subscription = startAsyncOrSubscribe(tracker);
+                        if (subscription != null) continueAfterForeign(tracker, subscription);
+                        return;
+                    }
+                    CompletableFuture<Void> subscription = claimOrSubscribe(tracker);
+                    if (subscription == null) {
+                        nodeDone(tracker);
+                    } else {
+                        continueAfterForeign(tracker, subscription);
+                    }
+                }
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                finishTask();
+            }
+        }
+
+        /**
+         * Асинхронный режим: захват узла запускает пайплайн через runPipelineAsync, иначе — подписка.
+         * Поток пула никогда не выполняет пайплайн сам, даже если узел освободили между попытками.
+         *
+         * @return null, если пайплайн запущен этим обходом; иначе future завершения чужой попытки
+         */
+        private CompletableFuture<Void> startAsyncOrSubscribe(NodeTracker tracker) {
+            while (true) {
+                Node.Claim claim = tracker.node.tryClaim();
+                if (claim != null) {
+                    // пайплайн идёт в scheduler'е — поток пула освобождается сразу
+                    inFlight.incrementAndGet();
+                    runClaimedAsync(tracker, claim).whenComplete((ignored, error) -> {
+                        try {
+                            if (error != null) {
+                                fail(unwrapCompletion(error));
+                            } else {
+                                nodeDone(tracker);
+                            }
+                        } catch (Throwable t) {
+                            fail(t);
+                        } finally {
+                            finishTask();
+                        }
+                    });
+                    return null;
+                }
+                CompletableFuture<Void> subscription = tracker.node.subscribe();
+                if (subscription != null) return subscription;
+                // узел успели освободить между tryClaim и subscribe — пробуем захватить снова
+            }
+        }
+
+        /**
+         * Узел выполняет другой корень — продолжим, когда он завершится, не занимая поток пула;
+         * отмена снимает ожидание сразу, не дожидаясь чужого узла.
+         */
+        private void continueAfterForeign(NodeTracker tracker, CompletableFuture<Void> subscription) {
+            inFlight.incrementAndGet();
+            CompletableFuture.anyOf(subscription, cancelSignal).whenComplete((ignored, error) -> {
+                try {
+                    throwIfCancelled();
+                    checkForeignCompletion(tracker, subscription);
+                    nodeDone(tracker);
+                } catch (Throwable t) {
+                    fail(t);
+                } finally {
+                    finishTask();
+                }
+            });
+        }
+
+        private void nodeDone(NodeTracker tracker) {
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+            for (NodeTracker parent : tracker.parents) {
+                if (parent.pendingChildren.decrementAndGet() == 0 && failure.get() == null && !cancelRequested.get()) {
+                    submit(parent);
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        private void finishTask() {
+            if (inFlight.decrementAndGet() == 0) {
+                if (failure.get() != null) done.completeExceptionally(failure.get());
+                idle.complete(null);
+            }
+        }
+
+        /**
+         * Ждёт завершения всех запущенных задач; прерывание не прекращает ожидание,
+         * а восстанавливается после него (задачи уже получили сигнал отмены).
+         */
+        void awaitIdle() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    idle.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Один проход DFS от корня: заводит трекеры для всех ещё не готовых узлов, считает количество
+     * незавершённых потомков и кладёт листья в очередь готовых.
+     *
+     * @return количество узлов, которые предстоит обработать
+     */
+    private int buildSubgraph(@NotNull Node root, @NotNull Deque<NodeTracker> readyQueue) throws OperationIncompleteException {
+        if (root.getNodeLifecycleState() == NodeLifecycleState.READY) return 0;
+
+        // Node.equals/hashCode зависят от изменяемого состояния, поэтому сравниваем по ссылке
+        Map<Node, NodeTracker> trackers = new IdentityHashMap<>();
+        Deque<NodeTracker> stack = new ArrayDeque<>();
+
+        NodeTracker rootTracker = new NodeTracker(root, null);
+        trackers.put(root, rootTracker);
+        stack.push(rootTracker);
+
+        while (!stack.isEmpty()) {
+            throwIfCancelled();
+            NodeTracker current = stack.pop();
+            int pending = 0;
+            Set<Node> seenChildren = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Node child : graphManagerNodeRepository.getNodeDownstream(current.node)) {
+                if (!seenChildren.add(child)) continue;
+                if (child.getNodeLifecycleState() == NodeLifecycleState.READY) continue;
+
+                NodeTracker childTracker = trackers.get(child);
+                if (childTracker == null) {
+                    childTracker = new NodeTracker(child, current);
+                    trackers.put(child, childTracker);
+                    stack.push(childTracker);
+                }
+                childTracker.parents.add(current);
+                pending++;
+            }
+            current.pendingChildren.set(pending);
+            if (pending == 0) {
+                readyQueue.add(current);
+            }
+        }
+        return trackers.size();
+    }
+
+    /**
+     * Захватывает узел для текущего обхода и выполняет его пайплайн либо подписывается на узел,
+     * захваченный другим корнем.
+     *
+     * @return null, если пайплайн выполнен текущим обходом; иначе future завершения чужой попытки
+     */
+    private CompletableFuture<Void> claimOrSubscribe(@NotNull NodeTracker tracker) throws OperationIncompleteException {
+        Node node = tracker.node;
+        while (true) {
+            Node.Claim claim = node.tryClaim();
+            if (claim != null) {
+                runClaimed(tracker, claim);
+                return null;
+            }
+            CompletableFuture<Void> subscription = node.subscribe();
+            if (subscription != null) {
+                logger.debug("Node {} is owned by another traversal; subscribed to its completion", node.getGraphNodeRef().getNodeUUID());
+                return subscription;
+            }
+            // узел успели освободить между tryClaim и subscribe — пробуем захватить снова
+        }
+    }
+
+    /**
+     * Ждёт завершения любого из чужих узлов (или отмены), без опроса.
+     *
+     * @return трекер завершившегося узла, удалённый из foreign
+     */
+    private NodeTracker awaitAnyForeign(@NotNull List<NodeTracker> foreign) throws OperationIncompleteException {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[foreign.size() + 1];
+        for (int i = 0; i < foreign.size(); i++) {
+            futures[i] = foreign.get(i).subscription;
+        }
+        futures[foreign.size()] = cancelSignal;
+        try {
+            CompletableFuture.anyOf(futures).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationIncompleteException(new CancellationException("Traversal cancelled"));
+        } catch (ExecutionException ignored) {
+            // ошибка конкретного узла разбирается ниже
+        }
+        throwIfCancelled();
+        for (Iterator<NodeTracker> iterator = foreign.iterator(); iterator.hasNext(); ) {
+            NodeTracker tracker = iterator.next();
+            if (tracker.subscription.isDone()) {
+                iterator.remove();
+                checkForeignCompletion(tracker, tracker.subscription);
+                return tracker;
+            }
+        }
+        throw new OperationIncompleteException("No foreign node completed");
+    }
+
+    private void checkForeignCompletion(@NotNull NodeTracker tracker, @NotNull CompletableFuture<Void> subscription) throws OperationIncompleteException {
+        if (subscription.isCompletedExceptionally()) {
+            Throwable cause = null;
+            try {
+                subscription.join();
+            } catch (CompletionException | CancellationException e) {
+                cause = (e.getCause() != null) ? e.getCause() : e;
+            }
+            throw new OperationIncompleteException("Node " + tracker.node.getGraphNodeRef().getNodeUUID() + " failed in another traversal", cause);
+        }
+    }
+
+    private void runClaimed(@NotNull NodeTracker tracker, @NotNull Node.Claim claim) throws OperationIncompleteException {
+        Node node = tracker.node;
+        if (!node.markRunning(claim)) throw claimLost(node);
+        try {
+            processWithPath(node, tracker.materializePath());
+            node.markReady(claim);
+        } catch (OperationIncompleteException | RuntimeException | Error e) {
+            // отпускаем узел, чтобы подписчики не зависли навсегда
+            node.release(claim, e);
+            throw e;
+        }
+    }
+
+    // узел сброшен (или эпоха сменилась) между tryClaim и запуском — пайплайн не запускается
+    private static OperationIncompleteException claimLost(@NotNull Node node) {
+        return new OperationIncompleteException("Claim of node " + node.getGraphNodeRef().getNodeUUID() + " was lost before its pipeline started");
+    }
+
+    /**
+     * Асинхронный вариант runClaimed для уже захваченного узла.
+     * Future завершается после markReady либо ошибкой после release.
+     */
+    private CompletableFuture<Void> runClaimedAsync(@NotNull NodeTracker tracker, @NotNull Node.Claim claim) {
+        Node node = tracker.node;
+        if (!node.markRunning(claim)) return CompletableFuture.failedFuture(claimLost(node));
+        CompletableFuture<Void> pipeline;
+        try {
+            throwIfCancelled();
+            pipeline = newPipelineManager(node, tracker.materializePath()).runPipelineAsync();
+        } catch (Exception | Error e) {
+            node.release(claim, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return pipeline.handle((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = unwrapCompletion(error);
+                node.release(claim, cause);
+                throw new CompletionException(cause);
+            }
+            node.markReady(claim);
+            return null;
+        });
+    }
+
+    private static Throwable unwrapCompletion(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    private void processWithPath(Node current, List<Node> path) throws OperationIncompleteException {
+        try {
+            throwIfCancelled();
+            PipelineManagerInterface pipelineManager = newPipelineManager(current, path);
+            if (ForkJoinTask.inForkJoinPool()) {
+                runPipelineManaged(pipelineManager);
+            } else {
+                pipelineManager.runPipeline();
+            }
+        } catch (OperationIncompleteException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Синхронный пайплайн в потоке ForkJoinPool блокирует поток до завершения worker'ов.
+     * Через {@link ForkJoinPool#managedBlock} пул знает об этом и при необходимости добавляет
+     * компенсирующий поток, чтобы готовые узлы не простаивали в очереди.
+     */
+    private static void runPipelineManaged(@NotNull PipelineManagerInterface pipelineManager) throws OperationIncompleteException {
+        PipelineBlocker blocker = new PipelineBlocker(pipelineManager);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationIncompleteException(new CancellationException("Traversal cancelled"));
+        }
+        if (blocker.failure != null) throw blocker.failure;
+    }
+
+    private static final class PipelineBlocker implements ForkJoinPool.ManagedBlocker {
+        private final PipelineManagerInterface pipelineManager;
+        private boolean done = false;
+        private OperationIncompleteException failure = null;
+
+        private PipelineBlocker(PipelineManagerInterface pipelineManager) {
+            this.pipelineManager = pipelineManager;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                pipelineManager.runPipeline();
+            } catch (OperationIncompleteException e) {
+                failure = e;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    private PipelineManagerInterface newPipelineManager(Node current, List<Node> path) throws OperationIncompleteException {
+        logger.debug("Processing node: {}, path: {}", current.getGraphNodeRef().getNodeUUID(),
+                path.stream()
+                        .map(Node::getGraphNodeRef)
+                        .map(GraphNodeRef::getNodeUUID)
+                        .collect(Collectors.joining(" -> ")));
+        if (immediateScheduler != null) {
+            return pipelineManagerFactory
+                    .getNewPipelineManager(current.getGraphNodeRef(), convertPathToRefs(path), immediateScheduler, listeners);
+        }
+        return pipelineManagerFactory
+                .getNewPipelineManager(current.getGraphNodeRef(), convertPathToRefs(path));
+    }
+
+    private List<GraphNodeRef> convertPathToRefs(List<Node> path) {
+        return path.stream()
+                .map(Node::getGraphNodeRef)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Состояние узла в рамках одного вызова traverse.
+     * Путь от корня хранится ссылкой на родителя, по которому узел был найден впервые,
+     * и материализуется только перед запуском пайплайна.
+     */
+    private static final class NodeTracker {
+        final Node node;
+        final NodeTracker discoveredFrom;
+        final AtomicInteger pendingChildren = new AtomicInteger();
+        final List<NodeTracker> parents = new ArrayList<>(1);
+        CompletableFuture<Void> subscription = null;
+
+        NodeTracker(Node node, NodeTracker discoveredFrom) {
+            this.node = node;
+            this.discoveredFrom = discoveredFrom;
+        }
+
+        List<Node> materializePath() {
+            LinkedList<Node> path = new LinkedList<>();
+            for (NodeTracker t = this; t != null; t = t.discoveredFrom) {
+                path.addFirst(t.node);
+            }
+            return path;
+        }
+    }
+}
@@ -17,9 +17,10 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
 
 public class GraphTraversal implements GraphTraversalInterface {
@@ -33,12 +34,16 @@ public class GraphTraversal implements GraphTraversalInterface {
     // ---- Cancellation support ----
     private final AtomicBoolean cancelRequested = new AtomicBoolean(false);
 
+    // завершается в cancel(), чтобы разбудить поток, ждущий узлы других корней
+    private final CompletableFuture<Void> cancelSignal = new CompletableFuture<>();
+
     /**
      * Request traversal cancellation. Thread-safe.
      */
     @Override
     public void cancel() {
         cancelRequested.set(true);
+        cancelSignal.complete(null);
     }
 
     private boolean shouldCancel() {
@@ -75,9 +80,9 @@ public class GraphTraversal implements GraphTraversalInterface {
 
     @Override
     public void traverse(@NotNull Node root) throws OperationIncompleteException {
+        Deque<NodePathState> stack = new ArrayDeque<>();
         try {
             ObjectsUtils.requireNonNull(root, new IllegalArgumentException(Node.class.getSimpleName() + " should be NotNull"));
-            Deque<NodePathState> stack = new ArrayDeque<>();
             stack.push(new NodePathState(root, new ArrayList<>()));
             logger.debug("root node pushed to stack");
 
@@ -88,75 +93,117 @@ public class GraphTraversal implements GraphTraversalInterface {
                 Node current = state.node;
                 List<Node> currentPath = state.pathSoFar;
 
-                switch (current.getNodeLifecycleState()) {
-                    case NOTSTATED: // сохранил оригинальное состояние/опечатку
-                        current.setNodeLifecycleState(NodeLifecycleState.WAITING);
+                if (state.claim == null) {
+                    // CAS NOTSTATED -> CLAIMED: узел выполняет только первый захвативший его обход
+                    Node.Claim claim = current.tryClaim();
+                    if (claim != null) {
+                        state.claim = claim;
                         List<Node> downstream = getDownstreamNodes(current);
                         for (Node child : downstream) {
                             List<Node> newPath = new ArrayList<>(currentPath);
                             newPath.add(current);
                             stack.push(new NodePathState(child, newPath));
                         }
-                        break;
-
-                    case WAITING:
-                        // Неблокирующее ожидание готовности всех потомков с проверкой отмены
-                        awaitChildrenOrCancel(current);
-                        // Все дети готовы — обрабатываем текущий узел
+                    } else {
+                        // READY или захвачен другим корнем — родитель дождётся его в awaitChildrenOrCancel
                         stack.pop();
-                        List<Node> fullPath = new ArrayList<>(currentPath);
-                        fullPath.add(current);
-                        throwIfCancelled(); // финальная проверка перед запуском пайплайна
+                    }
+                } else {
+                    // Неблокирующее ожидание готовности всех потомков с проверкой отмены
+                    awaitChildrenOrCancel(current);
+                    // Все дети готовы — обрабатываем текущий узел
+                    stack.pop();
+                    List<Node> fullPath = new ArrayList<>(currentPath);
+                    fullPath.add(current);
+                    throwIfCancelled(); // финальная проверка перед запуском пайплайна
+                    if (!current.markRunning(state.claim)) {
+                        throw new OperationIncompleteException("Claim of node " + current.getGraphNodeRef().getNodeUUID() + " was lost before its pipeline started");
+                    }
+                    try {
                         processWithPath(current, fullPath);
-                        current.setNodeLifecycleState(NodeLifecycleState.READY);
-                        break;
-
-                    case READY:
-                        stack.pop();
-                        break;
+                        current.markReady(state.claim);
+                    } catch (OperationIncompleteException | RuntimeException | Error e) {
+                        // отпускаем узел, чтобы подписчики не зависли навсегда
+                        current.release(state.claim, e);
+                        throw e;
+                    }
                 }
             }
         } catch (OperationIncompleteException e) {
             // уже корректно обернуто/помечено как отмена или иная причина
+            releaseClaimed(stack, e);
             throw e;
         } catch (Exception e) {
             // Любая иная ошибка — оборачиваем как незавершенную операцию
+            releaseClaimed(stack, e);
             throw new OperationIncompleteException(e);
+        } catch (Error e) {
+            releaseClaimed(stack, e);
+            throw e;
         }
     }
 
     /**
-     * Периодически проверяет состояние потомков current до готовности всех или пока не будет запрошена отмена.
-     * Избегает блокирующего вызова child.waitUntilReady(), чтобы поддержать прерывание.
+     * Обход прерван: узлы, захваченные им, но ещё не выполненные, возвращаются в NOTSTATED,
+     * иначе ждущие их обходы других корней зависли бы навсегда.
      */
-    private void awaitChildrenOrCancel(@NotNull Node current) throws OperationIncompleteException {
-        final long spinSleepMillis = 10; // короткая пауза, чтобы не грузить CPU
-        while (true) {
-            throwIfCancelled();
+    private static void releaseClaimed(@NotNull Deque<NodePathState> stack, @NotNull Throwable cause) {
+        for (NodePathState state : stack) {
+            if (state.claim != null) state.node.release(state.claim, cause);
+        }
+    }
 
-            boolean allChildrenReady = true;
-            for (Node child : getDownstreamNodes(current)) {
-                if (child.getNodeLifecycleState() != NodeLifecycleState.READY) {
-                    allChildrenReady = false;
-                    break;
-                }
+    /**
+     * Ждёт готовности всех потомков current или отмены обхода, без опроса: на каждого не готового потомка
+     * (его выполняет обход другого корня) берётся подписка {@link Node#subscribe()}.
+     */
+    private void awaitChildrenOrCancel(@NotNull Node current) throws OperationIncompleteException {
+        throwIfCancelled();
+        List<Node> pending = new ArrayList<>();
+        List<CompletableFuture<Void>> subscriptions = new ArrayList<>();
+        for (Node child : getDownstreamNodes(current)) {
+            CompletableFuture<Void> subscription = child.subscribe();
+            if (subscription == null) {
+                // свои потомки к этому моменту уже обработаны, значит чужой владелец упал и освободил узел
+                throw releasedAfterFailure(child, null);
             }
-
-            if (allChildrenReady) {
-                return;
+            if (!subscription.isDone() || subscription.isCompletedExceptionally()) {
+                pending.add(child);
+                subscriptions.add(subscription);
             }
+        }
+        if (pending.isEmpty()) return;
 
-            // Короткая пауза + уважение к interrupt
-            if (Thread.interrupted()) {
-                // восстанавливаем семантику отмены
-                Thread.currentThread().interrupt();
-                throwIfCancelled();
+        try {
+            CompletableFuture.anyOf(
+                    CompletableFuture.allOf(subscriptions.toArray(new CompletableFuture<?>[0])),
+                    cancelSignal
+            ).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationIncompleteException(new CancellationException("Traversal cancelled"));
+        } catch (ExecutionException ignored) {
+            // ошибка конкретного потомка разбирается ниже
+        }
+        throwIfCancelled();
+        for (int i = 0; i < pending.size(); i++) {
+            CompletableFuture<Void> subscription = subscriptions.get(i);
+            if (subscription.isCompletedExceptionally()) {
+                Throwable cause = null;
+                try {
+                    subscription.join();
+                } catch (CompletionException | CancellationException e) {
+                    cause = (e.getCause() != null) ? e.getCause() : e;
+                }
+                throw releasedAfterFailure(pending.get(i), cause);
             }
-            // Неблокирующая пауза
-            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(spinSleepMillis));
         }
     }
 
+    private static OperationIncompleteException releasedAfterFailure(@NotNull Node child, Throwable cause) {
+        return new OperationIncompleteException("Downstream node " + child.getGraphNodeRef().getNodeUUID() + " was released after failure", cause);
+    }
+
     private List<Node> getDownstreamNodes(Node current) throws OperationIncompleteException {
         return graphManagerNodeRepository.getNodeDownstream(current);
     }
@@ -196,6 +243,8 @@ public class GraphTraversal implements GraphTraversalInterface {
     private static final class NodePathState {
         final Node node;
         final List<Node> pathSoFar;
+        // токен захвата узла этой записью стека (tryClaim); не null — потомки уже добавлены
+        Node.Claim claim = null;
 
         NodePathState(Node node, List<Node> pathSoFar) {
             this.node = node;
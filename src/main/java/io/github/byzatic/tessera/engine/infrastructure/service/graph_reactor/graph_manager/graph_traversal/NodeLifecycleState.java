@@ -5,8 +5,13 @@ import org.jetbrains.annotations.NotNull;
 
 public enum NodeLifecycleState {
     NOTSTATED(0),
+    // устаревшее: ни один из обходов больше не выставляет WAITING, см. CLAIMED/RUNNING
     WAITING(1),
-    READY(2);
+    READY(2),
+    // узел захвачен обходом одного из корней (tryClaim), пайплайн ещё не запущен
+    CLAIMED(3),
+    // пайплайн узла выполняется владельцем
+    RUNNING(4);
 
     private int code;
 
@@ -0,0 +1,245 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository;
+
+import io.github.byzatic.commons.ObjectsUtils;
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.RunEpoch;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Неизменяемое хранилище графа в формате CSR (compressed sparse row).
+ * <p>
+ * Каждый узел получает плотный int-идентификатор, рёбра хранятся двумя массивами:
+ * downstreamOffsets[id]..downstreamOffsets[id + 1] — срез downstreamTargets с id потомков.
+ * Структура строится один раз в конструкторе и дальше только читается, поэтому
+ * все методы чтения работают без блокировок (final-поля публикуются безопасно).
+ */
+public class CsrGraphManagerNodeRepository implements GraphManagerNodeRepositoryInterface {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsrGraphManagerNodeRepository.class);
+
+    // id -> Node / GraphNodeRef
+    private final Node[] nodes;
+    private final GraphNodeRef[] refs;
+
+    // GraphNodeRef -> id (только чтение после построения)
+    private final Map<GraphNodeRef, Integer> idByRef;
+
+    // CSR: потомки узла id — downstreamTargets[downstreamOffsets[id] .. downstreamOffsets[id + 1])
+    private final int[] downstreamOffsets;
+    private final int[] downstreamTargets;
+
+    // неизменяемые представления срезов CSR, отдаются из getNodeDownstream без аллокаций
+    private final List<Node>[] downstreamViews;
+
+    private final List<GraphNodeRef> rootRefs;
+    private final List<GraphNodeRef> allRefs;
+
+    // эпоха прогона, общая для всех узлов; clearNodeStatuses() только увеличивает её
+    private final RunEpoch runEpoch = new RunEpoch();
+
+    public CsrGraphManagerNodeRepository(@NotNull FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
+        this(buildNodeMap(fullProjectRepository));
+    }
+
+    @SuppressWarnings("unchecked")
+    public CsrGraphManagerNodeRepository(@NotNull Map<GraphNodeRef, Node> nodeRefNodeMap) throws OperationIncompleteException {
+        try {
+            ObjectsUtils.requireNonNull(nodeRefNodeMap, new IllegalArgumentException("Map<GraphNodeRef, Node> should be NotNull"));
+            logger.debug("Initialise CsrGraphManagerNodeRepository");
+
+            int size = nodeRefNodeMap.size();
+            nodes = new Node[size];
+            refs = new GraphNodeRef[size];
+            Map<GraphNodeRef, Integer> index = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+
+            int id = 0;
+            for (Map.Entry<GraphNodeRef, Node> entry : nodeRefNodeMap.entrySet()) {
+                refs[id] = entry.getKey();
+                nodes[id] = entry.getValue();
+                nodes[id].setRunEpoch(runEpoch);
+                index.put(entry.getKey(), id);
+                id++;
+            }
+            idByRef = index;
+
+            // первый проход — степени, второй — заполнение целевых id
+            downstreamOffsets = new int[size + 1];
+            for (int i = 0; i < size; i++) {
+                int degree = 0;
+                for (GraphNodeRef childRef : nodes[i].getDownstream()) {
+                    if (index.containsKey(childRef)) degree++;
+                }
+                downstreamOffsets[i + 1] = downstreamOffsets[i] + degree;
+            }
+
+            downstreamTargets = new int[downstreamOffsets[size]];
+            boolean[] hasParent = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                int position = downstreamOffsets[i];
+                for (GraphNodeRef childRef : nodes[i].getDownstream()) {
+                    Integer childId = index.get(childRef);
+                    if (childId == null) continue;
+                    downstreamTargets[position++] = childId;
+                    hasParent[childId] = true;
+                }
+            }
+
+            downstreamViews = new List[size];
+            for (int i = 0; i < size; i++) {
+                int from = downstreamOffsets[i];
+                int to = downstreamOffsets[i + 1];
+                downstreamViews[i] = (from == to) ? List.of() : new DownstreamView(from, to);
+            }
+
+            List<GraphNodeRef> roots = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (!hasParent[i]) roots.add(refs[i]);
+            }
+            rootRefs = Collections.unmodifiableList(roots);
+            allRefs = Collections.unmodifiableList(Arrays.asList(refs));
+
+            logger.debug("Initialisation of CsrGraphManagerNodeRepository complete; nodes={}, edges={}, roots={}",
+                    size, downstreamTargets.length, rootRefs.size());
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    private static Map<GraphNodeRef, Node> buildNodeMap(@NotNull FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
+        try {
+            ObjectsUtils.requireNonNull(
+                    fullProjectRepository,
+                    new IllegalArgumentException(FullProjectRepository.class.getSimpleName() + " should be NotNull")
+            );
+            Map<GraphNodeRef, Node> nodeRefNodeMap = new LinkedHashMap<>();
+            for (GraphNodeRef graphNodeRef : fullProjectRepository.listGraphNodeRef()) {
+                NodeItem nodeItem = fullProjectRepository.getNode(graphNodeRef);
+                nodeRefNodeMap.put(graphNodeRef, Node.newBuilder()
+                        .setGraphNodeRef(graphNodeRef)
+                        .setDownstream(nodeItem.getDownstream())
+                        .build());
+            }
+            return nodeRefNodeMap;
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e);
+        }
+    }
+
+    @NotNull
+    @Override
+    public Node getNode(@NotNull GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return nodes[requireId(graphNodeRef)];
+    }
+
+    @NotNull
+    @Override
+    public List<GraphNodeRef> listGraphNodeRef() {
+        return new ArrayList<>(allRefs);
+    }
+
+    /**
+     * HOT PATH. Без блокировок и аллокаций.
+     */
+    @NotNull
+    @Override
+    public List<Node> getNodeDownstream(@NotNull Node node) throws OperationIncompleteException {
+        ObjectsUtils.requireNonNull(node, new IllegalArgumentException(Node.class.getSimpleName() + " should be NotNull"));
+        return downstreamViews[requireId(node.getGraphNodeRef())];
+    }
+
+    @NotNull
+    @Override
+    public List<Node> getNodeDownstream(@NotNull GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        return downstreamViews[requireId(graphNodeRef)];
+    }
+
+    @NotNull
+    @Override
+    public List<GraphNodeRef> getRootNodes() throws OperationIncompleteException {
+        return rootRefs;
+    }
+
+    @Override
+    public @NotNull void clearNodeStatuses() throws OperationIncompleteException {
+        long epoch = runEpoch.advance();
+        logger.debug("Node statuses cleared; run epoch is {}", epoch);
+    }
+
+    @NotNull
+    @Override
+    public RunEpoch getRunEpoch() {
+        return runEpoch;
+    }
+
+    /**
+     * Количество узлов; id узлов — 0..size()-1.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Плотный id узла или -1, если узел не найден.
+     */
+    public int getNodeId(@NotNull GraphNodeRef graphNodeRef) {
+        Integer id = idByRef.get(graphNodeRef);
+        return id != null ? id : -1;
+    }
+
+    @NotNull
+    public Node getNode(int nodeId) {
+        return nodes[nodeId];
+    }
+
+    public int getDownstreamCount(int nodeId) {
+        return downstreamOffsets[nodeId + 1] - downstreamOffsets[nodeId];
+    }
+
+    /**
+     * id i-го потомка узла nodeId.
+     */
+    public int getDownstreamId(int nodeId, int i) {
+        return downstreamTargets[downstreamOffsets[nodeId] + i];
+    }
+
+    private int requireId(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
+        ObjectsUtils.requireNonNull(graphNodeRef, new IllegalArgumentException(GraphNodeRef.class.getSimpleName() + " should be NotNull"));
+        Integer id = idByRef.get(graphNodeRef);
+        if (id == null) {
+            throw new OperationIncompleteException("No such Node was found by " + graphNodeRef);
+        }
+        return id;
+    }
+
+    /**
+     * Неизменяемый список потомков поверх среза downstreamTargets.
+     */
+    private final class DownstreamView extends AbstractList<Node> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        private DownstreamView(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Node get(int index) {
+            if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            return nodes[downstreamTargets[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -6,7 +6,7 @@ import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
-import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.NodeLifecycleState;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.RunEpoch;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +26,9 @@ public class GraphManagerNodeRepository implements GraphManagerNodeRepositoryInt
     // cached downstream resolved to Node objects (hot path optimisation)
     private final Map<GraphNodeRef, List<Node>> downstreamCache = new HashMap<>();
 
+    // run epoch shared by all nodes; clearNodeStatuses() just advances it
+    private final RunEpoch runEpoch = new RunEpoch();
+
     public GraphManagerNodeRepository(@NotNull FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
         try {
             logger.debug("Initialise GraphManagerNodeRepository");
@@ -44,6 +47,7 @@ public class GraphManagerNodeRepository implements GraphManagerNodeRepositoryInt
                         .setGraphNodeRef(graphNodeRef)
                         .setDownstream(nodeItem.getDownstream())
                         .build();
+                newNode.setRunEpoch(runEpoch);
 
                 nodeRefNodeMap.put(graphNodeRef, newNode);
 
@@ -67,6 +71,9 @@ public class GraphManagerNodeRepository implements GraphManagerNodeRepositoryInt
         try {
             ObjectsUtils.requireNonNull(nodeRefNodeMap, new IllegalArgumentException("Map<GraphNodeRef, Node> should be NotNull"));
             this.nodeRefNodeMap = nodeRefNodeMap;
+            for (Node node : nodeRefNodeMap.values()) {
+                node.setRunEpoch(runEpoch);
+            }
 
             createRootNodeListV2();
             rebuildDownstreamCache();
@@ -220,12 +227,18 @@ public class GraphManagerNodeRepository implements GraphManagerNodeRepositoryInt
         return listAllRoot;
     }
 
+    /**
+     * O(1): every node whose state belongs to a previous epoch reads as NOTSTATED.
+     */
     @Override
     public @NotNull void clearNodeStatuses() throws OperationIncompleteException {
-        // leaving unsynchronized as in original code
-        for (Map.Entry<GraphNodeRef, Node> nodeEntry : nodeRefNodeMap.entrySet()) {
-            Node node = nodeEntry.getValue();
-            node.setNodeLifecycleState(NodeLifecycleState.NOTSTATED);
-        }
+        long epoch = runEpoch.advance();
+        logger.debug("Node statuses cleared; run epoch is {}", epoch);
+    }
+
+    @NotNull
+    @Override
+    public RunEpoch getRunEpoch() {
+        return runEpoch;
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gr
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.RunEpoch;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
@@ -18,5 +19,13 @@ public interface GraphManagerNodeRepositoryInterface {
 
     @NotNull List<GraphNodeRef> getRootNodes() throws OperationIncompleteException;
 
+    /**
+     * Сбрасывает состояния всех узлов в NOTSTATED (начинает новую эпоху прогона).
+     */
     @NotNull void clearNodeStatuses() throws OperationIncompleteException;
+
+    /**
+     * Общий источник эпохи прогона для всех узлов репозитория.
+     */
+    @NotNull RunEpoch getRunEpoch();
 }
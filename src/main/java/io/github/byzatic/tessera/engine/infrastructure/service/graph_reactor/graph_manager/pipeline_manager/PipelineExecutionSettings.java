@@ -0,0 +1,212 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.Configuration;
+import io.github.byzatic.tessera.engine.infrastructure.observability.PrometheusMetricsAgent;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параметры выполнения pipeline: inline-режим, grace остановки просроченных job'ов, bulkhead'ы worker'ов,
+ * пул запуска worker'ов асинхронного pipeline и публикация времени выполнения.
+ * <p>
+ * В runtime используется {@link #fromConfiguration()} — значения из {@link Configuration} и bulkhead'ы,
+ * общие для всех узлов графа. Собственный экземпляр (через builder) нужен, когда pipeline выполняется
+ * с другими параметрами, например в тестах.
+ * <p>
+ * Пул запуска ограничен: фиксированное число потоков и очередь заданной ёмкости. При переполнении очереди
+ * запуск выполняется в потоке, который его запросил, — это backpressure на источник продолжений,
+ * а не рост числа потоков. Пул создаётся при первом обращении и останавливается {@link #close()}.
+ */
+public final class PipelineExecutionSettings implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineExecutionSettings.class);
+
+    public static final String INLINE_NONE = "none";
+    public static final String INLINE_SINGLE = "single";
+    public static final String INLINE_LAST = "last";
+
+    private final String inlineExecution;
+    private final long stopGraceMillis;
+    private final boolean publishExecutionTime;
+    private final WorkerBulkheads bulkheads;
+    private final int launcherThreads;
+    private final int launcherQueueCapacity;
+    // создаётся лениво: синхронному pipeline пул не нужен
+    private ThreadPoolExecutor launcher;
+    private boolean closed;
+
+    private PipelineExecutionSettings(Builder builder) {
+        if (!INLINE_NONE.equals(builder.inlineExecution) && !INLINE_SINGLE.equals(builder.inlineExecution) && !INLINE_LAST.equals(builder.inlineExecution)) {
+            throw new IllegalArgumentException("Unknown inline execution mode " + builder.inlineExecution + "; expected none, single or last");
+        }
+        if (builder.stopGraceMillis < 0) {
+            throw new IllegalArgumentException("Stop grace should not be negative; stopGraceMillis= " + builder.stopGraceMillis);
+        }
+        if (builder.launcherThreads < 1) {
+            throw new IllegalArgumentException("Launcher threads should be positive; launcherThreads= " + builder.launcherThreads);
+        }
+        if (builder.launcherQueueCapacity < 1) {
+            throw new IllegalArgumentException("Launcher queue capacity should be positive; launcherQueueCapacity= " + builder.launcherQueueCapacity);
+        }
+        this.inlineExecution = builder.inlineExecution;
+        this.stopGraceMillis = builder.stopGraceMillis;
+        this.publishExecutionTime = builder.publishExecutionTime;
+        this.bulkheads = Objects.requireNonNull(builder.bulkheads, "bulkheads");
+        this.launcherThreads = builder.launcherThreads;
+        this.launcherQueueCapacity = builder.launcherQueueCapacity;
+    }
+
+    /**
+     * Параметры из {@link Configuration}; экземпляр один на runtime, поэтому bulkhead'ы общие для всего графа.
+     */
+    @NotNull
+    public static PipelineExecutionSettings fromConfiguration() {
+        return ConfigurationHolder.INSTANCE;
+    }
+
+    // Configuration читается при первом обращении, а не при загрузке PipelineManager
+    private static final class ConfigurationHolder {
+        static final PipelineExecutionSettings INSTANCE = newBuilder()
+                .inlineExecution(Configuration.PIPELINE_INLINE_EXECUTION)
+                .stopGraceMillis(Configuration.PIPELINE_STOP_GRACE)
+                .publishExecutionTime(Configuration.PUBLISH_NODE_PIPELINE_EXECUTION_TIME)
+                .bulkheads(new WorkerBulkheads(
+                        Configuration.WORKER_CONCURRENCY_LIMITS,
+                        Configuration.STAGE_CONCURRENCY_LIMITS,
+                        (workerName, stageId, waitMillis) ->
+                                PrometheusMetricsAgent.getInstance().publishWorkerPermitWaitTime(waitMillis, workerName, stageId)
+                ))
+                .launcherThreads(Configuration.PIPELINE_LAUNCHER_THREADS)
+                .launcherQueueCapacity(Configuration.PIPELINE_LAUNCHER_QUEUE_CAPACITY)
+                .build();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Режим inline-выполнения последнего worker'а стадии: none, single или last.
+     */
+    public String getInlineExecution() {
+        return inlineExecution;
+    }
+
+    /**
+     * Grace, с которым из scheduler'а снимается job с истёкшим timeout_ms.
+     */
+    public long getStopGraceMillis() {
+        return stopGraceMillis;
+    }
+
+    public boolean isPublishExecutionTime() {
+        return publishExecutionTime;
+    }
+
+    public WorkerBulkheads getBulkheads() {
+        return bulkheads;
+    }
+
+    /**
+     * Пул запуска worker'ов асинхронного pipeline (создание рутины и addTask) и стартов стадий.
+     * Задача, не поместившаяся в очередь (или отправленная после {@link #close()}), выполняется
+     * в вызывающем потоке: отбросить её нельзя — future pipeline тогда не завершился бы.
+     */
+    @NotNull
+    public synchronized ExecutorService getLauncher() {
+        if (launcher == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            launcher = new ThreadPoolExecutor(
+                    launcherThreads, launcherThreads,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(launcherQueueCapacity),
+                    r -> {
+                        Thread thread = new Thread(r, "pipeline-worker-launcher-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (task, executor) -> {
+                        logger.debug("Pipeline worker launcher is {}; launching on the calling thread",
+                                executor.isShutdown() ? "shut down" : "saturated");
+                        task.run();
+                    });
+            launcher.allowCoreThreadTimeOut(true);
+            if (closed) launcher.shutdown();
+        }
+        return launcher;
+    }
+
+    /**
+     * Останавливает пул запуска; уже принятые задачи выполняются.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (launcher != null) launcher.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineExecutionSettings{" +
+                "inlineExecution='" + inlineExecution + '\'' +
+                ", stopGraceMillis=" + stopGraceMillis +
+                ", publishExecutionTime=" + publishExecutionTime +
+                ", launcherThreads=" + launcherThreads +
+                ", launcherQueueCapacity=" + launcherQueueCapacity +
+                '}';
+    }
+
+    public static final class Builder {
+        private String inlineExecution = INLINE_NONE;
+        private long stopGraceMillis = 5000L;
+        private boolean publishExecutionTime = false;
+        private WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of(), Map.of(), null);
+        private int launcherThreads = Runtime.getRuntime().availableProcessors();
+        private int launcherQueueCapacity = 1024;
+
+        private Builder() {
+        }
+
+        public Builder inlineExecution(String val) {
+            inlineExecution = val;
+            return this;
+        }
+
+        public Builder stopGraceMillis(long val) {
+            stopGraceMillis = val;
+            return this;
+        }
+
+        public Builder publishExecutionTime(boolean val) {
+            publishExecutionTime = val;
+            return this;
+        }
+
+        public Builder bulkheads(WorkerBulkheads val) {
+            bulkheads = val;
+            return this;
+        }
+
+        public Builder launcherThreads(int val) {
+            launcherThreads = val;
+            return this;
+        }
+
+        public Builder launcherQueueCapacity(int val) {
+            launcherQueueCapacity = val;
+            return this;
+        }
+
+        public PipelineExecutionSettings build() {
+            return new PipelineExecutionSettings(this);
+        }
+    }
+}
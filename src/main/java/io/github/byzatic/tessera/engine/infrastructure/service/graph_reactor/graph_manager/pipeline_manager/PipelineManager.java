@@ -1,8 +1,8 @@
 package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager;
 
 import io.github.byzatic.commons.schedulers.immediate.*;
-import io.github.byzatic.tessera.engine.Configuration;
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationTimedOutException;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
 import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
 import io.github.byzatic.tessera.engine.domain.model.node_pipeline.*;
@@ -13,8 +13,8 @@ import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gra
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.MCg3WorkflowRoutineApi;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.StorageApi;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.execution_context.ExecutionContextFactoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleHandle;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleLoaderInterface;
-import io.github.byzatic.tessera.workflowroutine.configuration.ConfigurationParameter;
 import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
 import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagProxy;
 import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagState;
@@ -23,10 +23,19 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * PipelineManager на ImmediateScheduler.
@@ -34,8 +43,14 @@ import java.util.stream.Collectors;
  * Цели реализации:
  * - Параллельно запускать workers внутри стадии.
  * - Ждать завершения всей стадии и валидировать результаты (JobState + HealthFlag).
+ * - Если в pipeline объявлены depends_on — запускать worker сразу после его зависимостей, без барьера стадий.
+ * - Соблюдать timeout_ms стадий и worker'ов: просроченный worker считается TIMEOUT и снимается через grace scheduler'а.
+ * - Ограничивать параллелизм рутин по типу и стадии во всём графе (bulkhead'ы, см. {@link WorkerBulkheads}).
  * - НЕ плодить listeners на shared scheduler (иначе деградация по времени на каждой итерации).
  *
+ * Параметры выполнения (inline-режим, grace, bulkhead'ы) задаёт {@link PipelineExecutionSettings};
+ * по умолчанию — из Configuration, с bulkhead'ами, общими для всего графа.
+ *
  * Важное правило владения:
  * - Если scheduler внешний (shared) — PipelineManager не должен "засорять" его listeners’ами.
  *   Поэтому используется global hub: один listener на scheduler + map jobId -> callback.
@@ -51,9 +66,11 @@ public class PipelineManager implements PipelineManagerInterface {
     private final List<GraphNodeRef> pathToCurrentExecutionNodeRef;
     private final StorageManagerInterface storageManager;
     private final ModuleLoaderInterface moduleLoader;
-    private final SupportPathResolver pathResolver;
+    private final PathManagerInterface pathManager;
     private final ExecutionContextFactoryInterface executionContextFactory;
     private final FullProjectRepository fullProjectRepository;
+    private final PipelinePlanCache pipelinePlanCache;
+    private final PipelineExecutionSettings settings;
 
     /**
      * Hub терминальных событий для КОНКРЕТНОГО scheduler.
@@ -67,14 +84,6 @@ public class PipelineManager implements PipelineManagerInterface {
         private final ConcurrentHashMap<UUID, Runnable> onTerminal = new ConcurrentHashMap<>();
 
         private final JobEventListener listener = new JobEventListener() {
-            private void fire(UUID jobId) {
-                if (jobId == null) return;
-                Runnable r = onTerminal.remove(jobId);
-                if (r != null) {
-                    try { r.run(); } catch (Throwable ignore) {}
-                }
-            }
-
             @Override public void onStart(UUID jobId) {}
             @Override public void onComplete(UUID jobId) { fire(jobId); }
             @Override public void onError(UUID jobId, Throwable error) { fire(jobId); }
@@ -92,6 +101,17 @@ public class PipelineManager implements PipelineManagerInterface {
             onTerminal.remove(jobId);
         }
 
+        /**
+         * Вызывает callback job'а (не более одного раза). Используется listener'ом и при истечении timeout_ms.
+         */
+        void fire(UUID jobId) {
+            if (jobId == null) return;
+            Runnable r = onTerminal.remove(jobId);
+            if (r != null) {
+                try { r.run(); } catch (Throwable ignore) {}
+            }
+        }
+
         /**
          * Закрываем гонку: если job уже терминальный к моменту регистрации callback — "догоняем" вручную.
          */
@@ -105,16 +125,14 @@ public class PipelineManager implements PipelineManagerInterface {
             }
             if (info.isEmpty()) return;
 
-            JobState s = info.get().state;
-            if (s == JobState.COMPLETED || s == JobState.FAILED || s == JobState.CANCELLED || s == JobState.TIMEOUT) {
-                Runnable r = onTerminal.remove(jobId);
-                if (r != null) {
-                    try { r.run(); } catch (Throwable ignore) {}
-                }
-            }
+            if (isTerminal(info.get().state)) fire(jobId);
         }
     }
 
+    private static boolean isTerminal(JobState s) {
+        return s == JobState.COMPLETED || s == JobState.FAILED || s == JobState.CANCELLED || s == JobState.TIMEOUT;
+    }
+
     /**
      * Глобальная привязка hub’ов к scheduler’ам.
      * Нужна для shared scheduler: один listener на инстанс scheduler’а на весь runtime.
@@ -122,6 +140,22 @@ public class PipelineManager implements PipelineManagerInterface {
     private static final ConcurrentHashMap<ImmediateSchedulerInterface, SchedulerTerminalHub> HUBS = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<ImmediateSchedulerInterface, Boolean> HUB_INSTALLED = new ConcurrentHashMap<>();
 
+    /**
+     * Общий таймер timeout_ms. Задача таймера только помечает job и запрашивает остановку у scheduler'а
+     * (removeTask с grace не блокирует), поэтому одного daemon-потока достаточно.
+     */
+    private static final ScheduledThreadPoolExecutor DEADLINE_TIMER = newDeadlineTimer();
+
+    private static ScheduledThreadPoolExecutor newDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "pipeline-deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
     private static SchedulerTerminalHub hubFor(ImmediateSchedulerInterface scheduler) {
         SchedulerTerminalHub hub = HUBS.computeIfAbsent(scheduler, s -> new SchedulerTerminalHub());
 
@@ -142,26 +176,51 @@ public class PipelineManager implements PipelineManagerInterface {
                            ExecutionContextFactoryInterface executionContextFactory,
                            ImmediateSchedulerInterface scheduler,
                            JobEventListener... listeners) throws OperationIncompleteException {
+        this(graphNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager,
+                pathManagerInterface, executionContextFactory, new PipelinePlanCache(), scheduler, listeners);
+    }
+
+    // ===== Constructor with external scheduler (shared) and shared plan cache =====
+    public PipelineManager(GraphNodeRef graphNodeRef,
+                           List<GraphNodeRef> pathToCurrentExecutionNodeRef,
+                           FullProjectRepository fullProjectRepository,
+                           ModuleLoaderInterface moduleLoader,
+                           StorageManagerInterface storageManager,
+                           PathManagerInterface pathManagerInterface,
+                           ExecutionContextFactoryInterface executionContextFactory,
+                           PipelinePlanCache pipelinePlanCache,
+                           ImmediateSchedulerInterface scheduler,
+                           JobEventListener... listeners) throws OperationIncompleteException {
+        this(graphNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager,
+                pathManagerInterface, executionContextFactory, pipelinePlanCache, PipelineExecutionSettings.fromConfiguration(),
+                scheduler, listeners);
+    }
+
+    // ===== Constructor with external scheduler (shared), shared plan cache and explicit settings =====
+    public PipelineManager(GraphNodeRef graphNodeRef,
+                           List<GraphNodeRef> pathToCurrentExecutionNodeRef,
+                           FullProjectRepository fullProjectRepository,
+                           ModuleLoaderInterface moduleLoader,
+                           StorageManagerInterface storageManager,
+                           PathManagerInterface pathManagerInterface,
+                           ExecutionContextFactoryInterface executionContextFactory,
+                           PipelinePlanCache pipelinePlanCache,
+                           PipelineExecutionSettings settings,
+                           ImmediateSchedulerInterface scheduler,
+                           JobEventListener... listeners) throws OperationIncompleteException {
 
         this.graphNodeRef = Objects.requireNonNull(graphNodeRef, "graphNodeRef");
         this.pathToCurrentExecutionNodeRef = Objects.requireNonNull(pathToCurrentExecutionNodeRef, "pathToCurrentExecutionNodeRef");
         this.fullProjectRepository = Objects.requireNonNull(fullProjectRepository, "fullProjectRepository");
         this.moduleLoader = Objects.requireNonNull(moduleLoader, "moduleLoader");
         this.storageManager = Objects.requireNonNull(storageManager, "storageManager");
+        this.pathManager = Objects.requireNonNull(pathManagerInterface, "pathManagerInterface");
         this.executionContextFactory = Objects.requireNonNull(executionContextFactory, "executionContextFactory");
+        this.pipelinePlanCache = Objects.requireNonNull(pipelinePlanCache, "pipelinePlanCache");
+        this.settings = Objects.requireNonNull(settings, "settings");
         this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
         this.ownsScheduler = false;
 
-        try {
-            Objects.requireNonNull(pathManagerInterface, "pathManagerInterface");
-            this.pathResolver = new SupportPathResolver(
-                    pathManagerInterface.getStoragePathByGraphNodeRef(graphNodeRef),
-                    pathManagerInterface.getProjectGlobalStorage()
-            );
-        } catch (Exception e) {
-            throw new OperationIncompleteException(e);
-        }
-
         // Внешние listeners — это ответственность оркестрации.
         // Если всё же прокидываешь сюда listeners — они добавятся на shared scheduler и тоже могут размножаться.
         if (listeners != null) {
@@ -182,13 +241,43 @@ public class PipelineManager implements PipelineManagerInterface {
                            StorageManagerInterface storageManager,
                            PathManagerInterface pathManagerInterface,
                            ExecutionContextFactoryInterface executionContextFactory) throws OperationIncompleteException {
+        this(graphNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager,
+                pathManagerInterface, executionContextFactory, new PipelinePlanCache());
+    }
+
+    // ===== Constructor with self-hosted scheduler and shared plan cache =====
+    public PipelineManager(GraphNodeRef graphNodeRef,
+                           List<GraphNodeRef> pathToCurrentExecutionNodeRef,
+                           FullProjectRepository fullProjectRepository,
+                           ModuleLoaderInterface moduleLoader,
+                           StorageManagerInterface storageManager,
+                           PathManagerInterface pathManagerInterface,
+                           ExecutionContextFactoryInterface executionContextFactory,
+                           PipelinePlanCache pipelinePlanCache) throws OperationIncompleteException {
+        this(graphNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager,
+                pathManagerInterface, executionContextFactory, pipelinePlanCache, PipelineExecutionSettings.fromConfiguration());
+    }
+
+    // ===== Constructor with self-hosted scheduler, shared plan cache and explicit settings =====
+    public PipelineManager(GraphNodeRef graphNodeRef,
+                           List<GraphNodeRef> pathToCurrentExecutionNodeRef,
+                           FullProjectRepository fullProjectRepository,
+                           ModuleLoaderInterface moduleLoader,
+                           StorageManagerInterface storageManager,
+                           PathManagerInterface pathManagerInterface,
+                           ExecutionContextFactoryInterface executionContextFactory,
+                           PipelinePlanCache pipelinePlanCache,
+                           PipelineExecutionSettings settings) throws OperationIncompleteException {
 
         this.graphNodeRef = Objects.requireNonNull(graphNodeRef, "graphNodeRef");
         this.pathToCurrentExecutionNodeRef = Objects.requireNonNull(pathToCurrentExecutionNodeRef, "pathToCurrentExecutionNodeRef");
         this.fullProjectRepository = Objects.requireNonNull(fullProjectRepository, "fullProjectRepository");
         this.moduleLoader = Objects.requireNonNull(moduleLoader, "moduleLoader");
         this.storageManager = Objects.requireNonNull(storageManager, "storageManager");
+        this.pathManager = Objects.requireNonNull(pathManagerInterface, "pathManagerInterface");
         this.executionContextFactory = Objects.requireNonNull(executionContextFactory, "executionContextFactory");
+        this.pipelinePlanCache = Objects.requireNonNull(pipelinePlanCache, "pipelinePlanCache");
+        this.settings = Objects.requireNonNull(settings, "settings");
 
         this.scheduler = new ImmediateScheduler.Builder()
                 .defaultGrace(Duration.ofSeconds(10))
@@ -196,18 +285,31 @@ public class PipelineManager implements PipelineManagerInterface {
 
         this.ownsScheduler = true;
 
+        // Для self-hosted scheduler логика та же: hub listener ставится один раз
+        hubFor(this.scheduler);
+    }
+
+    /**
+     * План pipeline из кэша; строится (вместе с SupportPathResolver) только при первом запуске узла или после reload().
+     */
+    private PipelinePlan getPipelinePlan() throws OperationIncompleteException {
+        NodePipeline pipeline = fullProjectRepository.getPipeline(graphNodeRef);
+        PipelinePlan plan = pipelinePlanCache.get(graphNodeRef, pipeline, moduleLoader.getModulesVersion());
+        if (plan != null) return plan;
+
+        SupportPathResolver pathResolver;
         try {
-            Objects.requireNonNull(pathManagerInterface, "pathManagerInterface");
-            this.pathResolver = new SupportPathResolver(
-                    pathManagerInterface.getStoragePathByGraphNodeRef(graphNodeRef),
-                    pathManagerInterface.getProjectGlobalStorage()
+            pathResolver = new SupportPathResolver(
+                    pathManager.getStoragePathByGraphNodeRef(graphNodeRef),
+                    pathManager.getProjectGlobalStorage()
             );
         } catch (Exception e) {
             throw new OperationIncompleteException(e);
         }
-
-        // Для self-hosted scheduler логика та же: hub listener ставится один раз
-        hubFor(this.scheduler);
+        plan = PipelinePlan.compile(graphNodeRef, pipeline, pathResolver, moduleLoader);
+        pipelinePlanCache.put(plan);
+        logger.debug("Pipeline plan for node {} compiled; stages={}", graphNodeRef, plan.getStages().size());
+        return plan;
     }
 
     @Override
@@ -216,145 +318,685 @@ public class PipelineManager implements PipelineManagerInterface {
 
         final SchedulerTerminalHub hub = hubFor(this.scheduler);
 
-        Long startMs = null;
-        String nodeItemId = null;
-        String nodeItemName = null;
-        String nodePath = null;
+        final long startMs = System.currentTimeMillis();
 
-        // node_path нужен, но строим его один раз на весь pipeline
-        if (Configuration.PUBLISH_NODE_PIPELINE_EXECUTION_TIME) {
-            startMs = System.currentTimeMillis();
-
-            NodeItem nodeItem = fullProjectRepository.getNode(graphNodeRef);
-            nodeItemId = nodeItem.getId();
-            nodeItemName = nodeItem.getName();
-
-            int size = pathToCurrentExecutionNodeRef.size();
-            StringBuilder sb = new StringBuilder(size * 24);
-            sb.append("[ ");
-            boolean first = true;
-            for (GraphNodeRef ref : pathToCurrentExecutionNodeRef) {
-                NodeItem node = fullProjectRepository.getNode(ref);
-                if (!first) sb.append(" ] - [ ");
-                sb.append(node.getName());
-                first = false;
-            }
-            sb.append(" ]");
-            nodePath = sb.toString();
-        }
+        PipelinePlan plan = getPipelinePlan();
 
-        NodePipeline pipeline = fullProjectRepository.getPipeline(graphNodeRef);
+        if (plan.getWorkerGraph() != null) {
+            awaitWorkerGraph(runWorkerGraph(hub, plan.getWorkerGraph()));
+        } else {
+            runStages(hub, plan);
+        }
 
-        List<StagesConsistencyItem> stagesConsistencyItemList = new ArrayList<>(pipeline.getStagesConsistency());
-        stagesConsistencyItemList.sort(Comparator.comparingInt(StagesConsistencyItem::getPosition));
+        // Метрика длительности pipeline на ноду — один раз по завершению pipeline
+        if (settings.isPublishExecutionTime()) {
+            publishPipelineExecutionTime(System.currentTimeMillis() - startMs);
+        }
+    }
 
-        Map<String, StagesDescriptionItem> stageMap = pipeline.getStagesDescription().stream()
-                .collect(Collectors.toMap(StagesDescriptionItem::getStageId, Function.identity()));
+    private void runStages(SchedulerTerminalHub hub, PipelinePlan plan) throws OperationIncompleteException {
+        for (PipelinePlan.StagePlan stagePlan : plan.getStages()) {
+            StagesDescriptionItem stage = stagePlan.getStage();
 
-        for (StagesConsistencyItem stageConsistency : stagesConsistencyItemList) {
-            StagesDescriptionItem stage = stageMap.get(stageConsistency.getStageId());
-            if (stage == null) {
-                throw new OperationIncompleteException("StageId " + stageConsistency.getStageId() + " hasn't description");
-            }
-
-            List<WorkersDescriptionItem> workers = stage.getWorkersDescription();
-            if (workers == null || workers.isEmpty()) {
+            List<PipelinePlan.WorkerPlan> workers = stagePlan.getWorkers();
+            if (workers.isEmpty()) {
                 logger.info("Stage {} has no workers — skipping", stage.getStageId());
                 continue;
             }
 
-            final CountDownLatch stageFinished = new CountDownLatch(workers.size());
-            final List<UUID> stageJobs = new ArrayList<>(workers.size());
+            // последний worker (или единственный) может выполниться прямо в текущем потоке;
+            // worker с timeout_ms или под bulkhead'ом — только через scheduler
+            final boolean inlineLast = !stagePlan.hasDeadlines()
+                    && !settings.getBulkheads().isLimited(stagePlan.getStageId(), workers.get(workers.size() - 1).getName())
+                    && isInlineLastWorker(workers.size());
+            final int scheduledWorkers = inlineLast ? workers.size() - 1 : workers.size();
+
+            final CountDownLatch stageFinished = new CountDownLatch(scheduledWorkers);
+            // job'ы добавляются и потоками, освободившими permit bulkhead'а
+            final List<UUID> stageJobs = Collections.synchronizedList(new ArrayList<>(scheduledWorkers));
+            final List<WorkerBulkheads.Ticket> tickets = new ArrayList<>(scheduledWorkers);
+            final AtomicReference<Throwable> submitError = new AtomicReference<>();
             final Map<UUID, HealthFlagProxy> healthByJob = new ConcurrentHashMap<>();
+            final Deadlines deadlines = new Deadlines(hub);
+            deadlines.startStage(stagePlan);
 
             try {
-                for (WorkersDescriptionItem worker : workers) {
-                    String workerName = worker.getName();
-
-                    List<ConfigurationParameter> cfg = new ArrayList<>();
-                    List<ConfigurationFilesItem> cfgFiles = worker.getConfigurationFiles();
-                    if (cfgFiles != null) {
-                        for (ConfigurationFilesItem f : cfgFiles) {
-                            cfg.add(ConfigurationParameter.newBuilder()
-                                    .parameterKey(f.getDescription())
-                                    .parameterValue(pathResolver.processTemplate(f.getConfigurationFileId()))
-                                    .build());
-                        }
-                    }
+                for (int i = 0; i < scheduledWorkers; i++) {
+                    PipelinePlan.WorkerPlan workerPlan = workers.get(i);
+                    String workerName = workerPlan.getName();
 
                     HealthFlagProxy health = HealthFlagProxy.newBuilder().build();
+                    WorkflowRoutineInterface routine = createRoutine(stagePlan, workerPlan, health);
 
-                    WorkflowRoutineInterface routine = moduleLoader.getModule(
-                            workerName,
-                            MCg3WorkflowRoutineApi.newBuilder()
-                                    .setStorageApi(new StorageApi(storageManager, graphNodeRef, fullProjectRepository))
-                                    .setConfigurationParameters(cfg)
-                                    .setExecutionContext(executionContextFactory.getExecutionContext(
-                                            graphNodeRef, pathToCurrentExecutionNodeRef,
-                                            stage, worker, stageConsistency
-                                    ))
-                                    .build(),
-                            health
-                    );
-
-                    UUID jobId = scheduler.addTask(new WorkflowRoutineTask(routine));
-                    stageJobs.add(jobId);
-                    healthByJob.put(jobId, health);
+                    Consumer<Throwable> onError = error -> {
+                        submitError.compareAndSet(null, error);
+                        stageFinished.countDown();
+                    };
+                    WorkerBulkheads.Ticket ticket = submitWorker(stagePlan, workerPlan, routine, jobId -> {
+                        stageJobs.add(jobId);
+                        healthByJob.put(jobId, health);
 
-                    // Регистрируем countDown на терминальное событие (снимется автоматически при fire)
-                    hub.register(jobId, stageFinished::countDown);
-                    hub.maybeFireIfTerminal(scheduler, jobId);
+                        // Регистрируем countDown на терминальное событие (снимется автоматически при fire)
+                        hub.register(jobId, stageFinished::countDown);
+                        hub.maybeFireIfTerminal(scheduler, jobId);
+                        deadlines.watch(jobId, stagePlan, workerPlan);
 
-                    logger.info("Scheduled workflowRoutine worker={} stage={} jobId={}",
-                            workerName, stage.getStageId(), jobId);
+                        logger.info("Scheduled workflowRoutine worker={} stage={} jobId={}",
+                                workerName, stage.getStageId(), jobId);
+                    }, onError);
+                    tickets.add(ticket);
+                    deadlines.watchQueued(stagePlan, workerPlan, ticket, onError);
+                }
+
+                OperationIncompleteException inlineError = null;
+                if (inlineLast) {
+                    inlineError = runInline(stagePlan, workers.get(workers.size() - 1));
                 }
 
-                // Ждём окончания стадии
+                // Ждём окончания стадии; просроченный job снимает свой countDown сам (см. Deadlines)
                 stageFinished.await();
+                deadlines.close();
+                if (submitError.get() instanceof OperationIncompleteException) {
+                    throw (OperationIncompleteException) submitError.get();
+                }
+                if (submitError.get() != null) {
+                    throw new OperationIncompleteException("Failed to schedule worker of stage " + stage.getStageId(), submitError.get());
+                }
 
                 // Проверка результатов стадии
-                for (UUID jobId : stageJobs) {
-                    JobInfo info = scheduler.query(jobId).orElse(null);
-                    if (info == null) {
-                        throw new OperationIncompleteException("Job " + jobId + " not found after stage completion");
-                    }
-                    if (info.state != JobState.COMPLETED) {
-                        String err = (info.lastError != null)
-                                ? info.lastError
-                                : ("Job " + jobId + " ended with state " + info.state);
-                        throw new OperationIncompleteException(err);
-                    }
+                validateStage(stageJobs, healthByJob, deadlines);
 
-                    HealthFlagProxy h = healthByJob.get(jobId);
-                    if (h == null || h.getHealthFlagState() != HealthFlagState.COMPLETE) {
-                        throw new OperationIncompleteException("Job " + jobId + " is not in COMPLETE health state");
-                    }
-                }
+                // inline-worker проверяется последним — как последний job стадии
+                if (inlineError != null) throw inlineError;
 
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
                 throw new OperationIncompleteException("Interrupted while waiting stage " + stage.getStageId(), ie);
             } finally {
-                // Best-effort cleanup:
-                // - если callback не успел сняться (например, не пришло событие) — удаляем руками
-                for (UUID jobId : stageJobs) {
-                    hub.unregister(jobId);
+                deadlines.close();
+                cleanupStage(hub, stageJobs, tickets);
+            }
+        }
+    }
+
+    private void awaitWorkerGraph(CompletableFuture<Void> graphFinished) throws OperationIncompleteException {
+        try {
+            graphFinished.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            // новые worker'ы не запускаются, запущенные job'ы снимаются из scheduler
+            graphFinished.completeExceptionally(ie);
+            throw new OperationIncompleteException("Interrupted while waiting worker graph of node " + graphNodeRef, ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof OperationIncompleteException) throw (OperationIncompleteException) cause;
+            throw new OperationIncompleteException(cause);
+        }
+    }
+
+    /**
+     * Выполнение pipeline по графу depends_on: worker запускается сразу после успешного завершения
+     * всех своих зависимостей (callback терминального события в hub). После первой ошибки новые worker'ы
+     * не запускаются; future завершается ошибкой, когда завершатся все уже запущенные job'ы.
+     */
+    private CompletableFuture<Void> runWorkerGraph(SchedulerTerminalHub hub, PipelinePlan.WorkerGraph graph) {
+        WorkerGraphRun run = new WorkerGraphRun(hub, graph);
+        run.start();
+        return run.finished;
+    }
+
+    /**
+     * Состояние одного выполнения {@link PipelinePlan.WorkerGraph}.
+     */
+    private final class WorkerGraphRun {
+        final CompletableFuture<Void> finished = new CompletableFuture<>();
+        final SchedulerTerminalHub hub;
+        final PipelinePlan.WorkerGraph graph;
+        final AtomicIntegerArray pendingDependencies;
+        final AtomicInteger remaining;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<UUID> jobs = Collections.synchronizedList(new ArrayList<>());
+        final List<WorkerBulkheads.Ticket> tickets = Collections.synchronizedList(new ArrayList<>());
+        final Deadlines deadlines;
+
+        WorkerGraphRun(SchedulerTerminalHub hub, PipelinePlan.WorkerGraph graph) {
+            this.hub = hub;
+            this.deadlines = new Deadlines(hub);
+            this.graph = graph;
+            this.remaining = new AtomicInteger(graph.size());
+            int[] pending = new int[graph.size()];
+            for (int i = 0; i < pending.length; i++) pending[i] = graph.getDependencyCount(i);
+            this.pendingDependencies = new AtomicIntegerArray(pending);
+        }
+
+        void start() {
+            finished.whenComplete((ignored, error) -> {
+                deadlines.close();
+                failure.compareAndSet(null, error);
+                cleanupStage(hub, jobs, tickets);
+            });
+            if (graph.size() == 0) {
+                finished.complete(null);
+                return;
+            }
+            // защитный счётчик: future не завершится, пока не запланированы все стартовые worker'ы
+            inFlight.incrementAndGet();
+            try {
+                for (int i = 0; i < graph.size(); i++) {
+                    if (graph.getDependencyCount(i) == 0) schedule(i);
                 }
-                // - чистим задачи из scheduler registry
-                for (UUID jobId : stageJobs) {
-                    try { scheduler.removeTask(jobId); } catch (Throwable ignore) {}
+            } finally {
+                finishTask();
+            }
+        }
+
+        /**
+         * Запуск worker'а переносится в пул запуска ({@link PipelineExecutionSettings#getLauncher()}):
+         * schedule вызывается и из callback'а терминального события, т.е. в потоке событий scheduler'а,
+         * а рутина может создаваться долго — listener не должен выполнять код модулей.
+         */
+        private void schedule(int index) {
+            if (failure.get() != null) return;
+            // срок стадии идёт с момента, когда первый её worker готов к запуску
+            deadlines.startStage(graph.getStage(index));
+            inFlight.incrementAndGet();
+            try {
+                settings.getLauncher().execute(() -> launch(index));
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        private void launch(int index) {
+            if (failure.get() != null) {
+                finishTask();
+                return;
+            }
+            PipelinePlan.StagePlan stagePlan = graph.getStage(index);
+            PipelinePlan.WorkerPlan workerPlan = graph.getWorker(index);
+            try {
+                HealthFlagProxy health = HealthFlagProxy.newBuilder().build();
+                WorkflowRoutineInterface routine = createRoutine(stagePlan, workerPlan, health);
+
+                WorkerBulkheads.Ticket ticket = submitWorker(stagePlan, workerPlan, routine, jobId -> {
+                    jobs.add(jobId);
+                    hub.register(jobId, () -> onTerminal(index, jobId, health));
+                    hub.maybeFireIfTerminal(scheduler, jobId);
+                    deadlines.watch(jobId, stagePlan, workerPlan);
+
+                    logger.info("Scheduled workflowRoutine worker={} stage={} jobId={} (dependencies resolved)",
+                            workerPlan.getName(), stagePlan.getStageId(), jobId);
+                }, this::fail);
+                tickets.add(ticket);
+                deadlines.watchQueued(stagePlan, workerPlan, ticket, this::fail);
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        /**
+         * Ошибка worker'а без терминального события: фиксируем её и снимаем worker'ы, ждущие permit.
+         */
+        private void fail(Throwable t) {
+            failure.compareAndSet(null, t);
+            abandonQueued();
+            finishTask();
+        }
+
+        /**
+         * После ошибки worker'ы, ещё ждущие permit bulkhead'а, не запускаются и не держат future.
+         */
+        private void abandonQueued() {
+            List<WorkerBulkheads.Ticket> snapshot;
+            synchronized (tickets) {
+                snapshot = new ArrayList<>(tickets);
+            }
+            for (WorkerBulkheads.Ticket ticket : snapshot) {
+                if (ticket.cancelQueued()) finishTask();
+            }
+        }
+
+        private void onTerminal(int index, UUID jobId, HealthFlagProxy health) {
+            try {
+                validateJob(jobId, health, deadlines);
+                if (remaining.decrementAndGet() == 0) {
+                    finished.complete(null);
+                    return;
                 }
+                for (int dependent : graph.getDependents(index)) {
+                    if (pendingDependencies.decrementAndGet(dependent) == 0) schedule(dependent);
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                abandonQueued();
+            } finally {
+                finishTask();
             }
         }
 
-        // Метрика длительности pipeline на ноду — один раз по завершению pipeline
-        if (Configuration.PUBLISH_NODE_PIPELINE_EXECUTION_TIME && startMs != null) {
-            long dur = System.currentTimeMillis() - startMs;
-            PrometheusMetricsAgent.getInstance()
-                    .publishNodePipelineExecutionTime(dur, nodeItemId, nodeItemName, nodePath);
+        private void finishTask() {
+            if (inFlight.decrementAndGet() == 0 && failure.get() != null) {
+                finished.completeExceptionally(failure.get());
+            }
+        }
+    }
+
+    /**
+     * Сроки timeout_ms одного выполнения стадии или графа worker'ов.
+     * <p>
+     * Срок worker'а отсчитывается от постановки job'а в scheduler, срок стадии — от её старта ({@link #startStage}):
+     * время ожидания permit'а bulkhead'а входит в срок стадии. Worker'ы стадии, к истечению срока ещё ждущие
+     * permit, снимаются из очереди и завершаются ошибкой TIMEOUT. По истечении срока job помечается как TIMEOUT, его callback в hub вызывается сразу (стадия / граф
+     * не ждут зависшую рутину), а scheduler получает removeTask с grace {@link PipelineExecutionSettings#getStopGraceMillis()} (pipelineStopGrace):
+     * WorkflowRoutineTask.onStopRequested() прерывает поток рутины.
+     * После close() новые TIMEOUT не появляются — результат проверяется по зафиксированному состоянию.
+     */
+    private final class Deadlines {
+        private final SchedulerTerminalHub hub;
+        private final Map<UUID, String> timedOut = new ConcurrentHashMap<>();
+        private final Map<PipelinePlan.StagePlan, StageDeadline> stageDeadlines = new ConcurrentHashMap<>();
+        private final List<ScheduledFuture<?>> timers = new ArrayList<>();
+        private boolean closed;
+
+        Deadlines(SchedulerTerminalHub hub) {
+            this.hub = hub;
+        }
+
+        /**
+         * Запускает отсчёт timeout_ms стадии (повторный вызов для той же стадии ничего не делает).
+         */
+        void startStage(PipelinePlan.StagePlan stagePlan) {
+            if (stagePlan.getTimeoutMs() > 0) stageDeadlines.computeIfAbsent(stagePlan, this::startStageDeadline);
+        }
+
+        /**
+         * Следит за тикетом worker'а, ждущим permit: если срок стадии истечёт раньше выдачи permit'а,
+         * тикет снимается из очереди, а onExpired получает ошибку TIMEOUT (job'а у такого worker'а не будет).
+         */
+        void watchQueued(PipelinePlan.StagePlan stagePlan, PipelinePlan.WorkerPlan workerPlan,
+                         WorkerBulkheads.Ticket ticket, Consumer<Throwable> onExpired) {
+            if (stagePlan.getTimeoutMs() <= 0) return;
+            StageDeadline stageDeadline = stageDeadlines.computeIfAbsent(stagePlan, this::startStageDeadline);
+            QueuedWorker queued = new QueuedWorker(workerPlan.getName(), ticket, onExpired);
+            boolean expired;
+            synchronized (stageDeadline) {
+                expired = stageDeadline.expired;
+                if (!expired) stageDeadline.queued.add(queued);
+            }
+            if (expired) expireQueued(queued, stagePlan, stageDeadline.reason);
+        }
+
+        private void expireQueued(QueuedWorker queued, PipelinePlan.StagePlan stagePlan, String reason) {
+            synchronized (this) {
+                if (closed) return;
+            }
+            // permit уже выдан — дальше срок отслеживается по job'у
+            if (!queued.ticket.cancelQueued()) return;
+            logger.warn("{}; worker {} was still waiting for a concurrency permit and is marked as {}",
+                    reason, queued.workerName, JobState.TIMEOUT);
+            queued.onExpired.accept(new OperationIncompleteException(
+                    "Worker " + queued.workerName + " of stage " + stagePlan.getStageId() + " ended with state " + JobState.TIMEOUT
+                            + " while waiting for a concurrency permit: " + reason,
+                    new OperationTimedOutException(reason)));
+        }
+
+        void watch(UUID jobId, PipelinePlan.StagePlan stagePlan, PipelinePlan.WorkerPlan workerPlan) {
+            if (stagePlan.getTimeoutMs() > 0) {
+                StageDeadline stageDeadline = stageDeadlines.computeIfAbsent(stagePlan, this::startStageDeadline);
+                boolean expired;
+                synchronized (stageDeadline) {
+                    expired = stageDeadline.expired;
+                    if (!expired) stageDeadline.jobs.add(jobId);
+                }
+                // в графе worker'ов job стадии может стартовать уже после истечения её срока
+                if (expired) expire(jobId, stageDeadline.reason);
+            }
+            long timeoutMs = workerPlan.getTimeoutMs();
+            if (timeoutMs > 0) {
+                String reason = "Worker " + workerPlan.getName() + " of stage " + stagePlan.getStageId() + " exceeded timeout_ms=" + timeoutMs;
+                schedule(() -> expire(jobId, reason), timeoutMs);
+            }
+        }
+
+        private StageDeadline startStageDeadline(PipelinePlan.StagePlan stagePlan) {
+            StageDeadline stageDeadline = new StageDeadline("Stage " + stagePlan.getStageId() + " exceeded timeout_ms=" + stagePlan.getTimeoutMs());
+            schedule(() -> {
+                List<UUID> jobs;
+                List<QueuedWorker> queued;
+                synchronized (stageDeadline) {
+                    stageDeadline.expired = true;
+                    jobs = new ArrayList<>(stageDeadline.jobs);
+                    queued = new ArrayList<>(stageDeadline.queued);
+                }
+                for (QueuedWorker worker : queued) expireQueued(worker, stagePlan, stageDeadline.reason);
+                for (UUID jobId : jobs) expire(jobId, stageDeadline.reason);
+            }, stagePlan.getTimeoutMs());
+            return stageDeadline;
+        }
+
+        private synchronized void schedule(Runnable action, long timeoutMs) {
+            if (closed) return;
+            timers.add(DEADLINE_TIMER.schedule(action, timeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        private void expire(UUID jobId, String reason) {
+            synchronized (this) {
+                if (closed || timedOut.containsKey(jobId)) return;
+                JobInfo info;
+                try {
+                    info = scheduler.query(jobId).orElse(null);
+                } catch (Throwable t) {
+                    return;
+                }
+                // job уже завершился (или снят) — отменять нечего
+                if (info == null || isTerminal(info.state)) return;
+                timedOut.put(jobId, reason);
+            }
+            logger.warn("{}; jobId={} marked as {} and cancelled with grace {} ms",
+                    reason, jobId, JobState.TIMEOUT, settings.getStopGraceMillis());
+            hub.fire(jobId);
+            try {
+                scheduler.removeTask(jobId, Duration.ofMillis(settings.getStopGraceMillis()));
+            } catch (Throwable t) {
+                logger.warn("Failed to cancel timed out job {}", jobId, t);
+            }
+        }
+
+        /**
+         * Причина TIMEOUT или null, если срок job'а не истёк.
+         */
+        String getTimeout(UUID jobId) {
+            return timedOut.get(jobId);
+        }
+
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            for (ScheduledFuture<?> timer : timers) timer.cancel(false);
+            timers.clear();
+        }
+    }
+
+    private static final class StageDeadline {
+        final String reason;
+        final List<UUID> jobs = new ArrayList<>();
+        final List<QueuedWorker> queued = new ArrayList<>();
+        boolean expired;
+
+        StageDeadline(String reason) {
+            this.reason = reason;
+        }
+    }
+
+    private static final class QueuedWorker {
+        final String workerName;
+        final WorkerBulkheads.Ticket ticket;
+        final Consumer<Throwable> onExpired;
+
+        QueuedWorker(String workerName, WorkerBulkheads.Ticket ticket, Consumer<Throwable> onExpired) {
+            this.workerName = workerName;
+            this.ticket = ticket;
+            this.onExpired = onExpired;
+        }
+    }
+
+    /**
+     * Асинхронный вариант runPipeline: поток не блокируется на ожидании стадий.
+     * Стадия N+1 запускается после завершения последнего job'а стадии N: callback в потоке событий scheduler'а
+     * только передаёт её запуск (создание рутин и addTask) в пул запуска из {@link PipelineExecutionSettings}.
+     * Итоговый future завершается после последней стадии.
+     * Inline-режим (pipelineInlineExecution) здесь не применяется: выполнение worker'а
+     * в потоке событий scheduler'а задержало бы доставку событий другим pipeline.
+     */
+    @Override
+    public CompletableFuture<Void> runPipelineAsync() {
+        try {
+            logger.debug("Run Pipeline async for node {}", graphNodeRef);
+
+            final SchedulerTerminalHub hub = hubFor(this.scheduler);
+            final long startMs = System.currentTimeMillis();
+
+            PipelinePlan plan = getPipelinePlan();
+
+            CompletableFuture<Void> chain;
+            if (plan.getWorkerGraph() != null) {
+                chain = runWorkerGraph(hub, plan.getWorkerGraph());
+            } else {
+                chain = CompletableFuture.completedFuture(null);
+                for (PipelinePlan.StagePlan stagePlan : plan.getStages()) {
+                    if (stagePlan.getWorkers().isEmpty()) {
+                        logger.info("Stage {} has no workers — skipping", stagePlan.getStageId());
+                        continue;
+                    }
+                    // стадия стартует в пуле запуска, а не в потоке событий scheduler'а
+                    chain = chain.thenComposeAsync(ignored -> runStageAsync(hub, stagePlan), settings.getLauncher());
+                }
+            }
+
+            return chain.thenRun(() -> {
+                if (settings.isPublishExecutionTime()) {
+                    try {
+                        publishPipelineExecutionTime(System.currentTimeMillis() - startMs);
+                    } catch (OperationIncompleteException e) {
+                        throw new CompletionException(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
+    private CompletableFuture<Void> runStageAsync(SchedulerTerminalHub hub, PipelinePlan.StagePlan stagePlan) {
+        final List<PipelinePlan.WorkerPlan> workers = stagePlan.getWorkers();
+        final CompletableFuture<Void> stageFinished = new CompletableFuture<>();
+        final AtomicInteger remaining = new AtomicInteger(workers.size());
+        final List<UUID> stageJobs = Collections.synchronizedList(new ArrayList<>(workers.size()));
+        final List<WorkerBulkheads.Ticket> tickets = new ArrayList<>(workers.size());
+        final Map<UUID, HealthFlagProxy> healthByJob = new ConcurrentHashMap<>();
+        final Deadlines deadlines = new Deadlines(hub);
+        deadlines.startStage(stagePlan);
+
+        try {
+            for (PipelinePlan.WorkerPlan workerPlan : workers) {
+                HealthFlagProxy health = HealthFlagProxy.newBuilder().build();
+                WorkflowRoutineInterface routine = createRoutine(stagePlan, workerPlan, health);
+
+                WorkerBulkheads.Ticket ticket = submitWorker(stagePlan, workerPlan, routine, jobId -> {
+                    stageJobs.add(jobId);
+                    healthByJob.put(jobId, health);
+
+                    hub.register(jobId, () -> {
+                        if (remaining.decrementAndGet() == 0) stageFinished.complete(null);
+                    });
+                    hub.maybeFireIfTerminal(scheduler, jobId);
+                    deadlines.watch(jobId, stagePlan, workerPlan);
+
+                    logger.info("Scheduled workflowRoutine worker={} stage={} jobId={}",
+                            workerPlan.getName(), stagePlan.getStageId(), jobId);
+                }, stageFinished::completeExceptionally);
+                tickets.add(ticket);
+                deadlines.watchQueued(stagePlan, workerPlan, ticket, stageFinished::completeExceptionally);
+            }
+        } catch (Exception e) {
+            deadlines.close();
+            cleanupStage(hub, stageJobs, tickets);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return stageFinished
+                .thenRun(() -> {
+                    deadlines.close();
+                    try {
+                        validateStage(stageJobs, healthByJob, deadlines);
+                    } catch (OperationIncompleteException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((ignored, error) -> {
+                    deadlines.close();
+                    cleanupStage(hub, stageJobs, tickets);
+                });
+    }
+
+    private void validateStage(List<UUID> stageJobs, Map<UUID, HealthFlagProxy> healthByJob, Deadlines deadlines) throws OperationIncompleteException {
+        for (UUID jobId : stageJobs) {
+            validateJob(jobId, healthByJob.get(jobId), deadlines);
+        }
+    }
+
+    private void validateJob(UUID jobId, HealthFlagProxy health, Deadlines deadlines) throws OperationIncompleteException {
+        // просроченный job мог быть уже снят из scheduler, поэтому TIMEOUT проверяется до query
+        String timeout = deadlines.getTimeout(jobId);
+        if (timeout != null) {
+            throw new OperationIncompleteException("Job " + jobId + " ended with state " + JobState.TIMEOUT + ": " + timeout,
+                    new OperationTimedOutException(timeout));
+        }
+
+        JobInfo info = scheduler.query(jobId).orElse(null);
+        if (info == null) {
+            throw new OperationIncompleteException("Job " + jobId + " not found after stage completion");
+        }
+        if (info.state != JobState.COMPLETED) {
+            String err = (info.lastError != null)
+                    ? info.lastError
+                    : ("Job " + jobId + " ended with state " + info.state);
+            throw new OperationIncompleteException(err);
+        }
+
+        if (health == null || health.getHealthFlagState() != HealthFlagState.COMPLETE) {
+            throw new OperationIncompleteException("Job " + jobId + " is not in COMPLETE health state");
+        }
+    }
+
+    private void cleanupStage(SchedulerTerminalHub hub, List<UUID> stageJobs, List<WorkerBulkheads.Ticket> tickets) {
+        // Best-effort cleanup:
+        // - worker'ы, ещё ждущие permit (или не начавшие выполняться), освобождают его
+        List<WorkerBulkheads.Ticket> ticketSnapshot;
+        synchronized (tickets) {
+            ticketSnapshot = new ArrayList<>(tickets);
+        }
+        for (WorkerBulkheads.Ticket ticket : ticketSnapshot) {
+            ticket.cancel();
+        }
+        List<UUID> jobSnapshot;
+        synchronized (stageJobs) {
+            jobSnapshot = new ArrayList<>(stageJobs);
+        }
+        // - если callback не успел сняться (например, не пришло событие) — удаляем руками
+        for (UUID jobId : jobSnapshot) {
+            hub.unregister(jobId);
+        }
+        // - чистим задачи из scheduler registry
+        for (UUID jobId : jobSnapshot) {
+            try { scheduler.removeTask(jobId); } catch (Throwable ignore) {}
+        }
+    }
+
+    /**
+     * Ставит worker в scheduler, когда bulkhead'ы его стадии и типа выдадут permit: сразу в текущем потоке
+     * или позже — потоком, освободившим permit. onScheduled получает jobId сразу после addTask,
+     * onError — ошибку addTask (терминального события для такого worker'а не будет).
+     */
+    private WorkerBulkheads.Ticket submitWorker(PipelinePlan.StagePlan stagePlan,
+                                                PipelinePlan.WorkerPlan workerPlan,
+                                                WorkflowRoutineInterface routine,
+                                                Consumer<UUID> onScheduled,
+                                                Consumer<Throwable> onError) {
+        return settings.getBulkheads().acquire(stagePlan.getStageId(), workerPlan.getName(), ticket -> {
+            UUID jobId;
+            try {
+                jobId = scheduler.addTask(new WorkflowRoutineTask(routine, ticket));
+            } catch (Throwable t) {
+                ticket.release();
+                onError.accept(t);
+                return;
+            }
+            onScheduled.accept(jobId);
+        });
+    }
+
+    private void publishPipelineExecutionTime(long durationMs) throws OperationIncompleteException {
+        NodeItem nodeItem = fullProjectRepository.getNode(graphNodeRef);
+
+        // node_path нужен, но строим его один раз на весь pipeline
+        int size = pathToCurrentExecutionNodeRef.size();
+        StringBuilder sb = new StringBuilder(size * 24);
+        sb.append("[ ");
+        boolean first = true;
+        for (GraphNodeRef ref : pathToCurrentExecutionNodeRef) {
+            NodeItem node = fullProjectRepository.getNode(ref);
+            if (!first) sb.append(" ] - [ ");
+            sb.append(node.getName());
+            first = false;
+        }
+        sb.append(" ]");
+
+        PrometheusMetricsAgent.getInstance()
+                .publishNodePipelineExecutionTime(durationMs, nodeItem.getId(), nodeItem.getName(), sb.toString());
+    }
+
+    private boolean isInlineLastWorker(int workers) {
+        return switch (settings.getInlineExecution()) {
+            case PipelineExecutionSettings.INLINE_LAST -> true;
+            case PipelineExecutionSettings.INLINE_SINGLE -> workers == 1;
+            default -> false;
+        };
+    }
+
+    private WorkflowRoutineInterface createRoutine(PipelinePlan.StagePlan stagePlan,
+                                                   PipelinePlan.WorkerPlan workerPlan,
+                                                   HealthFlagProxy health) throws OperationIncompleteException {
+        final ModuleHandle moduleHandle = (workerPlan.getModuleHandle() != null)
+                ? workerPlan.getModuleHandle()
+                : moduleLoader.resolveModule(workerPlan.getName());
+        final String instanceKey = workerPlan.getInstanceKey();
+        final WorkflowRoutineInterface routine = moduleLoader.getModule(
+                moduleHandle,
+                instanceKey,
+                MCg3WorkflowRoutineApi.newBuilder()
+                        .setStorageApi(new StorageApi(storageManager, graphNodeRef, fullProjectRepository))
+                        .setConfigurationParameters(workerPlan.getConfigurationParameters())
+                        .setExecutionContext(executionContextFactory.getExecutionContext(
+                                graphNodeRef, pathToCurrentExecutionNodeRef,
+                                stagePlan.getStage(), workerPlan.getWorker(), stagePlan.getStageConsistency()
+                        ))
+                        .build(),
+                health
+        );
+        return () -> {
+            routine.run();
+            // в пул переиспользуемых экземпляров возвращаем только успешно отработавшую рутину
+            if (health.getHealthFlagState() == HealthFlagState.COMPLETE) {
+                moduleLoader.releaseModule(moduleHandle, instanceKey, routine);
+            }
+        };
+    }
+
+    /**
+     * Inline fast path: worker выполняется в текущем потоке, без addTask / hub / query / removeTask.
+     * Проверка результата та же, что для job'а из scheduler: исключение рутины = FAILED, затем HealthFlag.
+     *
+     * @return ошибка worker'а или null при успешном завершении
+     */
+    private OperationIncompleteException runInline(PipelinePlan.StagePlan stagePlan, PipelinePlan.WorkerPlan workerPlan) {
+        String workerName = workerPlan.getName();
+        HealthFlagProxy health = HealthFlagProxy.newBuilder().build();
+        try {
+            WorkflowRoutineInterface routine = createRoutine(stagePlan, workerPlan, health);
+            logger.info("Run inline workflowRoutine worker={} stage={}", workerName, stagePlan.getStageId());
+            routine.run();
+        } catch (Exception e) {
+            String err = (e.getMessage() != null) ? e.getMessage() : e.toString();
+            return new OperationIncompleteException("Inline worker " + workerName + " of stage " + stagePlan.getStageId() + " failed: " + err, e);
+        }
+        if (health.getHealthFlagState() != HealthFlagState.COMPLETE) {
+            return new OperationIncompleteException("Inline worker " + workerName + " of stage " + stagePlan.getStageId() + " is not in COMPLETE health state");
+        }
+        return null;
+    }
+
     public void close() {
         if (ownsScheduler) {
             try { scheduler.close(); } catch (Exception ignored) {}
@@ -363,24 +1005,53 @@ public class PipelineManager implements PipelineManagerInterface {
 
     /**
      * Адаптер: WorkflowRoutineInterface -> ImmediateScheduler.Task
+     * <p>
+     * У WorkflowRoutineInterface нет своего метода остановки, поэтому кооперативная отмена —
+     * прерывание потока рутины: долгие рутины проверяют Thread.isInterrupted() / обрабатывают InterruptedException.
      */
     private static final class WorkflowRoutineTask implements Task {
         private final WorkflowRoutineInterface routine;
+        // permit'ы bulkhead'ов держатся, пока рутина реально выполняется
+        private final WorkerBulkheads.Ticket ticket;
+        // поток, выполняющий рутину; доступ под this
+        private Thread runner;
+        private boolean stopRequested;
 
-        private WorkflowRoutineTask(WorkflowRoutineInterface routine) {
+        private WorkflowRoutineTask(WorkflowRoutineInterface routine, WorkerBulkheads.Ticket ticket) {
             this.routine = Objects.requireNonNull(routine, "routine");
+            this.ticket = Objects.requireNonNull(ticket, "ticket");
         }
 
         @Override
         public void run(CancellationToken token) throws Exception {
-            token.throwIfStopRequested();
-            routine.run();
-            token.throwIfStopRequested();
+            try {
+                token.throwIfStopRequested();
+                if (!ticket.enter()) {
+                    throw new CancellationException("Concurrency permit of the worker was released before start");
+                }
+                synchronized (this) {
+                    runner = Thread.currentThread();
+                    if (stopRequested) runner.interrupt();
+                }
+                try {
+                    routine.run();
+                } finally {
+                    synchronized (this) {
+                        runner = null;
+                        // не оставляем флаг прерывания потоку scheduler'а — отмена видна через token
+                        if (stopRequested) Thread.interrupted();
+                    }
+                }
+                token.throwIfStopRequested();
+            } finally {
+                ticket.release();
+            }
         }
 
         @Override
-        public void onStopRequested() {
-            // Если появится кооперативная остановка рутины — подключить здесь.
+        public synchronized void onStopRequested() {
+            stopRequested = true;
+            if (runner != null) runner.interrupt();
         }
     }
 }
\ No newline at end of file
@@ -20,6 +20,8 @@ public class PipelineManagerFactory implements PipelineManagerFactoryInterface {
     private StorageManagerInterface storageManager = null;
     private PathManagerInterface pathManager = null;
     private Class<? extends PipelineManagerInterface> pipelineManagerClazz = null;
+    // скомпилированные планы pipeline, общие для всех PipelineManager этой фабрики
+    private final PipelinePlanCache pipelinePlanCache = new PipelinePlanCache();
 
     public PipelineManagerFactory(Class<? extends PipelineManagerInterface> clazz) throws OperationIncompleteException {
         try {
@@ -45,7 +47,7 @@ public class PipelineManagerFactory implements PipelineManagerFactoryInterface {
             if (pipelineManagerClazz != null) {
                 pipelineManager = pipelineManagerClazz.getDeclaredConstructor().newInstance();
             } else {
-                pipelineManager = new PipelineManager(currentExecutionNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager, pathManager, executionContextFactory);
+                pipelineManager = new PipelineManager(currentExecutionNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager, pathManager, executionContextFactory, pipelinePlanCache);
                 return pipelineManager;
             }
         } catch (Exception e) {
@@ -61,7 +63,7 @@ public class PipelineManagerFactory implements PipelineManagerFactoryInterface {
             if (pipelineManagerClazz != null) {
                 pipelineManager = pipelineManagerClazz.getDeclaredConstructor().newInstance();
             } else {
-                pipelineManager = new PipelineManager(currentExecutionNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager, pathManager, executionContextFactory, scheduler, listeners);
+                pipelineManager = new PipelineManager(currentExecutionNodeRef, pathToCurrentExecutionNodeRef, fullProjectRepository, moduleLoader, storageManager, pathManager, executionContextFactory, pipelinePlanCache, scheduler, listeners);
                 return pipelineManager;
             }
         } catch (Exception e) {
@@ -69,6 +71,4 @@ public class PipelineManagerFactory implements PipelineManagerFactoryInterface {
         }
         return pipelineManager;
     }
-
-
 }
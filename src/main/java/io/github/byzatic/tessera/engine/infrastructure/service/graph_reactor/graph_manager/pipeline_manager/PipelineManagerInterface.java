@@ -2,6 +2,21 @@ package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gr
 
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface PipelineManagerInterface {
     void runPipeline() throws OperationIncompleteException;
+
+    /**
+     * Неблокирующий запуск pipeline: future завершается, когда отработала последняя стадия.
+     * По умолчанию выполняет runPipeline() синхронно и возвращает уже завершённый future.
+     */
+    default CompletableFuture<Void> runPipelineAsync() {
+        try {
+            runPipeline();
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,368 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.*;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleHandle;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleLoaderInterface;
+import io.github.byzatic.tessera.workflowroutine.configuration.ConfigurationParameter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Неизменяемый скомпилированный план pipeline узла.
+ * <p>
+ * Стадии уже упорядочены по position и связаны со своим описанием, для каждого worker'а
+ * заранее разрешены шаблоны путей конфигурационных файлов и собран список ConfigurationParameter.
+ * План строится один раз и переиспользуется между циклами (см. {@link PipelinePlanCache}).
+ * <p>
+ * Если хотя бы один worker объявил depends_on, дополнительно строится {@link WorkerGraph}:
+ * worker с depends_on зависит только от перечисленных worker'ов, worker без depends_on —
+ * от всех worker'ов предыдущей непустой стадии (тот же барьер, что и при поэтапном выполнении).
+ */
+public final class PipelinePlan {
+    private final GraphNodeRef graphNodeRef;
+    // исходное описание pipeline; по ссылке проверяется актуальность плана после reload()
+    private final NodePipeline source;
+    // версия снимка модулей, по которому разрешены ModuleHandle worker'ов (-1 — handle не разрешались)
+    private final long modulesVersion;
+    private final List<StagePlan> stages;
+    // null, если ни один worker не объявил depends_on
+    private final WorkerGraph workerGraph;
+
+    private PipelinePlan(GraphNodeRef graphNodeRef, NodePipeline source, long modulesVersion, List<StagePlan> stages, WorkerGraph workerGraph) {
+        this.graphNodeRef = graphNodeRef;
+        this.source = source;
+        this.modulesVersion = modulesVersion;
+        this.stages = stages;
+        this.workerGraph = workerGraph;
+    }
+
+    @NotNull
+    public static PipelinePlan compile(@NotNull GraphNodeRef graphNodeRef,
+                                       @NotNull NodePipeline pipeline,
+                                       @NotNull SupportPathResolver pathResolver) throws OperationIncompleteException {
+        return compile(graphNodeRef, pipeline, pathResolver, null);
+    }
+
+    /**
+     * Как {@link #compile(GraphNodeRef, NodePipeline, SupportPathResolver)}, но дополнительно
+     * разрешает ModuleHandle каждого worker'а, чтобы при запуске не искать фабрику по имени.
+     */
+    @NotNull
+    public static PipelinePlan compile(@NotNull GraphNodeRef graphNodeRef,
+                                       @NotNull NodePipeline pipeline,
+                                       @NotNull SupportPathResolver pathResolver,
+                                       @Nullable ModuleLoaderInterface moduleLoader) throws OperationIncompleteException {
+        // версия читается до разрешения handle: при параллельном reload план окажется устаревшим, а не наоборот
+        long modulesVersion = (moduleLoader != null) ? moduleLoader.getModulesVersion() : -1L;
+        List<StagesConsistencyItem> stagesConsistencyItemList = new ArrayList<>(pipeline.getStagesConsistency());
+        stagesConsistencyItemList.sort(Comparator.comparingInt(StagesConsistencyItem::getPosition));
+
+        Map<String, StagesDescriptionItem> stageMap = new HashMap<>();
+        for (StagesDescriptionItem stage : pipeline.getStagesDescription()) {
+            if (stageMap.put(stage.getStageId(), stage) != null) {
+                throw new OperationIncompleteException("Duplicate description of StageId " + stage.getStageId());
+            }
+        }
+
+        List<StagePlan> stages = new ArrayList<>(stagesConsistencyItemList.size());
+        for (StagesConsistencyItem stageConsistency : stagesConsistencyItemList) {
+            StagesDescriptionItem stage = stageMap.get(stageConsistency.getStageId());
+            if (stage == null) {
+                throw new OperationIncompleteException("StageId " + stageConsistency.getStageId() + " hasn't description");
+            }
+
+            long stageTimeoutMs = requireTimeout(stage.getTimeoutMs(), "Stage " + stage.getStageId());
+            List<WorkerPlan> workers = new ArrayList<>();
+            if (stage.getWorkersDescription() != null) {
+                for (WorkersDescriptionItem worker : stage.getWorkersDescription()) {
+                    String instanceKey = graphNodeRef.getNodeUUID() + "/" + stage.getStageId() + "/" + workers.size() + "/" + worker.getName();
+                    List<ConfigurationParameter> cfg = new ArrayList<>();
+                    List<ConfigurationFilesItem> cfgFiles = worker.getConfigurationFiles();
+                    if (cfgFiles != null) {
+                        for (ConfigurationFilesItem f : cfgFiles) {
+                            cfg.add(ConfigurationParameter.newBuilder()
+                                    .parameterKey(f.getDescription())
+                                    .parameterValue(pathResolver.processTemplate(f.getConfigurationFileId()))
+                                    .build());
+                        }
+                    }
+                    long workerTimeoutMs = requireTimeout(worker.getTimeoutMs(), "Worker " + worker.getName() + " of stage " + stage.getStageId());
+                    workers.add(new WorkerPlan(worker, instanceKey,
+                            (moduleLoader != null) ? moduleLoader.resolveModule(worker.getName()) : null,
+                            Collections.unmodifiableList(cfg), workerTimeoutMs));
+                }
+            }
+            stages.add(new StagePlan(stageConsistency, stage, Collections.unmodifiableList(workers), stageTimeoutMs));
+        }
+        return new PipelinePlan(graphNodeRef, pipeline, modulesVersion, Collections.unmodifiableList(stages), compileWorkerGraph(stages));
+    }
+
+    /**
+     * timeout_ms -> мс; 0 — без ограничения.
+     */
+    private static long requireTimeout(@Nullable Long timeoutMs, String owner) throws OperationIncompleteException {
+        if (timeoutMs == null) return 0L;
+        if (timeoutMs <= 0) {
+            throw new OperationIncompleteException(owner + " has non-positive timeout_ms " + timeoutMs);
+        }
+        return timeoutMs;
+    }
+
+    @Nullable
+    private static WorkerGraph compileWorkerGraph(List<StagePlan> stages) throws OperationIncompleteException {
+        boolean declared = false;
+        List<WorkerPlan> workers = new ArrayList<>();
+        List<StagePlan> stageOf = new ArrayList<>();
+        Map<String, Integer> indexByName = new HashMap<>();
+        Set<String> duplicateNames = new HashSet<>();
+        for (StagePlan stage : stages) {
+            for (WorkerPlan worker : stage.getWorkers()) {
+                List<String> dependsOn = worker.getWorker().getDependsOn();
+                if (dependsOn != null && !dependsOn.isEmpty()) declared = true;
+                if (indexByName.put(worker.getName(), workers.size()) != null) duplicateNames.add(worker.getName());
+                workers.add(worker);
+                stageOf.add(stage);
+            }
+        }
+        if (!declared) return null;
+
+        int size = workers.size();
+        List<Set<Integer>> dependencies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) dependencies.add(new LinkedHashSet<>());
+
+        List<Integer> previousStage = List.of();
+        int index = 0;
+        for (StagePlan stage : stages) {
+            List<Integer> currentStage = new ArrayList<>(stage.getWorkers().size());
+            for (WorkerPlan worker : stage.getWorkers()) {
+                List<String> dependsOn = worker.getWorker().getDependsOn();
+                if (dependsOn == null || dependsOn.isEmpty()) {
+                    dependencies.get(index).addAll(previousStage);
+                } else {
+                    for (String name : dependsOn) {
+                        Integer dependency = indexByName.get(name);
+                        if (dependency == null) {
+                            throw new OperationIncompleteException("Worker " + worker.getName() + " of stage " + stage.getStageId() + " depends on unknown worker " + name);
+                        }
+                        if (duplicateNames.contains(name)) {
+                            throw new OperationIncompleteException("Worker " + worker.getName() + " of stage " + stage.getStageId() + " depends on ambiguous worker name " + name);
+                        }
+                        if (dependency == index) {
+                            throw new OperationIncompleteException("Worker " + worker.getName() + " of stage " + stage.getStageId() + " depends on itself");
+                        }
+                        dependencies.get(index).add(dependency);
+                    }
+                }
+                currentStage.add(index);
+                index++;
+            }
+            if (!currentStage.isEmpty()) previousStage = currentStage;
+        }
+
+        int[] dependencyCount = new int[size];
+        List<List<Integer>> dependentLists = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) dependentLists.add(new ArrayList<>());
+        for (int i = 0; i < size; i++) {
+            dependencyCount[i] = dependencies.get(i).size();
+            for (int dependency : dependencies.get(i)) dependentLists.get(dependency).add(i);
+        }
+        int[][] dependents = new int[size][];
+        for (int i = 0; i < size; i++) {
+            dependents[i] = dependentLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // проверка на циклы (алгоритм Кана)
+        int[] pending = dependencyCount.clone();
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) if (pending[i] == 0) ready.add(i);
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            int current = ready.poll();
+            visited++;
+            for (int dependent : dependents[current]) {
+                if (--pending[dependent] == 0) ready.add(dependent);
+            }
+        }
+        if (visited != size) {
+            throw new OperationIncompleteException("Worker dependencies of pipeline contain a cycle");
+        }
+
+        return new WorkerGraph(Collections.unmodifiableList(workers), Collections.unmodifiableList(stageOf), dependencyCount, dependents);
+    }
+
+    public GraphNodeRef getGraphNodeRef() {
+        return graphNodeRef;
+    }
+
+    public NodePipeline getSource() {
+        return source;
+    }
+
+    public long getModulesVersion() {
+        return modulesVersion;
+    }
+
+    /**
+     * Стадии в порядке выполнения.
+     */
+    public List<StagePlan> getStages() {
+        return stages;
+    }
+
+    /**
+     * Граф зависимостей worker'ов или null, если depends_on нигде не объявлен (выполнение по стадиям).
+     */
+    @Nullable
+    public WorkerGraph getWorkerGraph() {
+        return workerGraph;
+    }
+
+    public static final class StagePlan {
+        private final StagesConsistencyItem stageConsistency;
+        private final StagesDescriptionItem stage;
+        private final List<WorkerPlan> workers;
+        private final long timeoutMs;
+
+        private StagePlan(StagesConsistencyItem stageConsistency, StagesDescriptionItem stage, List<WorkerPlan> workers, long timeoutMs) {
+            this.stageConsistency = stageConsistency;
+            this.stage = stage;
+            this.workers = workers;
+            this.timeoutMs = timeoutMs;
+        }
+
+        public StagesConsistencyItem getStageConsistency() {
+            return stageConsistency;
+        }
+
+        public StagesDescriptionItem getStage() {
+            return stage;
+        }
+
+        public String getStageId() {
+            return stage.getStageId();
+        }
+
+        public List<WorkerPlan> getWorkers() {
+            return workers;
+        }
+
+        /**
+         * Предельное время стадии в мс; 0 — без ограничения.
+         */
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        /**
+         * Есть ли у стадии или хотя бы одного её worker'а ограничение времени.
+         */
+        public boolean hasDeadlines() {
+            if (timeoutMs > 0) return true;
+            for (WorkerPlan worker : workers) {
+                if (worker.getTimeoutMs() > 0) return true;
+            }
+            return false;
+        }
+    }
+
+    public static final class WorkerPlan {
+        private final WorkersDescriptionItem worker;
+        private final String instanceKey;
+        private final ModuleHandle moduleHandle;
+        private final List<ConfigurationParameter> configurationParameters;
+        private final long timeoutMs;
+
+        private WorkerPlan(WorkersDescriptionItem worker, String instanceKey, ModuleHandle moduleHandle, List<ConfigurationParameter> configurationParameters, long timeoutMs) {
+            this.worker = worker;
+            this.instanceKey = instanceKey;
+            this.moduleHandle = moduleHandle;
+            this.configurationParameters = configurationParameters;
+            this.timeoutMs = timeoutMs;
+        }
+
+        public WorkersDescriptionItem getWorker() {
+            return worker;
+        }
+
+        public String getName() {
+            return worker.getName();
+        }
+
+        /**
+         * Ключ места worker'а в pipeline (node/stage/index/name) для переиспользуемых рутин.
+         */
+        public String getInstanceKey() {
+            return instanceKey;
+        }
+
+        /**
+         * Разрешённая фабрика worker'а или null, если план собран без ModuleLoader.
+         */
+        @Nullable
+        public ModuleHandle getModuleHandle() {
+            return moduleHandle;
+        }
+
+        /**
+         * Параметры с уже разрешёнными путями (неизменяемый список).
+         */
+        public List<ConfigurationParameter> getConfigurationParameters() {
+            return configurationParameters;
+        }
+
+        /**
+         * Предельное время worker'а в мс; 0 — без ограничения.
+         */
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+    }
+
+    /**
+     * Worker'ы всех стадий с плотными индексами 0..size()-1 и рёбрами зависимостей между ними.
+     * Массивы, возвращаемые getDependents(), не копируются и не должны изменяться.
+     */
+    public static final class WorkerGraph {
+        private final List<WorkerPlan> workers;
+        private final List<StagePlan> stageOf;
+        private final int[] dependencyCount;
+        private final int[][] dependents;
+
+        private WorkerGraph(List<WorkerPlan> workers, List<StagePlan> stageOf, int[] dependencyCount, int[][] dependents) {
+            this.workers = workers;
+            this.stageOf = stageOf;
+            this.dependencyCount = dependencyCount;
+            this.dependents = dependents;
+        }
+
+        public int size() {
+            return workers.size();
+        }
+
+        public WorkerPlan getWorker(int index) {
+            return workers.get(index);
+        }
+
+        public StagePlan getStage(int index) {
+            return stageOf.get(index);
+        }
+
+        /**
+         * Количество worker'ов, которые должны завершиться до запуска worker'а index.
+         */
+        public int getDependencyCount(int index) {
+            return dependencyCount[index];
+        }
+
+        /**
+         * Индексы worker'ов, ожидающих worker index.
+         */
+        public int[] getDependents(int index) {
+            return dependents[index];
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.NodePipeline;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш скомпилированных {@link PipelinePlan} по GraphNodeRef.
+ * <p>
+ * Кэш ключуется версией: план считается актуальным, пока репозиторий отдаёт тот же экземпляр
+ * NodePipeline и не сменилась версия снимка модулей (ModuleLoader.reload()). Явного сброса нет —
+ * после Reloadable.reload() репозиторий отдаёт новые описания, и устаревший план отбрасывается
+ * при первом обращении к узлу.
+ */
+public class PipelinePlanCache {
+    private static final Logger logger = LoggerFactory.getLogger(PipelinePlanCache.class);
+
+    private final Map<GraphNodeRef, PipelinePlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * План для узла или null, если его нет или он построен по другому NodePipeline / снимку модулей.
+     */
+    @Nullable
+    public PipelinePlan get(@NotNull GraphNodeRef graphNodeRef, @NotNull NodePipeline source, long modulesVersion) {
+        PipelinePlan plan = plans.get(graphNodeRef);
+        if (plan == null) return null;
+        if (plan.getSource() != source || plan.getModulesVersion() != modulesVersion) {
+            plans.remove(graphNodeRef, plan);
+            logger.debug("Pipeline plan for {} is stale and dropped", graphNodeRef);
+            return null;
+        }
+        return plan;
+    }
+
+    public void put(@NotNull PipelinePlan plan) {
+        plans.put(plan.getGraphNodeRef(), plan);
+    }
+}
@@ -0,0 +1,242 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Bulkhead'ы worker'ов: ограничение числа одновременно выполняемых рутин одного типа (имя worker'а)
+ * и одной стадии (stage_id) по всему графу.
+ * <p>
+ * Permit'ы выдаются без блокировки потоков: если лимит исчерпан, запрос встаёт в FIFO-очередь,
+ * а действие запуска выполняет поток, освободивший permit. Permit'ы берутся в фиксированном порядке
+ * (стадия, затем тип worker'а), и уже взятый permit при ожидании следующего не возвращается: worker,
+ * ждущий permit своего типа, занимает место в лимите стадии, хотя ещё не выполняется. Взаимных ожиданий
+ * при этом нет — permit типа берётся последним, поэтому его держат только запущенные (или запускаемые)
+ * рутины, а они освобождают permit'ы по завершении. Снятие тикета из очереди возвращает и permit стадии.
+ * Состояние меняется под монитором экземпляра, действия запуска вызываются вне его.
+ */
+public final class WorkerBulkheads {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerBulkheads.class);
+
+    /**
+     * Наблюдатель времени ожидания permit'а (метрики); вызывается только для worker'ов под лимитом.
+     */
+    @FunctionalInterface
+    public interface PermitWaitListener {
+        void onPermitWait(String workerName, String stageId, long waitMillis);
+    }
+
+    private enum TicketState {QUEUED, GRANTED, RUNNING, RELEASED}
+
+    private final Map<String, Bulkhead> workerBulkheads;
+    private final Map<String, Bulkhead> stageBulkheads;
+    private final PermitWaitListener waitListener;
+
+    public WorkerBulkheads(@NotNull Map<String, Integer> workerLimits,
+                           @NotNull Map<String, Integer> stageLimits,
+                           @Nullable PermitWaitListener waitListener) {
+        this.workerBulkheads = buildBulkheads("worker", workerLimits);
+        this.stageBulkheads = buildBulkheads("stage", stageLimits);
+        this.waitListener = waitListener;
+    }
+
+    private static Map<String, Bulkhead> buildBulkheads(String scope, Map<String, Integer> limits) {
+        Map<String, Bulkhead> bulkheads = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : limits.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() < 1) {
+                throw new IllegalArgumentException("Concurrency limit of " + scope + " " + entry.getKey() + " should be positive; limit= " + entry.getValue());
+            }
+            bulkheads.put(entry.getKey(), new Bulkhead(scope + " " + entry.getKey(), entry.getValue()));
+        }
+        return Collections.unmodifiableMap(bulkheads);
+    }
+
+    /**
+     * Попадает ли worker под какой-либо лимит.
+     */
+    public boolean isLimited(String stageId, String workerName) {
+        return stageBulkheads.containsKey(stageId) || workerBulkheads.containsKey(workerName);
+    }
+
+    /**
+     * Запрашивает permit'ы стадии и типа worker'а. onGranted вызывается не более одного раза:
+     * сразу в текущем потоке, если лимиты позволяют, иначе — потоком, освободившим permit.
+     * Без лимитов возвращается общий no-op тикет.
+     */
+    @NotNull
+    public Ticket acquire(String stageId, String workerName, @NotNull Consumer<Ticket> onGranted) {
+        Bulkhead stage = stageBulkheads.get(stageId);
+        Bulkhead worker = workerBulkheads.get(workerName);
+        if (stage == null && worker == null) {
+            onGranted.accept(Ticket.UNLIMITED);
+            return Ticket.UNLIMITED;
+        }
+        List<Bulkhead> required = (stage == null) ? List.of(worker) : (worker == null) ? List.of(stage) : List.of(stage, worker);
+        Ticket ticket = new Ticket(this, stageId, workerName, required, onGranted);
+        boolean granted;
+        synchronized (this) {
+            granted = advance(ticket);
+        }
+        if (granted) {
+            grant(ticket);
+        } else {
+            logger.debug("Worker {} of stage {} is waiting for a concurrency permit", workerName, stageId);
+        }
+        return ticket;
+    }
+
+    /**
+     * Берёт оставшиеся permit'ы тикета по порядку; при нехватке ставит тикет в очередь bulkhead'а.
+     * Вызывается под this.
+     */
+    private boolean advance(Ticket ticket) {
+        while (ticket.acquired < ticket.required.size()) {
+            Bulkhead bulkhead = ticket.required.get(ticket.acquired);
+            if (bulkhead.inUse < bulkhead.limit && bulkhead.waiting.isEmpty()) {
+                bulkhead.inUse++;
+                ticket.acquired++;
+            } else {
+                bulkhead.waiting.add(ticket);
+                ticket.state = TicketState.QUEUED;
+                return false;
+            }
+        }
+        ticket.state = TicketState.GRANTED;
+        return true;
+    }
+
+    private void grant(Ticket ticket) {
+        synchronized (this) {
+            // тикет мог быть отменён между выдачей permit'ов и запуском
+            if (ticket.state != TicketState.GRANTED) return;
+        }
+        if (waitListener != null) {
+            try {
+                waitListener.onPermitWait(ticket.workerName, ticket.stageId, (System.nanoTime() - ticket.createdNanos) / 1_000_000L);
+            } catch (Throwable t) {
+                logger.warn("Failed to publish permit wait time of worker {}", ticket.workerName, t);
+            }
+        }
+        try {
+            ticket.onGranted.accept(ticket);
+        } catch (Throwable t) {
+            logger.error("Failed to start worker {} of stage {} after permit was granted", ticket.workerName, ticket.stageId, t);
+            release(ticket, EnumSet.of(TicketState.GRANTED, TicketState.RUNNING));
+        }
+    }
+
+    /**
+     * Освобождает тикет, если его состояние входит в releasable; true — тикет освобождён этим вызовом.
+     */
+    private boolean release(Ticket ticket, Set<TicketState> releasable) {
+        List<Ticket> granted = new ArrayList<>();
+        synchronized (this) {
+            if (!releasable.contains(ticket.state)) return false;
+            if (ticket.state == TicketState.QUEUED) {
+                ticket.required.get(ticket.acquired).waiting.remove(ticket);
+            }
+            for (int i = ticket.acquired - 1; i >= 0; i--) {
+                handOff(ticket.required.get(i), granted);
+            }
+            ticket.acquired = 0;
+            ticket.state = TicketState.RELEASED;
+        }
+        for (Ticket next : granted) grant(next);
+        return true;
+    }
+
+    /**
+     * Освободившийся permit переходит первому ожидающему тикету без возврата в пул. Вызывается под this.
+     */
+    private void handOff(Bulkhead bulkhead, List<Ticket> granted) {
+        Ticket next = bulkhead.waiting.poll();
+        if (next == null) {
+            bulkhead.inUse--;
+            return;
+        }
+        next.acquired++;
+        if (advance(next)) granted.add(next);
+    }
+
+    private static final class Bulkhead {
+        final String name;
+        final int limit;
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        int inUse;
+
+        Bulkhead(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+
+        @Override
+        public String toString() {
+            return "Bulkhead{" + name + ", limit=" + limit + ", inUse=" + inUse + ", waiting=" + waiting.size() + '}';
+        }
+    }
+
+    /**
+     * Запрос permit'ов одного worker'а. Состояния: QUEUED -> GRANTED -> RUNNING -> RELEASED.
+     */
+    public static final class Ticket {
+        // worker без лимитов: все операции — no-op
+        static final Ticket UNLIMITED = new Ticket(null, null, null, List.of(), ticket -> {
+        });
+
+        private final WorkerBulkheads owner;
+        private final String stageId;
+        private final String workerName;
+        private final List<Bulkhead> required;
+        private final Consumer<Ticket> onGranted;
+        private final long createdNanos = System.nanoTime();
+        // поля ниже меняются под owner
+        private TicketState state = TicketState.QUEUED;
+        private int acquired;
+
+        private Ticket(WorkerBulkheads owner, String stageId, String workerName, List<Bulkhead> required, Consumer<Ticket> onGranted) {
+            this.owner = owner;
+            this.stageId = stageId;
+            this.workerName = workerName;
+            this.required = required;
+            this.onGranted = onGranted;
+        }
+
+        /**
+         * Отмечает начало выполнения рутины; false, если тикет уже освобождён (рутину запускать нельзя).
+         */
+        public boolean enter() {
+            if (owner == null) return true;
+            synchronized (owner) {
+                if (state != TicketState.GRANTED) return false;
+                state = TicketState.RUNNING;
+                return true;
+            }
+        }
+
+        /**
+         * Возвращает permit'ы (или снимает тикет из очереди). Повторный вызов ничего не делает.
+         */
+        public void release() {
+            if (owner != null) owner.release(this, EnumSet.of(TicketState.QUEUED, TicketState.GRANTED, TicketState.RUNNING));
+        }
+
+        /**
+         * Освобождает тикет, если рутина ещё не начала выполняться; выполняющаяся рутина вернёт permit'ы сама.
+         */
+        public void cancel() {
+            if (owner != null) owner.release(this, EnumSet.of(TicketState.QUEUED, TicketState.GRANTED));
+        }
+
+        /**
+         * Снимает тикет, только пока он ждёт в очереди; true — тикет снят и onGranted уже не будет вызван.
+         */
+        public boolean cancelQueued() {
+            return owner != null && owner.release(this, EnumSet.of(TicketState.QUEUED));
+        }
+    }
+}
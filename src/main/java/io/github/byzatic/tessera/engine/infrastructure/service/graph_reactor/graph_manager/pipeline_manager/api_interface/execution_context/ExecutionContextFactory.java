@@ -1,5 +1,6 @@
 package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.execution_context;
 
+import io.github.byzatic.tessera.engine.Configuration;
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.application.commons.logging.MdcWorkflowRoutineContext;
 import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
@@ -10,6 +11,7 @@ import io.github.byzatic.tessera.engine.domain.model.node_pipeline.WorkersDescri
 import io.github.byzatic.tessera.engine.domain.model.project.StoragesItem;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
 import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management.GraphPathManagerInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management.RootPathIndex;
 import io.github.byzatic.tessera.enginecommon.logging.MdcContextInterface;
 import io.github.byzatic.tessera.workflowroutine.execution_context.ExecutionContextInterface;
 import io.github.byzatic.tessera.workflowroutine.execution_context.GraphPathInterface;
@@ -17,15 +19,15 @@ import io.github.byzatic.tessera.workflowroutine.execution_context.PipelineExecu
 import io.github.byzatic.tessera.workflowroutine.execution_context.StorageDescriptionInterface;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class ExecutionContextFactory implements ExecutionContextFactoryInterface {
 
     private final FullProjectRepository fullProjectRepository;
-    private final Map<GraphNodeRef, ExecutionContextInterface> executionContextInterfaceMap = new HashMap<>();
+    private final Map<GraphNodeRef, ExecutionContextInterface> executionContextInterfaceMap = new ConcurrentHashMap<>();
     private final GraphPathManagerInterface graphPathManager;
 
     public ExecutionContextFactory(FullProjectRepository fullProjectRepository, GraphPathManagerInterface graphPathManager) {
@@ -34,13 +36,14 @@ public class ExecutionContextFactory implements ExecutionContextFactoryInterface
     }
 
     @Override
-    public synchronized ExecutionContextInterface getExecutionContext(GraphNodeRef graphNodeRef, List<GraphNodeRef> pathToCurrentExecutionNodeRef, StagesDescriptionItem stagesDescriptionItem, WorkersDescriptionItem workersDescriptionItem, StagesConsistencyItem stagesConsistencyItem) throws OperationIncompleteException {
+    public ExecutionContextInterface getExecutionContext(GraphNodeRef graphNodeRef, List<GraphNodeRef> pathToCurrentExecutionNodeRef, StagesDescriptionItem stagesDescriptionItem, WorkersDescriptionItem workersDescriptionItem, StagesConsistencyItem stagesConsistencyItem) throws OperationIncompleteException {
         try {
-            ExecutionContextInterface result;
-            if (executionContextInterfaceMap.containsKey(graphNodeRef)) {
-                result = executionContextInterfaceMap.get(graphNodeRef);
-            } else {
+            // без глобальной блокировки: при гонке контекст может быть построен дважды, в кэше остаётся первый
+            ExecutionContextInterface result = executionContextInterfaceMap.get(graphNodeRef);
+            if (result == null) {
                 result = create(graphNodeRef, pathToCurrentExecutionNodeRef, stagesDescriptionItem, workersDescriptionItem, stagesConsistencyItem);
+                ExecutionContextInterface existing = executionContextInterfaceMap.putIfAbsent(graphNodeRef, result);
+                if (existing != null) result = existing;
             }
             return result;
         } catch (Exception e) {
@@ -49,9 +52,10 @@ public class ExecutionContextFactory implements ExecutionContextFactoryInterface
     }
 
     private List<GraphPathInterface> getGraphPathList(GraphNodeRef graphNodeRef) throws OperationIncompleteException {
-        List<GraphPathInterface> result = new ArrayList<>();
-        for (String pathsString : this.graphPathManager.getRootPathsAsString(graphNodeRef, ".")) {
-            result.add(GraphPath.newBuilder().setGraphPath(pathsString).build());
+        List<RootPathIndex.RootPath> rootPaths = this.graphPathManager.getIndexedRootPaths(graphNodeRef, Configuration.GRAPH_ROOT_PATHS_LIMIT).getPaths();
+        List<GraphPathInterface> result = new ArrayList<>(rootPaths.size());
+        for (RootPathIndex.RootPath rootPath : rootPaths) {
+            result.add(new IndexedGraphPath(rootPath, "."));
         }
         return result;
     }
@@ -125,8 +129,6 @@ public class ExecutionContextFactory implements ExecutionContextFactoryInterface
                     .setMdcContext(mdcContext)
                     .build();
 
-            executionContextInterfaceMap.put(graphNodeRef, result);
-
             return result;
         } catch (Exception e) {
             throw new OperationIncompleteException(e);
@@ -134,7 +136,8 @@ public class ExecutionContextFactory implements ExecutionContextFactoryInterface
     }
 
     @Override
-    public synchronized void reload() {
+    public void reload() {
+        graphPathManager.reload();
         executionContextInterfaceMap.clear();
     }
 
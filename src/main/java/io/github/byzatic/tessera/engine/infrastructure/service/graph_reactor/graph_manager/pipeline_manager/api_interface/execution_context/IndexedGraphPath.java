@@ -0,0 +1,53 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.execution_context;
+
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management.RootPathIndex;
+import io.github.byzatic.tessera.workflowroutine.execution_context.GraphPathInterface;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * GraphPath поверх {@link RootPathIndex.RootPath}: строка пути собирается только при первом getGraphPath().
+ */
+public final class IndexedGraphPath implements GraphPathInterface {
+    private final RootPathIndex.RootPath rootPath;
+    private final String delimiter;
+    // кэш строки; гонка безопасна — все потоки получают одинаковое значение
+    private String graphPath;
+
+    public IndexedGraphPath(@NotNull RootPathIndex.RootPath rootPath, @NotNull String delimiter) {
+        this.rootPath = rootPath;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public String getGraphPath() {
+        String result = graphPath;
+        if (result == null) {
+            result = rootPath.join(NodeItem::getId, delimiter);
+            graphPath = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IndexedGraphPath that = (IndexedGraphPath) o;
+        return Objects.equals(getGraphPath(), that.getGraphPath());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getGraphPath());
+    }
+
+    @Override
+    public String toString() {
+        return "GraphPath{" +
+                "graphPath='" + getGraphPath() + '\'' +
+                '}';
+    }
+}
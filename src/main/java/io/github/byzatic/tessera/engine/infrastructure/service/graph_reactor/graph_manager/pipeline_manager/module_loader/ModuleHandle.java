@@ -0,0 +1,62 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.workflowroutine.api_engine.MCg3WorkflowRoutineApiInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagProxy;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Разрешённая фабрика модуля: получается один раз через {@link ModuleLoaderInterface#resolveModule(String)},
+ * дальше рутины создаются без поиска по имени.
+ * <p>
+ * Handle привязан к снимку модулей, из которого он получен (см. {@link #getModulesVersion()});
+ * после перезагрузки плагинов его нужно разрешить заново.
+ */
+public final class ModuleHandle {
+    private final String name;
+    private final WorkflowRoutineFactoryInterface factory;
+    private final long modulesVersion;
+
+    ModuleHandle(@NotNull String name, @NotNull WorkflowRoutineFactoryInterface factory, long modulesVersion) {
+        this.name = name;
+        this.factory = factory;
+        this.modulesVersion = modulesVersion;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getModulesVersion() {
+        return modulesVersion;
+    }
+
+    /**
+     * Фабрика поддерживает переиспользование экземпляров ({@link ReusableWorkflowRoutineFactoryInterface}).
+     */
+    public boolean isReusable() {
+        return factory instanceof ReusableWorkflowRoutineFactoryInterface;
+    }
+
+    WorkflowRoutineFactoryInterface getFactory() {
+        return factory;
+    }
+
+    public WorkflowRoutineInterface create(MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException {
+        try {
+            return factory.create(workflowRoutineApi, healthFlagProxy);
+        } catch (Exception e) {
+            throw new OperationIncompleteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModuleHandle{" +
+                "name='" + name + '\'' +
+                ", modulesVersion=" + modulesVersion +
+                '}';
+    }
+}
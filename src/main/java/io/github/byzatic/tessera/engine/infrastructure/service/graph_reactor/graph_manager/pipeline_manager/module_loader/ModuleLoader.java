@@ -2,6 +2,7 @@ package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.gr
 
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.DataValueClassLoaders;
 import io.github.byzatic.tessera.workflowroutine.api_engine.MCg3WorkflowRoutineApiInterface;
 import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineFactoryInterface;
 import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
@@ -14,33 +15,144 @@ import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 
+/**
+ * Загрузчик модулей (WorkflowRoutine) из jar-файлов плагинов.
+ * <p>
+ * Фабрики публикуются неизменяемым снимком {@link ModuleRegistry} через volatile-ссылку:
+ * путь чтения (getModule / resolveModule) идёт без блокировок, а reload() строит новый снимок
+ * и подменяет его одной записью.
+ */
 public class ModuleLoader implements ModuleLoaderInterface {
     private final static Logger logger = LoggerFactory.getLogger(ModuleLoader.class);
-    private final Map<String, WorkflowRoutineFactoryInterface> moduleFactories = new HashMap<>();
-    private final Map<String, URLClassLoader> classLoaders = new HashMap<>();
+    private final Path pluginsDirPath;
+    private final FullProjectRepository fullProjectRepository;
+    private volatile ModuleRegistry registry;
+    // instanceKey (node/stage/worker) -> свободный экземпляр рутины переиспользуемой фабрики
+    private final Map<String, PooledRoutine> reusableRoutines = new ConcurrentHashMap<>();
 
     public ModuleLoader(Path pluginsDirPath, FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
-        load(pluginsDirPath, fullProjectRepository);
+        this.pluginsDirPath = pluginsDirPath;
+        this.fullProjectRepository = fullProjectRepository;
+        this.registry = load(pluginsDirPath, fullProjectRepository, 1L);
+        registerValueClassLoaders(registry);
     }
 
+    /**
+     * Перечитывает jar-файлы плагинов и атомарно подменяет снимок фабрик.
+     * Уже выданные {@link ModuleHandle} продолжают работать со старыми фабриками;
+     * class loader'ы старого снимка не закрываются, т.к. их рутины могут ещё выполняться.
+     */
     @Override
-    public synchronized WorkflowRoutineInterface getModule(String workflowRoutineClassName, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException {
+    public synchronized void reload() throws OperationIncompleteException {
+        ModuleRegistry current = registry;
+        registry = load(pluginsDirPath, fullProjectRepository, current.version + 1);
+        registerValueClassLoaders(registry);
+        reusableRoutines.clear();
+        logger.debug("Modules reloaded; version {} -> {}", current.version, current.version + 1);
+    }
+
+    @Override
+    public WorkflowRoutineInterface getModule(String workflowRoutineClassName, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException {
         try {
-            if (!moduleFactories.containsKey(workflowRoutineClassName))
-                throw new OperationIncompleteException("Service with name " + workflowRoutineClassName + " was not found");
-            WorkflowRoutineFactoryInterface moduleFactory = moduleFactories.get(workflowRoutineClassName);
-            return moduleFactory.create(workflowRoutineApi, healthFlagProxy);
+            return resolveModule(workflowRoutineClassName).create(workflowRoutineApi, healthFlagProxy);
         } catch (Exception e) {
             logger.error(e.getMessage());
             throw new OperationIncompleteException(e.getMessage(), e);
         }
     }
 
-    private void load(Path pluginsDirPath, FullProjectRepository fullProjectRepository) throws OperationIncompleteException {
+    @Override
+    public ModuleHandle resolveModule(String workflowRoutineClassName) throws OperationIncompleteException {
+        ModuleHandle moduleHandle = registry.handles.get(workflowRoutineClassName);
+        if (moduleHandle == null)
+            throw new OperationIncompleteException("Service with name " + workflowRoutineClassName + " was not found");
+        return moduleHandle;
+    }
+
+    @Override
+    public long getModulesVersion() {
+        return registry.version;
+    }
+
+    @Override
+    public WorkflowRoutineInterface getModule(ModuleHandle moduleHandle, String instanceKey, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException {
+        if (moduleHandle.isReusable()) {
+            PooledRoutine pooled = reusableRoutines.remove(instanceKey);
+            // экземпляр другого снимка (reload между remove и clear) отдаётся только его фабрике
+            if (pooled != null && pooled.modulesVersion == moduleHandle.getModulesVersion()) {
+                try {
+                    if (((ReusableWorkflowRoutineFactoryInterface) moduleHandle.getFactory()).reset(pooled.routine, workflowRoutineApi, healthFlagProxy)) {
+                        logger.trace("Reused routine instance {}", instanceKey);
+                        return pooled.routine;
+                    }
+                } catch (ClassCastException e) {
+                    logger.error("Reset of routine instance {} by {} failed: pooled instance is of a foreign type", instanceKey, moduleHandle, e);
+                    throw new OperationIncompleteException("Reset of routine instance " + instanceKey + " failed: " + e.getMessage(), e);
+                } catch (Exception e) {
+                    logger.warn("Reset of routine instance {} failed; creating a new one", instanceKey, e);
+                }
+            } else if (pooled != null) {
+                logger.trace("Dropped routine instance {} of modules version {}", instanceKey, pooled.modulesVersion);
+            }
+        }
+        return moduleHandle.create(workflowRoutineApi, healthFlagProxy);
+    }
+
+    @Override
+    public void releaseModule(ModuleHandle moduleHandle, String instanceKey, WorkflowRoutineInterface routine) {
+        if (routine == null || !moduleHandle.isReusable()) return;
+        // экземпляры фабрик из прошлого снимка в пул не возвращаем; версия сверяется под блокировкой ячейки,
+        // поэтому reload() (подмена снимка, затем clear) не может пропустить вставку между проверкой и put
+        reusableRoutines.compute(instanceKey, (key, pooled) ->
+                (moduleHandle.getModulesVersion() == registry.version)
+                        ? new PooledRoutine(moduleHandle.getModulesVersion(), routine)
+                        : pooled);
+    }
+
+    /**
+     * Свободный экземпляр рутины вместе с версией снимка, фабрика которого его создала.
+     */
+    private static final class PooledRoutine {
+        final long modulesVersion;
+        final WorkflowRoutineInterface routine;
+
+        PooledRoutine(long modulesVersion, WorkflowRoutineInterface routine) {
+            this.modulesVersion = modulesVersion;
+            this.routine = routine;
+        }
+    }
+
+    // значения хранилищ из классов модуля читаются его загрузчиком, в том числе после перезапуска
+    private static void registerValueClassLoaders(ModuleRegistry registry) {
+        for (Map.Entry<String, URLClassLoader> entry : registry.classLoaders.entrySet()) {
+            DataValueClassLoaders.getInstance().register(DataValueClassLoaders.MODULE_PREFIX + entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Неизменяемый снимок загруженных модулей.
+     */
+    private static final class ModuleRegistry {
+        final long version;
+        final Map<String, ModuleHandle> handles;
+        final Map<String, URLClassLoader> classLoaders;
+
+        ModuleRegistry(long version, Map<String, ModuleHandle> handles, Map<String, URLClassLoader> classLoaders) {
+            this.version = version;
+            this.handles = Collections.unmodifiableMap(handles);
+            this.classLoaders = Collections.unmodifiableMap(classLoaders);
+        }
+    }
+
+    private static ModuleRegistry load(Path pluginsDirPath, FullProjectRepository fullProjectRepository, long version) throws OperationIncompleteException {
+        Map<String, ModuleHandle> moduleHandles = new HashMap<>();
+        Map<String, URLClassLoader> classLoaders = new HashMap<>();
         @Nullable ClassLoader sharedResources = fullProjectRepository.getSharedResourcesClassLoader();
         File[] jars = null;
         try {
@@ -89,18 +201,19 @@ public class ModuleLoader implements ModuleLoaderInterface {
                     String moduleName = dummy.getClass().getSimpleName().replace("Factory", "");
                     logger.debug("Discovered module: {}", moduleName);
 
-                    if (moduleFactories.containsKey(moduleName))
+                    if (moduleHandles.containsKey(moduleName))
                         throw new OperationIncompleteException("Found another module with name " + moduleName + " (module duplication)");
 
                     WorkflowRoutineFactoryInterface moduleFactory = dummy.getClass().getDeclaredConstructor().newInstance();
                     logger.debug("Service Factory created: {}", moduleFactory);
 
-                    moduleFactories.put(moduleName, moduleFactory);
+                    moduleHandles.put(moduleName, new ModuleHandle(moduleName, moduleFactory, version));
                     logger.debug("Service Factory saved as: {}", moduleName);
 
                     classLoaders.put(moduleName, classLoader);
                 }
             }
+            return new ModuleRegistry(version, moduleHandles, classLoaders);
         } catch (Exception e) {
             throw new OperationIncompleteException(e);
         }
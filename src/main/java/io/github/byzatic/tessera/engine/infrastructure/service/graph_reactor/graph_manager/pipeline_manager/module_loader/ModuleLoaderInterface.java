@@ -7,4 +7,39 @@ import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthF
 
 public interface ModuleLoaderInterface {
     public WorkflowRoutineInterface getModule(String workflowRoutineClassName, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException;
+
+    /**
+     * Разрешает фабрику модуля по имени; дальнейшие вызовы через handle обходятся без поиска.
+     */
+    public ModuleHandle resolveModule(String workflowRoutineClassName) throws OperationIncompleteException;
+
+    /**
+     * Перечитывает плагины и публикует новый снимок модулей.
+     * Уже выданные {@link ModuleHandle} продолжают работать с фабриками своего снимка.
+     * Граф узлов и хранилища при этом не перестраиваются — согласованную перезагрузку проекта
+     * (как и для {@link io.github.byzatic.tessera.engine.domain.repository.Reloadable}) выполняет вызывающий.
+     */
+    public void reload() throws OperationIncompleteException;
+
+    /**
+     * Версия текущего снимка модулей; меняется при перезагрузке плагинов.
+     */
+    default long getModulesVersion() {
+        return 0L;
+    }
+
+    /**
+     * Экземпляр рутины для конкретного места в pipeline (instanceKey = node/stage/worker).
+     * Если фабрика реализует {@link ReusableWorkflowRoutineFactoryInterface}, возвращается
+     * экземпляр, отданный ранее в releaseModule; иначе создаётся новый.
+     */
+    default WorkflowRoutineInterface getModule(ModuleHandle moduleHandle, String instanceKey, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws OperationIncompleteException {
+        return moduleHandle.create(workflowRoutineApi, healthFlagProxy);
+    }
+
+    /**
+     * Возврат успешно отработавшего экземпляра для переиспользования в следующем цикле.
+     */
+    default void releaseModule(ModuleHandle moduleHandle, String instanceKey, WorkflowRoutineInterface routine) {
+    }
 }
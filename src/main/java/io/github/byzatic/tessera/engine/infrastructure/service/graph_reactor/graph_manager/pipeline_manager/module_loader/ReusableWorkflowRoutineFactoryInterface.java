@@ -0,0 +1,24 @@
+package io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader;
+
+import io.github.byzatic.tessera.workflowroutine.api_engine.MCg3WorkflowRoutineApiInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagProxy;
+
+/**
+ * Опциональная возможность фабрики: рутины, созданные ею, переиспользуются между циклами.
+ * <p>
+ * Экземпляр создаётся один раз на (node, stage, worker) через create(), а перед каждым следующим
+ * запуском фабрике передаётся тот же экземпляр вместе с новым API и HealthFlagProxy цикла.
+ * Экземпляр возвращается в пул только после успешного запуска (HealthFlagState.COMPLETE),
+ * поэтому один экземпляр никогда не выполняется двумя потоками одновременно.
+ */
+public interface ReusableWorkflowRoutineFactoryInterface extends WorkflowRoutineFactoryInterface {
+
+    /**
+     * Подготавливает ранее созданный экземпляр к новому циклу.
+     *
+     * @return false, если экземпляр нельзя переиспользовать — тогда будет вызван create()
+     */
+    boolean reset(WorkflowRoutineInterface routine, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) throws Exception;
+}
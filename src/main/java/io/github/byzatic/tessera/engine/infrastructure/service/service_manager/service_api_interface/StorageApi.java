@@ -15,7 +15,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 
 public class StorageApi implements StorageApiInterface {
@@ -230,5 +236,200 @@ public class StorageApi implements StorageApiInterface {
         }
     }
 
-}
+    /**
+     * Вставка или замена значения (LOCAL / GLOBAL) одной операцией над хранилищем.
+     */
+    public void upsertStorageObject(StorageItem storageItem) throws MCg3ApiOperationIncompleteException {
+        putStorageObject(storageItem);
+    }
+
+    /**
+     * Как getStorageObject, но при отсутствии значения возвращает null вместо исключения.
+     */
+    public StorageItem getStorageObjectIfPresent(StorageItem storageItem) throws MCg3ApiOperationIncompleteException {
+        DataValueInterface storageManagerResult;
+        StorageItem.ScopeType scope = storageItem.getScope();
+        try {
+            DataLookupIdentifierImpl dataLookupIdentifier = DataLookupIdentifierImpl.newBuilder().dataId(storageItem.getDataId()).build();
+            switch (scope) {
+                case LOCAL -> storageManagerResult = storageManager.getItemFromStorageIfPresent(
+                        graphNodeRef,
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier
+                );
+                case GLOBAL -> storageManagerResult = storageManager.getItemFromStorageIfPresent(
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier
+                );
+                case DOWNSTREAM -> storageManagerResult = storageManager.getItemFromStorageIfPresent(
+                        getDownstreamGraphNodeRef(storageItem),
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier
+                );
+                default -> throw new MCg3ApiOperationIncompleteException("Unknown scope");
+            }
+            return (storageManagerResult != null) ? toStorageItem(storageItem, storageManagerResult) : null;
+        } catch (Exception e) {
+            throw new MCg3ApiOperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Атомарно возвращает значение (LOCAL / GLOBAL) или создаёт его функцией dataId -> значение.
+     */
+    public StorageItem computeStorageObjectIfAbsent(StorageItem storageItem,
+                                                    Function<String, ? extends DataValueInterface> mappingFunction) throws MCg3ApiOperationIncompleteException {
+        DataValueInterface storageManagerResult;
+        StorageItem.ScopeType scope = storageItem.getScope();
+        try {
+            DataLookupIdentifierImpl dataLookupIdentifier = DataLookupIdentifierImpl.newBuilder().dataId(storageItem.getDataId()).build();
+            switch (scope) {
+                case LOCAL -> storageManagerResult = storageManager.computeItemIfAbsent(
+                        graphNodeRef,
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier,
+                        mappingFunction
+                );
+                case GLOBAL -> storageManagerResult = storageManager.computeItemIfAbsent(
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier,
+                        mappingFunction
+                );
+                case DOWNSTREAM -> throw new MCg3ApiOperationIncompleteException("Can't put to downstream");
+                default -> throw new MCg3ApiOperationIncompleteException("Unknown scope");
+            }
+            return toStorageItem(storageItem, storageManagerResult);
+        } catch (Exception e) {
+            throw new MCg3ApiOperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Атомарное слияние storageItem.getDataValue() с текущим значением (LOCAL / GLOBAL), например для счётчиков.
+     * Если remappingFunction вернула null — значение удаляется и возвращается null.
+     */
+    public StorageItem mergeStorageObject(StorageItem storageItem,
+                                          BiFunction<? super DataValueInterface, ? super DataValueInterface, ? extends DataValueInterface> remappingFunction) throws MCg3ApiOperationIncompleteException {
+        DataValueInterface storageManagerResult;
+        StorageItem.ScopeType scope = storageItem.getScope();
+        try {
+            DataLookupIdentifierImpl dataLookupIdentifier = DataLookupIdentifierImpl.newBuilder().dataId(storageItem.getDataId()).build();
+            switch (scope) {
+                case LOCAL -> storageManagerResult = storageManager.mergeItemToStorage(
+                        graphNodeRef,
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier,
+                        storageItem.getDataValue(),
+                        remappingFunction
+                );
+                case GLOBAL -> storageManagerResult = storageManager.mergeItemToStorage(
+                        storageItem.getStorageId(),
+                        dataLookupIdentifier,
+                        storageItem.getDataValue(),
+                        remappingFunction
+                );
+                case DOWNSTREAM -> throw new MCg3ApiOperationIncompleteException("Can't put to downstream");
+                default -> throw new MCg3ApiOperationIncompleteException("Unknown scope");
+            }
+            return (storageManagerResult != null) ? toStorageItem(storageItem, storageManagerResult) : null;
+        } catch (Exception e) {
+            throw new MCg3ApiOperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Пакетная запись (LOCAL / GLOBAL). Элементы группируются по scope и storageId,
+     * хранилище разрешается один раз на группу, элементы записываются за один проход.
+     */
+    public void putStorageObjects(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+        try {
+            for (StorageBatch batch : groupByStorage(storageItems)) {
+                List<Pair<DataLookupIdentifierImpl, DataValueInterface>> items = new ArrayList<>(batch.storageItems.size());
+                for (StorageItem storageItem : batch.storageItems) {
+                    items.add(new Pair<>(
+                            DataLookupIdentifierImpl.newBuilder().dataId(storageItem.getDataId()).build(),
+                            storageItem.getDataValue()
+                    ));
+                }
+                switch (batch.scope) {
+                    case LOCAL -> storageManager.putItemsToStorage(graphNodeRef, batch.storageId, items);
+                    case GLOBAL -> storageManager.putItemsToStorage(batch.storageId, items);
+                    case DOWNSTREAM -> throw new MCg3ApiOperationIncompleteException("Can't put to downstream");
+                    default -> throw new MCg3ApiOperationIncompleteException("Unknown scope");
+                }
+            }
+        } catch (Exception e) {
+            throw new MCg3ApiOperationIncompleteException(e);
+        }
+    }
+
+    /**
+     * Пакетное чтение. Результат в порядке запроса; для отсутствующих значений — null.
+     */
+    public List<StorageItem> getStorageObjects(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+        try {
+            StorageItem[] result = new StorageItem[storageItems.size()];
+            for (StorageBatch batch : groupByStorage(storageItems)) {
+                List<DataLookupIdentifierImpl> ids = new ArrayList<>(batch.storageItems.size());
+                for (StorageItem storageItem : batch.storageItems) {
+                    ids.add(DataLookupIdentifierImpl.newBuilder().dataId(storageItem.getDataId()).build());
+                }
+                List<DataValueInterface> values;
+                switch (batch.scope) {
+                    case LOCAL -> values = storageManager.getItemsFromStorage(graphNodeRef, batch.storageId, ids);
+                    case GLOBAL -> values = storageManager.getItemsFromStorage(batch.storageId, ids);
+                    case DOWNSTREAM -> values = storageManager.getItemsFromStorage(
+                            getDownstreamGraphNodeRef(batch.storageItems.get(0)),
+                            batch.storageId,
+                            ids
+                    );
+                    default -> throw new MCg3ApiOperationIncompleteException("Unknown scope");
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    DataValueInterface value = values.get(i);
+                    result[batch.positions.get(i)] = (value != null) ? toStorageItem(batch.storageItems.get(i), value) : null;
+                }
+            }
+            return Arrays.asList(result);
+        } catch (Exception e) {
+            throw new MCg3ApiOperationIncompleteException(e);
+        }
+    }
 
+    private Collection<StorageBatch> groupByStorage(List<StorageItem> storageItems) {
+        Map<List<Object>, StorageBatch> batches = new LinkedHashMap<>();
+        for (int i = 0; i < storageItems.size(); i++) {
+            StorageItem storageItem = storageItems.get(i);
+            List<Object> key = Arrays.asList(storageItem.getScope(), storageItem.getDownstreamName(), storageItem.getStorageId());
+            StorageBatch batch = batches.computeIfAbsent(key, k -> new StorageBatch(storageItem.getScope(), storageItem.getStorageId()));
+            batch.positions.add(i);
+            batch.storageItems.add(storageItem);
+        }
+        return batches.values();
+    }
+
+    /**
+     * Группа элементов пакета с общими scope, downstreamName и storageId.
+     */
+    private static final class StorageBatch {
+        private final StorageItem.ScopeType scope;
+        private final String storageId;
+        private final List<Integer> positions = new ArrayList<>();
+        private final List<StorageItem> storageItems = new ArrayList<>();
+
+        private StorageBatch(StorageItem.ScopeType scope, String storageId) {
+            this.scope = scope;
+            this.storageId = storageId;
+        }
+    }
+
+    private StorageItem toStorageItem(StorageItem storageItem, DataValueInterface dataValue) {
+        return StorageItem.newBuilder()
+                .setScope(storageItem.getScope())
+                .setDownstreamName(storageItem.getDownstreamName())
+                .setStorageId(storageItem.getStorageId())
+                .setDataId(storageItem.getDataId())
+                .setDataValue(dataValue)
+                .build();
+    }
+}
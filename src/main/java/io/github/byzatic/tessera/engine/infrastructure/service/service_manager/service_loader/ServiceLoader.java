@@ -2,6 +2,7 @@ package io.github.byzatic.tessera.engine.infrastructure.service.service_manager.
 
 import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
 import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.DataValueClassLoaders;
 import io.github.byzatic.tessera.service.api_engine.MCg3ServiceApiInterface;
 import io.github.byzatic.tessera.service.service.ServiceFactoryInterface;
 import io.github.byzatic.tessera.service.service.ServiceInterface;
@@ -99,6 +100,7 @@ public class ServiceLoader implements ServiceLoaderInterface {
                     logger.debug("Service Factory saved as: {}", serviceName);
 
                     classLoaders.put(serviceName, classLoader);
+                    DataValueClassLoaders.getInstance().register(DataValueClassLoaders.SERVICE_PREFIX + serviceName, classLoader);
                 }
             }
         } catch (Exception e) {
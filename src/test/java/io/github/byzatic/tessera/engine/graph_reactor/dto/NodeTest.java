@@ -0,0 +1,217 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto;
+
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.RunEpoch;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.NodeLifecycleState;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NodeTest {
+
+    private Node newNode() {
+        return Node.newBuilder()
+                .setGraphNodeRef(GraphNodeRef.newBuilder().nodeUUID("node").build())
+                .setDownstream(new ArrayList<>())
+                .build();
+    }
+
+    @Test
+    public void testClaimIsExclusive() throws Exception {
+        Node node = newNode();
+        int threads = 8;
+        AtomicInteger claims = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (node.tryClaim() != null) claims.incrementAndGet();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals("Only one claimant expected", 1, claims.get());
+        assertEquals(NodeLifecycleState.CLAIMED, node.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testSubscribersCompleteOnReady() throws Exception {
+        Node node = newNode();
+        assertNull("Unclaimed node has no subscription", node.subscribe());
+        Node.Claim claim = node.tryClaim();
+        assertNotNull(claim);
+        assertTrue(node.markRunning(claim));
+
+        CompletableFuture<Void> subscription = node.subscribe();
+        assertNotNull(subscription);
+        assertFalse(subscription.isDone());
+
+        assertTrue(node.markReady(claim));
+        subscription.get(1, TimeUnit.SECONDS);
+        assertEquals(NodeLifecycleState.READY, node.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testReleaseFailsSubscribersAndAllowsNewAttempt() {
+        Node node = newNode();
+        Node.Claim claim = node.tryClaim();
+        assertNotNull(claim);
+        CompletableFuture<Void> subscription = node.subscribe();
+
+        assertTrue(node.release(claim, new IllegalStateException("pipeline failed")));
+
+        assertTrue(subscription.isCompletedExceptionally());
+        assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+        assertNotNull("Released node can be claimed again", node.tryClaim());
+        assertFalse("New attempt has a fresh completion", node.subscribe().isDone());
+    }
+
+    @Test
+    public void testEpochAdvanceResetsState() {
+        RunEpoch runEpoch = new RunEpoch();
+        Node node = newNode();
+        node.setRunEpoch(runEpoch);
+        node.setNodeLifecycleState(NodeLifecycleState.READY);
+        long readyEpoch = node.getLifecycleEpoch();
+
+        runEpoch.advance();
+
+        assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+        assertNull(node.subscribe());
+        assertNotNull(node.tryClaim());
+        assertTrue("State is stamped with the new epoch", node.getLifecycleEpoch() > readyEpoch);
+    }
+
+    @Test
+    public void testStaleOwnerDoesNotMarkNewEpochReady() throws Exception {
+        RunEpoch runEpoch = new RunEpoch();
+        Node node = newNode();
+        node.setRunEpoch(runEpoch);
+        Node.Claim claim = node.tryClaim();
+        assertNotNull(claim);
+        assertTrue(node.markRunning(claim));
+        CompletableFuture<Void> subscription = node.subscribe();
+
+        runEpoch.advance();
+        node.markReady(claim);
+
+        subscription.get(1, TimeUnit.SECONDS);
+        assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testStaleOwnerDoesNotTouchNewAttempt() {
+        RunEpoch runEpoch = new RunEpoch();
+        Node node = newNode();
+        node.setRunEpoch(runEpoch);
+        Node.Claim stale = node.tryClaim();
+        assertNotNull(stale);
+        assertTrue(node.markRunning(stale));
+
+        runEpoch.advance();
+        Node.Claim fresh = node.tryClaim();
+        assertNotNull("New epoch can be claimed while the stale owner still runs", fresh);
+        CompletableFuture<Void> subscription = node.subscribe();
+
+        assertFalse("Stale owner can not fail the new attempt", node.release(stale, new IllegalStateException("late failure")));
+        assertFalse("Stale owner can not complete the new attempt", node.markReady(stale));
+        assertFalse(subscription.isDone());
+        assertEquals(NodeLifecycleState.CLAIMED, node.getNodeLifecycleState());
+
+        assertTrue(node.markRunning(fresh));
+        assertTrue(node.markReady(fresh));
+        assertTrue(subscription.isDone());
+        assertFalse(subscription.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testMarkRunningRejectsResetClaim() {
+        Node node = newNode();
+        Node.Claim claim = node.tryClaim();
+        assertNotNull(claim);
+
+        node.setNodeLifecycleState(NodeLifecycleState.NOTSTATED);
+
+        assertFalse("Claim is lost after reset", node.markRunning(claim));
+        assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+    }
+    @Test
+    public void testStaleOwnerRacingNewClaimDoesNotOverwriteIt() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                RunEpoch runEpoch = new RunEpoch();
+                Node node = newNode();
+                node.setRunEpoch(runEpoch);
+                Node.Claim stale = node.tryClaim();
+                assertNotNull(stale);
+                assertTrue(node.markRunning(stale));
+                boolean fail = (i % 2 == 1);
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> owner = executor.submit(() -> {
+                    start.await();
+                    if (fail) {
+                        node.release(stale, new IllegalStateException("late failure"));
+                    } else {
+                        node.markReady(stale);
+                    }
+                    return null;
+                });
+                Future<Node.Claim> claimant = executor.submit(() -> {
+                    start.await();
+                    runEpoch.advance();
+                    return node.tryClaim();
+                });
+                start.countDown();
+                owner.get(5, TimeUnit.SECONDS);
+                Node.Claim fresh = claimant.get(5, TimeUnit.SECONDS);
+                if (fresh == null) {
+                    // стало NOTSTATED в новой эпохе уже после попытки захвата
+                    fresh = node.tryClaim();
+                }
+                assertNotNull("Node is claimable in the new epoch", fresh);
+
+                CompletableFuture<Void> subscription = node.subscribe();
+                assertTrue("New claim survives the stale owner transition", node.markRunning(fresh));
+                assertFalse(node.markReady(stale));
+                assertTrue(node.markReady(fresh));
+                subscription.get(1, TimeUnit.SECONDS);
+                assertEquals(NodeLifecycleState.READY, node.getNodeLifecycleState());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReleaseAfterEpochAdvanceAndReclaimIsRejected() {
+        RunEpoch runEpoch = new RunEpoch();
+        Node node = newNode();
+        node.setRunEpoch(runEpoch);
+        Node.Claim stale = node.tryClaim();
+        assertNotNull(stale);
+
+        runEpoch.advance();
+        Node.Claim fresh = node.tryClaim();
+        assertNotNull(fresh);
+        assertTrue("Claims carry their epoch", fresh.getEpoch() > stale.getEpoch());
+
+        assertFalse(node.markReady(stale));
+        assertFalse(node.release(stale, new IllegalStateException("late failure")));
+        assertTrue(node.markRunning(fresh));
+        assertTrue(node.release(fresh, new IllegalStateException("failure")));
+        assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+    }
+}
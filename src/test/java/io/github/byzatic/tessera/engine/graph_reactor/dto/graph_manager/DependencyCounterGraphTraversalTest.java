@@ -0,0 +1,302 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.DependencyCounterGraphTraversal;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.NodeLifecycleState;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.GraphManagerNodeRepository;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerFactoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManagerInterface;
+import io.github.byzatic.commons.schedulers.immediate.ImmediateSchedulerInterface;
+import io.github.byzatic.commons.schedulers.immediate.JobEventListener;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyCounterGraphTraversalTest {
+
+    private Node newNode(Map<GraphNodeRef, Node> allNodes, String id, Node... children) {
+        GraphNodeRef ref = GraphNodeRef.newBuilder().nodeUUID(id).build();
+        List<GraphNodeRef> downstream = new ArrayList<>();
+        for (Node child : children) downstream.add(child.getGraphNodeRef());
+        Node node = Node.newBuilder()
+                .setGraphNodeRef(ref)
+                .setDownstream(downstream)
+                .build();
+        allNodes.put(ref, node);
+        return node;
+    }
+
+    @Test
+    public void testChildrenProcessedBeforeParent() throws OperationIncompleteException {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node child11 = newNode(allNodes, "child11");
+        Node child1 = newNode(allNodes, "child1", child11);
+        Node child2 = newNode(allNodes, "child2");
+        Node root = newNode(allNodes, "root", child1, child2);
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(0L);
+        new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory).traverse(root);
+
+        List<String> order = factory.processed();
+        assertEquals(4, order.size());
+        assertTrue("child11 before child1", order.indexOf("child11") < order.indexOf("child1"));
+        assertTrue("child1 before root", order.indexOf("child1") < order.indexOf("root"));
+        assertTrue("child2 before root", order.indexOf("child2") < order.indexOf("root"));
+        for (Node node : allNodes.values()) {
+            assertEquals("Node should be READY", NodeLifecycleState.READY, node.getNodeLifecycleState());
+        }
+        assertEquals("Path should start at root", List.of("root", "child1", "child11"), factory.pathOf("child11"));
+    }
+
+    @Test
+    public void testDiamondProcessedOnce() throws OperationIncompleteException {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node shared = newNode(allNodes, "shared");
+        Node left = newNode(allNodes, "left", shared);
+        Node right = newNode(allNodes, "right", shared);
+        Node root = newNode(allNodes, "root", left, right);
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(0L);
+        new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory).traverse(root);
+
+        assertEquals(1, Collections.frequency(factory.processed(), "shared"));
+        assertEquals(4, factory.processed().size());
+    }
+
+    @Test
+    public void testConcurrentRootsShareChild() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node shared = newNode(allNodes, "shared");
+        Node rootA = newNode(allNodes, "rootA", shared);
+        Node rootB = newNode(allNodes, "rootB", shared);
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(200L);
+        DependencyCounterGraphTraversal traversal = new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> a = executor.submit(() -> {
+            traversal.traverse(rootA);
+            return null;
+        });
+        Future<?> b = executor.submit(() -> {
+            traversal.traverse(rootB);
+            return null;
+        });
+        a.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals("Shared child should be processed exactly once", 1, Collections.frequency(factory.processed(), "shared"));
+        assertEquals(NodeLifecycleState.READY, rootA.getNodeLifecycleState());
+        assertEquals(NodeLifecycleState.READY, rootB.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testFailedNodeReleased() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node failing = newNode(allNodes, "failing");
+        Node root = newNode(allNodes, "root", failing);
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(0L);
+        factory.failOn("failing");
+
+        boolean thrown = false;
+        try {
+            new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory).traverse(root);
+        } catch (OperationIncompleteException e) {
+            thrown = true;
+        }
+        assertTrue("Traversal should fail", thrown);
+        assertEquals(NodeLifecycleState.NOTSTATED, failing.getNodeLifecycleState());
+        assertEquals(NodeLifecycleState.NOTSTATED, root.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testParallelSiblingSubtrees() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        List<Node> hosts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Node leaf = newNode(allNodes, "leaf" + i);
+            hosts.add(newNode(allNodes, "host" + i, leaf));
+        }
+        Node root = newNode(allNodes, "root", hosts.toArray(new Node[0]));
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(150L);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long start = System.currentTimeMillis();
+            new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory, pool).traverse(root);
+            long duration = System.currentTimeMillis() - start;
+
+            List<String> order = factory.processed();
+            assertEquals(9, order.size());
+            for (int i = 0; i < 4; i++) {
+                assertTrue("leaf before host", order.indexOf("leaf" + i) < order.indexOf("host" + i));
+            }
+            assertEquals("root", order.get(order.size() - 1));
+            // 3 уровня по 150 мс; последовательно было бы 9 * 150 мс
+            assertTrue("Sibling subtrees should run in parallel, took " + duration + " ms", duration < 9 * 150L);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncPipelinesKeepOrderAndReleaseFailedNode() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node leaf = newNode(allNodes, "leaf");
+        Node left = newNode(allNodes, "left", leaf);
+        Node right = newNode(allNodes, "right", leaf);
+        Node root = newNode(allNodes, "root", left, right);
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(10L);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory, pool, true).traverse(root);
+            List<String> order = factory.processed();
+            assertEquals(4, order.size());
+            assertEquals("leaf", order.get(0));
+            assertEquals("root", order.get(3));
+            assertEquals(NodeLifecycleState.READY, root.getNodeLifecycleState());
+
+            Map<GraphNodeRef, Node> failingNodes = new HashMap<>();
+            Node failingLeaf = newNode(failingNodes, "failingLeaf");
+            Node failingRoot = newNode(failingNodes, "failingRoot", failingLeaf);
+            factory.failOn("failingLeaf");
+            boolean thrown = false;
+            try {
+                new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(failingNodes), factory, pool, true).traverse(failingRoot);
+            } catch (OperationIncompleteException e) {
+                thrown = true;
+            }
+            assertTrue(thrown);
+            assertEquals(NodeLifecycleState.NOTSTATED, failingLeaf.getNodeLifecycleState());
+            assertEquals(NodeLifecycleState.NOTSTATED, failingRoot.getNodeLifecycleState());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelWaitsForRunningPipelines() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        List<Node> leaves = new ArrayList<>();
+        for (int i = 0; i < 4; i++) leaves.add(newNode(allNodes, "leaf" + i));
+        Node root = newNode(allNodes, "root", leaves.toArray(new Node[0]));
+
+        RecordingPipelineManagerFactory factory = new RecordingPipelineManagerFactory(300L);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DependencyCounterGraphTraversal traversal = new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory, pool);
+            canceller.schedule(traversal::cancel, 50, TimeUnit.MILLISECONDS);
+
+            boolean cancelled = false;
+            try {
+                traversal.traverse(root);
+            } catch (OperationIncompleteException e) {
+                cancelled = e.getCause() instanceof CancellationException;
+            }
+            assertTrue("Traversal should be cancelled", cancelled);
+            assertEquals("No pipeline may still run after traverse returned", 0, factory.running());
+            assertEquals("Leaves started before cancel finished their pipelines", 4, factory.processed().size());
+            assertEquals("Root is not started after cancel", NodeLifecycleState.NOTSTATED, root.getNodeLifecycleState());
+        } finally {
+            canceller.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testBlockingPipelinesDoNotStarveThePool() throws Exception {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        Node left = newNode(allNodes, "left");
+        Node right = newNode(allNodes, "right");
+        Node root = newNode(allNodes, "root", left, right);
+
+        // пайплайны листьев ждут друг друга: с одним потоком пула это возможно, только если
+        // пул компенсирует заблокированный поток (ManagedBlocker)
+        CyclicBarrier bothLeaves = new CyclicBarrier(2);
+        PipelineManagerFactoryInterface factory = new RecordingPipelineManagerFactory(0L) {
+            @Override
+            public PipelineManagerInterface getNewPipelineManager(GraphNodeRef graphNodeRef, List<GraphNodeRef> pathToCurrentExecutionNodeRef) {
+                if ("root".equals(graphNodeRef.getNodeUUID())) return () -> { };
+                return () -> {
+                    try {
+                        bothLeaves.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new OperationIncompleteException(e);
+                    }
+                };
+            }
+        };
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            new DependencyCounterGraphTraversal(new GraphManagerNodeRepository(allNodes), factory, pool).traverse(root);
+            assertEquals(NodeLifecycleState.READY, root.getNodeLifecycleState());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static class RecordingPipelineManagerFactory implements PipelineManagerFactoryInterface {
+        private final long delayMs;
+        private final AtomicInteger running = new AtomicInteger();
+        private final List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, List<String>> paths = new ConcurrentHashMap<>();
+        private volatile String failOn = null;
+
+        RecordingPipelineManagerFactory(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        void failOn(String nodeId) {
+            this.failOn = nodeId;
+        }
+
+        List<String> processed() {
+            return new ArrayList<>(processed);
+        }
+
+        int running() {
+            return running.get();
+        }
+
+        List<String> pathOf(String nodeId) {
+            return paths.get(nodeId);
+        }
+
+        @Override
+        public PipelineManagerInterface getNewPipelineManager(GraphNodeRef graphNodeRef, List<GraphNodeRef> pathToCurrentExecutionNodeRef) {
+            return () -> {
+                String id = graphNodeRef.getNodeUUID();
+                if (id.equals(failOn)) throw new OperationIncompleteException("Test failure on " + id);
+                running.incrementAndGet();
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperationIncompleteException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                List<String> path = new ArrayList<>();
+                for (GraphNodeRef ref : pathToCurrentExecutionNodeRef) path.add(ref.getNodeUUID());
+                paths.put(id, path);
+                processed.add(id);
+            };
+        }
+
+        @Override
+        public PipelineManagerInterface getNewPipelineManager(GraphNodeRef graphNodeRef, List<GraphNodeRef> pathToCurrentExecutionNodeRef, ImmediateSchedulerInterface scheduler, JobEventListener... listeners) {
+            return getNewPipelineManager(graphNodeRef, pathToCurrentExecutionNodeRef);
+        }
+    }
+}
@@ -21,9 +21,10 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class GraphTraversalTest {
 
@@ -152,6 +153,136 @@ public class GraphTraversalTest {
     }
 
 
+    private Map<GraphNodeRef, Node> rootWithChild(Node[] rootAndChild) {
+        Map<GraphNodeRef, Node> allNodes = new HashMap<>();
+        GraphNodeRef childGraphNodeRef = GraphNodeRef.newBuilder().nodeUUID(genRndId()).build();
+        Node child = Node.newBuilder()
+                .setGraphNodeRef(childGraphNodeRef)
+                .setDownstream(new ArrayList<>())
+                .build();
+        allNodes.put(childGraphNodeRef, child);
+
+        GraphNodeRef rootGraphNodeRef = GraphNodeRef.newBuilder().nodeUUID(genRndId()).build();
+        List<GraphNodeRef> rootGraphNodeRefs = new ArrayList<>();
+        rootGraphNodeRefs.add(childGraphNodeRef);
+        Node root = Node.newBuilder()
+                .setGraphNodeRef(rootGraphNodeRef)
+                .setDownstream(rootGraphNodeRefs)
+                .build();
+        allNodes.put(rootGraphNodeRef, root);
+        rootAndChild[0] = root;
+        rootAndChild[1] = child;
+        return allNodes;
+    }
+
+    @Test
+    public void testErrorFromPipelineReleasesClaimedNodes() throws OperationIncompleteException {
+        Node[] nodes = new Node[2];
+        Map<GraphNodeRef, Node> allNodes = rootWithChild(nodes);
+        Node root = nodes[0];
+        Node child = nodes[1];
+
+        GraphTraversal traversal = new GraphTraversal(new GraphManagerNodeRepository(allNodes), new PipelineManagerFactory(TestErrorPipelineManager.class));
+        try {
+            traversal.traverse(root);
+            fail("Error from the pipeline is expected to propagate");
+        } catch (LinkageError expected) {
+            // ошибка модуля не оборачивается
+        }
+
+        assertEquals("Failed child is released", NodeLifecycleState.NOTSTATED, child.getNodeLifecycleState());
+        assertEquals("Claimed parent is released", NodeLifecycleState.NOTSTATED, root.getNodeLifecycleState());
+
+        new GraphTraversal(new GraphManagerNodeRepository(allNodes), new PipelineManagerFactory(TestPipelineManager.class)).traverse(root);
+        assertEquals(NodeLifecycleState.READY, root.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testParentSubscribesToChildClaimedByAnotherTraversal() throws Exception {
+        Node[] nodes = new Node[2];
+        Map<GraphNodeRef, Node> allNodes = rootWithChild(nodes);
+        Node root = nodes[0];
+        Node child = nodes[1];
+        Node.Claim claim = child.tryClaim();
+        assertNotNull(claim);
+        assertTrue(child.markRunning(claim));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> owner = executor.submit(() -> {
+            Thread.sleep(200);
+            return child.markReady(claim);
+        });
+
+        GraphTraversal traversal = new GraphTraversal(new GraphManagerNodeRepository(allNodes), new PipelineManagerFactory(TestPipelineManager.class));
+        traversal.traverse(root);
+        assertEquals(Boolean.TRUE, owner.get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(NodeLifecycleState.READY, root.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testParentFailsWhenForeignChildIsReleased() throws Exception {
+        Node[] nodes = new Node[2];
+        Map<GraphNodeRef, Node> allNodes = rootWithChild(nodes);
+        Node root = nodes[0];
+        Node child = nodes[1];
+        Node.Claim claim = child.tryClaim();
+        assertNotNull(claim);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            Thread.sleep(100);
+            return child.release(claim, new IllegalStateException("foreign pipeline failed"));
+        });
+
+        GraphTraversal traversal = new GraphTraversal(new GraphManagerNodeRepository(allNodes), new PipelineManagerFactory(TestPipelineManager.class));
+        try {
+            traversal.traverse(root);
+            fail("Failure of the foreign child is expected");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+
+        assertEquals("Parent claim is released", NodeLifecycleState.NOTSTATED, root.getNodeLifecycleState());
+    }
+
+    @Test
+    public void testCancelWakesParentWaitingForForeignChild() throws Exception {
+        Node[] nodes = new Node[2];
+        Map<GraphNodeRef, Node> allNodes = rootWithChild(nodes);
+        Node root = nodes[0];
+        Node child = nodes[1];
+        assertNotNull("Child is held by another traversal and never completes", child.tryClaim());
+
+        GraphTraversal traversal = new GraphTraversal(new GraphManagerNodeRepository(allNodes), new PipelineManagerFactory(TestPipelineManager.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(() -> {
+            Thread.sleep(100);
+            traversal.cancel();
+            return null;
+        });
+        try {
+            traversal.traverse(root);
+            fail("Cancellation is expected");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+        executor.shutdown();
+
+        assertEquals(NodeLifecycleState.NOTSTATED, root.getNodeLifecycleState());
+    }
+
+    public static class TestErrorPipelineManager implements PipelineManagerInterface {
+        public TestErrorPipelineManager() {
+        }
+        @Override
+        public void runPipeline() throws OperationIncompleteException {
+            throw new LinkageError("Broken module jar");
+        }
+    }
+
     public static class TestWithWaitingPipelineManager implements PipelineManagerInterface {
         private final static Logger logger= LoggerFactory.getLogger(TestWithWaitingPipelineManager.class);
         public TestWithWaitingPipelineManager() {
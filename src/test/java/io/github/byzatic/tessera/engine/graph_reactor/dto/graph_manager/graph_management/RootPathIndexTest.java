@@ -0,0 +1,79 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.graph_management;
+
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_management.RootPathIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RootPathIndexTest {
+
+    private final Map<GraphNodeRef, NodeItem> items = new LinkedHashMap<>();
+    private RootPathIndex index;
+
+    private GraphNodeRef ref(String id) {
+        return GraphNodeRef.newBuilder().nodeUUID(id).build();
+    }
+
+    private void node(String id, String... downstream) {
+        List<GraphNodeRef> refs = new ArrayList<>();
+        for (String child : downstream) refs.add(ref(child));
+        items.put(ref(id), NodeItem.newBuilder().setUUID(id).setId(id).setName(id).setDownstream(refs).build());
+    }
+
+    private List<String> paths(String id) throws Exception {
+        List<String> result = new ArrayList<>();
+        for (Iterator<RootPathIndex.RootPath> iterator = index.iterateRootPaths(ref(id)); iterator.hasNext(); ) {
+            result.add(iterator.next().join(NodeItem::getId, "."));
+        }
+        return result;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // два ромба подряд и второй корень; y <-> z — цикл
+        node("s", "a", "b");
+        node("a", "m");
+        node("b", "m");
+        node("m", "c", "d");
+        node("c", "t");
+        node("d", "t");
+        node("x", "t");
+        node("t");
+        node("y", "z");
+        node("z", "y");
+
+        FullProjectRepository repository = mock(FullProjectRepository.class);
+        when(repository.listGraphNodeRef()).thenReturn(new ArrayList<>(items.keySet()));
+        when(repository.getNode(any(GraphNodeRef.class))).thenAnswer(invocation -> items.get(invocation.getArgument(0)));
+        index = RootPathIndex.build(repository);
+    }
+
+    @Test
+    public void testLazyPathsKeepParentOrder() throws Exception {
+        assertEquals(List.of("s"), paths("s"));
+        assertEquals(List.of("s.a.m", "s.b.m"), paths("m"));
+        assertEquals(List.of("s.a.m.c.t", "s.b.m.c.t", "s.a.m.d.t", "s.b.m.d.t", "x.t"), paths("t"));
+        assertTrue("Nodes on a cycle have no root paths", paths("z").isEmpty());
+    }
+
+    @Test
+    public void testCountAndLimit() throws Exception {
+        assertEquals(5L, index.countRootPaths(ref("t")));
+        assertEquals(0L, index.countRootPaths(ref("y")));
+
+        RootPathIndex.LimitedRootPaths limited = index.getRootPaths(ref("t"), 2);
+        assertEquals(2, limited.getPaths().size());
+        assertEquals(5L, limited.getTotalCount());
+        assertTrue(limited.isTruncated());
+        assertFalse(index.getRootPaths(ref("m"), 2).isTruncated());
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.node_repository;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.dto.Node;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.NodeLifecycleState;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_traversal.node_repository.CsrGraphManagerNodeRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CsrGraphManagerNodeRepositoryTest {
+
+    private GraphNodeRef rootRef;
+    private GraphNodeRef leftRef;
+    private GraphNodeRef rightRef;
+    private GraphNodeRef leafRef;
+    private Map<GraphNodeRef, Node> allNodes;
+
+    private Node newNode(GraphNodeRef ref, GraphNodeRef... downstream) {
+        Node node = Node.newBuilder()
+                .setGraphNodeRef(ref)
+                .setDownstream(Arrays.asList(downstream))
+                .build();
+        allNodes.put(ref, node);
+        return node;
+    }
+
+    @Before
+    public void setUp() {
+        allNodes = new HashMap<>();
+        rootRef = GraphNodeRef.newBuilder().nodeUUID("root").build();
+        leftRef = GraphNodeRef.newBuilder().nodeUUID("left").build();
+        rightRef = GraphNodeRef.newBuilder().nodeUUID("right").build();
+        leafRef = GraphNodeRef.newBuilder().nodeUUID("leaf").build();
+
+        newNode(leafRef);
+        newNode(leftRef, leafRef);
+        newNode(rightRef, leafRef);
+        // ссылка на неизвестный узел должна игнорироваться, как в GraphManagerNodeRepository
+        newNode(rootRef, leftRef, rightRef, GraphNodeRef.newBuilder().nodeUUID("unknown").build());
+    }
+
+    @Test
+    public void testDownstreamAndRoots() throws OperationIncompleteException {
+        CsrGraphManagerNodeRepository repository = new CsrGraphManagerNodeRepository(allNodes);
+
+        assertEquals(4, repository.size());
+        assertEquals(List.of(rootRef), repository.getRootNodes());
+
+        List<Node> rootDownstream = repository.getNodeDownstream(rootRef);
+        assertEquals(2, rootDownstream.size());
+        assertSame(allNodes.get(leftRef), rootDownstream.get(0));
+        assertSame(allNodes.get(rightRef), rootDownstream.get(1));
+
+        assertTrue(repository.getNodeDownstream(allNodes.get(leafRef)).isEmpty());
+        assertSame(allNodes.get(leafRef), repository.getNodeDownstream(leftRef).get(0));
+
+        int leftId = repository.getNodeId(leftRef);
+        assertEquals(1, repository.getDownstreamCount(leftId));
+        assertSame(allNodes.get(leafRef), repository.getNode(repository.getDownstreamId(leftId, 0)));
+    }
+
+    @Test
+    public void testUnknownNode() throws OperationIncompleteException {
+        CsrGraphManagerNodeRepository repository = new CsrGraphManagerNodeRepository(allNodes);
+        GraphNodeRef unknown = GraphNodeRef.newBuilder().nodeUUID("unknown").build();
+
+        assertEquals(-1, repository.getNodeId(unknown));
+        boolean thrown = false;
+        try {
+            repository.getNode(unknown);
+        } catch (OperationIncompleteException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    @Test
+    public void testClearNodeStatuses() throws OperationIncompleteException {
+        CsrGraphManagerNodeRepository repository = new CsrGraphManagerNodeRepository(allNodes);
+        for (Node node : allNodes.values()) node.setNodeLifecycleState(NodeLifecycleState.READY);
+
+        repository.clearNodeStatuses();
+
+        for (Node node : allNodes.values()) {
+            assertEquals(NodeLifecycleState.NOTSTATED, node.getNodeLifecycleState());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleHandle;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleLoader;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ReusableWorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.api_engine.MCg3WorkflowRoutineApiInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ModuleLoaderTest {
+    private Path pluginsDir;
+
+    @Before
+    public void setUp() throws IOException {
+        pluginsDir = Files.createTempDirectory("module-loader-test");
+        // jar содержит только описание сервиса; сам класс фабрики загружается родительским class loader'ом
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(pluginsDir.resolve("routines.jar")))) {
+            jar.putNextEntry(new JarEntry("META-INF/services/" + WorkflowRoutineFactoryInterface.class.getName()));
+            jar.write(CountingRoutineFactory.class.getName().getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(pluginsDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static FullProjectRepository repository() {
+        return (FullProjectRepository) Proxy.newProxyInstance(
+                FullProjectRepository.class.getClassLoader(),
+                new Class<?>[]{FullProjectRepository.class},
+                (proxy, method, args) -> null);
+    }
+
+    @Test
+    public void testInFlightHandleKeepsItsVersionAcrossReload() throws Exception {
+        ModuleLoader moduleLoader = new ModuleLoader(pluginsDir, repository());
+        ModuleHandle inFlight = moduleLoader.resolveModule("CountingRoutine");
+        assertEquals(1L, inFlight.getModulesVersion());
+        WorkflowRoutineInterface oldRoutine = moduleLoader.getModule(inFlight, "node/stage/worker", null, null);
+
+        moduleLoader.reload();
+
+        ModuleHandle reloaded = moduleLoader.resolveModule("CountingRoutine");
+        assertEquals(2L, moduleLoader.getModulesVersion());
+        assertEquals(2L, reloaded.getModulesVersion());
+        assertEquals("Handle resolved before reload stays on its snapshot", 1L, inFlight.getModulesVersion());
+
+        CountingRoutine fromOld = (CountingRoutine) inFlight.create(null, null);
+        CountingRoutine fromNew = (CountingRoutine) reloaded.create(null, null);
+        assertEquals("Old handle keeps creating routines with its own factory", ((CountingRoutine) oldRoutine).factoryId, fromOld.factoryId);
+        assertTrue("Reload publishes new factories", fromOld.factoryId != fromNew.factoryId);
+
+        // экземпляр старого снимка не попадает в пул нового
+        moduleLoader.releaseModule(inFlight, "node/stage/worker", oldRoutine);
+        assertTrue(oldRoutine != moduleLoader.getModule(reloaded, "node/stage/worker", null, null));
+    }
+
+    @Test
+    public void testPooledRoutineIsReusedOnlyByHandleOfItsVersion() throws Exception {
+        ModuleLoader moduleLoader = new ModuleLoader(pluginsDir, repository());
+        ModuleHandle inFlight = moduleLoader.resolveModule("CountingRoutine");
+        moduleLoader.reload();
+        ModuleHandle reloaded = moduleLoader.resolveModule("CountingRoutine");
+
+        WorkflowRoutineInterface routine = moduleLoader.getModule(reloaded, "node/stage/worker", null, null);
+        moduleLoader.releaseModule(reloaded, "node/stage/worker", routine);
+        assertTrue("Handle of the previous snapshot does not get an instance of the current one",
+                routine != moduleLoader.getModule(inFlight, "node/stage/worker", null, null));
+
+        moduleLoader.releaseModule(reloaded, "node/stage/worker", routine);
+        assertSame(routine, moduleLoader.getModule(reloaded, "node/stage/worker", null, null));
+    }
+
+    @Test
+    public void testResetOfForeignInstanceIsReported() throws Exception {
+        ModuleLoader moduleLoader = new ModuleLoader(pluginsDir, repository());
+        ModuleHandle moduleHandle = moduleLoader.resolveModule("CountingRoutine");
+        moduleLoader.releaseModule(moduleHandle, "node/stage/worker", new ForeignRoutine());
+        try {
+            moduleLoader.getModule(moduleHandle, "node/stage/worker", null, null);
+            fail("ClassCastException from reset is not swallowed");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+
+    public static final class CountingRoutine implements WorkflowRoutineInterface {
+        final int factoryId;
+
+        CountingRoutine(int factoryId) {
+            this.factoryId = factoryId;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    public static final class ForeignRoutine implements WorkflowRoutineInterface {
+        @Override
+        public void run() {
+        }
+    }
+
+    public static final class CountingRoutineFactory implements ReusableWorkflowRoutineFactoryInterface {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+        private final int id = INSTANCES.incrementAndGet();
+
+        @Override
+        public WorkflowRoutineInterface create(MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            return new CountingRoutine(id);
+        }
+
+        @Override
+        public boolean reset(WorkflowRoutineInterface routine, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            // принимает экземпляр любой фабрики того же типа: отбор по снимку — забота ModuleLoader
+            return ((CountingRoutine) routine).factoryId > 0;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationTimedOutException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.NodePipeline;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.StagesConsistencyItem;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.StagesDescriptionItem;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.WorkersDescriptionItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.domain.repository.storage.StorageManagerInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.graph_path_manager.PathManagerInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineExecutionSettings;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelineManager;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelinePlanCache;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.WorkerBulkheads;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.execution_context.ExecutionContextFactoryInterface;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ModuleLoader;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.module_loader.ReusableWorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.api_engine.MCg3WorkflowRoutineApiInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineFactoryInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.WorkflowRoutineInterface;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagProxy;
+import io.github.byzatic.tessera.workflowroutine.workflowroutines.health.HealthFlagState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Поведение PipelineManager на self-hosted scheduler с рутинами-заглушками из тестового jar'а плагинов.
+ */
+public class PipelineManagerTest {
+    private static final Map<String, Execution> EXECUTIONS = new ConcurrentHashMap<>();
+    private static final Map<String, Long> DELAYS = new ConcurrentHashMap<>();
+    private static final AtomicInteger REUSABLE_CREATED = new AtomicInteger();
+    private static final AtomicInteger REUSABLE_RESET = new AtomicInteger();
+    private static volatile CountDownLatch slowInterrupted = new CountDownLatch(1);
+    // поток теста: inline-worker выполняется в нём
+    private static volatile Thread callerThread;
+
+    private final GraphNodeRef nodeRef = GraphNodeRef.newBuilder().nodeUUID("node").build();
+    private final List<PipelineManager> managers = new ArrayList<>();
+    private final List<PipelineExecutionSettings> settings = new ArrayList<>();
+    private Path pluginsDir;
+    private ModuleLoader moduleLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        EXECUTIONS.clear();
+        DELAYS.clear();
+        REUSABLE_CREATED.set(0);
+        REUSABLE_RESET.set(0);
+        slowInterrupted = new CountDownLatch(1);
+        callerThread = Thread.currentThread();
+
+        pluginsDir = Files.createTempDirectory("pipeline-manager-test");
+        // jar содержит только описание сервисов; классы фабрик загружаются родительским class loader'ом
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(pluginsDir.resolve("routines.jar")))) {
+            jar.putNextEntry(new JarEntry("META-INF/services/" + WorkflowRoutineFactoryInterface.class.getName()));
+            jar.write(String.join("\n",
+                    FirstFactory.class.getName(),
+                    SecondFactory.class.getName(),
+                    ThirdFactory.class.getName(),
+                    SlowFactory.class.getName(),
+                    ReusableFactory.class.getName()
+            ).getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+        moduleLoader = new ModuleLoader(pluginsDir, stub(FullProjectRepository.class, (name, args) -> null));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (PipelineManager manager : managers) manager.close();
+        for (PipelineExecutionSettings executionSettings : settings) executionSettings.close();
+        try (Stream<Path> files = Files.walk(pluginsDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    // ===== inline-режимы =====
+
+    @Test
+    public void testInlineNoneRunsEveryWorkerOnScheduler() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(stage(0, worker("First"), worker("Second"))), settings("none"));
+
+        manager.runPipeline();
+
+        assertEquals(Set.of("First", "Second"), EXECUTIONS.keySet());
+        assertFalse(EXECUTIONS.get("First").onCallerThread);
+        assertFalse(EXECUTIONS.get("Second").onCallerThread);
+    }
+
+    @Test
+    public void testInlineSingleRunsOnlyTheOnlyWorkerOfStage() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), worker("Second")),
+                stage(1, worker("Third"))
+        ), settings("single"));
+
+        manager.runPipeline();
+
+        assertFalse(EXECUTIONS.get("First").onCallerThread);
+        assertFalse(EXECUTIONS.get("Second").onCallerThread);
+        assertTrue("The only worker of a stage runs inline", EXECUTIONS.get("Third").onCallerThread);
+    }
+
+    @Test
+    public void testInlineLastRunsLastWorkerOfEveryStage() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), worker("Second")),
+                stage(1, worker("Third"))
+        ), settings("last"));
+
+        manager.runPipeline();
+
+        assertFalse(EXECUTIONS.get("First").onCallerThread);
+        assertTrue(EXECUTIONS.get("Second").onCallerThread);
+        assertTrue(EXECUTIONS.get("Third").onCallerThread);
+    }
+
+    @Test
+    public void testInlineIsSkippedForStageWithDeadlines() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, WorkersDescriptionItem.newBuilder().name("First").timeoutMs(5_000L).build())
+        ), settings("last"));
+
+        manager.runPipeline();
+
+        assertFalse("Worker with timeout_ms is run by the scheduler", EXECUTIONS.get("First").onCallerThread);
+    }
+
+    // ===== runPipelineAsync =====
+
+    @Test
+    public void testAsyncStagesKeepStageBarrier() throws Exception {
+        DELAYS.put("First", 200L);
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), worker("Second")),
+                stage(1, worker("Third"))
+        ), settings("last"));
+
+        manager.runPipelineAsync().get(10, TimeUnit.SECONDS);
+
+        assertTrue("Next stage starts after the whole previous stage",
+                EXECUTIONS.get("Third").startNanos >= EXECUTIONS.get("First").endNanos);
+        for (Execution execution : EXECUTIONS.values()) {
+            assertFalse("Async pipeline does not run workers inline", execution.onCallerThread);
+        }
+    }
+
+    @Test
+    public void testAsyncDependsOnStartsWorkerAfterItsDependencies() throws Exception {
+        DELAYS.put("First", 500L);
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), worker("Second")),
+                stage(1, worker("Third", "Second"))
+        ), settings("none"));
+
+        manager.runPipelineAsync().get(10, TimeUnit.SECONDS);
+
+        Execution first = EXECUTIONS.get("First");
+        Execution second = EXECUTIONS.get("Second");
+        Execution third = EXECUTIONS.get("Third");
+        assertTrue("Worker waits for its dependency", third.startNanos >= second.endNanos);
+        assertTrue("Worker does not wait for the rest of the previous stage", third.startNanos < first.endNanos);
+    }
+
+    @Test
+    public void testAsyncDependsOnFailureStopsDependents() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), WorkersDescriptionItem.newBuilder().name("Slow").timeoutMs(100L).build()),
+                stage(1, worker("Third", "Slow"))
+        ), settings("none"));
+
+        try {
+            manager.runPipelineAsync().get(10, TimeUnit.SECONDS);
+            fail("Timed out dependency fails the pipeline");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertTrue(e.getCause() instanceof OperationIncompleteException);
+        }
+        assertFalse("Dependent of a failed worker is not started", EXECUTIONS.containsKey("Third"));
+    }
+
+    @Test
+    public void testAsyncLauncherIsBounded() throws Exception {
+        PipelineExecutionSettings executionSettings = track(PipelineExecutionSettings.newBuilder()
+                .stopGraceMillis(200L)
+                .launcherThreads(1)
+                .launcherQueueCapacity(1)
+                .build());
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, worker("First"), worker("Second"), worker("Reusable")),
+                stage(1, worker("Third", "Second"))
+        ), executionSettings);
+
+        manager.runPipelineAsync().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("First", "Second", "Reusable", "Third"), EXECUTIONS.keySet());
+        ThreadPoolExecutor launcher = (ThreadPoolExecutor) executionSettings.getLauncher();
+        assertEquals("Launcher never grows beyond its size", 1, launcher.getLargestPoolSize());
+    }
+
+    @Test
+    public void testClosedLauncherRunsLaunchOnCallerThread() throws Exception {
+        PipelineExecutionSettings executionSettings = track(PipelineExecutionSettings.newBuilder().launcherThreads(1).build());
+        executionSettings.close();
+
+        List<Thread> ranOn = new ArrayList<>();
+        executionSettings.getLauncher().execute(() -> ranOn.add(Thread.currentThread()));
+
+        assertTrue(executionSettings.getLauncher().isShutdown());
+        assertEquals("Launch is not dropped after close", List.of(Thread.currentThread()), ranOn);
+    }
+
+    // ===== timeout_ms =====
+
+    @Test
+    public void testWorkerTimeoutStopsRoutineWithGrace() throws Exception {
+        PipelineManager manager = manager(nodeRef, pipeline(
+                stage(0, WorkersDescriptionItem.newBuilder().name("Slow").timeoutMs(100L).build(), worker("First"))
+        ), settings("none"));
+
+        long start = System.nanoTime();
+        OperationIncompleteException error = runExpectingFailure(manager);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(error.getMessage(), error.getMessage().contains("TIMEOUT"));
+        assertTrue(error.getCause() instanceof OperationTimedOutException);
+        assertTrue("Stage does not wait for the hung routine; elapsed " + elapsedMillis, elapsedMillis < 5_000L);
+        assertTrue("Timed out job is removed from the scheduler and its routine is interrupted",
+                slowInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStageTimeoutExpiresWorkersWaitingForPermit() throws Exception {
+        PipelineExecutionSettings executionSettings = track(PipelineExecutionSettings.newBuilder()
+                .stopGraceMillis(200L)
+                .bulkheads(new WorkerBulkheads(Map.of(), Map.of("stage0", 1), null))
+                .build());
+        PipelineManager manager = manager(nodeRef, pipeline(
+                StagesDescriptionItem.newBuilder().stageId("stage0").timeoutMs(150L)
+                        .workersDescription(List.of(worker("Slow"), worker("First"))).build()
+        ), executionSettings);
+
+        OperationIncompleteException error = runExpectingFailure(manager);
+
+        assertTrue(error.getMessage(), error.getMessage().contains("TIMEOUT"));
+        assertTrue(slowInterrupted.await(5, TimeUnit.SECONDS));
+        // permit освобождён прерванной рутиной, но снятый из очереди worker уже не запускается
+        Thread.sleep(100L);
+        assertFalse("Worker still waiting for a permit is not started after the stage deadline", EXECUTIONS.containsKey("First"));
+    }
+
+    // ===== переиспользование рутин =====
+
+    @Test
+    public void testReusableRoutineIsPooledByInstanceKey() throws Exception {
+        NodePipeline pipeline = pipeline(stage(0, worker("Reusable")));
+        PipelineManager manager = manager(nodeRef, pipeline, settings("none"));
+
+        manager.runPipeline();
+        Object firstInstance = EXECUTIONS.get("Reusable").routine;
+        manager.runPipeline();
+
+        assertEquals(1, REUSABLE_CREATED.get());
+        assertEquals("Second run reuses the released instance", 1, REUSABLE_RESET.get());
+        assertSame(firstInstance, EXECUTIONS.get("Reusable").routine);
+
+        // тот же worker другого узла — другой instanceKey
+        PipelineManager other = manager(GraphNodeRef.newBuilder().nodeUUID("other").build(), pipeline, settings("none"));
+        other.runPipeline();
+        assertEquals(2, REUSABLE_CREATED.get());
+        assertTrue(firstInstance != EXECUTIONS.get("Reusable").routine);
+    }
+
+    // ===== helpers =====
+
+    private PipelineExecutionSettings settings(String inlineExecution) {
+        return track(PipelineExecutionSettings.newBuilder().inlineExecution(inlineExecution).stopGraceMillis(200L).build());
+    }
+
+    private PipelineExecutionSettings track(PipelineExecutionSettings executionSettings) {
+        settings.add(executionSettings);
+        return executionSettings;
+    }
+
+    private OperationIncompleteException runExpectingFailure(PipelineManager manager) {
+        try {
+            manager.runPipeline();
+        } catch (OperationIncompleteException e) {
+            return e;
+        }
+        fail("Pipeline should fail");
+        return null;
+    }
+
+    private PipelineManager manager(GraphNodeRef ref, NodePipeline pipeline, PipelineExecutionSettings settings) throws OperationIncompleteException {
+        FullProjectRepository repository = stub(FullProjectRepository.class, (name, args) -> switch (name) {
+            case "getPipeline" -> pipeline;
+            case "getNode" -> NodeItem.newBuilder().setName("node").build();
+            default -> null;
+        });
+        PathManagerInterface pathManager = stub(PathManagerInterface.class, (name, args) -> switch (name) {
+            case "getStoragePathByGraphNodeRef" -> Path.of("node");
+            case "getProjectGlobalStorage" -> Path.of("global");
+            default -> null;
+        });
+        ExecutionContextFactoryInterface executionContextFactory = (ExecutionContextFactoryInterface) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ExecutionContextFactoryInterface.class},
+                (proxy, method, args) -> "getExecutionContext".equals(method.getName())
+                        ? stub(method.getReturnType(), (name, ignored) -> null)
+                        : null);
+        PipelineManager manager = new PipelineManager(ref, List.of(ref), repository, moduleLoader,
+                stub(StorageManagerInterface.class, (name, args) -> null), pathManager, executionContextFactory,
+                new PipelinePlanCache(), settings);
+        managers.add(manager);
+        return manager;
+    }
+
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> type.getSimpleName() + "Stub";
+            default -> answer.answer(method.getName(), args);
+        });
+    }
+
+    private static WorkersDescriptionItem worker(String name, String... dependsOn) {
+        return WorkersDescriptionItem.newBuilder()
+                .name(name)
+                .dependsOn(dependsOn.length == 0 ? null : Arrays.asList(dependsOn))
+                .build();
+    }
+
+    private static StagesDescriptionItem stage(int index, WorkersDescriptionItem... workers) {
+        return StagesDescriptionItem.newBuilder().stageId("stage" + index).workersDescription(Arrays.asList(workers)).build();
+    }
+
+    private static NodePipeline pipeline(StagesDescriptionItem... stages) {
+        List<StagesConsistencyItem> consistency = new ArrayList<>();
+        for (int i = 0; i < stages.length; i++) {
+            consistency.add(StagesConsistencyItem.newBuilder().stageId(stages[i].getStageId()).position(i).build());
+        }
+        return NodePipeline.newBuilder().stagesConsistency(consistency).stagesDescription(Arrays.asList(stages)).build();
+    }
+
+    // ===== рутины-заглушки =====
+
+    private static final class Execution {
+        final Object routine;
+        final boolean onCallerThread;
+        final long startNanos;
+        final long endNanos;
+
+        Execution(Object routine, boolean onCallerThread, long startNanos, long endNanos) {
+            this.routine = routine;
+            this.onCallerThread = onCallerThread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+
+    private static class RecordingRoutine implements WorkflowRoutineInterface {
+        final String name;
+        volatile HealthFlagProxy health;
+
+        RecordingRoutine(String name, HealthFlagProxy health) {
+            this.name = name;
+            this.health = health;
+        }
+
+        @Override
+        public void run() throws Exception {
+            long start = System.nanoTime();
+            Thread.sleep(DELAYS.getOrDefault(name, 0L));
+            EXECUTIONS.put(name, new Execution(this, Thread.currentThread() == callerThread, start, System.nanoTime()));
+            health.setHealthFlagState(HealthFlagState.COMPLETE);
+        }
+    }
+
+    private abstract static class RecordingFactory implements WorkflowRoutineFactoryInterface {
+        private final String name;
+
+        RecordingFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public WorkflowRoutineInterface create(MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            return new RecordingRoutine(name, healthFlagProxy);
+        }
+    }
+
+    public static final class FirstFactory extends RecordingFactory {
+        public FirstFactory() {
+            super("First");
+        }
+    }
+
+    public static final class SecondFactory extends RecordingFactory {
+        public SecondFactory() {
+            super("Second");
+        }
+    }
+
+    public static final class ThirdFactory extends RecordingFactory {
+        public ThirdFactory() {
+            super("Third");
+        }
+    }
+
+    /**
+     * Зависшая рутина: завершается только прерыванием потока.
+     */
+    public static final class SlowFactory implements WorkflowRoutineFactoryInterface {
+        @Override
+        public WorkflowRoutineInterface create(MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            return () -> {
+                try {
+                    Thread.sleep(30_000L);
+                    healthFlagProxy.setHealthFlagState(HealthFlagState.COMPLETE);
+                } catch (InterruptedException e) {
+                    slowInterrupted.countDown();
+                    throw e;
+                }
+            };
+        }
+    }
+
+    public static final class ReusableFactory implements ReusableWorkflowRoutineFactoryInterface {
+        @Override
+        public WorkflowRoutineInterface create(MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            REUSABLE_CREATED.incrementAndGet();
+            return new RecordingRoutine("Reusable", healthFlagProxy);
+        }
+
+        @Override
+        public boolean reset(WorkflowRoutineInterface routine, MCg3WorkflowRoutineApiInterface workflowRoutineApi, HealthFlagProxy healthFlagProxy) {
+            REUSABLE_RESET.incrementAndGet();
+            ((RecordingRoutine) routine).health = healthFlagProxy;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.NodePipeline;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.StagesConsistencyItem;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.StagesDescriptionItem;
+import io.github.byzatic.tessera.engine.domain.model.node_pipeline.WorkersDescriptionItem;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.PipelinePlan;
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.SupportPathResolver;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PipelinePlanTest {
+
+    private final GraphNodeRef nodeRef = GraphNodeRef.newBuilder().nodeUUID("node").build();
+    private final SupportPathResolver pathResolver = new SupportPathResolver(Path.of("node"), Path.of("global"));
+
+    private WorkersDescriptionItem worker(String name, String... dependsOn) {
+        return WorkersDescriptionItem.newBuilder()
+                .name(name)
+                .dependsOn(dependsOn.length == 0 ? null : Arrays.asList(dependsOn))
+                .build();
+    }
+
+    private NodePipeline pipeline(List<List<WorkersDescriptionItem>> stages) {
+        List<StagesConsistencyItem> consistency = new ArrayList<>();
+        List<StagesDescriptionItem> description = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            consistency.add(StagesConsistencyItem.newBuilder().stageId("stage" + i).position(i).build());
+            description.add(StagesDescriptionItem.newBuilder().stageId("stage" + i).workersDescription(stages.get(i)).build());
+        }
+        return NodePipeline.newBuilder().stagesConsistency(consistency).stagesDescription(description).build();
+    }
+
+    @Test
+    public void testNoDependsOnKeepsStageExecution() throws OperationIncompleteException {
+        PipelinePlan plan = PipelinePlan.compile(nodeRef, pipeline(List.of(
+                List.of(worker("a"), worker("b")),
+                List.of(worker("c"))
+        )), pathResolver);
+
+        assertNull(plan.getWorkerGraph());
+        assertEquals(2, plan.getStages().size());
+    }
+
+    @Test
+    public void testDependsOnBypassesStageBarrier() throws OperationIncompleteException {
+        PipelinePlan plan = PipelinePlan.compile(nodeRef, pipeline(List.of(
+                List.of(worker("slow"), worker("fast")),
+                List.of(worker("afterFast", "fast"), worker("afterStage"))
+        )), pathResolver);
+
+        PipelinePlan.WorkerGraph graph = plan.getWorkerGraph();
+        assertNotNull(graph);
+        assertEquals(4, graph.size());
+        assertEquals(0, graph.getDependencyCount(0));
+        assertEquals(0, graph.getDependencyCount(1));
+        assertEquals("afterFast waits only for fast", 1, graph.getDependencyCount(2));
+        assertEquals("afterStage waits for the whole previous stage", 2, graph.getDependencyCount(3));
+        assertArrayEquals(new int[]{3}, graph.getDependents(0));
+        assertArrayEquals(new int[]{2, 3}, graph.getDependents(1));
+        assertEquals("stage1", graph.getStage(2).getStageId());
+    }
+
+    @Test
+    public void testInvalidDependencies() {
+        assertCompileFails(List.of(List.of(worker("a", "missing"))));
+        assertCompileFails(List.of(List.of(worker("a", "b"), worker("b", "a"))));
+        assertCompileFails(List.of(List.of(worker("a"), worker("a")), List.of(worker("b", "a"))));
+    }
+
+    @Test
+    public void testTimeouts() throws OperationIncompleteException {
+        NodePipeline source = pipeline(List.of(
+                List.of(WorkersDescriptionItem.newBuilder().name("bounded").timeoutMs(500L).build(), worker("unbounded"))
+        ));
+        PipelinePlan plan = PipelinePlan.compile(nodeRef, source, pathResolver);
+        PipelinePlan.StagePlan stage = plan.getStages().get(0);
+        assertEquals(0L, stage.getTimeoutMs());
+        assertTrue(stage.hasDeadlines());
+        assertEquals(500L, stage.getWorkers().get(0).getTimeoutMs());
+        assertEquals(0L, stage.getWorkers().get(1).getTimeoutMs());
+
+        assertCompileFails(List.of(List.of(WorkersDescriptionItem.newBuilder().name("a").timeoutMs(0L).build())));
+    }
+
+    private void assertCompileFails(List<List<WorkersDescriptionItem>> stages) {
+        boolean thrown = false;
+        try {
+            PipelinePlan.compile(nodeRef, pipeline(stages), pathResolver);
+        } catch (OperationIncompleteException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.graph_manager.pipeline_manager;
+
+import io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.WorkerBulkheads;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WorkerBulkheadsTest {
+
+    @Test
+    public void testUnlimitedWorkerIsGrantedImmediately() {
+        WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of("Limited", 1), Map.of(), null);
+        List<String> started = new ArrayList<>();
+
+        WorkerBulkheads.Ticket ticket = bulkheads.acquire("stage", "Free", t -> started.add("Free"));
+
+        assertEquals(List.of("Free"), started);
+        assertTrue(ticket.enter());
+        assertFalse(bulkheads.isLimited("stage", "Free"));
+        assertTrue(bulkheads.isLimited("stage", "Limited"));
+    }
+
+    @Test
+    public void testWorkerLimitQueuesInFifoOrder() {
+        List<Long> waits = new ArrayList<>();
+        WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of("Routine", 1), Map.of(), (worker, stage, waitMillis) -> waits.add(waitMillis));
+        List<String> started = new ArrayList<>();
+
+        WorkerBulkheads.Ticket first = bulkheads.acquire("s1", "Routine", t -> started.add("first"));
+        bulkheads.acquire("s2", "Routine", t -> started.add("second"));
+        bulkheads.acquire("s3", "Routine", t -> started.add("third"));
+        assertEquals(List.of("first"), started);
+
+        assertTrue(first.enter());
+        first.release();
+        assertEquals(List.of("first", "second"), started);
+        assertEquals("Wait time is reported for every limited worker", 2, waits.size());
+
+        // повторное освобождение не выдаёт лишний permit
+        first.release();
+        assertEquals(List.of("first", "second"), started);
+    }
+
+    @Test
+    public void testStageAndWorkerLimitsCombine() {
+        WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of("Routine", 1), Map.of("stage", 2), null);
+        List<String> started = new ArrayList<>();
+
+        WorkerBulkheads.Ticket routine = bulkheads.acquire("stage", "Routine", t -> started.add("routine-1"));
+        WorkerBulkheads.Ticket other = bulkheads.acquire("stage", "Other", t -> started.add("other-1"));
+        // стадия исчерпана: ждёт даже worker другого типа
+        bulkheads.acquire("stage", "Other", t -> started.add("other-2"));
+        // чужая стадия, но тип Routine занят
+        bulkheads.acquire("another", "Routine", t -> started.add("routine-2"));
+        assertEquals(List.of("routine-1", "other-1"), started);
+
+        other.release();
+        assertEquals(List.of("routine-1", "other-1", "other-2"), started);
+
+        routine.release();
+        assertEquals(List.of("routine-1", "other-1", "other-2", "routine-2"), started);
+    }
+
+    @Test
+    public void testWorkerWaitingForTypePermitHoldsStagePermit() {
+        WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of("Routine", 1), Map.of("stage", 2), null);
+        List<String> started = new ArrayList<>();
+
+        WorkerBulkheads.Ticket running = bulkheads.acquire("stage", "Routine", t -> started.add("routine-1"));
+        // взял permit стадии и ждёт permit типа Routine
+        WorkerBulkheads.Ticket waiting = bulkheads.acquire("stage", "Routine", t -> started.add("routine-2"));
+        // выполняется одна рутина, но лимит стадии занят ожидающим worker'ом
+        WorkerBulkheads.Ticket other = bulkheads.acquire("stage", "Other", t -> started.add("other"));
+        assertEquals(List.of("routine-1"), started);
+
+        // снятие из очереди возвращает permit стадии
+        assertTrue(waiting.cancelQueued());
+        assertEquals(List.of("routine-1", "other"), started);
+        assertTrue(other.enter());
+
+        // лимит стадии исчерпан: новый worker ждёт permit стадии, permit типа он ещё не взял
+        WorkerBulkheads.Ticket next = bulkheads.acquire("stage", "Routine", t -> started.add("routine-3"));
+        assertEquals(List.of("routine-1", "other"), started);
+        running.release();
+        assertEquals(List.of("routine-1", "other", "routine-3"), started);
+        assertTrue(next.enter());
+        assertFalse(waiting.enter());
+    }
+
+    @Test
+    public void testCancelledTicketsDoNotStart() {
+        WorkerBulkheads bulkheads = new WorkerBulkheads(Map.of("Routine", 1), Map.of(), null);
+        List<String> started = new ArrayList<>();
+
+        WorkerBulkheads.Ticket running = bulkheads.acquire("stage", "Routine", t -> started.add("running"));
+        WorkerBulkheads.Ticket queued = bulkheads.acquire("stage", "Routine", t -> started.add("queued"));
+        assertTrue(running.enter());
+
+        assertTrue(queued.cancelQueued());
+        assertFalse("Running ticket is not cancelled", running.cancelQueued());
+        running.cancel();
+        assertFalse(queued.enter());
+
+        WorkerBulkheads.Ticket next = bulkheads.acquire("stage", "Routine", t -> started.add("next"));
+        assertEquals("Permit is still held by the running worker", List.of("running"), started);
+
+        running.release();
+        assertEquals(List.of("running", "next"), started);
+        assertTrue(next.enter());
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.BoundedStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BoundedStorageTest {
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final Map<String, Long> evictions = new HashMap<>();
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private static OffHeapStorageTest.TestValue value(String text) {
+        return new OffHeapStorageTest.TestValue(text);
+    }
+
+    private BoundedStorage<DataValueInterface> bounded(long maxItems, long maxBytes, long ttl) throws OperationIncompleteException {
+        return new BoundedStorage<>(new Storage<>("s"), maxItems, maxBytes, ttl,
+                (storageId, reason, count) -> evictions.merge(reason, count, Long::sum), now::get);
+    }
+
+    @Test
+    public void testItemLimitEvictsLeastRecentlyUsed() throws OperationIncompleteException {
+        BoundedStorage<DataValueInterface> storage = bounded(100, 0, 0);
+        storage.upsert(id("hot"), value("hot"));
+        for (int i = 0; i < 1000; i++) {
+            now.incrementAndGet();
+            storage.upsert(id("key-" + i), value("v" + i));
+            // постоянно читаемый ключ почти никогда не оказывается самым давним в выборке
+            assertNotNull(storage.getIfPresent(id("hot")));
+        }
+        assertEquals(100, (int) storage.size());
+        assertEquals(901L, (long) evictions.get(BoundedStorage.REASON_ITEMS));
+        assertTrue("Recently written keys are kept", storage.contains(id("key-999")));
+    }
+
+    @Test
+    public void testTtlSinceLastWrite() throws OperationIncompleteException {
+        BoundedStorage<DataValueInterface> storage = bounded(0, 0, 100);
+        storage.upsert(id("a"), value("1"));
+        storage.upsert(id("b"), value("2"));
+        now.addAndGet(60);
+        storage.upsert(id("b"), value("3"));
+        now.addAndGet(60);
+
+        assertNull("Expired item is not returned", storage.getIfPresent(id("a")));
+        assertEquals(value("3"), storage.getIfPresent(id("b")));
+        assertEquals(1, storage.list().size());
+        assertFalse(storage.update(id("a"), value("4")));
+        assertEquals(1L, (long) evictions.get(BoundedStorage.REASON_TTL));
+
+        // истёкшие элементы вытесняются при записи, без чтения
+        for (int i = 0; i < 50; i++) storage.upsert(id("old-" + i), value("x"));
+        now.addAndGet(200);
+        for (int i = 0; i < 20; i++) storage.upsert(id("new-" + i), value("y"));
+        assertTrue("Writes evict expired items", evictions.get(BoundedStorage.REASON_TTL) > 20);
+    }
+
+    @Test
+    public void testSizeDoesNotCountExpiredItems() throws OperationIncompleteException {
+        BoundedStorage<DataValueInterface> storage = bounded(0, 0, 100);
+        for (int i = 0; i < 10; i++) storage.upsert(id("old-" + i), value("x"));
+        now.addAndGet(50);
+        storage.upsert(id("fresh"), value("y"));
+        // перезапись продлевает TTL
+        storage.upsert(id("old-0"), value("z"));
+        now.addAndGet(60);
+
+        assertEquals(storage.list().size(), (int) storage.size());
+        assertEquals(2, (int) storage.size());
+        assertTrue(storage.contains(id("old-0")));
+        assertEquals(9L, (long) evictions.get(BoundedStorage.REASON_TTL));
+    }
+
+    @Test
+    public void testByteLimit() throws OperationIncompleteException {
+        BoundedStorage<DataValueInterface> storage = bounded(0, 10_000, 0);
+        for (int i = 0; i < 500; i++) storage.upsert(id("key-" + i), value("value-" + i));
+        assertTrue(evictions.get(BoundedStorage.REASON_BYTES) > 0);
+        assertTrue(storage.size() < 500);
+        assertTrue(storage.contains(id("key-499")));
+    }
+
+    @Test
+    public void testCleanupWaitsForWriteInProgress() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Storage<DataValueInterface> inner = new Storage<>("s");
+        // вложенное хранилище задерживает запись ключа "slow" между записью значения и учётом метаданных
+        @SuppressWarnings("unchecked")
+        StorageInterface<DataValueInterface> slow = (StorageInterface<DataValueInterface>) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{StorageInterface.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(inner, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if ("upsert".equals(method.getName()) && "slow".equals(((DataLookupIdentifierImpl) args[0]).getDataLookupIdentifier())) {
+                        writing.countDown();
+                        release.await();
+                    }
+                    return result;
+                });
+        BoundedStorage<DataValueInterface> storage = new BoundedStorage<>(slow, 50, 0, 0, null, now::get);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> write = executor.submit(() -> {
+                storage.upsert(id("slow"), value("v"));
+                return null;
+            });
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            Future<?> cleanup = executor.submit(() -> {
+                storage.cleanup();
+                return null;
+            });
+            Thread.sleep(200);
+            assertFalse("Cleanup waits for the key stripe held by the write", cleanup.isDone());
+
+            release.countDown();
+            write.get(5, TimeUnit.SECONDS);
+            cleanup.get(5, TimeUnit.SECONDS);
+            assertEquals(0, (int) inner.size());
+            // метаданные очищены вместе со значением: лимит считается только по новым элементам
+            for (int i = 0; i < 50; i++) storage.upsert(id("k" + i), value("v" + i));
+            assertEquals(50, (int) inner.size());
+            assertTrue(storage.contains(id("k0")));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
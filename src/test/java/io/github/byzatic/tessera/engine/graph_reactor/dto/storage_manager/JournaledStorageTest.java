@@ -0,0 +1,117 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.journal.JournaledStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class JournaledStorageTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journaled-storage-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private static OffHeapStorageTest.TestValue value(String text) {
+        return new OffHeapStorageTest.TestValue(text);
+    }
+
+    private JournaledStorage<DataValueInterface> open() throws OperationIncompleteException {
+        return JournaledStorage.open(new Storage<>("s"), directory, true, 0);
+    }
+
+    @Test
+    public void testChangesAreReplayed() throws OperationIncompleteException {
+        JournaledStorage<DataValueInterface> storage = open();
+        storage.upsert(id("a"), value("1"));
+        storage.create(id("b"), value("2"));
+        storage.merge(id("a"), value("x"), (old, item) -> value(((OffHeapStorageTest.TestValue) old).text + "+"));
+        storage.computeIfAbsent(id("c"), key -> value("3"));
+        assertTrue(storage.delete(id("b")));
+        storage.close();
+
+        JournaledStorage<DataValueInterface> reopened = open();
+        assertEquals(2, (int) reopened.size());
+        assertEquals(value("1+"), reopened.getIfPresent(id("a")));
+        assertEquals(value("3"), reopened.getIfPresent(id("c")));
+        assertNull(reopened.getIfPresent(id("b")));
+
+        reopened.cleanup();
+        reopened.upsert(id("d"), value("4"));
+        reopened.close();
+        JournaledStorage<DataValueInterface> afterCleanup = open();
+        assertEquals(1, (int) afterCleanup.size());
+        assertEquals(value("4"), afterCleanup.getIfPresent(id("d")));
+        afterCleanup.close();
+    }
+
+    @Test
+    public void testUnsyncedChangesAreWrittenOnClose() throws OperationIncompleteException {
+        JournaledStorage<DataValueInterface> storage = JournaledStorage.open(new Storage<>("s"), directory, false, 0);
+        for (int i = 0; i < 100; i++) storage.upsert(id("key-" + i), value("value-" + i));
+        storage.close();
+        storage.close();
+
+        JournaledStorage<DataValueInterface> reopened = open();
+        assertEquals(100, (int) reopened.size());
+        assertEquals(value("value-99"), reopened.getIfPresent(id("key-99")));
+        reopened.close();
+    }
+
+    @Test
+    public void testSnapshotBoundsReplay() throws OperationIncompleteException, IOException, InterruptedException {
+        JournaledStorage<DataValueInterface> storage = open();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            writers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 100; i++) storage.upsert(id(writer + "-" + i), value("v" + i));
+                } catch (OperationIncompleteException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread writer : writers) writer.start();
+        for (Thread writer : writers) writer.join();
+
+        storage.snapshot();
+        storage.upsert(id("after"), value("snapshot"));
+        storage.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals("One snapshot and one live segment are left", 2, files.count());
+        }
+
+        JournaledStorage<DataValueInterface> reopened = open();
+        assertEquals(401, (int) reopened.size());
+        assertEquals(value("v99"), reopened.getIfPresent(id("3-99")));
+        assertEquals(value("snapshot"), reopened.getIfPresent(id("after")));
+        reopened.close();
+    }
+}
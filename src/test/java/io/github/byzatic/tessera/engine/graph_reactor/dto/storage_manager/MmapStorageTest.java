@@ -0,0 +1,179 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.DataValueClassLoaders;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.MmapStorage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MmapStorageTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mmap-storage-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private MmapStorage<DataValueInterface> open() throws OperationIncompleteException {
+        return new MmapStorage<>("s", directory, 4096, 16);
+    }
+
+    @Test
+    public void testStateSurvivesReopen() throws OperationIncompleteException {
+        MmapStorage<DataValueInterface> storage = open();
+        storage.create(id("a"), new OffHeapStorageTest.TestValue("1"));
+        storage.upsert(id("b"), new OffHeapStorageTest.TestValue("2"));
+        storage.upsert(id("a"), new OffHeapStorageTest.TestValue("3"));
+        storage.create(id("c"), new OffHeapStorageTest.TestValue("4"));
+        assertTrue(storage.delete(id("c")));
+
+        MmapStorage<DataValueInterface> reopened = open();
+        assertEquals(2, (int) reopened.size());
+        assertEquals(new OffHeapStorageTest.TestValue("3"), reopened.getIfPresent(id("a")));
+        assertEquals(new OffHeapStorageTest.TestValue("2"), reopened.getIfPresent(id("b")));
+        assertFalse("Deletion is restored", reopened.contains(id("c")));
+    }
+
+    @Test
+    public void testCloseFlushesMappedSlabs() throws OperationIncompleteException {
+        MmapStorage<DataValueInterface> storage = open();
+        storage.upsert(id("a"), new OffHeapStorageTest.TestValue("1"));
+        storage.close();
+        storage.close();
+
+        assertEquals(new OffHeapStorageTest.TestValue("1"), open().getIfPresent(id("a")));
+    }
+
+    @Test
+    public void testCompactionAndCleanupArePersisted() throws OperationIncompleteException, IOException {
+        MmapStorage<DataValueInterface> storage = open();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 200; i++) storage.upsert(id("key-" + i), new OffHeapStorageTest.TestValue("value-" + i + "-" + round));
+        }
+        assertTrue("Compaction switched the generation", Files.exists(directory.resolve(MmapStorage.CURRENT_FILE)));
+
+        MmapStorage<DataValueInterface> reopened = open();
+        assertEquals(200, (int) reopened.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(new OffHeapStorageTest.TestValue("value-" + i + "-4"), reopened.getIfPresent(id("key-" + i)));
+        }
+
+        reopened.cleanup();
+        assertEquals(0, (int) open().size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals("Only CURRENT is left after cleanup", 1, files.count());
+        }
+    }
+
+    @Test
+    public void testSlabsAreForcedOutsideTheWriteLock() throws Exception {
+        AtomicInteger blockedChecks = new AtomicInteger();
+        AtomicInteger checks = new AtomicInteger();
+        // сброс на диск выполняется в writeLockReleased: в этот момент другой поток должен читать без ожидания
+        MmapStorage<DataValueInterface> storage = new MmapStorage<>("s", directory, 4096, 16) {
+            @Override
+            protected void writeLockReleased() {
+                checks.incrementAndGet();
+                Thread reader = new Thread(() -> {
+                    try {
+                        getIfPresent(id("key-0"));
+                    } catch (OperationIncompleteException ignored) {
+                    }
+                });
+                reader.start();
+                try {
+                    reader.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (reader.isAlive()) blockedChecks.incrementAndGet();
+                super.writeLockReleased();
+            }
+        };
+        // заполняет несколько слэбов и проходит компактификацию
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) storage.upsert(id("key-" + i), new OffHeapStorageTest.TestValue("value-" + i + "-" + round));
+        }
+        assertTrue(checks.get() > 0);
+        assertEquals("Reader was blocked while slabs were forced", 0, blockedChecks.get());
+
+        MmapStorage<DataValueInterface> reopened = open();
+        assertEquals(100, (int) reopened.size());
+        assertEquals(new OffHeapStorageTest.TestValue("value-99-2"), reopened.getIfPresent(id("key-99")));
+    }
+
+    @Test
+    public void testRestoresPluginClassesAfterReopen() throws Exception {
+        // два плагина с классом одного имени, которого нет на classpath приложения
+        URLClassLoader first = pluginClassLoader("first", "first");
+        URLClassLoader second = pluginClassLoader("second", "second");
+        DataValueClassLoaders.getInstance().register(DataValueClassLoaders.MODULE_PREFIX + "FirstPlugin", first);
+        DataValueClassLoaders.getInstance().register(DataValueClassLoaders.MODULE_PREFIX + "SecondPlugin", second);
+        try {
+            MmapStorage<DataValueInterface> storage = open();
+            storage.upsert(id("a"), (DataValueInterface) first.loadClass(PLUGIN_CLASS).getConstructor().newInstance());
+            storage.upsert(id("b"), (DataValueInterface) second.loadClass(PLUGIN_CLASS).getConstructor().newInstance());
+
+            // новый экземпляр хранилища читает файлы без состояния, оставшегося от записи
+            MmapStorage<DataValueInterface> reopened = open();
+            DataValueInterface a = reopened.getIfPresent(id("a"));
+            DataValueInterface b = reopened.getIfPresent(id("b"));
+            assertSame(first, a.getClass().getClassLoader());
+            assertSame(second, b.getClass().getClassLoader());
+            assertEquals("first", a.toString());
+            assertEquals("second", b.toString());
+        } finally {
+            DataValueClassLoaders.getInstance().unregister(DataValueClassLoaders.MODULE_PREFIX + "FirstPlugin");
+            DataValueClassLoaders.getInstance().unregister(DataValueClassLoaders.MODULE_PREFIX + "SecondPlugin");
+            first.close();
+            second.close();
+        }
+    }
+
+    private static final String PLUGIN_CLASS = "plugin.PluginValue";
+
+    private URLClassLoader pluginClassLoader(String name, String text) throws Exception {
+        Path sources = Files.createDirectories(directory.resolve("plugin-src-" + name).resolve("plugin"));
+        Path source = sources.resolve("PluginValue.java");
+        Files.write(source, ("package plugin;\n"
+                + "public class PluginValue implements " + DataValueInterface.class.getName() + ", java.io.Serializable {\n"
+                + "    private static final long serialVersionUID = 1L;\n"
+                + "    @Override public String toString() { return \"" + text + "\"; }\n"
+                + "}\n").getBytes(StandardCharsets.UTF_8));
+        Path classes = Files.createDirectories(directory.resolve("plugin-classes-" + name));
+        String classPath = new File(DataValueInterface.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("Test requires a JDK", compiler);
+        assertEquals(0, compiler.run(null, null, null, "-cp", classPath, "-d", classes.toString(), source.toString()));
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, MmapStorageTest.class.getClassLoader());
+    }
+}
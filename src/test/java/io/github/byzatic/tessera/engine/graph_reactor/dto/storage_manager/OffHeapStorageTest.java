@@ -0,0 +1,98 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.OffHeapStorage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class OffHeapStorageTest {
+
+    static final class TestValue implements DataValueInterface, Serializable {
+        final String text;
+
+        TestValue(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestValue && Objects.equals(text, ((TestValue) o).text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(text);
+        }
+    }
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    @Test
+    public void testCrudOperations() throws OperationIncompleteException {
+        OffHeapStorage<DataValueInterface> storage = new OffHeapStorage<>("s");
+
+        storage.create(id("a"), new TestValue("1"));
+        try {
+            storage.create(id("a"), new TestValue("2"));
+            fail("Duplicate create should fail");
+        } catch (OperationIncompleteException expected) {
+            // ok
+        }
+        assertEquals(new TestValue("1"), storage.read(id("a")));
+        assertNull(storage.getIfPresent(id("missing")));
+
+        assertTrue(storage.update(id("a"), new TestValue("2")));
+        assertFalse(storage.update(id("b"), new TestValue("2")));
+        storage.upsert(id("b"), new TestValue("3"));
+        assertEquals(2, (int) storage.size());
+        assertEquals(new TestValue("2"), storage.getIfPresent(id("a")));
+
+        assertEquals(new TestValue("23"), storage.merge(id("b"), new TestValue("2"),
+                (old, item) -> new TestValue(((TestValue) item).text + ((TestValue) old).text)));
+        assertEquals(new TestValue("3"), storage.computeIfAbsent(id("c"), key -> new TestValue("3")));
+        assertEquals(new TestValue("3"), storage.computeIfAbsent(id("c"), key -> {
+            throw new AssertionError("Mapping function is not called for existing item");
+        }));
+
+        assertTrue(storage.delete(id("a")));
+        assertFalse(storage.contains(id("a")));
+        assertEquals(2, (int) storage.size());
+
+        storage.cleanup();
+        assertEquals(0, (int) storage.size());
+        assertTrue(storage.list().isEmpty());
+    }
+
+    @Test
+    public void testGrowthAndCompaction() throws OperationIncompleteException {
+        OffHeapStorage<DataValueInterface> storage = new OffHeapStorage<>("s", 4096, 1);
+        int items = 5000;
+        for (int i = 0; i < items; i++) {
+            storage.create(id("key-" + i), new TestValue("value-" + i));
+        }
+        // перезапись и удаление оставляют мусор и tombstone'ы
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < items; i++) storage.upsert(id("key-" + i), new TestValue("value-" + i + "-" + round));
+        }
+        for (int i = 0; i < items; i += 2) assertTrue(storage.delete(id("key-" + i)));
+
+        assertEquals(items / 2, (int) storage.size());
+        Map<String, DataValueInterface> listed = new HashMap<>();
+        for (Pair<String, DataValueInterface> pair : storage.list()) listed.put(pair.getKey(), pair.getValue());
+        assertEquals(items / 2, listed.size());
+        for (int i = 1; i < items; i += 2) {
+            assertEquals(new TestValue("value-" + i + "-2"), listed.get("key-" + i));
+            assertEquals(new TestValue("value-" + i + "-2"), storage.getIfPresent(id("key-" + i)));
+        }
+        assertFalse(storage.contains(id("key-0")));
+    }
+}
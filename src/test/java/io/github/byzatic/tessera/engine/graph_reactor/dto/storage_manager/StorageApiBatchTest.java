@@ -0,0 +1,233 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node.NodeItem;
+import io.github.byzatic.tessera.engine.domain.model.node_global.NodeGlobal;
+import io.github.byzatic.tessera.engine.domain.model.project.ProjectGlobal;
+import io.github.byzatic.tessera.engine.domain.model.project.StoragesItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageManager;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageManagerSettings;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackends;
+import io.github.byzatic.tessera.storageapi.dto.StorageItem;
+import io.github.byzatic.tessera.storageapi.exceptions.MCg3ApiOperationIncompleteException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Пакетные putStorageObjects/getStorageObjects обеих реализаций StorageApi (pipeline и service)
+ * поверх StorageManager: узел "node" с downstream-узлом "child", у каждого хранилища "s1" и "s2",
+ * глобальные хранилища "g1" и "g2".
+ */
+public class StorageApiBatchTest {
+    private final GraphNodeRef nodeRef = GraphNodeRef.newBuilder().nodeUUID("node").build();
+    private final GraphNodeRef childRef = GraphNodeRef.newBuilder().nodeUUID("child").build();
+    private StorageManager storageManager;
+    private FullProjectRepository repository;
+
+    /**
+     * Пакетные методы StorageApi не входят в StorageApiInterface; обе реализации приводятся к одному виду.
+     */
+    private interface BatchApi {
+        void put(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException;
+
+        List<StorageItem> get(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        repository = repository();
+        storageManager = new StorageManager(repository, new StorageBackends(), StorageManagerSettings.newBuilder()
+                .initializeStorageByRequest(true)
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        storageManager.close();
+    }
+
+    private List<BatchApi> apis(GraphNodeRef graphNodeRef) {
+        io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.StorageApi pipelineApi =
+                new io.github.byzatic.tessera.engine.infrastructure.service.graph_reactor.graph_manager.pipeline_manager.api_interface.StorageApi(storageManager, graphNodeRef, repository);
+        io.github.byzatic.tessera.engine.infrastructure.service.service_manager.service_api_interface.StorageApi serviceApi =
+                new io.github.byzatic.tessera.engine.infrastructure.service.service_manager.service_api_interface.StorageApi(storageManager, graphNodeRef, repository);
+        return List.of(
+                new BatchApi() {
+                    public void put(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+                        pipelineApi.putStorageObjects(storageItems);
+                    }
+
+                    public List<StorageItem> get(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+                        return pipelineApi.getStorageObjects(storageItems);
+                    }
+                },
+                new BatchApi() {
+                    public void put(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+                        serviceApi.putStorageObjects(storageItems);
+                    }
+
+                    public List<StorageItem> get(List<StorageItem> storageItems) throws MCg3ApiOperationIncompleteException {
+                        return serviceApi.getStorageObjects(storageItems);
+                    }
+                });
+    }
+
+    private static StorageItem item(StorageItem.ScopeType scope, String storageId, String dataId, String text) {
+        return StorageItem.newBuilder()
+                .setScope(scope)
+                .setStorageId(storageId)
+                .setDataId(dataId)
+                .setDataValue((text != null) ? new OffHeapStorageTest.TestValue(text) : null)
+                .build();
+    }
+
+    private static StorageItem key(StorageItem.ScopeType scope, String storageId, String dataId) {
+        return item(scope, storageId, dataId, null);
+    }
+
+    private static String text(StorageItem storageItem) {
+        return ((OffHeapStorageTest.TestValue) storageItem.getDataValue()).text;
+    }
+
+    @Test
+    public void testBatchResultFollowsRequestOrderAcrossStorages() throws Exception {
+        int round = 0;
+        for (BatchApi api : apis(nodeRef)) {
+            String suffix = "-" + round++;
+            // элементы разных хранилищ и scope перемешаны: группы не должны менять порядок результата
+            api.put(List.of(
+                    item(StorageItem.ScopeType.LOCAL, "s1", "a", "s1-a" + suffix),
+                    item(StorageItem.ScopeType.GLOBAL, "g1", "a", "g1-a" + suffix),
+                    item(StorageItem.ScopeType.LOCAL, "s2", "a", "s2-a" + suffix),
+                    item(StorageItem.ScopeType.LOCAL, "s1", "b", "s1-b" + suffix),
+                    item(StorageItem.ScopeType.GLOBAL, "g2", "a", "g2-a" + suffix)));
+
+            List<StorageItem> result = api.get(List.of(
+                    key(StorageItem.ScopeType.GLOBAL, "g2", "a"),
+                    key(StorageItem.ScopeType.LOCAL, "s1", "b"),
+                    key(StorageItem.ScopeType.LOCAL, "s2", "a"),
+                    key(StorageItem.ScopeType.GLOBAL, "g1", "a"),
+                    key(StorageItem.ScopeType.LOCAL, "s1", "a")));
+
+            assertEquals(5, result.size());
+            assertEquals("g2-a" + suffix, text(result.get(0)));
+            assertEquals("s1-b" + suffix, text(result.get(1)));
+            assertEquals("s2-a" + suffix, text(result.get(2)));
+            assertEquals("g1-a" + suffix, text(result.get(3)));
+            assertEquals("s1-a" + suffix, text(result.get(4)));
+            assertEquals("Result keeps the requested scope and storage", "s2", result.get(2).getStorageId());
+            assertEquals(StorageItem.ScopeType.GLOBAL, result.get(3).getScope());
+        }
+    }
+
+    @Test
+    public void testMissingKeysYieldNullAtTheirPositions() throws Exception {
+        for (BatchApi api : apis(nodeRef)) {
+            api.put(List.of(item(StorageItem.ScopeType.LOCAL, "s1", "present", "value")));
+
+            List<StorageItem> result = api.get(List.of(
+                    key(StorageItem.ScopeType.LOCAL, "s1", "missing"),
+                    key(StorageItem.ScopeType.LOCAL, "s1", "present"),
+                    key(StorageItem.ScopeType.GLOBAL, "g1", "missing")));
+
+            assertEquals(3, result.size());
+            assertNull(result.get(0));
+            assertEquals("value", text(result.get(1)));
+            assertNull(result.get(2));
+            assertTrue(api.get(List.of()).isEmpty());
+        }
+    }
+
+    @Test
+    public void testDownstreamBatchReadsChildStorage() throws Exception {
+        storageManager.putItemToStorage(childRef, "s1",
+                DataLookupIdentifierImpl.newBuilder().dataId("a").build(),
+                new OffHeapStorageTest.TestValue("child-a"));
+        for (BatchApi api : apis(nodeRef)) {
+            List<StorageItem> result = api.get(List.of(
+                    StorageItem.newBuilder().setScope(StorageItem.ScopeType.DOWNSTREAM).setDownstreamName("child").setStorageId("s1").setDataId("a").build(),
+                    key(StorageItem.ScopeType.LOCAL, "s1", "a")));
+
+            assertEquals("child-a", text(result.get(0)));
+            assertEquals("child", result.get(0).getDownstreamName());
+            assertNull("Local storage of the parent is a different batch", result.get(1));
+        }
+    }
+
+    @Test
+    public void testUnknownStorageFailsWholeBatch() throws Exception {
+        for (BatchApi api : apis(nodeRef)) {
+            try {
+                api.put(List.of(
+                        item(StorageItem.ScopeType.LOCAL, "s1", "a", "1"),
+                        item(StorageItem.ScopeType.GLOBAL, "unknown", "a", "1")));
+                fail("Unknown global storage");
+            } catch (MCg3ApiOperationIncompleteException e) {
+                // ожидаемо
+            }
+            try {
+                api.get(List.of(key(StorageItem.ScopeType.LOCAL, "unknown", "a")));
+                fail("Unknown node storage");
+            } catch (MCg3ApiOperationIncompleteException e) {
+                // ожидаемо
+            }
+            try {
+                api.put(List.of(item(StorageItem.ScopeType.DOWNSTREAM, "s1", "a", "1")));
+                fail("Downstream is read only");
+            } catch (MCg3ApiOperationIncompleteException e) {
+                // ожидаемо
+            }
+        }
+    }
+
+    @Test
+    public void testNullValueInBatchIsReported() throws Exception {
+        for (BatchApi api : apis(nodeRef)) {
+            List<StorageItem> batch = new ArrayList<>();
+            batch.add(item(StorageItem.ScopeType.GLOBAL, "g1", "a", null));
+            try {
+                api.put(batch);
+                fail("Null value is rejected");
+            } catch (MCg3ApiOperationIncompleteException e) {
+                // ожидаемо
+            }
+        }
+    }
+
+    // ===== stubs =====
+
+    private FullProjectRepository repository() {
+        NodeGlobal nodeGlobal = NodeGlobal.newBuilder().storages(List.of(
+                io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem.newBuilder().idName("s1").options(List.of()).build(),
+                io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem.newBuilder().idName("s2").options(List.of()).build()
+        )).build();
+        ProjectGlobal global = ProjectGlobal.newBuilder().storages(List.of(
+                StoragesItem.newBuilder().idName("g1").options(List.of()).build(),
+                StoragesItem.newBuilder().idName("g2").options(List.of()).build()
+        )).services(List.of()).build();
+        NodeItem node = NodeItem.newBuilder().setUUID("node").setId("node").setName("node").setDownstream(List.of(childRef)).build();
+        NodeItem child = NodeItem.newBuilder().setUUID("child").setId("child").setName("child").setDownstream(List.of()).build();
+        return (FullProjectRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{FullProjectRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getGlobal" -> global;
+                    case "getNodeGlobal" -> nodeGlobal;
+                    case "getNode" -> nodeRef.equals(args[0]) ? node : child;
+                    case "listGraphNodeRef" -> List.of(nodeRef, childRef);
+                    case "isGlobalStorageDeclaration" -> Set.of("g1", "g2").contains((String) args[0]);
+                    case "isNodeStorageDeclaration" -> Set.of("s1", "s2").contains((String) args[1]);
+                    default -> null;
+                });
+    }
+}
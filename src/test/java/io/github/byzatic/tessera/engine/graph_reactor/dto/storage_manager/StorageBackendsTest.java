@@ -0,0 +1,145 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackendFactory;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackends;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.BoundedStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.OffHeapStorage;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StorageBackendsTest {
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private static OffHeapStorageTest.TestValue value(String text) {
+        return new OffHeapStorageTest.TestValue(text);
+    }
+
+    @Test
+    public void testBackendSelectedByOption() throws OperationIncompleteException {
+        StorageBackends backends = new StorageBackends();
+        assertTrue("heap is the default", backends.create("s", Map.of()) instanceof Storage);
+        assertTrue(backends.create("s", Map.of(StorageBackends.OPTION_BACKEND, "offheap")) instanceof OffHeapStorage);
+        assertTrue("Limits wrap the backend", backends.create("s", Map.of(StorageBackends.OPTION_MAX_ITEMS, "10")) instanceof BoundedStorage);
+
+        StorageInterface<DataValueInterface> sorted = backends.create("s", Map.of(StorageBackends.OPTION_BACKEND, " Sorted "));
+        for (String key : new String[]{"c", "a", "b"}) sorted.upsert(id(key), value(key));
+        List<String> keys = new ArrayList<>();
+        for (Pair<String, DataValueInterface> item : sorted.list()) keys.add(item.getKey());
+        assertEquals(List.of("a", "b", "c"), keys);
+    }
+
+    @Test
+    public void testUnknownBackendAndNodeOnlyRestrictionsFail() {
+        StorageBackends backends = new StorageBackends();
+        try {
+            backends.create("s", Map.of(StorageBackends.OPTION_BACKEND, "missing"));
+            fail("Unknown backend should be rejected");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage().contains("missing"));
+        }
+        try {
+            backends.createNodeStorage("s", Map.of(StorageBackends.OPTION_MAX_ITEMS, "10"));
+            fail("Global-only option should be rejected for node storage");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage().contains(StorageBackends.OPTION_MAX_ITEMS));
+        }
+    }
+
+    @Test
+    public void testRegisteredFactoryIsSelected() throws OperationIncompleteException {
+        StorageBackends backends = new StorageBackends();
+        backends.register(new StorageBackendFactory() {
+            @NotNull
+            @Override
+            public String getName() {
+                return "custom";
+            }
+
+            @NotNull
+            @Override
+            public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+                return new Storage<>("custom-" + storageId);
+            }
+
+            @Override
+            public boolean isPersistent() {
+                return true;
+            }
+        });
+        Map<String, String> options = Map.of(StorageBackends.OPTION_BACKEND, "custom");
+        assertEquals("custom-s", backends.create("s", options).getStorageId());
+        assertTrue(backends.isRestoredOnStart(options));
+        assertFalse(backends.isRestoredOnStart(Map.of()));
+    }
+
+    @Test
+    public void testSortedBackendCallsFunctionsAtMostOnce() throws Exception {
+        StorageInterface<DataValueInterface> storage = new StorageBackends().create("s", Map.of(StorageBackends.OPTION_BACKEND, "sorted"));
+        int threads = 8;
+        int keys = 500;
+        AtomicInteger computed = new AtomicInteger();
+        AtomicInteger merged = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < keys; i++) {
+                    storage.computeIfAbsent(id("key-" + i), key -> {
+                        computed.incrementAndGet();
+                        return value(key);
+                    });
+                    storage.merge(id("counter"), value("1"), (old, item) -> {
+                        merged.incrementAndGet();
+                        return value(String.valueOf(Integer.parseInt(((OffHeapStorageTest.TestValue) old).text) + 1));
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals("Mapping function is called once per key", keys, computed.get());
+        assertEquals("Remapping function is called once per merge of an existing value", threads * keys - 1, merged.get());
+        assertEquals(value(String.valueOf(threads * keys)), storage.getIfPresent(id("counter")));
+        assertEquals(keys + 1, (int) storage.size());
+    }
+    @Test
+    public void testCleanupResetsSize() throws Exception {
+        StorageBackends backends = new StorageBackends();
+        for (String backend : List.of("sorted", "heap")) {
+            StorageInterface<DataValueInterface> storage = backends.create("s", Map.of(StorageBackends.OPTION_BACKEND, backend));
+            for (int i = 0; i < 100; i++) {
+                storage.upsert(id("key-" + i), value("v" + i));
+            }
+            assertEquals(backend, 100, (int) storage.size());
+
+            storage.cleanup();
+            assertEquals(backend, 0, (int) storage.size());
+            assertTrue(backend, storage.list().isEmpty());
+
+            storage.upsert(id("key-0"), value("v0"));
+            assertEquals(backend, 1, (int) storage.size());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.domain.model.GraphNodeRef;
+import io.github.byzatic.tessera.engine.domain.model.node_global.NodeGlobal;
+import io.github.byzatic.tessera.engine.domain.model.node_global.OptionsItem;
+import io.github.byzatic.tessera.engine.domain.model.project.ProjectGlobal;
+import io.github.byzatic.tessera.engine.domain.model.project.StoragesItem;
+import io.github.byzatic.tessera.engine.domain.repository.FullProjectRepository;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageInterface;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageManager;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.StorageManagerSettings;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.HeapStorageBackendFactory;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackendFactory;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.backend.StorageBackends;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.apache.commons.math3.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * StorageManager на заглушке репозитория проекта: узел "node" объявляет хранилища "tracked" (backend=tracking),
+ * "plain" и "offheap" (backend=offheap), проект — глобальные "g1" и "g2".
+ */
+public class StorageManagerTest {
+    private static final String TRACKING = "tracking";
+
+    private final GraphNodeRef nodeRef = GraphNodeRef.newBuilder().nodeUUID("node").build();
+    private final List<StorageManager> managers = new ArrayList<>();
+    // хранилища backend'а tracking в порядке создания и сигналы их закрытия
+    private final List<StorageInterface<DataValueInterface>> tracked = Collections.synchronizedList(new ArrayList<>());
+    private final Map<StorageInterface<DataValueInterface>, CountDownLatch> closed = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    @After
+    public void tearDown() {
+        for (StorageManager manager : managers) manager.close();
+    }
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private static OffHeapStorageTest.TestValue value(String text) {
+        return new OffHeapStorageTest.TestValue(text);
+    }
+
+    private StorageManager manager(String cleanupMode) throws OperationIncompleteException {
+        StorageBackends backends = new StorageBackends();
+        backends.register(new TrackingBackendFactory());
+        StorageManager manager = new StorageManager(repository(), backends, StorageManagerSettings.newBuilder()
+                .initializeStorageByRequest(true)
+                .nodeStorageCleanupMode(cleanupMode)
+                .build());
+        managers.add(manager);
+        return manager;
+    }
+
+    // ===== nodeStorageCleanupMode =====
+
+    @Test
+    public void testGenerationCleanupSwapsAndClosesRetiredStorages() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_GENERATION);
+        manager.putItemToStorage(nodeRef, "tracked", id("a"), value("1"));
+        assertEquals(1, tracked.size());
+        StorageInterface<DataValueInterface> retired = tracked.get(0);
+
+        manager.cleanupNodeStorages();
+
+        assertNull("New generation starts empty", manager.getItemFromStorageIfPresent(nodeRef, "tracked", id("a")));
+        assertEquals("Storage of the new generation is created on first access", 2, tracked.size());
+        assertTrue("Retired generation is closed", closed.get(retired).await(5, TimeUnit.SECONDS));
+        assertEquals("Current generation stays open", 1, closed.get(tracked.get(1)).getCount());
+
+        manager.close();
+        assertEquals(0, closed.get(tracked.get(1)).getCount());
+    }
+
+    @Test
+    public void testGenerationCleanupRejectsOffHeapNodeStorage() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_GENERATION);
+        try {
+            manager.putItemToStorage(nodeRef, "offheap", id("a"), value("1"));
+            fail("Off-heap node storage is rejected in generation mode");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("generation"));
+        }
+        // в режиме clear тот же backend допустим
+        manager(StorageManagerSettings.CLEANUP_CLEAR).putItemToStorage(nodeRef, "offheap", id("a"), value("1"));
+    }
+
+    @Test
+    public void testClearCleanupKeepsStorageInstances() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_CLEAR);
+        manager.putItemToStorage(nodeRef, "tracked", id("a"), value("1"));
+
+        manager.cleanupNodeStorages();
+
+        assertNull(manager.getItemFromStorageIfPresent(nodeRef, "tracked", id("a")));
+        assertEquals("Storage is cleared in place", 1, tracked.size());
+        assertEquals(1, closed.get(tracked.get(0)).getCount());
+    }
+
+    // ===== batch API =====
+
+    @Test
+    public void testNodeBatchPutAndGetKeepRequestOrder() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_CLEAR);
+        manager.putItemsToStorage(nodeRef, "plain", List.of(
+                new Pair<>(id("a"), value("1")),
+                new Pair<>(id("b"), value("2")),
+                new Pair<>(id("a"), value("3"))));
+
+        List<DataValueInterface> values = manager.getItemsFromStorage(nodeRef, "plain", List.of(id("b"), id("missing"), id("a")));
+
+        assertEquals(3, values.size());
+        assertEquals("2", text(values.get(0)));
+        assertNull("Missing key yields null at its position", values.get(1));
+        assertEquals("Later item of the batch wins", "3", text(values.get(2)));
+        assertTrue(manager.getItemsFromStorage(nodeRef, "plain", List.of()).isEmpty());
+    }
+
+    @Test
+    public void testGlobalBatchesAreIsolatedPerStorage() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_CLEAR);
+        manager.putItemsToStorage("g1", List.of(new Pair<>(id("a"), value("g1-a")), new Pair<>(id("b"), value("g1-b"))));
+        manager.putItemsToStorage("g2", List.of(new Pair<>(id("a"), value("g2-a"))));
+
+        List<DataValueInterface> g1 = manager.getItemsFromStorage("g1", List.of(id("b"), id("a")));
+        List<DataValueInterface> g2 = manager.getItemsFromStorage("g2", List.of(id("b"), id("a")));
+
+        assertEquals("g1-b", text(g1.get(0)));
+        assertEquals("g1-a", text(g1.get(1)));
+        assertNull(g2.get(0));
+        assertEquals("g2-a", text(g2.get(1)));
+    }
+
+    @Test
+    public void testBatchOnUnknownStorageFails() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_CLEAR);
+        try {
+            manager.putItemsToStorage("unknown", List.of(new Pair<>(id("a"), value("1"))));
+            fail("Unknown global storage");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown"));
+        }
+        try {
+            manager.getItemsFromStorage("unknown", List.of(id("a")));
+            fail("Unknown global storage");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown"));
+        }
+        try {
+            manager.getItemsFromStorage(nodeRef, "unknown", List.of(id("a")));
+            fail("Unknown node storage");
+        } catch (OperationIncompleteException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown"));
+        }
+    }
+
+    @Test
+    public void testBatchNullsAreReportedAsOperationIncomplete() throws Exception {
+        StorageManager manager = manager(StorageManagerSettings.CLEANUP_CLEAR);
+        List<Pair<DataLookupIdentifierImpl, DataValueInterface>> nullValue = new ArrayList<>();
+        nullValue.add(new Pair<>(id("a"), null));
+        try {
+            manager.putItemsToStorage("g1", nullValue);
+            fail("Null value is rejected");
+        } catch (OperationIncompleteException e) {
+            // исключение backend'а обёрнуто так же, как в node-вариантах
+        }
+        try {
+            manager.putItemsToStorage(nodeRef, "plain", nullValue);
+            fail("Null value is rejected");
+        } catch (OperationIncompleteException e) {
+            // ожидаемо
+        }
+        List<DataLookupIdentifierImpl> nullId = new ArrayList<>();
+        nullId.add(null);
+        try {
+            manager.getItemsFromStorage("g1", nullId);
+            fail("Null identifier is rejected");
+        } catch (OperationIncompleteException e) {
+            // ожидаемо
+        }
+    }
+
+    private static String text(DataValueInterface value) {
+        return ((OffHeapStorageTest.TestValue) value).text;
+    }
+
+    // ===== stubs =====
+
+    private FullProjectRepository repository() {
+        NodeGlobal nodeGlobal = NodeGlobal.newBuilder().storages(List.of(
+                nodeStorage("tracked", TRACKING),
+                nodeStorage("plain", null),
+                nodeStorage("offheap", "offheap")
+        )).build();
+        ProjectGlobal global = ProjectGlobal.newBuilder().storages(List.of(
+                StoragesItem.newBuilder().idName("g1").options(List.of()).build(),
+                StoragesItem.newBuilder().idName("g2").options(List.of()).build()
+        )).services(List.of()).build();
+        return (FullProjectRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{FullProjectRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getGlobal" -> global;
+                    case "getNodeGlobal" -> nodeGlobal;
+                    case "listGraphNodeRef" -> List.of(nodeRef);
+                    case "isGlobalStorageDeclaration" -> Set.of("g1", "g2").contains((String) args[0]);
+                    case "isNodeStorageDeclaration" -> nodeRef.equals(args[0]) && Set.of("tracked", "plain", "offheap").contains((String) args[1]);
+                    default -> null;
+                });
+    }
+
+    private static io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem nodeStorage(String name, String backend) {
+        List<OptionsItem> options = (backend == null)
+                ? List.of()
+                : List.of(OptionsItem.newBuilder().key(StorageBackends.OPTION_BACKEND).value(backend).build());
+        return io.github.byzatic.tessera.engine.domain.model.node_global.StoragesItem.newBuilder().idName(name).options(options).build();
+    }
+
+    /**
+     * heap-хранилище, закрытие которого наблюдается тестом.
+     */
+    private final class TrackingBackendFactory implements StorageBackendFactory {
+        @NotNull
+        @Override
+        public String getName() {
+            return TRACKING;
+        }
+
+        @NotNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public StorageInterface<DataValueInterface> create(@NotNull String storageId, @NotNull Map<String, String> options) throws OperationIncompleteException {
+            StorageInterface<DataValueInterface> delegate = new HeapStorageBackendFactory().create(storageId, options);
+            CountDownLatch closeSignal = new CountDownLatch(1);
+            StorageInterface<DataValueInterface> storage = (StorageInterface<DataValueInterface>) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[]{StorageInterface.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName())) closeSignal.countDown();
+                        try {
+                            return method.invoke(delegate, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+            closed.put(storage, closeSignal);
+            tracked.add(storage);
+            return storage;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.byzatic.tessera.engine.graph_reactor.dto.storage_manager;
+
+import io.github.byzatic.tessera.engine.application.commons.exceptions.OperationIncompleteException;
+import io.github.byzatic.tessera.engine.domain.model.DataLookupIdentifierImpl;
+import io.github.byzatic.tessera.engine.infrastructure.persistence.storage_manager.storage.Storage;
+import io.github.byzatic.tessera.storageapi.dto.DataValueInterface;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Heap-хранилище: ConcurrentHashMap по умолчанию и ConcurrentSkipListMap (backend=sorted) с полосами блокировок.
+ */
+public class StorageTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2000;
+
+    private static DataLookupIdentifierImpl id(String id) {
+        return DataLookupIdentifierImpl.newBuilder().dataId(id).build();
+    }
+
+    private static OffHeapStorageTest.TestValue value(String text) {
+        return new OffHeapStorageTest.TestValue(text);
+    }
+
+    private static List<Storage<DataValueInterface>> storages() throws OperationIncompleteException {
+        return List.of(new Storage<>("heap"), new Storage<>("sorted", new ConcurrentSkipListMap<>()));
+    }
+
+    private static String text(DataValueInterface value) {
+        return ((OffHeapStorageTest.TestValue) value).text;
+    }
+
+    @Test
+    public void testUpsertReplacesAndCountsOnce() throws OperationIncompleteException {
+        for (Storage<DataValueInterface> storage : storages()) {
+            storage.upsert(id("a"), value("1"));
+            storage.upsert(id("a"), value("2"));
+            storage.upsert(id("b"), value("3"));
+
+            assertEquals(storage.getStorageId(), Integer.valueOf(2), storage.size());
+            assertEquals("2", text(storage.getIfPresent(id("a"))));
+            assertNull(storage.getIfPresent(id("missing")));
+        }
+    }
+
+    @Test
+    public void testMergeCombinesAndRemovesOnNull() throws OperationIncompleteException {
+        for (Storage<DataValueInterface> storage : storages()) {
+            assertEquals("1", text(storage.merge(id("a"), value("1"), (o, n) -> value(text(o) + text(n)))));
+            assertEquals("12", text(storage.merge(id("a"), value("2"), (o, n) -> value(text(o) + text(n)))));
+            assertEquals(Integer.valueOf(1), storage.size());
+
+            assertNull("Null from the remapping function removes the item", storage.merge(id("a"), value("3"), (o, n) -> null));
+            assertNull(storage.getIfPresent(id("a")));
+            assertEquals(storage.getStorageId(), Integer.valueOf(0), storage.size());
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentKeepsExistingValue() throws OperationIncompleteException {
+        for (Storage<DataValueInterface> storage : storages()) {
+            AtomicInteger calls = new AtomicInteger();
+            assertEquals("1", text(storage.computeIfAbsent(id("a"), key -> {
+                calls.incrementAndGet();
+                return value("1");
+            })));
+            assertEquals("1", text(storage.computeIfAbsent(id("a"), key -> {
+                calls.incrementAndGet();
+                return value("2");
+            })));
+            assertEquals(1, calls.get());
+            assertEquals(Integer.valueOf(1), storage.size());
+            try {
+                storage.computeIfAbsent(id("b"), key -> null);
+                fail("Null from the mapping function is rejected");
+            } catch (OperationIncompleteException e) {
+                assertFalse(storage.contains(id("b")));
+            }
+        }
+    }
+
+    @Test
+    public void testSizeAfterRemove() throws OperationIncompleteException {
+        for (Storage<DataValueInterface> storage : storages()) {
+            for (int i = 0; i < 10; i++) storage.upsert(id("k" + i), value("v" + i));
+            assertTrue(storage.delete(id("k3")));
+            assertFalse("Second delete of the same key is a no-op", storage.delete(id("k3")));
+            assertFalse(storage.delete(id("missing")));
+            assertEquals(storage.getStorageId(), Integer.valueOf(9), storage.size());
+
+            storage.cleanup();
+            assertEquals(Integer.valueOf(0), storage.size());
+            storage.upsert(id("k0"), value("v0"));
+            assertEquals(Integer.valueOf(1), storage.size());
+        }
+    }
+
+    @Test
+    public void testConcurrentMergeOnOneKeyLosesNoUpdates() throws Exception {
+        for (Storage<DataValueInterface> storage : storages()) {
+            runConcurrently(() -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    storage.merge(id("counter"), value("1"),
+                            (o, n) -> value(String.valueOf(Integer.parseInt(text(o)) + Integer.parseInt(text(n)))));
+                }
+                return null;
+            });
+            assertEquals(storage.getStorageId(), String.valueOf(THREADS * ROUNDS), text(storage.getIfPresent(id("counter"))));
+            assertEquals(Integer.valueOf(1), storage.size());
+        }
+    }
+
+    @Test
+    public void testConcurrentComputeIfAbsentOnOneKeyCallsFunctionOnce() throws Exception {
+        for (Storage<DataValueInterface> storage : storages()) {
+            for (int round = 0; round < 100; round++) {
+                String key = "key-" + round;
+                AtomicInteger calls = new AtomicInteger();
+                List<DataValueInterface> seen = runConcurrently(() -> storage.computeIfAbsent(id(key), k -> {
+                    calls.incrementAndGet();
+                    return value(k + "-" + Thread.currentThread().getName());
+                }));
+                assertEquals(storage.getStorageId(), 1, calls.get());
+                for (DataValueInterface observed : seen) {
+                    assertSame("Every caller sees the single stored value", seen.get(0), observed);
+                }
+            }
+            assertEquals(Integer.valueOf(100), storage.size());
+        }
+    }
+
+    private interface Action {
+        DataValueInterface run() throws Exception;
+    }
+
+    // запускает action одновременно в THREADS потоках и возвращает их результаты
+    private static List<DataValueInterface> runConcurrently(Action action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<DataValueInterface>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return action.run();
+                }));
+            }
+            start.countDown();
+            List<DataValueInterface> results = new ArrayList<>();
+            for (Future<DataValueInterface> future : futures) results.add(future.get(30, TimeUnit.SECONDS));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}